@@ -13,6 +13,7 @@
 package org.activiti.engine;
 
 import java.io.InputStream;
+import java.sql.Timestamp;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -640,6 +641,16 @@ public void createCopyTasks(ExecutionEntity execution) ;
  * @param copytaskid
  */
 public void completeCopyTask(String copytaskid,String copyuser);
+/**
+ * 批量完成用户的抄送/通知任务，在一个事务中完成阅读记录和待办抄送任务的处理
+ * @param copytaskids
+ * @param copyuser
+ */
+public void completeCopyTasks(Collection<String> copytaskids,String copyuser);
+/**
+ * 重建用户抄送阅读索引，开启copyTaskBatchEnabled时需执行一次
+ */
+public void rebuildCopyTaskReadIndex();
 /**
  * 获取用户的通知和抄送任务
  * @param user 用户账号
@@ -697,6 +708,25 @@ public ListInfo getAdminCopyTasks(String process_key,String businesskey,long off
  * @return
  */
 public ListInfo getUserCopyTasks(String user,List<String> orgs,String process_key,String businesskey,long offeset,int pagesize);
+/**
+ * 按抄送时间倒序翻页获取用户的通知和抄送任务（keyset分页）：返回上一页最后一条任务之后的pagesize条任务，
+ * 不统计总记录数，也不跳过offeset条记录，深度翻页和第一页的开销相同
+ * @param user 用户账号
+ * @param orgs 用户隶属的机构列表（父子机构）
+ * @param lastCopytime 上一页最后一条任务的抄送时间，第一页为null
+ * @param lastId 上一页最后一条任务的id，第一页为null
+ * @param pagesize
+ * @return
+ */
+public List<CopyTaskEntity> getUserCopyTasksAfter(String user,List<String> orgs,String process_key,String businesskey,Timestamp lastCopytime,String lastId,int pagesize);
+/**
+ * 管理员视角按抄送时间倒序翻页获取抄送任务（keyset分页），参数含义同getUserCopyTasksAfter
+ * @param lastCopytime 上一页最后一条任务的抄送时间，第一页为null
+ * @param lastId 上一页最后一条任务的id，第一页为null
+ * @param pagesize
+ * @return
+ */
+public List<CopyTaskEntity> getAdminCopyTasksAfter(String process_key,String businesskey,Timestamp lastCopytime,String lastId,int pagesize);
 /**
  * 获取用户阅读记录
  * @param actinstid 活动任务id
@@ -197,4 +197,13 @@ public interface HistoricProcessInstanceQuery extends Query<HistoricProcessInsta
   /** Only select historic process instances that were finished on provided date.
    * @deprecated will be removed in 5.12, use {@link #startedAfter(Date)} and {@link #startedBefore(Date)} instead */
   HistoricProcessInstanceQuery finishDateOn(Date date);
+  
+  /**
+   * Keyset pagination: the maxResults historic process instances that follow the given last instance of 
+   * the previous page, in the order of the (single) order property and then of the id. Unlike 
+   * {@link #listPage(int, int)} deep pages don't get slower, use it with {@link #orderByProcessInstanceStartTime()}.
+   * @param lastSortValue value of the order property of the last instance, e.g. its start time
+   * @param lastId id of the last instance, null for the first page
+   */
+  List<HistoricProcessInstance> listPageAfter(Object lastSortValue, String lastId, int maxResults);
 }
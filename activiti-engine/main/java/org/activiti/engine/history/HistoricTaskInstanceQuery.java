@@ -14,6 +14,7 @@
 package org.activiti.engine.history;
 
 import java.util.Date;
+import java.util.List;
 
 import org.activiti.engine.query.Query;
 import org.activiti.engine.task.Task;
@@ -230,4 +231,13 @@ public interface HistoricTaskInstanceQuery  extends Query<HistoricTaskInstanceQu
   
   /** Order by task priority key (needs to be followed by {@link #asc()} or {@link #desc()}). */
   HistoricTaskInstanceQuery orderByTaskPriority();
+  
+  /**
+   * Keyset pagination: the maxResults historic task instances that follow the given last instance of 
+   * the previous page, in the order of the (single) order property and then of the id. Unlike 
+   * {@link #listPage(int, int)} deep pages don't get slower, use it with {@link #orderByHistoricTaskInstanceStartTime()}.
+   * @param lastSortValue value of the order property of the last instance, e.g. its start time
+   * @param lastId id of the last instance, null for the first page
+   */
+  List<HistoricTaskInstance> listPageAfter(Object lastSortValue, String lastId, int maxResults);
 }
@@ -13,6 +13,8 @@
 package org.activiti.engine.impl;
 
 import java.io.Serializable;
+import java.sql.Timestamp;
+import java.util.Date;
 import java.util.List;
 
 import org.activiti.engine.ActivitiException;
@@ -22,6 +24,7 @@ import org.activiti.engine.impl.db.ListQueryParameterObject;
 import org.activiti.engine.impl.interceptor.Command;
 import org.activiti.engine.impl.interceptor.CommandContext;
 import org.activiti.engine.impl.interceptor.CommandExecutor;
+import org.activiti.engine.impl.interceptor.ReadOnlyCommand;
 import org.activiti.engine.query.Query;
 import org.activiti.engine.query.QueryProperty;
 
@@ -31,13 +34,16 @@ import org.activiti.engine.query.QueryProperty;
  *  
  * @author Joram Barrez
  */
-public abstract class AbstractQuery<T extends Query<?,?>, U> extends ListQueryParameterObject implements Command<Object>, Query<T,U>, Serializable {
+public abstract class AbstractQuery<T extends Query<?,?>, U> extends ListQueryParameterObject implements Command<Object>, ReadOnlyCommand, Query<T,U>, Serializable {
       
   private static final long serialVersionUID = 1L;
   
   public static final String SORTORDER_ASC = "asc";
   public static final String SORTORDER_DESC = "desc";
   
+  /** the id column, tie breaker of keyset pagination */
+  protected static final String ID_COLUMN = "RES.ID_";
+  
   private static enum ResultType {
     LIST, LIST_PAGE, SINGLE_RESULT, COUNT
   }
@@ -49,6 +55,12 @@ public abstract class AbstractQuery<T extends Query<?,?>, U> extends ListQueryPa
   protected ResultType resultType;
 
   protected QueryProperty orderProperty;
+  
+  /** keyset pagination: the order column, its direction and the sort value and id of the last result of the previous page */
+  protected String seekColumn;
+  protected boolean seekDescending;
+  protected Object seekValue;
+  protected String seekId;
 
   protected AbstractQuery() {
     parameter = this;
@@ -117,6 +129,7 @@ public abstract class AbstractQuery<T extends Query<?,?>, U> extends ListQueryPa
   
   @SuppressWarnings("unchecked")
   public List<U> listPage(int firstResult, int maxResults) {
+    this.seekColumn = null;
     this.firstResult = firstResult;
     this.maxResults = maxResults;
     this.resultType = ResultType.LIST_PAGE;
@@ -126,6 +139,88 @@ public abstract class AbstractQuery<T extends Query<?,?>, U> extends ListQueryPa
     return executeList(Context.getCommandContext(), new Page(firstResult, maxResults));
   }
   
+  /**
+   * Keyset (seek) pagination: returns the maxResults results that follow the last result of the 
+   * previous page, given its sort value and id, instead of skipping firstResult rows. The query is 
+   * ordered by the (single, not null) order property and then by id, and the page is read with a 
+   * range condition on the order column, so deep pages cost the same as the first one.
+   * @param lastSortValue the value of the order property of the last result, ignored when the 
+   *        query is ordered by id or not ordered
+   * @param lastId the id of the last result, null for the first page
+   */
+  @SuppressWarnings("unchecked")
+  public List<U> listPageAfter(Object lastSortValue, String lastId, int maxResults) {
+    if (!isKeysetPaginationSupported()) {
+      throw new ActivitiException(getClass().getName() + " doesn't support keyset pagination");
+    }
+    checkQueryOk();
+    initSeek(lastSortValue, lastId);
+    this.firstResult = 0;
+    this.maxResults = maxResults;
+    this.resultType = ResultType.LIST_PAGE;
+    if (commandExecutor!=null) {
+      return (List<U>) commandExecutor.execute(this);
+    }
+    return executeList(Context.getCommandContext(), new Page(0, maxResults));
+  }
+  
+  /**
+   * queries whose mapper applies the seek condition (seekColumn, seekOperator, seekValue, seekId) override this
+   */
+  protected boolean isKeysetPaginationSupported() {
+    return false;
+  }
+  
+  protected void initSeek(Object lastSortValue, String lastId) {
+    String column = ID_COLUMN;
+    boolean descending = false;
+    if (orderBy != null) {
+      String[] orders = orderBy.split(",");
+      if (orders.length > 1) {
+        throw new ActivitiIllegalArgumentException("Keyset pagination supports a single order property, the id is added as tie breaker: " + orderBy);
+      }
+      String order = orders[0].trim();
+      int index = order.lastIndexOf(' ');
+      column = order.substring(0, index).trim();
+      if (column.indexOf('.') < 0) {
+        column = "RES." + column;
+      }
+      descending = SORTORDER_DESC.equals(order.substring(index + 1));
+    }
+    if (ID_COLUMN.equals(column)) {
+      lastSortValue = null;
+    } else if (lastId != null && lastSortValue == null) {
+      throw new ActivitiIllegalArgumentException("Keyset pagination needs the sort value of the last result, the order property must be not null");
+    }
+    if (lastSortValue instanceof Date && !(lastSortValue instanceof Timestamp)) {
+      lastSortValue = new Timestamp(((Date) lastSortValue).getTime());
+    }
+    this.seekColumn = column;
+    this.seekDescending = descending;
+    this.seekValue = lastSortValue;
+    this.seekId = lastId;
+  }
+  
+  protected boolean isSeekPage() {
+    return seekColumn != null && resultType == ResultType.LIST_PAGE;
+  }
+  
+  public String getSeekColumn() {
+    return isSeekPage() ? seekColumn : null;
+  }
+  
+  public String getSeekOperator() {
+    return seekDescending ? "<" : ">";
+  }
+  
+  public Object getSeekValue() {
+    return isSeekPage() ? seekValue : null;
+  }
+  
+  public String getSeekId() {
+    return isSeekPage() ? seekId : null;
+  }
+  
   public long count() {
     this.resultType = ResultType.COUNT;
     if (commandExecutor!=null) {
@@ -174,6 +269,13 @@ public abstract class AbstractQuery<T extends Query<?,?>, U> extends ListQueryPa
   }
 
   public String getOrderBy() {
+    if (isSeekPage()) {
+      String direction = seekDescending ? SORTORDER_DESC : SORTORDER_ASC;
+      if (ID_COLUMN.equals(seekColumn)) {
+        return ID_COLUMN + " " + direction;
+      }
+      return seekColumn + " " + direction + ", " + ID_COLUMN + " " + direction;
+    }
     if(orderBy == null) {
       return super.getOrderBy();
     } else {
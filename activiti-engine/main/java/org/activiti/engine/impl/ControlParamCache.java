@@ -0,0 +1,180 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.impl;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.activiti.engine.ControlParam;
+
+/**
+ * Control parameters ({@link ControlParam}) of the nodes of process instances, shared by all 
+ * commands of the engine, and the hit statistics of the control parameter and assignee 
+ * lookups of the {@link ControlParamManager}.
+ * 
+ * Entries are only kept across commands when the cache is enabled. They are grouped per process 
+ * instance, so the parameters of an instance are dropped at once when it ends. When the node 
+ * configuration of a running instance is changed, {@link #invalidate(String, String)} or 
+ * {@link #invalidate(String)} has to be called.
+ * 
+ * @author biaoping.yin
+ */
+public class ControlParamCache {
+  
+  /** cached for nodes without control parameters */
+  static final Object NO_CONTROL_PARAM = new Object();
+  
+  protected final Map<String, Map<String, Object>> processInstances = new ConcurrentHashMap<String, Map<String, Object>>();
+  protected final boolean enabled;
+  protected final int limit;
+  
+  protected final AtomicLong commandHitCount = new AtomicLong();
+  protected final AtomicLong sharedHitCount = new AtomicLong();
+  protected final AtomicLong missCount = new AtomicLong();
+  protected final AtomicLong assigneeHitCount = new AtomicLong();
+  protected final AtomicLong assigneeQueryCount = new AtomicLong();
+
+  /**
+   * @param enabled keep control parameters across commands
+   * @param limit max number of process instances kept, a value <= 0 means no bound
+   */
+  public ControlParamCache(boolean enabled, int limit) {
+    this.enabled = enabled;
+    this.limit = limit;
+  }
+
+  /**
+   * @return the cached control parameter, {@link #NO_CONTROL_PARAM} or null if not cached
+   */
+  Object get(String processInstanceId, String nodeKey) {
+    if (!enabled) {
+      return null;
+    }
+    Map<String, Object> controlParams = processInstances.get(processInstanceId);
+    Object controlParam = controlParams != null ? controlParams.get(nodeKey) : null;
+    if (controlParam != null) {
+      sharedHitCount.incrementAndGet();
+    }
+    return controlParam;
+  }
+
+  void put(String processInstanceId, String nodeKey, ControlParam controlParam) {
+    if (!enabled) {
+      return;
+    }
+    Map<String, Object> controlParams = processInstances.get(processInstanceId);
+    if (controlParams == null) {
+      if (limit > 0 && processInstances.size() >= limit) {
+        // no order is kept, running instances are loaded again on their next command
+        Iterator<String> iterator = processInstances.keySet().iterator();
+        if (iterator.hasNext()) {
+          iterator.next();
+          iterator.remove();
+        }
+      }
+      controlParams = new ConcurrentHashMap<String, Object>();
+      processInstances.put(processInstanceId, controlParams);
+    }
+    controlParams.put(nodeKey, controlParam != null ? controlParam : NO_CONTROL_PARAM);
+  }
+
+  /**
+   * Drops the control parameters of a node of a process instance.
+   */
+  public void invalidate(String processInstanceId, String nodeKey) {
+    Map<String, Object> controlParams = processInstances.get(processInstanceId);
+    if (controlParams != null) {
+      controlParams.remove(nodeKey);
+    }
+  }
+
+  /**
+   * Drops the control parameters of all nodes of a process instance.
+   */
+  public void invalidate(String processInstanceId) {
+    processInstances.remove(processInstanceId);
+  }
+
+  public void clear() {
+    processInstances.clear();
+  }
+
+  void recordCommandHit() {
+    commandHitCount.incrementAndGet();
+  }
+
+  void recordMiss() {
+    missCount.incrementAndGet();
+  }
+
+  void recordAssigneeLookup(boolean hit) {
+    if (hit) {
+      assigneeHitCount.incrementAndGet();
+    } else {
+      assigneeQueryCount.incrementAndGet();
+    }
+  }
+  
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public int size() {
+    return processInstances.size();
+  }
+
+  /** control parameters found in the cache of the command */
+  public long getCommandHitCount() {
+    return commandHitCount.get();
+  }
+
+  /** control parameters found in the cache shared by the commands */
+  public long getSharedHitCount() {
+    return sharedHitCount.get();
+  }
+
+  /** control parameters loaded from the {@link org.activiti.engine.KPIService} */
+  public long getMissCount() {
+    return missCount.get();
+  }
+
+  public double getHitRate() {
+    long hits = commandHitCount.get() + sharedHitCount.get();
+    long total = hits + missCount.get();
+    return total == 0 ? 0 : (double) hits / total;
+  }
+
+  /** assignee lookups answered by the assignees already loaded for the process instance */
+  public long getAssigneeHitCount() {
+    return assigneeHitCount.get();
+  }
+
+  /** queries that loaded the assignee variables of a process instance */
+  public long getAssigneeQueryCount() {
+    return assigneeQueryCount.get();
+  }
+
+  public double getAssigneeHitRate() {
+    long hits = assigneeHitCount.get();
+    long total = hits + assigneeQueryCount.get();
+    return total == 0 ? 0 : (double) hits / total;
+  }
+  
+  public String toString() {
+    return "ControlParamCache[processInstances=" + size() + ", commandHits=" + getCommandHitCount() 
+      + ", sharedHits=" + getSharedHitCount() + ", misses=" + getMissCount() 
+      + ", assigneeHits=" + getAssigneeHitCount() + ", assigneeQueries=" + getAssigneeQueryCount() + "]";
+  }
+}
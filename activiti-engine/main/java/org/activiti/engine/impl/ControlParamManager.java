@@ -0,0 +1,151 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.activiti.engine.ActivitiException;
+import org.activiti.engine.ControlParam;
+import org.activiti.engine.impl.cfg.ProcessEngineConfigurationImpl;
+import org.activiti.engine.impl.context.Context;
+import org.activiti.engine.impl.persistence.AbstractManager;
+import org.activiti.engine.impl.pvm.process.ActivityImpl;
+import org.activiti.engine.impl.pvm.process.ScopeImpl;
+
+import com.frameworkset.common.poolman.ConfigSQLExecutor;
+
+/**
+ * Control parameters and assignee variables of the nodes of process instances, looked up 
+ * once per command. 
+ * 
+ * {@link org.activiti.engine.impl.pvm.process.ActivityImpl#isMultiTask(org.activiti.engine.impl.pvm.delegate.ActivityExecution, String, String)} 
+ * and the other node type checks run for many nodes while reject targets and transitions are 
+ * computed; the control parameters are taken from the {@link ControlParamCache} of the engine 
+ * when it is enabled, and the assignee variables of a process instance (named after the node ids 
+ * of its definition, with or without the _users suffix) are read with one query.
+ * 
+ * @author biaoping.yin
+ */
+public class ControlParamManager extends AbstractManager {
+  
+  protected Map<String, ControlParam> controlParams = new HashMap<String, ControlParam>();
+  protected Map<String, Map<String, String>> assignees = new HashMap<String, Map<String, String>>();
+  /** keeps the in lists of the assignee query below the limit of the databases (1000 on oracle) */
+  protected int maxAssigneeNamesPerQuery = 500;
+  protected ProcessEngineConfigurationImpl processEngineConfiguration;
+  protected ControlParamCache controlParamCache;
+  
+  public ControlParamManager() {
+    this.processEngineConfiguration = Context.getProcessEngineConfiguration();
+    this.controlParamCache = processEngineConfiguration.getControlParamCache();
+  }
+
+  public ControlParam getControlParam(String processInstanceId, String nodeKey) {
+    String key = processInstanceId + "|" + nodeKey;
+    if (controlParams.containsKey(key)) {
+      controlParamCache.recordCommandHit();
+      return controlParams.get(key);
+    }
+    ControlParam controlParam;
+    Object cached = controlParamCache.get(processInstanceId, nodeKey);
+    if (cached != null) {
+      controlParam = cached != ControlParamCache.NO_CONTROL_PARAM ? (ControlParam) cached : null;
+    } else {
+      controlParamCache.recordMiss();
+      controlParam = processEngineConfiguration.getKPIService().getControlParam(processInstanceId, nodeKey);
+      controlParamCache.put(processInstanceId, nodeKey, controlParam);
+    }
+    controlParams.put(key, controlParam);
+    return controlParam;
+  }
+  
+  /**
+   * @return the TEXT_ of the runtime variable of the process instance with the given name, 
+   * the assignee variables of all nodes of the process definition are loaded on the first lookup
+   */
+  @SuppressWarnings("rawtypes")
+  public String getTaskAssignees(ScopeImpl processDefinition, String processInstanceId, String variableName) {
+    Map<String, String> processInstanceAssignees = assignees.get(processInstanceId);
+    controlParamCache.recordAssigneeLookup(processInstanceAssignees != null);
+    if (processInstanceAssignees == null) {
+      processInstanceAssignees = new HashMap<String, String>();
+      List<String> names = new ArrayList<String>();
+      collectAssigneeVariableNames(processDefinition, names);
+      if (!names.contains(variableName)) {
+        names.add(variableName);
+      }
+      try {
+        ConfigSQLExecutor executor = processEngineConfiguration.getExtendExecutor();
+        for (int start = 0; start < names.size(); start += maxAssigneeNamesPerQuery) {
+          Map<String, Object> params = new HashMap<String, Object>();
+          params.put("processInstanceId", processInstanceId);
+          params.put("names", names.subList(start, Math.min(start + maxAssigneeNamesPerQuery, names.size())));
+          List<HashMap> variables = executor.queryListBean(HashMap.class, "getProcessInstanceTaskAssignees", params);
+          if (variables != null) {
+            for (HashMap variable : variables) {
+              String name = (String) variable.get("NAME_");
+              // the first row wins, as for the getTaskAssignees query
+              if (!processInstanceAssignees.containsKey(name)) {
+                processInstanceAssignees.put(name, (String) variable.get("TEXT_"));
+              }
+            }
+          }
+        }
+      } catch (Exception e) {
+        throw new ActivitiException("查询流程实例" + processInstanceId + "的任务处理人失败：", e);
+      }
+      assignees.put(processInstanceId, processInstanceAssignees);
+    }
+    return processInstanceAssignees.get(variableName);
+  }
+  
+  /** the node ids of the scope and its sub processes, with and without the _users suffix */
+  protected void collectAssigneeVariableNames(ScopeImpl scope, List<String> names) {
+    if (scope == null) {
+      return;
+    }
+    for (ActivityImpl activity : scope.getActivities()) {
+      names.add(activity.getId());
+      names.add(activity.getId() + "_users");
+      collectAssigneeVariableNames(activity, names);
+    }
+  }
+  
+  /**
+   * Drops the control parameters of a node from this command and from the {@link ControlParamCache}.
+   */
+  public void invalidate(String processInstanceId, String nodeKey) {
+    controlParams.remove(processInstanceId + "|" + nodeKey);
+    controlParamCache.invalidate(processInstanceId, nodeKey);
+  }
+  
+  /**
+   * Drops the control parameters and assignees of a process instance from this command 
+   * and from the {@link ControlParamCache}.
+   */
+  public void invalidate(String processInstanceId) {
+    String prefix = processInstanceId + "|";
+    Iterator<String> keys = controlParams.keySet().iterator();
+    while (keys.hasNext()) {
+      if (keys.next().startsWith(prefix)) {
+        keys.remove();
+      }
+    }
+    assignees.remove(processInstanceId);
+    controlParamCache.invalidate(processInstanceId);
+  }
+}
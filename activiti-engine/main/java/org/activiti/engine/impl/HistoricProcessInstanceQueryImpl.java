@@ -162,6 +162,11 @@ public class HistoricProcessInstanceQueryImpl extends AbstractVariableQueryImpl<
     return orderBy(HistoricProcessInstanceQueryProperty.PROCESS_INSTANCE_ID_);
   }
   
+  @Override
+  protected boolean isKeysetPaginationSupported() {
+    return true;
+  }
+  
   public long executeCount(CommandContext commandContext) {
     checkQueryOk();
     ensureVariablesInitialized();
@@ -66,6 +66,11 @@ public class HistoricTaskInstanceQueryImpl extends AbstractQuery<HistoricTaskIns
     super(commandExecutor);
   }
 
+  @Override
+  protected boolean isKeysetPaginationSupported() {
+    return true;
+  }
+
   @Override
   public long executeCount(CommandContext commandContext) {
     ensureVariablesInitialized();
@@ -20,6 +20,7 @@ import org.activiti.engine.identity.GroupQuery;
 import org.activiti.engine.identity.Picture;
 import org.activiti.engine.identity.User;
 import org.activiti.engine.identity.UserQuery;
+import org.activiti.engine.impl.cfg.ProcessEngineConfigurationImpl;
 import org.activiti.engine.impl.cmd.CheckPassword;
 import org.activiti.engine.impl.cmd.CreateGroupCmd;
 import org.activiti.engine.impl.cmd.CreateGroupQueryCmd;
@@ -38,6 +39,7 @@ import org.activiti.engine.impl.cmd.SaveUserCmd;
 import org.activiti.engine.impl.cmd.SetUserInfoCmd;
 import org.activiti.engine.impl.cmd.SetUserPictureCmd;
 import org.activiti.engine.impl.identity.Authentication;
+import org.activiti.engine.impl.identity.MembershipCache;
 import org.activiti.engine.impl.persistence.entity.GroupEntity;
 import org.activiti.engine.impl.persistence.entity.IdentityInfoEntity;
 
@@ -73,14 +75,20 @@ public class IdentityServiceImpl extends ServiceImpl implements IdentityService
 
   public void createMembership(String userId, String groupId) {
     commandExecutor.execute(new CreateMembershipCmd(userId, groupId));
+    invalidateMembership(userId);
   }
 
   public void deleteGroup(String groupId) {
     commandExecutor.execute(new DeleteGroupCmd(groupId));
+    MembershipCache membershipCache = getMembershipCache();
+    if (membershipCache != null) {
+      membershipCache.clear();
+    }
   }
 
   public void deleteMembership(String userId, String groupId) {
     commandExecutor.execute(new DeleteMembershipCmd(userId, groupId));
+    invalidateMembership(userId);
   }
 
   public boolean checkPassword(String userId, String password) {
@@ -89,6 +97,7 @@ public class IdentityServiceImpl extends ServiceImpl implements IdentityService
 
   public void deleteUser(String userId) {
     commandExecutor.execute(new DeleteUserCmd(userId));
+    invalidateMembership(userId);
   }
 
   public void setUserPicture(String userId, Picture picture) {
@@ -118,4 +127,20 @@ public class IdentityServiceImpl extends ServiceImpl implements IdentityService
   public void deleteUserInfo(String userId, String key) {
     commandExecutor.execute(new DeleteUserInfoCmd(userId, key));
   }
+  
+  /**
+   * the membership cache is invalidated once the command has committed, so that a concurrent 
+   * query can't cache the memberships of before the change.
+   */
+  protected void invalidateMembership(String userId) {
+    MembershipCache membershipCache = getMembershipCache();
+    if (membershipCache != null) {
+      membershipCache.invalidate(userId);
+    }
+  }
+  
+  protected MembershipCache getMembershipCache() {
+    ProcessEngineConfigurationImpl processEngineConfiguration = findProcessEngineConfigurationImpl();
+    return processEngineConfiguration != null ? processEngineConfiguration.getMembershipCache() : null;
+  }
 }
@@ -80,6 +80,7 @@ public class KPIServiceImpl implements KPIService {
 				  executor.insertBean("backuprejectlogToHi_wf", condition);
 			}
 			  executor.delete("deleterejectlog", processInstanceID);
+			  Context.getProcessEngineConfiguration().getControlParamCache().invalidate(processInstanceID);
 
 			tm.commit();
 		} catch(ActivitiException e)
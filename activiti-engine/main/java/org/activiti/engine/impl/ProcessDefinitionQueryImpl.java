@@ -13,12 +13,10 @@
 
 package org.activiti.engine.impl;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import org.activiti.engine.ActivitiException;
 import org.activiti.engine.ActivitiIllegalArgumentException;
-import org.activiti.engine.identity.Group;
 import org.activiti.engine.impl.context.Context;
 import org.activiti.engine.impl.interceptor.CommandContext;
 import org.activiti.engine.impl.interceptor.CommandExecutor;
@@ -207,15 +205,10 @@ public class ProcessDefinitionQueryImpl extends AbstractQuery<ProcessDefinitionQ
     // Simmilar behaviour as the TaskQuery.taskCandidateUser() which includes the groups the candidate
     // user is part of
     if(authorizationUserId != null) {
-      List<Group> groups = Context
+      return Context
               .getCommandContext()
               .getGroupEntityManager()
-              .findGroupsByUser(authorizationUserId);
-            List<String> groupIds = new ArrayList<String>();
-            for (Group group : groups) {
-              groupIds.add(group.getId());
-            }
-            return groupIds;
+              .findGroupIdsByUser(authorizationUserId);
     }
     return null;
   }
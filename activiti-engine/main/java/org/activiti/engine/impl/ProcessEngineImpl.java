@@ -27,6 +27,7 @@ import org.activiti.engine.impl.cfg.ProcessEngineConfigurationImpl;
 import org.activiti.engine.impl.cfg.TransactionContextFactory;
 import org.activiti.engine.impl.db.DbSqlSession;
 import org.activiti.engine.impl.db.DbSqlSessionFactory;
+import org.activiti.engine.impl.db.PrefetchingDbIdGenerator;
 import org.activiti.engine.impl.el.ExpressionManager;
 import org.activiti.engine.impl.identity.UserInfoMap;
 import org.activiti.engine.impl.identity.UserInfoMapImpl;
@@ -93,6 +94,10 @@ public class ProcessEngineImpl implements ProcessEngine {
       jobExecutor.start();
     }
     
+    if (processEngineConfiguration.getAsyncHistoryWriter() != null) {
+      processEngineConfiguration.getAsyncHistoryWriter().start();
+    }
+    
     if(processEngineConfiguration.getProcessEngineLifecycleListener() != null)
     {
       processEngineConfiguration.getProcessEngineLifecycleListener().onProcessEngineBuilt(this);
@@ -104,6 +109,12 @@ public class ProcessEngineImpl implements ProcessEngine {
     if ((jobExecutor != null) && (jobExecutor.isActive())) {
       jobExecutor.shutdown();
     }
+    if (processEngineConfiguration.getAsyncHistoryWriter() != null) {
+      processEngineConfiguration.getAsyncHistoryWriter().stop();
+    }
+    if (processEngineConfiguration.getIdGenerator() instanceof PrefetchingDbIdGenerator) {
+      ((PrefetchingDbIdGenerator) processEngineConfiguration.getIdGenerator()).shutdown();
+    }
 
     commandExecutor.execute(new SchemaOperationProcessEngineClose());
     
@@ -1,6 +1,7 @@
 package org.activiti.engine.impl;
 
 import org.activiti.engine.ControlParam;
+import org.activiti.engine.KPI;
 import org.activiti.engine.impl.cfg.BeansConfigurationHelper;
 import org.activiti.engine.impl.persistence.entity.TaskRejectLog;
 
@@ -32,6 +33,12 @@ public class TaskContext {
 	 * 标识任务是否来自驳回
 	 */
 	private boolean fromreject = false;
+	/**
+	 * 并行多实例批量创建实例时对应的多实例节点，同一次分发的所有实例任务共用一次计算的kpi指标
+	 */
+	private String bulkMultiInstanceActivityId;
+	private KPI multiInstanceKPI;
+	private boolean multiInstanceKPIResolved;
 	public boolean isReturntoreject() {
 		return returntoreject;
 	}
@@ -209,6 +216,36 @@ public class TaskContext {
 		else
 			return null;
 	}
+	/**
+	 * 开始批量创建节点activityId的并行多实例任务
+	 * @param activityId
+	 */
+	public void startBulkMultiInstance(String activityId) {
+		this.bulkMultiInstanceActivityId = activityId;
+		this.multiInstanceKPI = null;
+		this.multiInstanceKPIResolved = false;
+	}
+	/**
+	 * 并行多实例任务批量创建结束，清除共用的kpi指标
+	 */
+	public void endBulkMultiInstance() {
+		this.bulkMultiInstanceActivityId = null;
+		this.multiInstanceKPI = null;
+		this.multiInstanceKPIResolved = false;
+	}
+	public boolean isBulkMultiInstance(String activityId) {
+		return bulkMultiInstanceActivityId != null && bulkMultiInstanceActivityId.equals(activityId);
+	}
+	public KPI getMultiInstanceKPI() {
+		return multiInstanceKPI;
+	}
+	public boolean isMultiInstanceKPIResolved() {
+		return multiInstanceKPIResolved;
+	}
+	public void setMultiInstanceKPI(KPI multiInstanceKPI) {
+		this.multiInstanceKPI = multiInstanceKPI;
+		this.multiInstanceKPIResolved = true;
+	}
 
 	
 	
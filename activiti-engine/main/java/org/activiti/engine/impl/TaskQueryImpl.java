@@ -19,7 +19,6 @@ import java.util.List;
 
 import org.activiti.engine.ActivitiException;
 import org.activiti.engine.ActivitiIllegalArgumentException;
-import org.activiti.engine.identity.Group;
 import org.activiti.engine.impl.context.Context;
 import org.activiti.engine.impl.interceptor.CommandContext;
 import org.activiti.engine.impl.interceptor.CommandExecutor;
@@ -54,6 +53,8 @@ public class TaskQueryImpl extends AbstractQuery<TaskQuery, Task> implements Tas
   protected String candidateUser;
   protected String candidateGroup;
   private List<String> candidateGroups;
+  /** the groups of the candidate user, resolved once per list or count execution of this query */
+  protected transient List<String> candidateUserGroupIds;
   protected String processInstanceId;
   protected String executionId;
   protected Date createTime;
@@ -194,6 +195,7 @@ public class TaskQueryImpl extends AbstractQuery<TaskQuery, Task> implements Tas
       throw new ActivitiIllegalArgumentException("Invalid query usage: cannot set both candidateUser and candidateGroupIn");
     }
     this.candidateUser = candidateUser;
+    this.candidateUserGroupIds = null;
     return this;
   }
   
@@ -399,15 +401,13 @@ public class TaskQueryImpl extends AbstractQuery<TaskQuery, Task> implements Tas
   protected List<String> getGroupsForCandidateUser(String candidateUser) {
     // TODO: Discuss about removing this feature? Or document it properly and maybe recommend to not use it
     // and explain alternatives
-    List<Group> groups = Context
-      .getCommandContext()
-      .getGroupEntityManager()
-      .findGroupsByUser(candidateUser);
-    List<String> groupIds = new ArrayList<String>();
-    for (Group group : groups) {
-      groupIds.add(group.getId());
+    if (candidateUserGroupIds == null) {
+      candidateUserGroupIds = Context
+        .getCommandContext()
+        .getGroupEntityManager()
+        .findGroupIdsByUser(candidateUser);
     }
-    return groupIds;
+    return candidateUserGroupIds;
   }
   
   protected void ensureVariablesInitialized() {    
@@ -460,17 +460,31 @@ public class TaskQueryImpl extends AbstractQuery<TaskQuery, Task> implements Tas
   public List<Task> executeList(CommandContext commandContext, Page page) {
     ensureVariablesInitialized();
     checkQueryOk();
-    return commandContext
-      .getTaskEntityManager()
-      .findTasksByQueryCriteria(this);
+    try {
+      return commandContext
+        .getTaskEntityManager()
+        .findTasksByQueryCriteria(this);
+    } finally {
+      // a reused query resolves the groups of the candidate user again
+      candidateUserGroupIds = null;
+    }
+  }
+  
+  @Override
+  protected boolean isKeysetPaginationSupported() {
+    return true;
   }
   
   public long executeCount(CommandContext commandContext) {
     ensureVariablesInitialized();
     checkQueryOk();
-    return commandContext
-      .getTaskEntityManager()
-      .findTaskCountByQueryCriteria(this);
+    try {
+      return commandContext
+        .getTaskEntityManager()
+        .findTaskCountByQueryCriteria(this);
+    } finally {
+      candidateUserGroupIds = null;
+    }
   }
   
   //getters ////////////////////////////////////////////////////////////////
@@ -16,10 +16,13 @@ import java.io.InputStream;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.activiti.engine.ActivitiException;
 import org.activiti.engine.ActivitiIllegalArgumentException;
@@ -28,6 +31,7 @@ import org.activiti.engine.TaskService;
 import org.activiti.engine.impl.cmd.AddCommentCmd;
 import org.activiti.engine.impl.cmd.AddIdentityLinkCmd;
 import org.activiti.engine.impl.cmd.ClaimTaskCmd;
+import org.activiti.engine.impl.cmd.CompleteCopyTasksCmd;
 import org.activiti.engine.impl.cmd.CompleteTaskCmd;
 import org.activiti.engine.impl.cmd.CreateAttachmentCmd;
 import org.activiti.engine.impl.cmd.DelegateTaskCmd;
@@ -53,11 +57,14 @@ import org.activiti.engine.impl.cmd.SaveTaskCmd;
 import org.activiti.engine.impl.cmd.SetTaskPriorityCmd;
 import org.activiti.engine.impl.cmd.SetTaskVariablesCmd;
 import org.activiti.engine.impl.context.Context;
+import org.activiti.engine.impl.db.DbSqlSession;
 import org.activiti.engine.impl.persistence.entity.CopyHistoryTaskEntity;
 import org.activiti.engine.impl.persistence.entity.CopyTaskEntity;
+import org.activiti.engine.impl.persistence.entity.CopyTaskReadEntity;
 import org.activiti.engine.impl.persistence.entity.ExecutionEntity;
 import org.activiti.engine.impl.persistence.entity.ProcessDefinitionEntity;
 import org.activiti.engine.impl.persistence.entity.ReadUserNames;
+import org.activiti.engine.impl.persistence.entity.RejectPathEntity;
 import org.activiti.engine.impl.persistence.entity.TaskEntity;
 import org.activiti.engine.impl.pvm.process.ActivityImpl;
 import org.activiti.engine.repository.ProcessDefinition;
@@ -660,6 +667,40 @@ public boolean rejecttoTask(String taskId,String rejectReason,String desttaskkey
 {
 	return rejecttoTask( taskId,  (Map<String, Object>)null,rejectReason,desttaskkey,  bussinessop,  bussinessRemark);
 }
+ /**
+  * 查询一条记录，列名作为key
+  */
+ @SuppressWarnings("unchecked")
+ private Map<String, Object> queryRow(ConfigSQLExecutor executor,String sql,Object... params) throws Exception
+ {
+	 return executor.queryObject(HashMap.class,sql,params);
+ }
+ 
+ /**
+  * 查找任务的上个任务环节，流程实例有驳回路径（TD_WF_REJECTPATH）时直接从驳回路径获取，
+  * 否则按结束时间排序查找流程实例的历史任务
+  */
+ private String findPreTaskKey(ConfigSQLExecutor executor,String taskId,Map<String, Object> pid,boolean ismultiinst) throws Exception
+ {
+	 if(findProcessEngineConfigurationImpl().isRejectPathEnabled())
+	 {
+		 Map<String, Object> rejectPath = queryRow(executor,"findRejectPath",pid.get("PROC_INST_ID_"));
+		 if(rejectPath != null)
+		 {
+			 return RejectPathEntity.getRejectedTaskKey((String)rejectPath.get("LAST_TASK_KEY_"), (String)rejectPath.get("PREV_TASK_KEY_"), 
+					 (String)pid.get("TASK_DEF_KEY_"), ismultiinst);
+		 }
+	 }
+	 if(!ismultiinst)
+	 {
+		 return executor.queryObject(String.class,"rejecttoPretaskSQL", taskId);
+	 }
+	 else
+	 {
+		 return executor.queryObject(String.class,"multirejecttoPretaskSQL", taskId);
+	 }
+ }
+ 
  /**
   * 获取当前任务的驳回节点 
   * @param taskId
@@ -673,24 +714,13 @@ public boolean rejecttoTask(String taskId,String rejectReason,String desttaskkey
 	  		String pretaskKey = null;
 	  		
 	  		ConfigSQLExecutor executor = this.findProcessEngineConfigurationImpl().getExtendExecutor();
-	  		HashMap pid = executor.queryObject(HashMap.class,"getproc_def_id_bytaskid",taskId);
+	  		Map<String, Object> pid = queryRow(executor,"getproc_def_id_bytaskid",taskId);
 			ProcessDefinitionEntity def = (ProcessDefinitionEntity) ((RepositoryServiceImpl) this.findProcessEngineConfigurationImpl().getRepositoryService())
 					.getDeployedProcessDefinition((String)pid.get("PROC_DEF_ID_"));
 			ActivityImpl act = def.findActivity((String)pid.get("TASK_DEF_KEY_"));
 			boolean ismultiinst = act.isMultiTask();
-			
-			if(!ismultiinst)
-			{
-				pretaskKey = executor.queryObject(String.class,"rejecttoPretaskSQL", taskId);
-				twonodes[0] = pretaskKey;
-
-			}
-			else
-			{
-				pretaskKey = executor.queryObject(String.class,"multirejecttoPretaskSQL", taskId);
-				twonodes[0] = pretaskKey;
-
-			}
+			pretaskKey = findPreTaskKey(executor, taskId, pid, ismultiinst);
+			twonodes[0] = pretaskKey;
   		
 
   		
@@ -740,23 +770,13 @@ public boolean rejecttoTask(String taskId,String rejectReason,String desttaskkey
 	  		
 	  		
 	  		ConfigSQLExecutor executor = findProcessEngineConfigurationImpl().getExtendExecutor();
-	  		HashMap pid = executor.queryObject(HashMap.class,"getproc_def_id_bytaskid",taskId);
+	  		Map<String, Object> pid = queryRow(executor,"getproc_def_id_bytaskid",taskId);
 			ProcessDefinitionEntity def = (ProcessDefinitionEntity) ((RepositoryServiceImpl)this.findProcessEngineConfigurationImpl().getRepositoryService())
 					.getDeployedProcessDefinition((String)pid.get("PROC_DEF_ID_"));
 			ActivityImpl act = def.findActivity((String)pid.get("TASK_DEF_KEY_"));
 			boolean ismultiinst = act.isMultiTask();
-			if(!ismultiinst)
-			{
-				pretaskKey = executor.queryObject(String.class,"rejecttoPretaskSQL", taskId);
-				twonodes[0] = pretaskKey;
-
-			}
-			else
-			{
-				pretaskKey = executor.queryObject(String.class,"multirejecttoPretaskSQL", taskId);
-				twonodes[0] = pretaskKey;
-
-			}
+			pretaskKey = findPreTaskKey(executor, taskId, pid, ismultiinst);
+			twonodes[0] = pretaskKey;
   		
 
   		
@@ -811,7 +831,7 @@ public ActivityImpl findFirstNodeByteTask(String taskId) {
 	
 	try {
 		ConfigSQLExecutor executor = findProcessEngineConfigurationImpl().getExtendExecutor();
-  		HashMap pid = executor.queryObject(HashMap.class,"getproc_def_id_bytaskid",taskId);
+  		Map<String, Object> pid = queryRow(executor,"getproc_def_id_bytaskid",taskId);
   		return findFirstNodeByDefID((String)pid.get("PROC_DEF_ID_")) ;
 	}  catch (ActivitiException e) {
 		throw e;
@@ -947,12 +967,12 @@ public boolean withdrawTask(String taskId, Map<String, Object> variables,
 	 */
 	public void createCopyTasks(ExecutionEntity execution)
 	{
-		TransactionManager tm = new TransactionManager();
-		try {
-			tm.begin();
-			ConfigSQLExecutor executor = this.findProcessEngineConfigurationImpl().getExtendExecutor();
-			String users = execution.getTaskContext().getCopyUsers();
-			String orgs = execution.getTaskContext().getCopyOrgs();
+		String users = execution.getTaskContext().getCopyUsers();
+		String orgs = execution.getTaskContext().getCopyOrgs();
+		List<CopyTaskEntity> tasks = new ArrayList<CopyTaskEntity>();
+		List<CopyTaskReadEntity> reads = new ArrayList<CopyTaskReadEntity>();
+		if(!StringUtil.isEmpty(users) || !StringUtil.isEmpty(orgs))
+		{
 			String process_id = execution.getProcessInstanceId();
 			String process_key = execution.getProcessDefinitionId();
 			process_key = process_key.substring(0,process_key.indexOf(":"));
@@ -961,50 +981,47 @@ public boolean withdrawTask(String taskId, Map<String, Object> variables,
 			String actid = execution.getCurrentActivityId();
 			String actname = execution.getCurrentActivityName();
 			String actinstid = Context.getCommandContext().getHistoryManager().findActivityInstance(execution).getId();
+			int tasktype = execution.getTaskContext().isNotify()?TaskContext.TYPE_NOTIFY:TaskContext.TYPE_COPY;
+			boolean indexed = this.findProcessEngineConfigurationImpl().isCopyTaskBatchEnabled();
 			if(!StringUtil.isEmpty(users))
 			{
 				String[] users_ = users.split("\\,");
-				CopyTaskEntity copyTaskEntity = null;
-				List<CopyTaskEntity> tasks = new ArrayList<CopyTaskEntity>();
+				Set<String> indexedUsers = new HashSet<String>();
 				for(String user:users_)
 				{
-					copyTaskEntity = new CopyTaskEntity();
-					copyTaskEntity.setAct_id(actid);
-					copyTaskEntity.setAct_instid(actinstid);
-					copyTaskEntity.setAct_name(actname);
-					copyTaskEntity.setCopytime(copytime);
-					copyTaskEntity.setBusinesskey(businesskey);
-					copyTaskEntity.setProcess_key(process_key);
-					copyTaskEntity.setProcess_id(process_id);
-					copyTaskEntity.setCoper(user);
-					copyTaskEntity.setTasktype( execution.getTaskContext().isNotify()?TaskContext.TYPE_NOTIFY:TaskContext.TYPE_COPY);
-					copyTaskEntity.setCopertype(TaskContext.COPER_TYPE_USER);
-					tasks.add(copyTaskEntity);
+					tasks.add(buildCopyTask(user,TaskContext.COPER_TYPE_USER,tasktype,process_id,process_key,businesskey,copytime,actid,actname,actinstid));
+					if(indexed && indexedUsers.add(user))
+						reads.add(new CopyTaskReadEntity(user, actinstid, CopyTaskReadEntity.READTYPE_COPY));
 				}
-				executor.insertBeans("insertcopy",tasks);
 			}
 			if(!StringUtil.isEmpty(orgs))
 			{
 				String[] orgs_ = orgs.split("\\,");
-				CopyTaskEntity copyTaskEntity = null;
-				List<CopyTaskEntity> tasks = new ArrayList<CopyTaskEntity>();
 				for(String org:orgs_)
 				{
-					copyTaskEntity = new CopyTaskEntity();
-					copyTaskEntity.setAct_id(actid);
-					copyTaskEntity.setAct_instid(actinstid);
-					copyTaskEntity.setAct_name(actname);
-					copyTaskEntity.setCopytime(copytime);
-					copyTaskEntity.setBusinesskey(businesskey);
-					copyTaskEntity.setProcess_key(process_key);
-					copyTaskEntity.setProcess_id(process_id);
-					copyTaskEntity.setTasktype( execution.getTaskContext().isNotify()?TaskContext.TYPE_NOTIFY:TaskContext.TYPE_COPY);
-					copyTaskEntity.setCoper(org);
-					copyTaskEntity.setCopertype(TaskContext.COPER_TYPE_ORG);
-					tasks.add(copyTaskEntity);
+					tasks.add(buildCopyTask(org,TaskContext.COPER_TYPE_ORG,tasktype,process_id,process_key,businesskey,copytime,actid,actname,actinstid));
 				}
-				executor.insertBeans("insertcopy",tasks);
 			}
+		}
+		if(tasks.size() == 0)
+			return;
+		if(this.findProcessEngineConfigurationImpl().isCopyTaskBatchEnabled() && Context.getCommandContext() != null)
+		{
+			//抄送任务随命令事务一起flush
+			DbSqlSession dbSqlSession = Context.getCommandContext().getDbSqlSession();
+			for(CopyTaskEntity task:tasks)
+				dbSqlSession.insert(task);
+			for(CopyTaskReadEntity read:reads)
+				dbSqlSession.insert(read);
+			return;
+		}
+		TransactionManager tm = new TransactionManager();
+		try {
+			tm.begin();
+			ConfigSQLExecutor executor = this.findProcessEngineConfigurationImpl().getExtendExecutor();
+			executor.insertBeans("insertcopy",tasks);
+			if(reads.size() > 0)
+				executor.insertBeans("insertcopyread",reads);
 			tm.commit();
 		} catch (Exception e) {
 			throw new ActivitiException("createCopyTasks failed:",e);
@@ -1014,12 +1031,76 @@ public boolean withdrawTask(String taskId, Map<String, Object> variables,
 			tm.release();
 		}
 	}
+	
+	private CopyTaskEntity buildCopyTask(String coper,int copertype,int tasktype,String process_id,String process_key,String businesskey,
+			Timestamp copytime,String actid,String actname,String actinstid)
+	{
+		CopyTaskEntity copyTaskEntity = new CopyTaskEntity();
+		copyTaskEntity.setAct_id(actid);
+		copyTaskEntity.setAct_instid(actinstid);
+		copyTaskEntity.setAct_name(actname);
+		copyTaskEntity.setCopytime(copytime);
+		copyTaskEntity.setBusinesskey(businesskey);
+		copyTaskEntity.setProcess_key(process_key);
+		copyTaskEntity.setProcess_id(process_id);
+		copyTaskEntity.setCoper(coper);
+		copyTaskEntity.setTasktype(tasktype);
+		copyTaskEntity.setCopertype(copertype);
+		return copyTaskEntity;
+	}
+	
+	/**
+	 * 批量完成用户的抄送/通知任务
+	 * @param copytaskids
+	 * @param copyuser
+	 */
+	public void completeCopyTasks(Collection<String> copytaskids,String copyuser)
+	{
+		if(this.findProcessEngineConfigurationImpl().isCopyTaskBatchEnabled())
+		{
+			commandExecutor.execute(new CompleteCopyTasksCmd(copytaskids, copyuser));
+		}
+		else
+		{
+			for(String copytaskid:copytaskids)
+			{
+				completeCopyTask(copytaskid, copyuser);
+			}
+		}
+	}
+	
+	/**
+	 * 根据现有的抄送任务和阅读记录重建用户抄送阅读索引TD_WF_COPYTASK_READ
+	 */
+	public void rebuildCopyTaskReadIndex()
+	{
+		TransactionManager tm = new TransactionManager();
+		try {
+			tm.begin();
+			ConfigSQLExecutor executor = this.findProcessEngineConfigurationImpl().getExtendExecutor();
+			executor.delete("deletecopyreadindex");
+			executor.insert("buildcopyreadindexfromcopy");
+			executor.insert("buildcopyreadindexfromread");
+			tm.commit();
+		} catch (Exception e) {
+			throw new ActivitiException("rebuildCopyTaskReadIndex failed:",e);
+		}
+		finally
+		{
+			tm.release();
+		}
+	}
 	/**
 	 * 完成抄送/通知任务
 	 * @param copytaskid
 	 */
 	public void completeCopyTask(String copytaskid,String copyuser)
 	{
+		if(this.findProcessEngineConfigurationImpl().isCopyTaskBatchEnabled())
+		{
+			commandExecutor.execute(new CompleteCopyTasksCmd(Collections.singletonList(copytaskid), copyuser));
+			return;
+		}
 		TransactionManager tm = new TransactionManager();
 		try {
 			tm.begin();
@@ -1112,6 +1193,13 @@ public boolean withdrawTask(String taskId, Map<String, Object> variables,
 			tm.release();
 		}
 	}
+	/**
+	 * 启用用户抄送阅读索引时，机构抄送任务通过索引排除用户已有直接抄送和已阅读的活动任务
+	 */
+	private String getUserCopyTasksStatement()
+	{
+		return this.findProcessEngineConfigurationImpl().isCopyTaskBatchEnabled()?"getUserCopyTasksIndexed":"getUserCopyTasks";
+	}
 	/**
 	 * 获取用户的通知和抄送任务
 	 * @param user 用户账号
@@ -1122,12 +1210,12 @@ public boolean withdrawTask(String taskId, Map<String, Object> variables,
 	{
 		try {
 			ConfigSQLExecutor executor = this.findProcessEngineConfigurationImpl().getExtendExecutor();
-			Map params = new HashMap();
+			Map<String, Object> params = new HashMap<String, Object>();
 			params.put("user", user);
 			params.put("orgs", orgs);
 			params.put("process_key", process_key);
 			params.put("businesskey", businesskey);
-			return executor.queryListBean(CopyTaskEntity.class, "getUserCopyTasks", params);
+			return executor.queryListBean(CopyTaskEntity.class, getUserCopyTasksStatement(), params);
 		} catch (Exception e) {
 			throw new ActivitiException("getUserCopyTasks["+user+"] failed:",e);
 		}
@@ -1145,18 +1233,52 @@ public boolean withdrawTask(String taskId, Map<String, Object> variables,
 	{
 		try {
 			ConfigSQLExecutor executor = this.findProcessEngineConfigurationImpl().getExtendExecutor();
-			Map params = new HashMap();
+			Map<String, Object> params = new HashMap<String, Object>();
 			params.put("user", user);
 			params.put("orgs", orgs);
 			params.put("process_key", process_key);
 			params.put("businesskey", businesskey);
-			return executor.queryListInfoBean(CopyTaskEntity.class, "getUserCopyTasks",  offeset,  pagesize, params);
+			return executor.queryListInfoBean(CopyTaskEntity.class, getUserCopyTasksStatement(),  offeset,  pagesize, params);
 		} catch (Exception e) {
 			throw new ActivitiException("getUserCopyTasks["+user+"] failed:",e);
 		}
 		
 		
 	}
+	
+	/**
+	 * keyset分页参数：上一页最后一条任务的抄送时间和id，每页记录数，oracle通过rownum限制记录数，其他数据库通过limit限制
+	 */
+	private void putSeekParams(Map<String, Object> params,Timestamp lastCopytime,String lastId,int pagesize)
+	{
+		if(lastId != null)
+		{
+			if(lastCopytime == null)
+				throw new ActivitiException("getCopyTasksAfter failed:lastCopytime of last copy task["+lastId+"] is null.");
+			params.put("lastCopytime", lastCopytime);
+			params.put("lastId", lastId);
+		}
+		params.put("seekPagesize", pagesize);
+		params.put("seekOracle", "oracle".equals(this.findProcessEngineConfigurationImpl().getDatabaseType()));
+	}
+	
+	public List<CopyTaskEntity> getUserCopyTasksAfter(String user,List<String> orgs,String process_key,String businesskey,Timestamp lastCopytime,String lastId,int pagesize)
+	{
+		try {
+			ConfigSQLExecutor executor = this.findProcessEngineConfigurationImpl().getExtendExecutor();
+			Map<String, Object> params = new HashMap<String, Object>();
+			params.put("user", user);
+			params.put("orgs", orgs);
+			params.put("process_key", process_key);
+			params.put("businesskey", businesskey);
+			putSeekParams(params, lastCopytime, lastId, pagesize);
+			return executor.queryListBean(CopyTaskEntity.class, getUserCopyTasksStatement(), params);
+		} catch (ActivitiException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new ActivitiException("getUserCopyTasksAfter["+user+"] failed:",e);
+		}
+	}
 	/**
 	 * 获取用户的通知和抄送任务
 	 * @param user 用户账号
@@ -1167,7 +1289,7 @@ public boolean withdrawTask(String taskId, Map<String, Object> variables,
 	{
 		try {
 			ConfigSQLExecutor executor = this.findProcessEngineConfigurationImpl().getExtendExecutor();
-			Map params = new HashMap();
+			Map<String, Object> params = new HashMap<String, Object>();
 			params.put("process_key", process_key);
 			params.put("businesskey", businesskey);
 			return executor.queryListBean(CopyTaskEntity.class, "getAdminCopyTasks" , params);
@@ -1187,7 +1309,7 @@ public boolean withdrawTask(String taskId, Map<String, Object> variables,
 	{
 		try {
 			ConfigSQLExecutor executor = this.findProcessEngineConfigurationImpl().getExtendExecutor();
-			Map params = new HashMap();
+			Map<String, Object> params = new HashMap<String, Object>();
 			params.put("process_key", process_key);
 			params.put("businesskey", businesskey);
 			return executor.queryListInfoBean(CopyTaskEntity.class, "getAdminCopyTasks",  offeset,  pagesize, params);
@@ -1198,6 +1320,22 @@ public boolean withdrawTask(String taskId, Map<String, Object> variables,
 		
 	}
 	
+	public List<CopyTaskEntity> getAdminCopyTasksAfter(String process_key,String businesskey,Timestamp lastCopytime,String lastId,int pagesize)
+	{
+		try {
+			ConfigSQLExecutor executor = this.findProcessEngineConfigurationImpl().getExtendExecutor();
+			Map<String, Object> params = new HashMap<String, Object>();
+			params.put("process_key", process_key);
+			params.put("businesskey", businesskey);
+			putSeekParams(params, lastCopytime, lastId, pagesize);
+			return executor.queryListBean(CopyTaskEntity.class, "getAdminCopyTasks", params);
+		} catch (ActivitiException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new ActivitiException("getAdminCopyTasksAfter[process_key="+process_key+",businesskey="+businesskey+"] failed:",e);
+		}
+	}
+	
 	/**
 	 * 获取根据活动任务id获取任务的阅读记录
 	 * @param actinstid 活动任务id
@@ -1266,7 +1404,7 @@ public boolean withdrawTask(String taskId, Map<String, Object> variables,
 	{
 		try {
 			ConfigSQLExecutor executor = this.findProcessEngineConfigurationImpl().getExtendExecutor();
-			Map params = new HashMap();
+			Map<String, Object> params = new HashMap<String, Object>();
 			params.put("process_key", process_key);
 			params.put("businesskey", businesskey);
 			params.put("user", user);
@@ -1286,7 +1424,7 @@ public boolean withdrawTask(String taskId, Map<String, Object> variables,
 	{
 		try {
 			ConfigSQLExecutor executor = this.findProcessEngineConfigurationImpl().getExtendExecutor();
-			Map params = new HashMap();
+			Map<String, Object> params = new HashMap<String, Object>();
 			params.put("process_key", process_key);
 			params.put("businesskey", businesskey);
 			params.put("isAdmin", true);
@@ -16,6 +16,7 @@
 package org.activiti.engine.impl.bpmn.behavior;
 
 import java.util.Collection;
+import java.util.List;
 
 import org.activiti.engine.delegate.DelegateExecution;
 import org.activiti.engine.delegate.Expression;
@@ -174,6 +175,12 @@ public class MixMultiInstanceActivityBehavior extends
 		getMultiInstanceActivityBehavior(execution).executeOriginalBehavior(execution, loopCounter);
 	}
 
+	@Override
+	protected void executeOriginalBehavior(ActivityExecution execution,
+			int loopCounter, List<Object> elements) throws Exception {
+		getMultiInstanceActivityBehavior(execution).executeOriginalBehavior(execution, loopCounter, elements);
+	}
+
 	@Override
 	protected boolean usesCollection() {
 		// TODO Auto-generated method stub
@@ -13,6 +13,7 @@
 
 package org.activiti.engine.impl.bpmn.behavior;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
@@ -259,28 +260,67 @@ public abstract class MultiInstanceActivityBehavior extends FlowNodeActivityBeha
     return nrOfInstances;
   }
   
-  @SuppressWarnings("rawtypes")
   protected void executeOriginalBehavior(ActivityExecution execution, int loopCounter) throws Exception {
     if (usesCollection() && collectionElementVariable != null) {
-      Collection collection = null;
-      if (collectionExpression != null) {
-//        collection = (Collection) collectionExpression.getValue(execution);
-    	  collection = getCollectionFromExpress(execution);
-      } else if (collectionVariable != null) {
-//        collection = (Collection) execution.getVariable(collectionVariable);
-    	  collection = getCollectionFromVariable( execution);
-      }
-       
-      Object value = null;
-      int index = 0;
-      Iterator it = collection.iterator();
-      while (index <= loopCounter) {
-        value = it.next();
-        index++;
-      }
-      setLoopVariable(execution, collectionElementVariable, value);
+      setLoopVariable(execution, collectionElementVariable, resolveCollectionElement(execution, loopCounter));
     }
-
+    executeInnerBehavior(execution, loopCounter);
+  }
+  
+  /**
+   * variant used when all instances are created in bulk: the collection was resolved 
+   * once for all instances, the element of the instance is looked up by index.
+   * 
+   * @param elements the resolved collection, null if no element variable is needed
+   */
+  protected void executeOriginalBehavior(ActivityExecution execution, int loopCounter, List<Object> elements) throws Exception {
+    if (elements != null) {
+      setLoopVariable(execution, collectionElementVariable, elements.get(loopCounter));
+    }
+    executeInnerBehavior(execution, loopCounter);
+  }
+  
+  /** resolves the collection and returns its element for the given loop counter */
+  @SuppressWarnings("rawtypes")
+  protected Object resolveCollectionElement(ActivityExecution execution, int loopCounter) {
+    Collection collection = null;
+    if (collectionExpression != null) {
+//      collection = (Collection) collectionExpression.getValue(execution);
+      collection = getCollectionFromExpress(execution);
+    } else if (collectionVariable != null) {
+//      collection = (Collection) execution.getVariable(collectionVariable);
+      collection = getCollectionFromVariable( execution);
+    }
+     
+    Object value = null;
+    int index = 0;
+    Iterator it = collection.iterator();
+    while (index <= loopCounter) {
+      value = it.next();
+      index++;
+    }
+    return value;
+  }
+  
+  /**
+   * resolves the collection once for all instances.
+   * @return the elements of the collection, null if no element variable needs to be set
+   */
+  @SuppressWarnings({ "rawtypes", "unchecked" })
+  protected List<Object> resolveCollectionElements(ActivityExecution execution) {
+    if (!usesCollection() || collectionElementVariable == null) {
+      return null;
+    }
+    Collection collection = null;
+    if (collectionExpression != null) {
+      collection = getCollectionFromExpress(execution);
+    } else {
+      collection = getCollectionFromVariable( execution);
+    }
+    return new ArrayList<Object>(collection);
+  }
+  
+  protected void executeInnerBehavior(ActivityExecution execution, int loopCounter) throws Exception {
     // If loopcounter == 1, then historic activity instance already created, no need to
     // pass through executeActivity again since it will create a new historic activity
     if (loopCounter == 0) {
@@ -15,6 +15,10 @@ package org.activiti.engine.impl.bpmn.behavior;
 
 import java.util.List;
 
+import org.activiti.engine.impl.context.Context;
+import org.activiti.engine.impl.db.DbSqlSession;
+import org.activiti.engine.impl.persistence.entity.ExecutionEntity;
+import org.activiti.engine.impl.persistence.entity.JoinCounterEntity;
 import org.activiti.engine.impl.pvm.PvmActivity;
 import org.activiti.engine.impl.pvm.PvmTransition;
 import org.activiti.engine.impl.pvm.delegate.ActivityExecution;
@@ -60,10 +64,15 @@ public class ParallelGatewayActivityBehavior extends GatewayActivityBehavior {
     List<PvmTransition> outgoingTransitions = execution.getActivity().getOutgoingTransitions();
     
     execution.inactivate();
+    int nbrOfExecutionsToJoin = execution.getActivity().getIncomingTransitions().size();
+    if (execution.isConcurrent() && nbrOfExecutionsToJoin > 1
+            && Context.getProcessEngineConfiguration().isParallelJoinCounterEnabled()) {
+      joinWithCounter(execution, activity, outgoingTransitions, nbrOfExecutionsToJoin);
+      return;
+    }
     lockConcurrentRoot(execution);
     
     List<ActivityExecution> joinedExecutions = execution.findInactiveConcurrentExecutions(activity);
-    int nbrOfExecutionsToJoin = execution.getActivity().getIncomingTransitions().size();
     int nbrOfExecutionsJoined = joinedExecutions.size();
     
     if (nbrOfExecutionsJoined==nbrOfExecutionsToJoin) {
@@ -78,5 +87,50 @@ public class ParallelGatewayActivityBehavior extends GatewayActivityBehavior {
       log.debug("parallel gateway '{}' does not activate: {} of {} joined", activity.getId(), nbrOfExecutionsJoined, nbrOfExecutionsToJoin);
     }
   }
+  
+  /**
+   * Join based on an arrival counter kept per gateway in the concurrent root. An arrival that 
+   * doesn't complete the join only increments the counter, the executions waiting in the gateway 
+   * are loaded when the counter reaches the number of incoming sequence flows, and the concurrent 
+   * root is only locked when the join activates.
+   * 
+   * The counter is created from the executions that wait in the gateway, so joins that were 
+   * already waiting when the counter was switched on keep working, and it is corrected when 
+   * branches were removed without passing the gateway (e.g. rejected or cancelled branches).
+   */
+  protected void joinWithCounter(ActivityExecution execution, PvmActivity activity, List<PvmTransition> outgoingTransitions, int nbrOfExecutionsToJoin) {
+    ExecutionEntity concurrentRoot = (ExecutionEntity) execution.getParent();
+    DbSqlSession dbSqlSession = Context.getCommandContext().getDbSqlSession();
+    JoinCounterEntity joinCounter = dbSqlSession.selectById(JoinCounterEntity.class, 
+            JoinCounterEntity.createId(concurrentRoot.getId(), activity.getId()));
+    
+    List<ActivityExecution> joinedExecutions = null;
+    if (joinCounter==null) {
+      joinedExecutions = ((ExecutionEntity) execution).findInactiveConcurrentExecutionsInActivity(activity);
+      joinCounter = new JoinCounterEntity(concurrentRoot.getId(), activity.getId(), concurrentRoot.getProcessInstanceId());
+      joinCounter.setArrivals(joinedExecutions.size());
+      // inserted right away: of two first arrivals in concurrent transactions, the second one 
+      // fails with an optimistic locking exception and is retried as a regular arrival
+      dbSqlSession.insertImmediately(joinCounter);
+    } else {
+      joinCounter.arrive();
+      if (joinCounter.getArrivals() >= nbrOfExecutionsToJoin) {
+        joinedExecutions = ((ExecutionEntity) execution).findInactiveConcurrentExecutionsInActivity(activity);
+        joinCounter.setArrivals(joinedExecutions.size());
+      }
+    }
+    
+    if (joinedExecutions!=null && joinedExecutions.size()==nbrOfExecutionsToJoin) {
+      if(log.isDebugEnabled()) {
+        log.debug("parallel gateway '{}' activates: {} of {} joined", activity.getId(), nbrOfExecutionsToJoin, nbrOfExecutionsToJoin);
+      }
+      lockConcurrentRoot(execution);
+      dbSqlSession.delete(joinCounter);
+      execution.takeAll(outgoingTransitions, joinedExecutions);
+      
+    } else if (log.isDebugEnabled()){
+      log.debug("parallel gateway '{}' does not activate: {} of {} arrived", activity.getId(), joinCounter.getArrivals(), nbrOfExecutionsToJoin);
+    }
+  }
 
 }
@@ -74,18 +74,41 @@ public class ParallelMultiInstanceBehavior extends MultiInstanceActivityBehavior
       logLoopDetails(concurrentExecution, "initialized", loopCounter, 0, nrOfInstances, nrOfInstances);
     }
     
+    // In bulk mode the collection is resolved once for all instances, the kpi of the 
+    // instance tasks is computed once and all instance rows are flushed as jdbc batches
+    boolean bulk = Context.getProcessEngineConfiguration().isBulkMultiInstanceEnabled();
+    List<Object> elements = null;
+    TaskContext taskContext = execution.getTaskContext();
+    if (bulk) {
+      Context.getCommandContext().getDbSqlSession().setBatchFlush(true);
+      elements = resolveCollectionElements(execution);
+      if (taskContext != null) {
+        taskContext.startBulkMultiInstance(execution.getActivity().getId());
+      }
+    }
+    
     // Before the activities are executed, all executions MUST be created up front
     // Do not try to merge this loop with the previous one, as it will lead to bugs,
     // due to possible child execution pruning.
-    for (int loopCounter=0; loopCounter<nrOfInstances; loopCounter++) {
-      ActivityExecution concurrentExecution = concurrentExecutions.get(loopCounter);
-      // executions can be inactive, if instances are all automatics (no-waitstate)
-      // and completionCondition has been met in the meantime
-      if (concurrentExecution.isActive() && !concurrentExecution.isEnded() 
-              && concurrentExecution.getParent().isActive() 
-              && !concurrentExecution.getParent().isEnded()) { 
-        setLoopVariable(concurrentExecution, LOOP_COUNTER, loopCounter);
-        executeOriginalBehavior(concurrentExecution, loopCounter);
+    try {
+      for (int loopCounter=0; loopCounter<nrOfInstances; loopCounter++) {
+        ActivityExecution concurrentExecution = concurrentExecutions.get(loopCounter);
+        // executions can be inactive, if instances are all automatics (no-waitstate)
+        // and completionCondition has been met in the meantime
+        if (concurrentExecution.isActive() && !concurrentExecution.isEnded() 
+                && concurrentExecution.getParent().isActive() 
+                && !concurrentExecution.getParent().isEnded()) { 
+          setLoopVariable(concurrentExecution, LOOP_COUNTER, loopCounter);
+          if (bulk) {
+            executeOriginalBehavior(concurrentExecution, loopCounter, elements);
+          } else {
+            executeOriginalBehavior(concurrentExecution, loopCounter);
+          }
+        }
+      }
+    } finally {
+      if (bulk && taskContext != null) {
+        taskContext.endBulkMultiInstance();
       }
     }
     
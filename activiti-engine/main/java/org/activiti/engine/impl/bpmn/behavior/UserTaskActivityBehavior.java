@@ -29,6 +29,7 @@ import org.activiti.engine.impl.TaskContext;
 import org.activiti.engine.impl.calendar.DueDateBusinessCalendar;
 import org.activiti.engine.impl.context.Context;
 import org.activiti.engine.impl.persistence.entity.ExecutionEntity;
+import org.activiti.engine.impl.persistence.entity.RejectLogEntity;
 import org.activiti.engine.impl.persistence.entity.TaskEntity;
 import org.activiti.engine.impl.persistence.entity.TaskRejectLog;
 import org.activiti.engine.impl.pvm.delegate.ActivityExecution;
@@ -99,6 +100,22 @@ public class UserTaskActivityBehavior extends TaskActivityBehavior {
 	  
 	    return assignees;
   }
+  /**
+   * 记录新任务的驳回点轨迹，启用驳回路径时随引擎flush批量插入，否则直接插入td_wf_rejectlog
+   */
+  private void insertrejectedlog(ActivityExecution execution,String rejectnode,String rejecttaskid,String newtaskid,int optype) throws Exception
+  {
+	  if(Context.getProcessEngineConfiguration().isRejectPathEnabled())
+	  {
+		  Context.getCommandContext().getDbSqlSession()
+		  	.insert(new RejectLogEntity(rejectnode, rejecttaskid, newtaskid, optype, execution.getProcessInstanceId()));
+	  }
+	  else
+	  {
+		  ConfigSQLExecutor executor = Context.getProcessEngineConfiguration().getExtendExecutor();
+		  executor.insert("recoredrejectedlog", rejectnode,rejecttaskid,newtaskid,optype,execution.getProcessInstanceId());//rejectnode,rejecttaskid,newtaskid
+	  }
+  }
   private void recoredrejectedlog(ActivityExecution execution,TaskEntity newtask,boolean fromsequnce ) throws Exception
   {
 	  TaskContext taskContext = execution.getTaskContext();
@@ -109,40 +126,35 @@ public class UserTaskActivityBehavior extends TaskActivityBehavior {
 		  {
 			  if(taskContext.isReturntoreject())
 			  {
-				  ConfigSQLExecutor executor = Context.getProcessEngineConfiguration().getExtendExecutor();
-				  executor.insert("recoredrejectedlog", taskContext.getRejectednode(),taskContext.getRejectedtaskid(),newtask.getId(),TaskService.op_returntorejected,execution.getProcessInstanceId());//rejectnode,rejecttaskid,newtaskid
+				  insertrejectedlog(execution, taskContext.getRejectednode(),taskContext.getRejectedtaskid(),newtask.getId(),TaskService.op_returntorejected);
 			  }
 			  else
 			  {
-				  ConfigSQLExecutor executor = Context.getProcessEngineConfiguration().getExtendExecutor();
-				  executor.insert("recoredrejectedlog", taskContext.getRejectednode(),taskContext.getRejectedtaskid(),newtask.getId(),taskContext.getOp(),execution.getProcessInstanceId());//rejectnode,rejecttaskid,newtaskid
+				  insertrejectedlog(execution, taskContext.getRejectednode(),taskContext.getRejectedtaskid(),newtask.getId(),taskContext.getOp());
 			  }
 		  }
 		  else if(taskContext.isIswithdraw())
 		  {
-			  ConfigSQLExecutor executor = Context.getProcessEngineConfiguration().getExtendExecutor();
-			  executor.insert("recoredrejectedlog", 
+			  insertrejectedlog(execution, 
 					  taskContext.getRejectednode(),
 					  taskContext.getRejectedtaskid(),
 					  newtask.getId(),
-					  taskContext.getOp(),execution.getProcessInstanceId());//rejectnode,rejecttaskid,newtaskid
+					  taskContext.getOp());
 		  }
 		  else if(taskContext.isIsjump())
 		  {
-			  ConfigSQLExecutor executor = Context.getProcessEngineConfiguration().getExtendExecutor();
-			  executor.insert("recoredrejectedlog", 
+			  insertrejectedlog(execution, 
 					  taskContext.getRejectednode(),
 					  taskContext.getRejectedtaskid(),
 					  newtask.getId(),
-					  taskContext.getOp(),execution.getProcessInstanceId());//rejectnode,rejecttaskid,newtaskid
+					  taskContext.getOp());
 		  }
 		  else if(fromsequnce)
 		  {
 			  TaskRejectLog taskRejectLog = taskContext.getTaskRejectLog();//串行多实例任务，后续任务记录驳回点轨迹记录（从前面的的任务复制驳回点轨迹）
 			  if(taskRejectLog != null)
 			  {
-				  ConfigSQLExecutor executor = Context.getProcessEngineConfiguration().getExtendExecutor();
-				  executor.insert("recoredrejectedlog", taskRejectLog.getREJECTNODE(),taskRejectLog.getREJECTTASKID(),newtask.getId(),taskRejectLog.getOPTYPE(),execution.getProcessInstanceId());//rejectnode,rejecttaskid,newtaskid
+				  insertrejectedlog(execution, taskRejectLog.getREJECTNODE(),taskRejectLog.getREJECTTASKID(),newtask.getId(),taskRejectLog.getOPTYPE());
 			  }
 		  }
 			  
@@ -291,26 +303,7 @@ public class UserTaskActivityBehavior extends TaskActivityBehavior {
 	  
       if(!parserkpi)//设置流程kpi指标
       {
-    	  
-    	
-    	  KPI kpi = null;
-    	  try
-    	  {
-    		  kpi = Context.getProcessEngineConfiguration().getKPIService().buildKPI(execution, candiates,task.getCreateTime());
-    	  }
-    	  catch(Exception e)
-    	  {
-    		  log.warn("BuildKPI failed:",e);
-    	  }
-          if(kpi != null)
-          {
-        	  task.setALERTTIME(kpi.getALERTTIME());
-        	  task.setOVERTIME(kpi.getOVERTIME());
-        	  task.setIS_CONTAIN_HOLIDAY(kpi.getIS_CONTAIN_HOLIDAY());
-        	  task.setDURATION_NODE(kpi.getDURATION_NODE());
-        	  task.setNOTICERATE(kpi.getNOTICERATE());
-        	  task.synstatetoHistory();
-          }
+    	  buildKPI(task, execution, candiates);
           parserkpi = true;
       }
     }
@@ -362,24 +355,7 @@ public class UserTaskActivityBehavior extends TaskActivityBehavior {
           
           if(!parserkpi)//设置流程kpi指标
           {
-        	  KPI kpi = null;
-        	  try
-        	  {
-        		  kpi = Context.getProcessEngineConfiguration().getKPIService().buildKPI(execution, candiates,task.getCreateTime());
-        	  }
-        	  catch(Exception e)
-        	  {
-        		  log.warn("BuildKPI Service failed:",e);
-        	  }
-              if(kpi != null)
-              {
-            	  task.setALERTTIME(kpi.getALERTTIME());
-            	  task.setOVERTIME(kpi.getOVERTIME());
-            	  task.setIS_CONTAIN_HOLIDAY(kpi.getIS_CONTAIN_HOLIDAY());
-            	  task.setDURATION_NODE(kpi.getDURATION_NODE());
-            	  task.setNOTICERATE(kpi.getNOTICERATE());
-            	  task.synstatetoHistory();
-              }
+        	  buildKPI(task, execution, candiates);
               parserkpi = true;
           }
         } else if (value instanceof Collection) {
@@ -396,25 +372,7 @@ public class UserTaskActivityBehavior extends TaskActivityBehavior {
           
           if(!parserkpi)
           {
-        	  KPI kpi = null;
-        	  try
-        	  {
-        		  kpi = Context.getProcessEngineConfiguration().getKPIService().buildKPI(execution, (Collection) value,task.getCreateTime());
-        	  }
-        	  catch(Exception e)
-        	  {
-        		  log.warn("BuildKPI Service failed:",e);
-        	  }
-        	
-              if(kpi != null)
-              {
-            	  task.setALERTTIME(kpi.getALERTTIME());
-            	  task.setOVERTIME(kpi.getOVERTIME());
-            	  task.setIS_CONTAIN_HOLIDAY(kpi.getIS_CONTAIN_HOLIDAY());
-            	  task.setDURATION_NODE(kpi.getDURATION_NODE());
-            	  task.setNOTICERATE(kpi.getNOTICERATE());
-            	  task.synstatetoHistory();
-              }
+        	  buildKPI(task, execution, (Collection) value);
               parserkpi = true;
           }
         } else {
@@ -424,6 +382,42 @@ public class UserTaskActivityBehavior extends TaskActivityBehavior {
     }
   }
 
+  /**
+   * 计算并设置任务的kpi指标，并行多实例批量创建实例任务时，同一次分发的所有实例任务只计算一次kpi
+   */
+  private void buildKPI(TaskEntity task, ActivityExecution execution, Collection<String> candiates)
+  {
+	  TaskContext taskContext = execution.getTaskContext();
+	  boolean bulk = taskContext != null && taskContext.isBulkMultiInstance(execution.getActivity().getId());
+	  KPI kpi = null;
+	  if(bulk && taskContext.isMultiInstanceKPIResolved())
+	  {
+		  kpi = taskContext.getMultiInstanceKPI();
+	  }
+	  else
+	  {
+		  try
+		  {
+			  kpi = Context.getProcessEngineConfiguration().getKPIService().buildKPI(execution, candiates,task.getCreateTime());
+		  }
+		  catch(Exception e)
+		  {
+			  log.warn("BuildKPI failed:",e);
+		  }
+		  if(bulk)
+			  taskContext.setMultiInstanceKPI(kpi);
+	  }
+      if(kpi != null)
+      {
+    	  task.setALERTTIME(kpi.getALERTTIME());
+    	  task.setOVERTIME(kpi.getOVERTIME());
+    	  task.setIS_CONTAIN_HOLIDAY(kpi.getIS_CONTAIN_HOLIDAY());
+    	  task.setDURATION_NODE(kpi.getDURATION_NODE());
+    	  task.setNOTICERATE(kpi.getNOTICERATE());
+    	  task.synstatetoHistory();
+      }
+  }
+
   /**
    * Extract a candidate list from a string. 
    * 
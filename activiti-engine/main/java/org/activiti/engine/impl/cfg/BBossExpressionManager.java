@@ -15,9 +15,7 @@ package org.activiti.engine.impl.cfg;
 
 import java.util.Map;
 
-import org.activiti.engine.delegate.VariableScope;
 import org.activiti.engine.impl.el.ExpressionManager;
-import org.activiti.engine.impl.el.VariableScopeElResolver;
 import org.activiti.engine.impl.javax.el.ArrayELResolver;
 import org.activiti.engine.impl.javax.el.BeanELResolver;
 import org.activiti.engine.impl.javax.el.CompositeELResolver;
@@ -51,10 +49,8 @@ public class BBossExpressionManager extends ExpressionManager {
   }
 
   @Override
-  protected ELResolver createElResolver(VariableScope variableScope) {
+  protected ELResolver createSharedElResolver() {
     CompositeELResolver compositeElResolver = new CompositeELResolver();
-    compositeElResolver.add(new VariableScopeElResolver(variableScope));
-    
     if(beans != null) {
       // Only expose limited set of beans in expressions
       compositeElResolver.add(new ReadOnlyMapELResolver(beans));
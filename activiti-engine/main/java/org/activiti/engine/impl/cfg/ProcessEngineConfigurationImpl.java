@@ -13,6 +13,7 @@
 
 package org.activiti.engine.impl.cfg;
 
+import java.io.File;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
@@ -41,6 +42,8 @@ import org.activiti.engine.RepositoryService;
 import org.activiti.engine.RuntimeService;
 import org.activiti.engine.TaskService;
 import org.activiti.engine.form.AbstractFormType;
+import org.activiti.engine.impl.ControlParamCache;
+import org.activiti.engine.impl.ControlParamManager;
 import org.activiti.engine.impl.FormServiceImpl;
 import org.activiti.engine.impl.HistoryServiceImpl;
 import org.activiti.engine.impl.IdentityServiceImpl;
@@ -96,6 +99,7 @@ import org.activiti.engine.impl.calendar.DurationBusinessCalendar;
 import org.activiti.engine.impl.calendar.MapBusinessCalendarManager;
 import org.activiti.engine.impl.cfg.standalone.StandaloneMybatisTransactionContextFactory;
 import org.activiti.engine.impl.db.DbIdGenerator;
+import org.activiti.engine.impl.db.PrefetchingDbIdGenerator;
 import org.activiti.engine.impl.db.DbSqlSessionFactory;
 import org.activiti.engine.impl.db.IbatisVariableTypeHandler;
 import org.activiti.engine.impl.db.upgrade.InstanceUpgrade;
@@ -114,11 +118,14 @@ import org.activiti.engine.impl.form.LongFormType;
 import org.activiti.engine.impl.form.StringFormType;
 import org.activiti.engine.impl.form.UserFormType;
 import org.activiti.engine.impl.history.HistoryLevel;
+import org.activiti.engine.impl.history.AsyncHistoryWriter;
 import org.activiti.engine.impl.history.HistoryManager;
 import org.activiti.engine.impl.history.parse.FlowNodeHistoryParseHandler;
 import org.activiti.engine.impl.history.parse.ProcessHistoryParseHandler;
 import org.activiti.engine.impl.history.parse.StartEventHistoryParseHandler;
 import org.activiti.engine.impl.history.parse.UserTaskHistoryParseHandler;
+import org.activiti.engine.impl.identity.DefaultMembershipCache;
+import org.activiti.engine.impl.identity.MembershipCache;
 import org.activiti.engine.impl.identity.UserInfoMap;
 import org.activiti.engine.impl.identity.UserInfoMapImpl;
 import org.activiti.engine.impl.interceptor.CommandContextFactory;
@@ -146,6 +153,8 @@ import org.activiti.engine.impl.persistence.deploy.DefaultDeploymentCache;
 import org.activiti.engine.impl.persistence.deploy.Deployer;
 import org.activiti.engine.impl.persistence.deploy.DeploymentCache;
 import org.activiti.engine.impl.persistence.deploy.DeploymentManager;
+import org.activiti.engine.impl.persistence.deploy.ProcessDefinitionCacheListener;
+import org.activiti.engine.impl.persistence.deploy.ProcessDefinitionWeigher;
 import org.activiti.engine.impl.persistence.entity.AttachmentEntityManager;
 import org.activiti.engine.impl.persistence.entity.ByteArrayEntityManager;
 import org.activiti.engine.impl.persistence.entity.CommentEntityManager;
@@ -180,6 +189,7 @@ import org.activiti.engine.impl.util.IoUtil;
 import org.activiti.engine.impl.util.ReflectUtil;
 import org.activiti.engine.impl.variable.BooleanType;
 import org.activiti.engine.impl.variable.ByteArrayType;
+import org.activiti.engine.impl.variable.CompactSerializableType;
 import org.activiti.engine.impl.variable.CustomObjectType;
 import org.activiti.engine.impl.variable.DateType;
 import org.activiti.engine.impl.variable.DefaultVariableTypes;
@@ -187,12 +197,14 @@ import org.activiti.engine.impl.variable.DoubleType;
 import org.activiti.engine.impl.variable.EntityManagerSession;
 import org.activiti.engine.impl.variable.EntityManagerSessionFactory;
 import org.activiti.engine.impl.variable.IntegerType;
+import org.activiti.engine.impl.variable.JavaSerializationCodec;
 import org.activiti.engine.impl.variable.JPAEntityVariableType;
 import org.activiti.engine.impl.variable.LongType;
 import org.activiti.engine.impl.variable.NullType;
 import org.activiti.engine.impl.variable.SerializableType;
 import org.activiti.engine.impl.variable.ShortType;
 import org.activiti.engine.impl.variable.StringType;
+import org.activiti.engine.impl.variable.VariableCodec;
 import org.activiti.engine.impl.variable.VariableType;
 import org.activiti.engine.impl.variable.VariableTypes;
 import org.activiti.engine.parse.BpmnParseHandler;
@@ -275,7 +287,17 @@ public abstract class ProcessEngineConfigurationImpl extends ProcessEngineConfig
   protected DeploymentManager deploymentManager;
   
   protected int processDefinitionCacheLimit = -1; // By default, no limit
+  /** bound on the summed {@link ProcessDefinitionWeigher} weight (activities + transitions) of the cached definitions */
+  protected long processDefinitionCacheWeightLimit = -1; // By default, no limit
+  protected DefaultDeploymentCache.EvictionPolicy processDefinitionCacheEvictionPolicy = DefaultDeploymentCache.EvictionPolicy.LRU;
   protected DeploymentCache<ProcessDefinitionEntity> processDefinitionCache;
+  /**
+   * serve process definition lookups by id, key and version and latest by key from the 
+   * processDefinitionCache without querying the database. In a cluster, configure 
+   * processDefinitionCacheListeners that propagate deployments and suspensions to the other nodes.
+   */
+  protected boolean processDefinitionSecondLevelCacheEnabled = false;
+  protected List<ProcessDefinitionCacheListener> processDefinitionCacheListeners;
   
   protected int knowledgeBaseCacheLimit = -1;
   protected DeploymentCache<Object> knowledgeBaseCache;
@@ -290,12 +312,119 @@ public abstract class ProcessEngineConfigurationImpl extends ProcessEngineConfig
   
   protected SqlSessionFactory sqlSessionFactory;
   protected TransactionFactory transactionFactory;
+  
+  /** 
+   * Optional data source (eg. a read replica) for the commands that are marked as 
+   * {@link org.activiti.engine.impl.interceptor.ReadOnlyCommand}.  Those commands see the data as replicated to it.
+   */
+  protected DataSource readOnlyDataSource;
+  protected SqlSessionFactory readOnlySqlSessionFactory;
 
 
   // ID GENERATOR /////////////////////////////////////////////////////////////
   protected IdGenerator idGenerator;
   protected DataSource idGeneratorDataSource;
   protected String idGeneratorDataSourceJndiName;
+  /**
+   * use the {@link PrefetchingDbIdGenerator}: lock free id assignment, asynchronous prefetch of
+   * the next id block and block sizes between idBlockSize and maxIdBlockSize adapted to the load.
+   */
+  protected boolean idBlockPrefetchEnabled = false;
+  
+  /**
+   * write historic details (variable updates and form properties) after commit on a background 
+   * thread in batches, instead of in the runtime transaction. History queries become eventually 
+   * consistent, see {@link AsyncHistoryWriter}.
+   */
+  protected boolean asyncHistoryEnabled = false;
+  protected int asyncHistoryBatchSize = 500;
+  /** optional journal file that keeps the queued history records across a crash */
+  protected String asyncHistoryJournalFile;
+  protected AsyncHistoryWriter asyncHistoryWriter;
+  protected int maxIdBlockSize = 10000;
+  protected int idBlockLowWaterMarkPercent = 25;
+  
+  /**
+   * store new serializable variables with the {@link CompactSerializableType} instead of the 
+   * {@link SerializableType}. Values that are only read are not serialized again at flush.
+   */
+  protected boolean compactVariableSerializationEnabled = false;
+  protected VariableCodec variableCodec;
+  protected int variableCompressionThreshold = 4096;
+  /** 
+   * re-encode compact variables that were read or set at flush to find in-place modifications. Off 
+   * by default: values modified in place must be stored with setVariable 
+   */
+  protected boolean variableInPlaceMutationDetection = false;
+  
+  /**
+   * look up variables by name with a query for just the requested variables, instead of 
+   * loading all variables of an execution or task on the first variable access.
+   */
+  protected boolean selectiveVariableLoadingEnabled = false;
+  
+  /**
+   * compile script tasks at deployment and evaluate compiled scripts on reused engine 
+   * instances, see {@link ScriptingEngines#isScriptCompilationEnabled()}.
+   */
+  protected boolean scriptCompilationEnabled = false;
+  protected int compiledScriptLimit = 1000;
+  
+  /**
+   * keep the last two task keys of every process instance in TD_WF_REJECTPATH and write the 
+   * td_wf_rejectlog rows with the engine flush, so reject and withdraw do not have to sort 
+   * the whole task history of the instance.
+   */
+  protected boolean rejectPathEnabled = false;
+  
+  /**
+   * keep the {@link org.activiti.engine.ControlParam}s of the nodes of process instances across commands, within a 
+   * command they are always looked up once, see {@link ControlParamCache}.
+   */
+  protected boolean controlParamCacheEnabled = false;
+  /** max number of process instances with cached control parameters */
+  protected int controlParamCacheLimit = 10000;
+  protected ControlParamCache controlParamCache;
+  
+  /**
+   * create copy/notify tasks and their read records in the command transaction, written with the 
+   * engine flush, and keep the TD_WF_COPYTASK_READ index that lets the copy task inbox query skip 
+   * the correlated subqueries. Run TaskService.rebuildCopyTaskReadIndex() once when switching it on.
+   */
+  protected boolean copyTaskBatchEnabled = false;
+  
+  /**
+   * load all executions of a process instance with one query on the first access to a parent, 
+   * child, process instance or sub process instance reference, instead of one query per execution 
+   * of the tree. Speeds up parallel gateway joins and multi instance completion on wide trees.
+   */
+  protected boolean executionTreePrefetchEnabled = false;
+  
+  /**
+   * create the instances of a parallel multi instance activity in bulk: the collection is resolved once 
+   * instead of once per instance, the kpi of the instance tasks is computed once per fan out (from the 
+   * first instance) and the rows of all instances are flushed as jdbc batches. Leave it off when the 
+   * KPIService computes a different kpi per assignee.
+   */
+  protected boolean bulkMultiInstanceEnabled = false;
+  
+  /**
+   * join parallel gateways with an arrival counter per gateway and concurrent root (TD_WF_JOINCOUNTER): 
+   * arrivals that don't complete the join neither scan the concurrent executions nor lock the 
+   * concurrent root, only the executions waiting in the gateway are loaded when the join activates.
+   */
+  protected boolean parallelJoinCounterEnabled = false;
+  
+  /**
+   * cache the groups of the candidate users of task and process definition queries for 
+   * membershipCacheTTL ms. IdentityService invalidates the cache when memberships, users or groups 
+   * are deleted or created; UserInfoMap and external identity providers maintain it through 
+   * getMembershipCache(). A custom cache can be set with setMembershipCache().
+   */
+  protected boolean membershipCacheEnabled = false;
+  protected long membershipCacheTTL = 60000L;
+  protected int membershipCacheLimit = 10000;
+  protected MembershipCache membershipCache;
   
   // Bpmn parser
   protected List<BpmnParseHandler> preBpmnParseHandlers;
@@ -335,6 +464,22 @@ public abstract class ProcessEngineConfigurationImpl extends ProcessEngineConfig
   protected boolean isDbIdentityUsed = true;
   protected boolean isDbHistoryUsed = true;
   
+  /**
+   * Set this to true to let the DbSqlSession write its inserts, updates and deletes
+   * as JDBC batches (grouped per statement) instead of one statement per entity.
+   * 
+   * Optimistic locking is checked on the update counts of the batches, which requires a
+   * driver that reports them for batched statements (older Oracle drivers don't).
+   */
+  protected boolean isDbBatchFlushEnabled = false;
+  
+  /**
+   * Set this to true to skip the persistent state snapshots of loaded entities that track 
+   * their own changes (see HasDirtyState: tasks, executions and variables). At flush, only 
+   * the entities that were marked dirty are updated, so read-only commands allocate nothing.
+   */
+  protected boolean isDbDirtyTrackingEnabled = false;
+  
   protected DelegateInterceptor delegateInterceptor;
 
   protected CommandInterceptor actualCommandExecutor;
@@ -403,6 +548,7 @@ public abstract class ProcessEngineConfigurationImpl extends ProcessEngineConfig
     initIdGenerator();
     initDeployers();
     initJobExecutor();
+    initAsyncHistoryWriter();
     initDataSource();
     initTransactionFactory();
     initSqlSessionFactory();
@@ -413,6 +559,8 @@ public abstract class ProcessEngineConfigurationImpl extends ProcessEngineConfig
     initFailedJobCommandFactory();
     initInstanceUpgrade();
     initKPIService();
+    initControlParamCache();
+    initMembershipCache();
   }
   protected ConfigSQLExecutor extendExecutor;
   protected KPIService KPIService;
@@ -428,6 +576,20 @@ public abstract class ProcessEngineConfigurationImpl extends ProcessEngineConfig
 		  this.KPIService = KPIService_;
 	  }
   }
+  protected void initControlParamCache()
+  {
+	  if(controlParamCache == null)
+	  {
+		  controlParamCache = new ControlParamCache(controlParamCacheEnabled, controlParamCacheLimit);
+	  }
+  }
+  protected void initMembershipCache()
+  {
+	  if(membershipCache == null && membershipCacheEnabled)
+	  {
+		  membershipCache = new DefaultMembershipCache(membershipCacheTTL, membershipCacheLimit);
+	  }
+  }
   protected void initInstanceUpgrade()
   {
 	  if(instanceUpgrade == null)
@@ -663,34 +825,41 @@ public abstract class ProcessEngineConfigurationImpl extends ProcessEngineConfig
 
   protected void initSqlSessionFactory() {
     if (sqlSessionFactory==null) {
-      InputStream inputStream = null;
-      try {
-        inputStream = getMyBatisXmlConfigurationSteam();
-
-        // update the jdbc parameters to the configured ones...
-        Environment environment = new Environment("default", transactionFactory, dataSource);
-        Reader reader = new InputStreamReader(inputStream);
-        Properties properties = new Properties();
-        properties.put("prefix", databaseTablePrefix);
-        if(databaseType != null) {
-          properties.put("limitBefore" , DbSqlSessionFactory.databaseSpecificLimitBeforeStatements.get(databaseType));
-          properties.put("limitAfter" , DbSqlSessionFactory.databaseSpecificLimitAfterStatements.get(databaseType));
-          properties.put("limitBetween" , DbSqlSessionFactory.databaseSpecificLimitBetweenStatements.get(databaseType));
-          properties.put("orderBy" , DbSqlSessionFactory.databaseSpecificOrderByStatements.get(databaseType));
-        }
-        XMLConfigBuilder parser = new XMLConfigBuilder(reader,"", properties);
-        Configuration configuration = parser.getConfiguration();
-        configuration.setEnvironment(environment);
-        configuration.getTypeHandlerRegistry().register(VariableType.class, JdbcType.VARCHAR, new IbatisVariableTypeHandler());
-        configuration = parser.parse();
-
-        sqlSessionFactory = new DefaultSqlSessionFactory(configuration);
-
-      } catch (Exception e) {
-        throw new ActivitiException("Error while building ibatis SqlSessionFactory: " + e.getMessage(), e);
-      } finally {
-        IoUtil.closeSilently(inputStream);
+      sqlSessionFactory = createSqlSessionFactory(dataSource);
+    }
+    if (readOnlySqlSessionFactory==null && readOnlyDataSource!=null) {
+      readOnlySqlSessionFactory = createSqlSessionFactory(readOnlyDataSource);
+    }
+  }
+  
+  protected SqlSessionFactory createSqlSessionFactory(DataSource dataSource) {
+    InputStream inputStream = null;
+    try {
+      inputStream = getMyBatisXmlConfigurationSteam();
+
+      // update the jdbc parameters to the configured ones...
+      Environment environment = new Environment("default", transactionFactory, dataSource);
+      Reader reader = new InputStreamReader(inputStream);
+      Properties properties = new Properties();
+      properties.put("prefix", databaseTablePrefix);
+      if(databaseType != null) {
+        properties.put("limitBefore" , DbSqlSessionFactory.databaseSpecificLimitBeforeStatements.get(databaseType));
+        properties.put("limitAfter" , DbSqlSessionFactory.databaseSpecificLimitAfterStatements.get(databaseType));
+        properties.put("limitBetween" , DbSqlSessionFactory.databaseSpecificLimitBetweenStatements.get(databaseType));
+        properties.put("orderBy" , DbSqlSessionFactory.databaseSpecificOrderByStatements.get(databaseType));
       }
+      XMLConfigBuilder parser = new XMLConfigBuilder(reader,"", properties);
+      Configuration configuration = parser.getConfiguration();
+      configuration.setEnvironment(environment);
+      configuration.getTypeHandlerRegistry().register(VariableType.class, JdbcType.VARCHAR, new IbatisVariableTypeHandler());
+      configuration = parser.parse();
+
+      return new DefaultSqlSessionFactory(configuration);
+
+    } catch (Exception e) {
+      throw new ActivitiException("Error while building ibatis SqlSessionFactory: " + e.getMessage(), e);
+    } finally {
+      IoUtil.closeSilently(inputStream);
     }
   }
   
@@ -708,8 +877,11 @@ public abstract class ProcessEngineConfigurationImpl extends ProcessEngineConfig
       dbSqlSessionFactory.setDatabaseType(databaseType);
       dbSqlSessionFactory.setIdGenerator(idGenerator);
       dbSqlSessionFactory.setSqlSessionFactory(sqlSessionFactory);
+      dbSqlSessionFactory.setReadOnlySqlSessionFactory(readOnlySqlSessionFactory);
       dbSqlSessionFactory.setDbIdentityUsed(isDbIdentityUsed);
       dbSqlSessionFactory.setDbHistoryUsed(isDbHistoryUsed);
+      dbSqlSessionFactory.setDbBatchFlushEnabled(isDbBatchFlushEnabled);
+      dbSqlSessionFactory.setDbDirtyTrackingEnabled(isDbDirtyTrackingEnabled);
       dbSqlSessionFactory.setDatabaseTablePrefix(databaseTablePrefix);
       dbSqlSessionFactory.setDatabaseSchema(databaseSchema);
       dbSqlSessionFactory.setDataSource(dataSource);
@@ -740,6 +912,7 @@ public abstract class ProcessEngineConfigurationImpl extends ProcessEngineConfig
       addSessionFactory(new GenericManagerFactory(VariableInstanceEntityManager.class));
       addSessionFactory(new GenericManagerFactory(EventSubscriptionEntityManager.class));
       addSessionFactory(new GenericManagerFactory(HistoryManager.class));
+      addSessionFactory(new GenericManagerFactory(ControlParamManager.class));
     }
     if (customSessionFactories!=null) {
       for (SessionFactory sessionFactory: customSessionFactories) {
@@ -771,10 +944,11 @@ public abstract class ProcessEngineConfigurationImpl extends ProcessEngineConfig
       
       // Process Definition cache
       if (processDefinitionCache == null) {
-        if (processDefinitionCacheLimit <= 0) {
+        if (processDefinitionCacheLimit <= 0 && processDefinitionCacheWeightLimit <= 0) {
           processDefinitionCache = new DefaultDeploymentCache<ProcessDefinitionEntity>();
         } else {
-          processDefinitionCache = new DefaultDeploymentCache<ProcessDefinitionEntity>(processDefinitionCacheLimit);
+          processDefinitionCache = new DefaultDeploymentCache<ProcessDefinitionEntity>(processDefinitionCacheLimit, 
+                  processDefinitionCacheWeightLimit, new ProcessDefinitionWeigher(), processDefinitionCacheEvictionPolicy);
         }
       } 
       
@@ -789,6 +963,8 @@ public abstract class ProcessEngineConfigurationImpl extends ProcessEngineConfig
       
       deploymentManager.setProcessDefinitionCache(processDefinitionCache);
       deploymentManager.setKnowledgeBaseCache(knowledgeBaseCache);
+      deploymentManager.setSecondLevelCacheEnabled(processDefinitionSecondLevelCacheEnabled);
+      deploymentManager.setProcessDefinitionCacheListeners(processDefinitionCacheListeners);
     }
   }
 
@@ -922,6 +1098,21 @@ public abstract class ProcessEngineConfigurationImpl extends ProcessEngineConfig
     return parseHandlers;
   }
 
+  // async history ////////////////////////////////////////////////////////////
+  
+  protected void initAsyncHistoryWriter() {
+    if (asyncHistoryEnabled && asyncHistoryWriter == null) {
+      asyncHistoryWriter = new AsyncHistoryWriter();
+      asyncHistoryWriter.setBatchSize(asyncHistoryBatchSize);
+      if (asyncHistoryJournalFile != null) {
+        asyncHistoryWriter.setJournalFile(new File(asyncHistoryJournalFile));
+      }
+    }
+    if (asyncHistoryWriter != null && asyncHistoryWriter.getCommandExecutor() == null) {
+      asyncHistoryWriter.setCommandExecutor(commandExecutorTxRequiresNew);
+    }
+  }
+
   // job executor /////////////////////////////////////////////////////////////
   
   protected void initJobExecutor() {
@@ -998,10 +1189,19 @@ public abstract class ProcessEngineConfigurationImpl extends ProcessEngineConfig
         idGeneratorCommandExecutor = commandExecutorTxRequiresNew;
       }
       
-      DbIdGenerator dbIdGenerator = new DbIdGenerator();
-      dbIdGenerator.setIdBlockSize(idBlockSize);
-      dbIdGenerator.setCommandExecutor(idGeneratorCommandExecutor);
-      idGenerator = dbIdGenerator;
+      if (idBlockPrefetchEnabled) {
+        PrefetchingDbIdGenerator prefetchingIdGenerator = new PrefetchingDbIdGenerator();
+        prefetchingIdGenerator.setIdBlockSize(idBlockSize);
+        prefetchingIdGenerator.setMaxIdBlockSize(Math.max(idBlockSize, maxIdBlockSize));
+        prefetchingIdGenerator.setLowWaterMarkPercent(idBlockLowWaterMarkPercent);
+        prefetchingIdGenerator.setCommandExecutor(idGeneratorCommandExecutor);
+        idGenerator = prefetchingIdGenerator;
+      } else {
+        DbIdGenerator dbIdGenerator = new DbIdGenerator();
+        dbIdGenerator.setIdBlockSize(idBlockSize);
+        dbIdGenerator.setCommandExecutor(idGeneratorCommandExecutor);
+        idGenerator = dbIdGenerator;
+      }
     }
   }
 
@@ -1037,7 +1237,19 @@ public abstract class ProcessEngineConfigurationImpl extends ProcessEngineConfig
       variableTypes.addType(new DateType());
       variableTypes.addType(new DoubleType());
       variableTypes.addType(new ByteArrayType());
-      variableTypes.addType(new SerializableType());
+      if (variableCodec==null) {
+        variableCodec = new JavaSerializationCodec();
+      }
+      // the compact type is always registered so stored compact variables stay readable,
+      // the first type able to store a value wins for new variables
+      CompactSerializableType compactSerializableType = new CompactSerializableType(variableCodec, variableCompressionThreshold, variableInPlaceMutationDetection);
+      if (compactVariableSerializationEnabled) {
+        variableTypes.addType(compactSerializableType);
+        variableTypes.addType(new SerializableType());
+      } else {
+        variableTypes.addType(new SerializableType());
+        variableTypes.addType(compactSerializableType);
+      }
       variableTypes.addType(new CustomObjectType("item", ItemInstance.class));
       variableTypes.addType(new CustomObjectType("message", MessageInstance.class));
       if (customPostVariableTypes!=null) {
@@ -1086,6 +1298,8 @@ public abstract class ProcessEngineConfigurationImpl extends ProcessEngineConfig
     }
     if (scriptingEngines==null) {
       scriptingEngines = new ScriptingEngines(new ScriptBindingsFactory(resolverFactories));
+      scriptingEngines.setScriptCompilationEnabled(scriptCompilationEnabled);
+      scriptingEngines.setCompiledScriptLimit(compiledScriptLimit);
     }
   }
 
@@ -1147,6 +1361,10 @@ public abstract class ProcessEngineConfigurationImpl extends ProcessEngineConfig
       if(jpaType == null) {
         // We try adding the variable right before SerializableType, if available
         int serializableIndex = variableTypes.getTypeIndex(SerializableType.TYPE_NAME);
+        int compactSerializableIndex = variableTypes.getTypeIndex(CompactSerializableType.TYPE_NAME);
+        if(compactSerializableIndex > -1 && (serializableIndex == -1 || compactSerializableIndex < serializableIndex)) {
+          serializableIndex = compactSerializableIndex;
+        }
         if(serializableIndex > -1) {
           variableTypes.addType(new JPAEntityVariableType(), serializableIndex);
         } else {
@@ -1963,6 +2181,22 @@ public abstract class ProcessEngineConfigurationImpl extends ProcessEngineConfig
     this.processDefinitionCacheLimit = processDefinitionCacheLimit;
   }
   
+  public long getProcessDefinitionCacheWeightLimit() {
+    return processDefinitionCacheWeightLimit;
+  }
+
+  public void setProcessDefinitionCacheWeightLimit(long processDefinitionCacheWeightLimit) {
+    this.processDefinitionCacheWeightLimit = processDefinitionCacheWeightLimit;
+  }
+
+  public DefaultDeploymentCache.EvictionPolicy getProcessDefinitionCacheEvictionPolicy() {
+    return processDefinitionCacheEvictionPolicy;
+  }
+
+  public void setProcessDefinitionCacheEvictionPolicy(DefaultDeploymentCache.EvictionPolicy processDefinitionCacheEvictionPolicy) {
+    this.processDefinitionCacheEvictionPolicy = processDefinitionCacheEvictionPolicy;
+  }
+
   public DeploymentCache<ProcessDefinitionEntity> getProcessDefinitionCache() {
     return processDefinitionCache;
   }
@@ -1987,6 +2221,265 @@ public abstract class ProcessEngineConfigurationImpl extends ProcessEngineConfig
     this.knowledgeBaseCache = knowledgeBaseCache;
   }
 
+  public DataSource getReadOnlyDataSource() {
+    return readOnlyDataSource;
+  }
+
+  public void setReadOnlyDataSource(DataSource readOnlyDataSource) {
+    this.readOnlyDataSource = readOnlyDataSource;
+  }
+
+  public SqlSessionFactory getReadOnlySqlSessionFactory() {
+    return readOnlySqlSessionFactory;
+  }
+
+  public void setReadOnlySqlSessionFactory(SqlSessionFactory readOnlySqlSessionFactory) {
+    this.readOnlySqlSessionFactory = readOnlySqlSessionFactory;
+  }
+
+  public boolean isDbBatchFlushEnabled() {
+    return isDbBatchFlushEnabled;
+  }
+
+  public void setDbBatchFlushEnabled(boolean isDbBatchFlushEnabled) {
+    this.isDbBatchFlushEnabled = isDbBatchFlushEnabled;
+  }
+
+  public boolean isDbDirtyTrackingEnabled() {
+    return isDbDirtyTrackingEnabled;
+  }
+
+  public void setDbDirtyTrackingEnabled(boolean isDbDirtyTrackingEnabled) {
+    this.isDbDirtyTrackingEnabled = isDbDirtyTrackingEnabled;
+  }
+
+  public boolean isProcessDefinitionSecondLevelCacheEnabled() {
+    return processDefinitionSecondLevelCacheEnabled;
+  }
+
+  public void setProcessDefinitionSecondLevelCacheEnabled(boolean processDefinitionSecondLevelCacheEnabled) {
+    this.processDefinitionSecondLevelCacheEnabled = processDefinitionSecondLevelCacheEnabled;
+  }
+
+  public List<ProcessDefinitionCacheListener> getProcessDefinitionCacheListeners() {
+    return processDefinitionCacheListeners;
+  }
+
+  public void setProcessDefinitionCacheListeners(List<ProcessDefinitionCacheListener> processDefinitionCacheListeners) {
+    this.processDefinitionCacheListeners = processDefinitionCacheListeners;
+  }
+
+  public boolean isIdBlockPrefetchEnabled() {
+    return idBlockPrefetchEnabled;
+  }
+
+  public void setIdBlockPrefetchEnabled(boolean idBlockPrefetchEnabled) {
+    this.idBlockPrefetchEnabled = idBlockPrefetchEnabled;
+  }
+
+  public int getMaxIdBlockSize() {
+    return maxIdBlockSize;
+  }
+
+  public void setMaxIdBlockSize(int maxIdBlockSize) {
+    this.maxIdBlockSize = maxIdBlockSize;
+  }
+
+  public int getIdBlockLowWaterMarkPercent() {
+    return idBlockLowWaterMarkPercent;
+  }
+
+  public void setIdBlockLowWaterMarkPercent(int idBlockLowWaterMarkPercent) {
+    this.idBlockLowWaterMarkPercent = idBlockLowWaterMarkPercent;
+  }
+
+  public boolean isAsyncHistoryEnabled() {
+    return asyncHistoryEnabled;
+  }
+
+  public void setAsyncHistoryEnabled(boolean asyncHistoryEnabled) {
+    this.asyncHistoryEnabled = asyncHistoryEnabled;
+  }
+
+  public int getAsyncHistoryBatchSize() {
+    return asyncHistoryBatchSize;
+  }
+
+  public void setAsyncHistoryBatchSize(int asyncHistoryBatchSize) {
+    this.asyncHistoryBatchSize = asyncHistoryBatchSize;
+  }
+
+  public String getAsyncHistoryJournalFile() {
+    return asyncHistoryJournalFile;
+  }
+
+  public void setAsyncHistoryJournalFile(String asyncHistoryJournalFile) {
+    this.asyncHistoryJournalFile = asyncHistoryJournalFile;
+  }
+
+  public AsyncHistoryWriter getAsyncHistoryWriter() {
+    return asyncHistoryWriter;
+  }
+
+  public void setAsyncHistoryWriter(AsyncHistoryWriter asyncHistoryWriter) {
+    this.asyncHistoryWriter = asyncHistoryWriter;
+  }
+
+  public boolean isCompactVariableSerializationEnabled() {
+    return compactVariableSerializationEnabled;
+  }
+
+  public void setCompactVariableSerializationEnabled(boolean compactVariableSerializationEnabled) {
+    this.compactVariableSerializationEnabled = compactVariableSerializationEnabled;
+  }
+
+  public VariableCodec getVariableCodec() {
+    return variableCodec;
+  }
+
+  public void setVariableCodec(VariableCodec variableCodec) {
+    this.variableCodec = variableCodec;
+  }
+
+  public int getVariableCompressionThreshold() {
+    return variableCompressionThreshold;
+  }
+
+  public void setVariableCompressionThreshold(int variableCompressionThreshold) {
+    this.variableCompressionThreshold = variableCompressionThreshold;
+  }
+
+  public boolean isVariableInPlaceMutationDetection() {
+    return variableInPlaceMutationDetection;
+  }
+
+  public void setVariableInPlaceMutationDetection(boolean variableInPlaceMutationDetection) {
+    this.variableInPlaceMutationDetection = variableInPlaceMutationDetection;
+  }
+
+  public boolean isSelectiveVariableLoadingEnabled() {
+    return selectiveVariableLoadingEnabled;
+  }
+
+  public void setSelectiveVariableLoadingEnabled(boolean selectiveVariableLoadingEnabled) {
+    this.selectiveVariableLoadingEnabled = selectiveVariableLoadingEnabled;
+  }
+
+  public boolean isScriptCompilationEnabled() {
+    return scriptCompilationEnabled;
+  }
+
+  public void setScriptCompilationEnabled(boolean scriptCompilationEnabled) {
+    this.scriptCompilationEnabled = scriptCompilationEnabled;
+  }
+
+  public int getCompiledScriptLimit() {
+    return compiledScriptLimit;
+  }
+
+  public void setCompiledScriptLimit(int compiledScriptLimit) {
+    this.compiledScriptLimit = compiledScriptLimit;
+  }
+
+  public boolean isRejectPathEnabled() {
+    return rejectPathEnabled;
+  }
+
+  public void setRejectPathEnabled(boolean rejectPathEnabled) {
+    this.rejectPathEnabled = rejectPathEnabled;
+  }
+
+  public boolean isControlParamCacheEnabled() {
+    return controlParamCacheEnabled;
+  }
+
+  public void setControlParamCacheEnabled(boolean controlParamCacheEnabled) {
+    this.controlParamCacheEnabled = controlParamCacheEnabled;
+  }
+
+  public int getControlParamCacheLimit() {
+    return controlParamCacheLimit;
+  }
+
+  public void setControlParamCacheLimit(int controlParamCacheLimit) {
+    this.controlParamCacheLimit = controlParamCacheLimit;
+  }
+
+  public boolean isCopyTaskBatchEnabled() {
+    return copyTaskBatchEnabled;
+  }
+
+  public void setCopyTaskBatchEnabled(boolean copyTaskBatchEnabled) {
+    this.copyTaskBatchEnabled = copyTaskBatchEnabled;
+  }
+
+  public boolean isExecutionTreePrefetchEnabled() {
+    return executionTreePrefetchEnabled;
+  }
+
+  public void setExecutionTreePrefetchEnabled(boolean executionTreePrefetchEnabled) {
+    this.executionTreePrefetchEnabled = executionTreePrefetchEnabled;
+  }
+
+  public boolean isBulkMultiInstanceEnabled() {
+    return bulkMultiInstanceEnabled;
+  }
+
+  public void setBulkMultiInstanceEnabled(boolean bulkMultiInstanceEnabled) {
+    this.bulkMultiInstanceEnabled = bulkMultiInstanceEnabled;
+  }
+
+  public boolean isParallelJoinCounterEnabled() {
+    return parallelJoinCounterEnabled;
+  }
+
+  public void setParallelJoinCounterEnabled(boolean parallelJoinCounterEnabled) {
+    this.parallelJoinCounterEnabled = parallelJoinCounterEnabled;
+  }
+
+  public ControlParamCache getControlParamCache() {
+    return controlParamCache;
+  }
+
+  public void setControlParamCache(ControlParamCache controlParamCache) {
+    this.controlParamCache = controlParamCache;
+  }
+
+  public boolean isMembershipCacheEnabled() {
+    return membershipCacheEnabled;
+  }
+
+  public void setMembershipCacheEnabled(boolean membershipCacheEnabled) {
+    this.membershipCacheEnabled = membershipCacheEnabled;
+  }
+
+  public long getMembershipCacheTTL() {
+    return membershipCacheTTL;
+  }
+
+  public void setMembershipCacheTTL(long membershipCacheTTL) {
+    this.membershipCacheTTL = membershipCacheTTL;
+  }
+
+  public int getMembershipCacheLimit() {
+    return membershipCacheLimit;
+  }
+
+  public void setMembershipCacheLimit(int membershipCacheLimit) {
+    this.membershipCacheLimit = membershipCacheLimit;
+  }
+
+  /**
+   * @return the membership cache, null when the cache is disabled
+   */
+  public MembershipCache getMembershipCache() {
+    return membershipCache;
+  }
+
+  public void setMembershipCache(MembershipCache membershipCache) {
+    this.membershipCache = membershipCache;
+  }
+
   public boolean isEnableSafeBpmnXml() {
     return enableSafeBpmnXml;
   }
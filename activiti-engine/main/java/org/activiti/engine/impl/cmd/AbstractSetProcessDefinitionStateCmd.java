@@ -138,8 +138,7 @@ public abstract class AbstractSetProcessDefinitionStateCmd implements Command<Vo
       Context
         .getProcessEngineConfiguration()
         .getDeploymentManager()
-        .getProcessDefinitionCache()
-        .remove(processDefinition.getId());
+        .removeProcessDefinition(processDefinition);
       
       // Suspend process instances (if needed)
       if (includeProcessInstances) {
@@ -14,8 +14,14 @@ package org.activiti.engine.impl.cmd;
 
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
 import java.util.GregorianCalendar;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.activiti.engine.impl.Page;
 import org.activiti.engine.impl.interceptor.Command;
@@ -23,6 +29,7 @@ import org.activiti.engine.impl.interceptor.CommandContext;
 import org.activiti.engine.impl.jobexecutor.AcquiredJobs;
 import org.activiti.engine.impl.jobexecutor.JobExecutor;
 import org.activiti.engine.impl.persistence.entity.JobEntity;
+import org.activiti.engine.impl.persistence.entity.JobEntityManager;
 import org.activiti.engine.impl.util.ClockUtil;
 
 
@@ -34,6 +41,9 @@ public class AcquireJobsCmd implements Command<AcquiredJobs> {
 
   private static final long serialVersionUID = 1L;
   
+  /** makes the lock owner of every batch acquisition unique, also across job executor restarts */
+  private static final AtomicLong acquisitionCounter = new AtomicLong(System.currentTimeMillis());
+  
   private final JobExecutor jobExecutor;
 
   public AcquireJobsCmd(JobExecutor jobExecutor) {
@@ -41,10 +51,13 @@ public class AcquireJobsCmd implements Command<AcquiredJobs> {
   }
   
   public AcquiredJobs execute(CommandContext commandContext) {
+    if (jobExecutor.isBatchAcquisitionEnabled()) {
+      return acquireJobBatch(commandContext);
+    }
     
     String lockOwner = jobExecutor.getLockOwner();
     int lockTimeInMillis = jobExecutor.getLockTimeInMillis();
-    int maxNonExclusiveJobsPerAcquisition = jobExecutor.getMaxJobsPerAcquisition();
+    int maxNonExclusiveJobsPerAcquisition = getMaxJobsPerAcquisition();
     
     AcquiredJobs acquiredJobs = new AcquiredJobs();
     List<JobEntity> jobs = commandContext
@@ -79,11 +92,86 @@ public class AcquireJobsCmd implements Command<AcquiredJobs> {
     return acquiredJobs;
   }
 
+  /**
+   * Locks all candidates with one conditional update which only succeeds for the jobs that are 
+   * (still) unlocked, and reads back the jobs that were won when other job executors were faster. 
+   * The exclusive jobs of all candidate process instances are loaded with one query.
+   */
+  protected AcquiredJobs acquireJobBatch(CommandContext commandContext) {
+    JobEntityManager jobEntityManager = commandContext.getJobEntityManager();
+    List<JobEntity> jobs = jobEntityManager.findNextJobsToExecute(new Page(0, getMaxJobsPerAcquisition()));
+    
+    List<String> jobIds = new ArrayList<String>();
+    Map<String, List<String>> exclusiveJobIds = new LinkedHashMap<String, List<String>>();
+    for (JobEntity job : jobs) {
+      if (job.isExclusive() && job.getProcessInstanceId() != null) {
+        if (!exclusiveJobIds.containsKey(job.getProcessInstanceId())) {
+          exclusiveJobIds.put(job.getProcessInstanceId(), new ArrayList<String>());
+        }
+      } else if (!jobIds.contains(job.getId())) {
+        jobIds.add(job.getId());
+      }
+    }
+    if (!exclusiveJobIds.isEmpty()) {
+      for (JobEntity exclusiveJob : jobEntityManager.findExclusiveJobsToExecute(exclusiveJobIds.keySet())) {
+        List<String> processInstanceJobIds = exclusiveJobIds.get(exclusiveJob.getProcessInstanceId());
+        if (processInstanceJobIds != null && !processInstanceJobIds.contains(exclusiveJob.getId())) {
+          processInstanceJobIds.add(exclusiveJob.getId());
+        }
+      }
+    }
+    
+    List<String> candidateIds = new ArrayList<String>(jobIds);
+    for (List<String> processInstanceJobIds : exclusiveJobIds.values()) {
+      candidateIds.addAll(processInstanceJobIds);
+    }
+    AcquiredJobs acquiredJobs = new AcquiredJobs();
+    if (candidateIds.isEmpty()) {
+      return acquiredJobs;
+    }
+    
+    String lockOwner = jobExecutor.getLockOwner() + ":" + acquisitionCounter.incrementAndGet();
+    int lockedJobs = jobEntityManager.lockJobs(candidateIds, lockOwner, getLockExpirationTime(jobExecutor.getLockTimeInMillis()));
+    Collection<String> wonJobIds = candidateIds;
+    if (lockedJobs < candidateIds.size()) {
+      wonJobIds = new HashSet<String>(jobEntityManager.findJobIdsByLockOwner(candidateIds, lockOwner));
+    }
+    
+    for (String jobId : jobIds) {
+      if (wonJobIds.contains(jobId)) {
+        List<String> jobIdBatch = new ArrayList<String>();
+        jobIdBatch.add(jobId);
+        acquiredJobs.addJobIdBatch(jobIdBatch);
+      }
+    }
+    for (List<String> processInstanceJobIds : exclusiveJobIds.values()) {
+      List<String> jobIdBatch = new ArrayList<String>();
+      for (String jobId : processInstanceJobIds) {
+        if (wonJobIds.contains(jobId)) {
+          jobIdBatch.add(jobId);
+        }
+      }
+      if (!jobIdBatch.isEmpty()) {
+        acquiredJobs.addJobIdBatch(jobIdBatch);
+      }
+    }
+    return acquiredJobs;
+  }
+
+  /** never lock more jobs than the job executor can take right now */
+  protected int getMaxJobsPerAcquisition() {
+    return Math.max(Math.min(jobExecutor.getMaxJobsPerAcquisition(), jobExecutor.getAvailableCapacity()), 0);
+  }
+
   protected void lockJob(JobEntity job, String lockOwner, int lockTimeInMillis) {    
     job.setLockOwner(lockOwner);
+    job.setLockExpirationTime(getLockExpirationTime(lockTimeInMillis));    
+  }
+  
+  protected Date getLockExpirationTime(int lockTimeInMillis) {
     GregorianCalendar gregorianCalendar = new GregorianCalendar();
     gregorianCalendar.setTime(ClockUtil.getCurrentTime());
     gregorianCalendar.add(Calendar.MILLISECOND, lockTimeInMillis);
-    job.setLockExpirationTime(gregorianCalendar.getTime());    
+    return gregorianCalendar.getTime();
   }
 }
@@ -0,0 +1,137 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.impl.cmd;
+
+import java.io.Serializable;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.activiti.engine.ActivitiException;
+import org.activiti.engine.ActivitiIllegalArgumentException;
+import org.activiti.engine.impl.TaskContext;
+import org.activiti.engine.impl.context.Context;
+import org.activiti.engine.impl.db.DbSqlSession;
+import org.activiti.engine.impl.interceptor.Command;
+import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.impl.persistence.entity.CopyHistoryTaskEntity;
+import org.activiti.engine.impl.persistence.entity.CopyTaskEntity;
+import org.activiti.engine.impl.persistence.entity.CopyTaskReadEntity;
+import org.activiti.engine.impl.util.ClockUtil;
+
+
+/**
+ * 完成用户的抄送/通知任务：一次查询所有抄送任务和用户在这些活动任务上的阅读记录，
+ * 阅读记录、阅读索引、直接抄送任务及其索引记录的删除随命令事务一起flush
+ * 
+ * @author biaoping.yin
+ */
+public class CompleteCopyTasksCmd implements Command<Void>, Serializable {
+
+  private static final long serialVersionUID = 1L;
+  protected Collection<String> copyTaskIds;
+  protected String copyUser;
+  
+  public CompleteCopyTasksCmd(Collection<String> copyTaskIds, String copyUser) {
+    this.copyTaskIds = copyTaskIds;
+    this.copyUser = copyUser;
+  }
+
+  @SuppressWarnings("unchecked")
+  public Void execute(CommandContext commandContext) {
+    if (copyTaskIds == null || copyUser == null) {
+      throw new ActivitiIllegalArgumentException("copyTaskIds and copyUser are required");
+    }
+    Set<String> ids = new LinkedHashSet<String>(copyTaskIds);
+    if (ids.isEmpty()) {
+      return null;
+    }
+    DbSqlSession dbSqlSession = commandContext.getDbSqlSession();
+    
+    Map<String, Object> parameters = new HashMap<String, Object>();
+    parameters.put("copyTaskIds", new ArrayList<String>(ids));
+    List<CopyTaskEntity> copyTasks = dbSqlSession.selectList("selectCopyTasksByIds", parameters);
+    Map<String, CopyTaskEntity> copyTasksById = new HashMap<String, CopyTaskEntity>();
+    Set<String> actInstIds = new HashSet<String>();
+    for (CopyTaskEntity copyTask : copyTasks) {
+      copyTasksById.put(copyTask.getId(), copyTask);
+      actInstIds.add(copyTask.getAct_instid());
+    }
+    for (String id : ids) {
+      if (!copyTasksById.containsKey(id)) {
+        throw new ActivitiException("completeCopyTask["+id+"] failed:copy task do not exist.");
+      }
+    }
+    
+    parameters = new HashMap<String, Object>();
+    parameters.put("coper", copyUser);
+    parameters.put("actInstIds", new ArrayList<String>(actInstIds));
+    Set<String> readActInstIds = new HashSet<String>(dbSqlSession.selectList("selectReadCopyTaskActInstIds", parameters));
+    
+    String coperCNName = null;
+    try {
+      coperCNName = Context.getProcessEngineConfiguration().getUserInfoMap().getUserName(copyUser);
+    } catch (Exception e) {
+    }
+    Timestamp readtime = new Timestamp(ClockUtil.getCurrentTime().getTime());
+    List<String> deleteIds = new ArrayList<String>();
+    Set<String> deleteActInstIds = new HashSet<String>();
+    for (String id : ids) {
+      CopyTaskEntity copyTask = copyTasksById.get(id);
+      // 用户已经阅读过活动任务的抄送
+      if (!readActInstIds.add(copyTask.getAct_instid())) {
+        continue;
+      }
+      CopyHistoryTaskEntity copyHistoryTask = new CopyHistoryTaskEntity();
+      copyHistoryTask.setAct_id(copyTask.getAct_id());
+      copyHistoryTask.setAct_instid(copyTask.getAct_instid());
+      copyHistoryTask.setAct_name(copyTask.getAct_name());
+      copyHistoryTask.setCopytime(copyTask.getCopytime());
+      copyHistoryTask.setBusinesskey(copyTask.getBusinesskey());
+      copyHistoryTask.setProcess_key(copyTask.getProcess_key());
+      copyHistoryTask.setProcess_id(copyTask.getProcess_id());
+      copyHistoryTask.setCoperCNName(coperCNName);
+      copyHistoryTask.setCoper(copyUser);
+      if (copyTask.getCopertype() == TaskContext.COPER_TYPE_ORG) {
+        copyHistoryTask.setCoperorg(copyTask.getCoper());
+      }
+      copyHistoryTask.setReadtime(readtime);
+      copyHistoryTask.setCopyid(id);
+      dbSqlSession.insert(copyHistoryTask);
+      dbSqlSession.insert(new CopyTaskReadEntity(copyUser, copyTask.getAct_instid(), CopyTaskReadEntity.READTYPE_READ));
+      
+      if (copyTask.getCopertype() == TaskContext.COPER_TYPE_USER && copyUser.equals(copyTask.getCoper())) {
+        deleteIds.add(id);
+        deleteActInstIds.add(copyTask.getAct_instid());
+      }
+    }
+    if (!deleteIds.isEmpty()) {
+      parameters = new HashMap<String, Object>();
+      parameters.put("copyTaskIds", deleteIds);
+      dbSqlSession.delete("deleteCopyTasksByIds", parameters);
+      // 直接抄送任务删除后，阅读记录代替直接抄送记录排除用户的机构抄送任务
+      parameters = new HashMap<String, Object>();
+      parameters.put("coper", copyUser);
+      parameters.put("readtype", CopyTaskReadEntity.READTYPE_COPY);
+      parameters.put("actInstIds", new ArrayList<String>(deleteActInstIds));
+      dbSqlSession.delete("deleteCopyTaskReads", parameters);
+    }
+    return null;
+  }
+}
@@ -20,6 +20,8 @@ import org.activiti.engine.TaskService;
 import org.activiti.engine.impl.TaskContext;
 import org.activiti.engine.impl.context.Context;
 import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.impl.persistence.entity.RejectLogEntity;
+import org.activiti.engine.impl.persistence.entity.RejectPathEntity;
 import org.activiti.engine.impl.persistence.entity.TaskEntity;
 import org.activiti.engine.impl.persistence.entity.TaskRejectLog;
 import org.activiti.engine.impl.pvm.process.ActivityImpl;
@@ -90,7 +92,11 @@ public class CompleteTaskCmd extends NeedsActiveTaskCmd<Void> {
 	 
 	  	try {
 //	  		String pretaskKey = null;
-	  				  	
+	  		if(Context.getProcessEngineConfiguration().isRejectPathEnabled())
+	  		{
+	  			RejectLogEntity rejectLog = commandContext.getDbSqlSession().selectById(RejectLogEntity.class, taskId);
+	  			return rejectLog != null && rejectLog.getOPTYPE() == TaskService.op_returntorejected ? rejectLog : null;
+	  		}
 				
 				ConfigSQLExecutor executor = Context.getProcessEngineConfiguration().getExtendExecutor();
 				
@@ -113,9 +119,21 @@ public class CompleteTaskCmd extends NeedsActiveTaskCmd<Void> {
 	  		{
 					  	
 				boolean ismultiinst = act.isMultiTask();
+				RejectPathEntity rejectPath = null;
+				if(Context.getProcessEngineConfiguration().isRejectPathEnabled())
+				{
+					rejectPath = commandContext.getDbSqlSession().selectById(RejectPathEntity.class, task.getProcessInstanceId());
+				}
 				ConfigSQLExecutor executor = Context.getProcessEngineConfiguration().getExtendExecutor();
-				
-				if(!ismultiinst)
+				if(rejectPath != null)
+				{
+					pretaskKey = rejectPath.getRejectedTaskKey(task.getTaskDefinitionKey(), ismultiinst);
+					if(pretaskKey == null)
+					{
+						throw new ActivitiException("驳回任务失败："+task.getTaskDefinitionKey()+"["+taskId+"],没有找到驳回节点!");
+					}
+				}
+				else if(!ismultiinst)
 				{
 					pretaskKey = executor.queryObject(String.class,"rejecttoPretaskSQL", taskId);
 					if(pretaskKey == null)
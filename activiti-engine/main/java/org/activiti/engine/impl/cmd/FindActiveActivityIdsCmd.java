@@ -20,6 +20,7 @@ import org.activiti.engine.ActivitiIllegalArgumentException;
 import org.activiti.engine.ActivitiObjectNotFoundException;
 import org.activiti.engine.impl.interceptor.Command;
 import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.impl.interceptor.ReadOnlyCommand;
 import org.activiti.engine.impl.persistence.entity.ExecutionEntity;
 import org.activiti.engine.runtime.Execution;
 
@@ -27,7 +28,7 @@ import org.activiti.engine.runtime.Execution;
 /**
  * @author Tom Baeyens
  */
-public class FindActiveActivityIdsCmd implements Command<List<String>>, Serializable {
+public class FindActiveActivityIdsCmd implements Command<List<String>>, ReadOnlyCommand, Serializable {
 
   private static final long serialVersionUID = 1L;
   protected String executionId;
@@ -17,6 +17,7 @@ import java.io.Serializable;
 
 import org.activiti.engine.impl.interceptor.Command;
 import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.impl.interceptor.ReadOnlyCommand;
 import org.activiti.engine.impl.persistence.entity.AttachmentEntity;
 import org.activiti.engine.task.Attachment;
 
@@ -24,7 +25,7 @@ import org.activiti.engine.task.Attachment;
 /**
  * @author Tom Baeyens
  */
-public class GetAttachmentCmd implements Command<Attachment>, Serializable {
+public class GetAttachmentCmd implements Command<Attachment>, ReadOnlyCommand, Serializable {
 
   private static final long serialVersionUID = 1L;
   protected String attachmentId;
@@ -19,13 +19,14 @@ import org.activiti.engine.ActivitiIllegalArgumentException;
 import org.activiti.engine.impl.context.Context;
 import org.activiti.engine.impl.interceptor.Command;
 import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.impl.interceptor.ReadOnlyCommand;
 
 
 /**
  * @author Joram Barrez
  */
 @SuppressWarnings("unchecked")
-public class GetDeploymentResourceNamesCmd implements Command<List>, Serializable {
+public class GetDeploymentResourceNamesCmd implements Command<List>, ReadOnlyCommand, Serializable {
   
   private static final long serialVersionUID = 1L;
   protected String deploymentId;
@@ -14,13 +14,13 @@ package org.activiti.engine.impl.cmd;
 
 import java.io.Serializable;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Map;
 
 import org.activiti.engine.ActivitiIllegalArgumentException;
 import org.activiti.engine.ActivitiObjectNotFoundException;
 import org.activiti.engine.impl.interceptor.Command;
 import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.impl.interceptor.ReadOnlyCommand;
 import org.activiti.engine.impl.persistence.entity.ExecutionEntity;
 import org.activiti.engine.runtime.Execution;
 
@@ -28,7 +28,7 @@ import org.activiti.engine.runtime.Execution;
 /**
  * @author Tom Baeyens
  */
-public class GetExecutionVariablesCmd implements Command<Map<String, Object>>, Serializable {
+public class GetExecutionVariablesCmd implements Command<Map<String, Object>>, ReadOnlyCommand, Serializable {
 
   private static final long serialVersionUID = 1L;
   protected String executionId;
@@ -54,24 +54,19 @@ public class GetExecutionVariablesCmd implements Command<Map<String, Object>>, S
       throw new ActivitiObjectNotFoundException("execution "+executionId+" doesn't exist", Execution.class);
     }
 
-    Map<String, Object> executionVariables;
-    if (isLocal) {
-      executionVariables = execution.getVariablesLocal();
-    } else {
-      executionVariables = execution.getVariables();
-    }
-    
     if (variableNames != null && variableNames.size() > 0) {
-      // if variableNames is not empty, return only variable names mentioned in it
-      Map<String, Object> tempVariables = new HashMap<String, Object>();
-      for (String variableName: variableNames) {
-        if (executionVariables.containsKey(variableName)) {
-          tempVariables.put(variableName, executionVariables.get(variableName));
-        }
+      // if variableNames is not empty, load and return only variable names mentioned in it
+      if (isLocal) {
+        return execution.getVariablesLocal(variableNames);
+      } else {
+        return execution.getVariables(variableNames);
       }
-      executionVariables = tempVariables;
     }
     
-    return executionVariables;
+    if (isLocal) {
+      return execution.getVariablesLocal();
+    } else {
+      return execution.getVariables();
+    }
   }
 }
@@ -19,6 +19,7 @@ import org.activiti.engine.ActivitiObjectNotFoundException;
 import org.activiti.engine.impl.context.Context;
 import org.activiti.engine.impl.interceptor.Command;
 import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.impl.interceptor.ReadOnlyCommand;
 import org.activiti.engine.impl.persistence.entity.ExecutionEntity;
 import org.activiti.engine.task.IdentityLink;
 
@@ -26,7 +27,7 @@ import org.activiti.engine.task.IdentityLink;
 /**
  * @author Marcus Klimstra
  */
-public class GetIdentityLinksForProcessInstanceCmd implements Command<List<IdentityLink>>, Serializable {
+public class GetIdentityLinksForProcessInstanceCmd implements Command<List<IdentityLink>>, ReadOnlyCommand, Serializable {
   
   private static final long serialVersionUID = 1L;
   
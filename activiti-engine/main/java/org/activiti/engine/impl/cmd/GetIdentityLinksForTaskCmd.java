@@ -18,6 +18,7 @@ import java.util.List;
 import org.activiti.engine.impl.context.Context;
 import org.activiti.engine.impl.interceptor.Command;
 import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.impl.interceptor.ReadOnlyCommand;
 import org.activiti.engine.impl.persistence.entity.IdentityLinkEntity;
 import org.activiti.engine.impl.persistence.entity.TaskEntity;
 import org.activiti.engine.task.IdentityLink;
@@ -28,7 +29,7 @@ import org.activiti.engine.task.IdentityLinkType;
  * @author Joram Barrez
  * @author Falko Menge
  */
-public class GetIdentityLinksForTaskCmd implements Command<List<IdentityLink>>, Serializable {
+public class GetIdentityLinksForTaskCmd implements Command<List<IdentityLink>>, ReadOnlyCommand, Serializable {
   
   private static final long serialVersionUID = 1L;
   protected String taskId;
@@ -19,6 +19,7 @@ import org.activiti.engine.ActivitiIllegalArgumentException;
 import org.activiti.engine.ActivitiObjectNotFoundException;
 import org.activiti.engine.impl.interceptor.Command;
 import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.impl.interceptor.ReadOnlyCommand;
 import org.activiti.engine.impl.persistence.entity.JobEntity;
 import org.activiti.engine.runtime.Job;
 
@@ -26,7 +27,7 @@ import org.activiti.engine.runtime.Job;
 /**
  * @author Frederik Heremans
  */
-public class GetJobExceptionStacktraceCmd implements Command<String>, Serializable{
+public class GetJobExceptionStacktraceCmd implements Command<String>, ReadOnlyCommand, Serializable{
 
   private static final long serialVersionUID = 1L;
   private String jobId;
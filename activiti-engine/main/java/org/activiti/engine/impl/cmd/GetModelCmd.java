@@ -18,13 +18,14 @@ import java.io.Serializable;
 import org.activiti.engine.impl.context.Context;
 import org.activiti.engine.impl.interceptor.Command;
 import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.impl.interceptor.ReadOnlyCommand;
 import org.activiti.engine.impl.persistence.entity.ModelEntity;
 
 
 /**
  * @author Tijs Rademakers
  */
-public class GetModelCmd implements Command<ModelEntity>, Serializable {
+public class GetModelCmd implements Command<ModelEntity>, ReadOnlyCommand, Serializable {
 
   private static final long serialVersionUID = 1L;
   protected String modelId;
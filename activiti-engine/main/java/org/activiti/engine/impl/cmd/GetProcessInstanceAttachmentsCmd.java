@@ -18,13 +18,14 @@ import java.util.List;
 
 import org.activiti.engine.impl.interceptor.Command;
 import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.impl.interceptor.ReadOnlyCommand;
 import org.activiti.engine.task.Attachment;
 
 
 /**
  * @author Tom Baeyens
  */
-public class GetProcessInstanceAttachmentsCmd implements Command<List<Attachment>>, Serializable {
+public class GetProcessInstanceAttachmentsCmd implements Command<List<Attachment>>, ReadOnlyCommand, Serializable {
 
   private static final long serialVersionUID = 1L;
   protected String processInstanceId;
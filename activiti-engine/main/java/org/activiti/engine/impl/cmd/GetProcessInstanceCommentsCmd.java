@@ -18,13 +18,14 @@ import java.util.List;
 
 import org.activiti.engine.impl.interceptor.Command;
 import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.impl.interceptor.ReadOnlyCommand;
 import org.activiti.engine.task.Comment;
 
 
 /**
  * @author Tom Baeyens
  */
-public class GetProcessInstanceCommentsCmd implements Command<List<Comment>>, Serializable {
+public class GetProcessInstanceCommentsCmd implements Command<List<Comment>>, ReadOnlyCommand, Serializable {
 
   private static final long serialVersionUID = 1L;
   protected String processInstanceId;
@@ -20,13 +20,14 @@ import java.util.Map;
 
 import org.activiti.engine.impl.interceptor.Command;
 import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.impl.interceptor.ReadOnlyCommand;
 import org.activiti.engine.impl.persistence.entity.PropertyEntity;
 
 
 /**
  * @author Tom Baeyens
  */
-public class GetPropertiesCmd implements Command<Map<String, String>>, Serializable {
+public class GetPropertiesCmd implements Command<Map<String, String>>, ReadOnlyCommand, Serializable {
 
   private static final long serialVersionUID = 1L;
 
@@ -19,13 +19,14 @@ import java.util.List;
 import org.activiti.engine.impl.context.Context;
 import org.activiti.engine.impl.interceptor.Command;
 import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.impl.interceptor.ReadOnlyCommand;
 import org.activiti.engine.task.Task;
 
 
 /**
  * @author Tom Baeyens
  */
-public class GetSubTasksCmd implements Command<List<Task>>, Serializable {
+public class GetSubTasksCmd implements Command<List<Task>>, ReadOnlyCommand, Serializable {
 
   private static final long serialVersionUID = 1L;
   protected String parentTaskId;
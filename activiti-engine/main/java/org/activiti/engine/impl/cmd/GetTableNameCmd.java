@@ -6,9 +6,10 @@ import org.activiti.engine.ActivitiException;
 import org.activiti.engine.ActivitiIllegalArgumentException;
 import org.activiti.engine.impl.interceptor.Command;
 import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.impl.interceptor.ReadOnlyCommand;
 
 
-public class GetTableNameCmd implements Command<String>, Serializable {
+public class GetTableNameCmd implements Command<String>, ReadOnlyCommand, Serializable {
 
   private static final long serialVersionUID = 1L;
 
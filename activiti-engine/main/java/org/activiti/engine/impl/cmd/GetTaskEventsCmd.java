@@ -18,13 +18,14 @@ import java.util.List;
 
 import org.activiti.engine.impl.interceptor.Command;
 import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.impl.interceptor.ReadOnlyCommand;
 import org.activiti.engine.task.Event;
 
 
 /**
  * @author Tom Baeyens
  */
-public class GetTaskEventsCmd implements Command<List<Event>>, Serializable {  
+public class GetTaskEventsCmd implements Command<List<Event>>, ReadOnlyCommand, Serializable {  
 
   private static final long serialVersionUID = 1L;
   protected String taskId;
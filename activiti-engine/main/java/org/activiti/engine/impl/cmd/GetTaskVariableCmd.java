@@ -20,6 +20,7 @@ import org.activiti.engine.ActivitiObjectNotFoundException;
 import org.activiti.engine.impl.context.Context;
 import org.activiti.engine.impl.interceptor.Command;
 import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.impl.interceptor.ReadOnlyCommand;
 import org.activiti.engine.impl.persistence.entity.TaskEntity;
 import org.activiti.engine.task.Task;
 
@@ -27,7 +28,7 @@ import org.activiti.engine.task.Task;
 /**
  * @author Tom Baeyens
  */
-public class GetTaskVariableCmd implements Command<Object>, Serializable {
+public class GetTaskVariableCmd implements Command<Object>, ReadOnlyCommand, Serializable {
 
   private static final long serialVersionUID = 1L;
   protected String taskId;
@@ -23,6 +23,7 @@ import org.activiti.engine.ActivitiObjectNotFoundException;
 import org.activiti.engine.impl.context.Context;
 import org.activiti.engine.impl.interceptor.Command;
 import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.impl.interceptor.ReadOnlyCommand;
 import org.activiti.engine.impl.persistence.entity.TaskEntity;
 import org.activiti.engine.task.Task;
 
@@ -30,7 +31,7 @@ import org.activiti.engine.task.Task;
 /**
  * @author Tom Baeyens
  */
-public class GetTaskVariablesCmd implements Command<Map<String, Object>>, Serializable {
+public class GetTaskVariablesCmd implements Command<Map<String, Object>>, ReadOnlyCommand, Serializable {
 
   private static final long serialVersionUID = 1L;
   protected String taskId;
@@ -58,20 +59,23 @@ public class GetTaskVariablesCmd implements Command<Map<String, Object>>, Serial
     }
 
     Map<String, Object> taskVariables;
-    if (isLocal) {
-      taskVariables = task.getVariablesLocal();
-    } else {
-      taskVariables = task.getVariables();
-    }
-    
+    Collection<String> variableNames = this.variableNames;
     if (variableNames==null) {
+      if (isLocal) {
+        taskVariables = task.getVariablesLocal();
+      } else {
+        taskVariables = task.getVariables();
+      }
       variableNames = taskVariables.keySet();
+    } else {
+      // only the requested variables are loaded
+      taskVariables = task.getVariables(variableNames);
     }
     
     // this copy is made to avoid lazy initialization outside a command context
     Map<String, Object> variables = new HashMap<String, Object>();
     for (String variableName: variableNames) {
-      variables.put(variableName, task.getVariable(variableName));
+      variables.put(variableName, taskVariables.get(variableName));
     }
     
     return variables;
@@ -17,13 +17,14 @@ import java.io.Serializable;
 
 import org.activiti.engine.impl.interceptor.Command;
 import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.impl.interceptor.ReadOnlyCommand;
 import org.activiti.engine.impl.persistence.entity.IdentityInfoEntity;
 
 
 /**
  * @author Tom Baeyens
  */
-public class GetUserInfoCmd implements Command<String>, Serializable {
+public class GetUserInfoCmd implements Command<String>, ReadOnlyCommand, Serializable {
 
   private static final long serialVersionUID = 1L;
   protected String userId;
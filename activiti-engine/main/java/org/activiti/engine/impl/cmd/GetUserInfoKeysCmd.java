@@ -18,12 +18,13 @@ import java.util.List;
 
 import org.activiti.engine.impl.interceptor.Command;
 import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.impl.interceptor.ReadOnlyCommand;
 
 
 /**
  * @author Tom Baeyens
  */
-public class GetUserInfoKeysCmd implements Command<List<String>>, Serializable {
+public class GetUserInfoKeysCmd implements Command<List<String>>, ReadOnlyCommand, Serializable {
 
   private static final long serialVersionUID = 1L;
   protected String userId;
@@ -0,0 +1,61 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.impl.cmd;
+
+import java.util.List;
+
+import org.activiti.engine.impl.db.DbSqlSession;
+import org.activiti.engine.impl.db.PersistentObject;
+import org.activiti.engine.impl.interceptor.Command;
+import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.impl.persistence.entity.ByteArrayEntity;
+import org.activiti.engine.impl.persistence.entity.HistoricDetailVariableInstanceUpdateEntity;
+
+
+/**
+ * Inserts history records queued by the {@link org.activiti.engine.impl.history.AsyncHistoryWriter}
+ * in one transaction.
+ * 
+ * @author biaoping.yin
+ */
+public class InsertHistoryRecordsCmd implements Command<Void> {
+
+  protected List<PersistentObject> historyRecords;
+  
+  public InsertHistoryRecordsCmd(List<PersistentObject> historyRecords) {
+    this.historyRecords = historyRecords;
+  }
+
+  public Void execute(CommandContext commandContext) {
+    DbSqlSession dbSqlSession = commandContext.getDbSqlSession();
+    for (PersistentObject historyRecord : historyRecords) {
+      if (historyRecord instanceof HistoricDetailVariableInstanceUpdateEntity) {
+        // the byte array copy of the variable value is written together with the detail, also 
+        // when a rolled back batch is retried (the copy then keeps the id of the failed attempt)
+        HistoricDetailVariableInstanceUpdateEntity variableUpdate = (HistoricDetailVariableInstanceUpdateEntity) historyRecord;
+        ByteArrayEntity byteArrayValue = variableUpdate.getByteArrayValue();
+        if (byteArrayValue != null) {
+          dbSqlSession.insert(byteArrayValue);
+          variableUpdate.setByteArrayValueId(byteArrayValue.getId());
+          variableUpdate.setByteArrayValue(byteArrayValue);
+        }
+      }
+      dbSqlSession.insert(historyRecord);
+    }
+    return null;
+  }
+
+  public List<PersistentObject> getHistoryRecords() {
+    return historyRecords;
+  }
+}
@@ -20,10 +20,14 @@ import java.io.StringReader;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
@@ -54,12 +58,28 @@ import org.activiti.engine.impl.context.Context;
 import org.activiti.engine.impl.db.upgrade.DbUpgradeStep;
 import org.activiti.engine.impl.history.HistoryLevel;
 import org.activiti.engine.impl.interceptor.Session;
+import org.activiti.engine.impl.persistence.entity.ByteArrayEntity;
+import org.activiti.engine.impl.persistence.entity.DeploymentEntity;
+import org.activiti.engine.impl.persistence.entity.EventSubscriptionEntity;
+import org.activiti.engine.impl.persistence.entity.ExecutionEntity;
+import org.activiti.engine.impl.persistence.entity.GroupEntity;
+import org.activiti.engine.impl.persistence.entity.IdentityLinkEntity;
+import org.activiti.engine.impl.persistence.entity.JobEntity;
+import org.activiti.engine.impl.persistence.entity.MembershipEntity;
+import org.activiti.engine.impl.persistence.entity.ModelEntity;
+import org.activiti.engine.impl.persistence.entity.ProcessDefinitionEntity;
 import org.activiti.engine.impl.persistence.entity.PropertyEntity;
+import org.activiti.engine.impl.persistence.entity.ResourceEntity;
+import org.activiti.engine.impl.persistence.entity.TaskEntity;
+import org.activiti.engine.impl.persistence.entity.UserEntity;
 import org.activiti.engine.impl.persistence.entity.VariableInstanceEntity;
 import org.activiti.engine.impl.util.IoUtil;
 import org.activiti.engine.impl.util.ReflectUtil;
 import org.activiti.engine.impl.variable.DeserializedObject;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.session.ExecutorType;
 import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -79,16 +99,51 @@ public class DbSqlSession implements Session {
   private static Logger log = LoggerFactory.getLogger(DbSqlSession.class);
   
   private static final Pattern CLEAN_VERSION_REGEX = Pattern.compile("\\d\\.\\d*");
+  
+  /** 
+   * Order in which the inserts of the different entity types are written in batch flush mode,
+   * so that the foreign keys between the tables are satisfied. Entity types that are not 
+   * listed here are inserted afterwards, in the order in which they were first inserted.
+   */
+  protected static final List<Class<?>> BATCH_INSERT_ORDER = new ArrayList<Class<?>>();
+  
+  static {
+    BATCH_INSERT_ORDER.add(PropertyEntity.class);
+    BATCH_INSERT_ORDER.add(DeploymentEntity.class);
+    BATCH_INSERT_ORDER.add(ByteArrayEntity.class);
+    BATCH_INSERT_ORDER.add(ResourceEntity.class);
+    BATCH_INSERT_ORDER.add(ModelEntity.class);
+    BATCH_INSERT_ORDER.add(ProcessDefinitionEntity.class);
+    BATCH_INSERT_ORDER.add(ExecutionEntity.class);
+    BATCH_INSERT_ORDER.add(TaskEntity.class);
+    BATCH_INSERT_ORDER.add(IdentityLinkEntity.class);
+    BATCH_INSERT_ORDER.add(VariableInstanceEntity.class);
+    BATCH_INSERT_ORDER.add(JobEntity.class);
+    BATCH_INSERT_ORDER.add(EventSubscriptionEntity.class);
+    BATCH_INSERT_ORDER.add(UserEntity.class);
+    BATCH_INSERT_ORDER.add(GroupEntity.class);
+    BATCH_INSERT_ORDER.add(MembershipEntity.class);
+  }
 
   protected SqlSession sqlSession;
+  /** lazily opened on the connection of {@link #sqlSession}, only used in batch flush mode */
+  protected SqlSession batchSqlSession;
   protected DbSqlSessionFactory dbSqlSessionFactory;
   protected List<PersistentObject> insertedObjects = new ArrayList<PersistentObject>();
   protected List<PersistentObject> updatedObjects = new ArrayList<PersistentObject>();
   protected Map<Class<?>, Map<String, CachedObject>> cachedObjects = new HashMap<Class<?>, Map<String,CachedObject>>();
   protected List<DeleteOperation> deleteOperations = new ArrayList<DeleteOperation>();
+  /** index on {@link #insertedObjects} by class and id, the list keeps the flush order */
+  protected Map<Class<?>, Map<String, PersistentObject>> insertedObjectsIndex = new HashMap<Class<?>, Map<String,PersistentObject>>();
+  /** index on the objects of the {@link DeletePersistentObjectOperation}s by class and id */
+  protected Map<Class<?>, Map<String, PersistentObject>> deletedObjectsIndex = new HashMap<Class<?>, Map<String,PersistentObject>>();
   protected List<DeserializedObject> deserializedObjects = new ArrayList<DeserializedObject>();
   protected String connectionMetadataDefaultCatalog = null;
   protected String connectionMetadataDefaultSchema = null;
+  /** session of a read-only command: no state snapshots, nothing to flush */
+  protected boolean readOnly;
+  /** write this session's flush as jdbc batches, even if batch flushing is not enabled engine wide */
+  protected boolean batchFlush;
 
   public DbSqlSession(DbSqlSessionFactory dbSqlSessionFactory) {
     this.dbSqlSessionFactory = dbSqlSessionFactory;
@@ -97,6 +152,16 @@ public class DbSqlSession implements Session {
       .openSession();
   }
 
+  public DbSqlSession(DbSqlSessionFactory dbSqlSessionFactory, boolean readOnly) {
+    this.dbSqlSessionFactory = dbSqlSessionFactory;
+    this.readOnly = readOnly;
+    SqlSessionFactory sqlSessionFactory = dbSqlSessionFactory.getSqlSessionFactory();
+    if (readOnly && dbSqlSessionFactory.getReadOnlySqlSessionFactory()!=null) {
+      sqlSessionFactory = dbSqlSessionFactory.getReadOnlySqlSessionFactory();
+    }
+    this.sqlSession = sqlSessionFactory.openSession();
+  }
+
   public DbSqlSession(DbSqlSessionFactory dbSqlSessionFactory, Connection connection, String catalog, String schema) {
     this.dbSqlSessionFactory = dbSqlSessionFactory;
     this.sqlSession = dbSqlSessionFactory
@@ -114,9 +179,45 @@ public class DbSqlSession implements Session {
       persistentObject.setId(id);
     }
     insertedObjects.add(persistentObject);
+    indexPut(insertedObjectsIndex, persistentObject);
     cachePut(persistentObject, false);
   }
   
+  /**
+   * inserts the object right away instead of at flush. A concurrent transaction inserting the same 
+   * id waits for this one and fails before it has done any other work, the duplicate key is reported 
+   * as an {@link ActivitiOptimisticLockingException} so the command can be retried. The object is 
+   * cached like a loaded object: later changes in the command are flushed as updates.
+   */
+  public void insertImmediately(PersistentObject persistentObject) {
+    String insertStatement = dbSqlSessionFactory.getInsertStatement(persistentObject);
+    insertStatement = dbSqlSessionFactory.mapStatement(insertStatement);
+    if (insertStatement==null) {
+      throw new ActivitiException("no insert statement for "+persistentObject.getClass()+" in the ibatis mapping files");
+    }
+    log.debug("inserting immediately: {}", toString(persistentObject));
+    try {
+      sqlSession.insert(insertStatement, persistentObject);
+    } catch (RuntimeException e) {
+      if (isIntegrityConstraintViolation(e)) {
+        throw new ActivitiOptimisticLockingException(toString(persistentObject)+" was inserted by another transaction concurrently");
+      }
+      throw e;
+    }
+    cachePut(persistentObject, true);
+  }
+  
+  /** SQLState class 23: integrity constraint violation, e.g. a duplicate key */
+  protected boolean isIntegrityConstraintViolation(Throwable e) {
+    for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+      if (cause instanceof SQLException) {
+        String sqlState = ((SQLException) cause).getSQLState();
+        return sqlState != null && sqlState.startsWith("23");
+      }
+    }
+    return false;
+  }
+  
   // update ///////////////////////////////////////////////////////////////////
   
   public void update(PersistentObject persistentObject) {
@@ -124,6 +225,15 @@ public class DbSqlSession implements Session {
     cachePut(persistentObject, false);
   }
   
+  /**
+   * executes the update statement right away instead of at flush time and returns the number
+   * of updated rows. The session cache is not aware of the change.
+   */
+  public int directUpdate(String statement, Object parameters) {
+    String updateStatement = dbSqlSessionFactory.mapStatement(statement);
+    return sqlSession.update(updateStatement, parameters);
+  }
+  
   // delete ///////////////////////////////////////////////////////////////////
   
 //  public void delete(Class<?> persistentObjectClass, String persistentObjectId) {
@@ -198,18 +308,12 @@ public class DbSqlSession implements Session {
   }
   
   public void delete(PersistentObject persistentObject) {
-    for (DeleteOperation deleteOperation: deleteOperations) {
-      if (deleteOperation instanceof DeletePersistentObjectOperation) {
-        
-        DeletePersistentObjectOperation deletePersistentObjectOperation = (DeletePersistentObjectOperation) deleteOperation;
-        if (persistentObject.getId().equals(deletePersistentObjectOperation.getPersistentObject().getId())
-                && persistentObject.getClass().equals(deletePersistentObjectOperation.getPersistentObject().getClass())) {
-          return; // Skip this delete. It was already added.
-        }
-      }
+    if (indexGet(deletedObjectsIndex, persistentObject.getClass(), persistentObject.getId())!=null) {
+      return; // Skip this delete. It was already added.
     }
     
     deleteOperations.add(new DeletePersistentObjectOperation(persistentObject));
+    indexPut(deletedObjectsIndex, persistentObject);
   }
   
   /**
@@ -356,7 +460,11 @@ public class DbSqlSession implements Session {
       classCache = new HashMap<String, CachedObject>();
       cachedObjects.put(persistentObject.getClass(), classCache);
     }
-    CachedObject cachedObject = new CachedObject(persistentObject, storeState);
+    storeState = storeState && !readOnly;
+    boolean dirtyTracked = storeState 
+                           && dbSqlSessionFactory.isDbDirtyTrackingEnabled() 
+                           && (persistentObject instanceof HasDirtyState);
+    CachedObject cachedObject = new CachedObject(persistentObject, storeState, dirtyTracked);
     classCache.put(persistentObject.getId(), cachedObject);
     return cachedObject;
   }
@@ -410,15 +518,50 @@ public class DbSqlSession implements Session {
   public <T> T findInCache(Class<T> entityClass, String id) {
     return cacheGet(entityClass, id);
   }
+  
+  protected static void indexPut(Map<Class<?>, Map<String, PersistentObject>> index, PersistentObject persistentObject) {
+    Map<String, PersistentObject> classIndex = index.get(persistentObject.getClass());
+    if (classIndex==null) {
+      classIndex = new HashMap<String, PersistentObject>();
+      index.put(persistentObject.getClass(), classIndex);
+    }
+    if (!classIndex.containsKey(persistentObject.getId())) {
+      classIndex.put(persistentObject.getId(), persistentObject);
+    }
+  }
+  
+  protected static PersistentObject indexGet(Map<Class<?>, Map<String, PersistentObject>> index, Class<?> persistentObjectClass, String persistentObjectId) {
+    Map<String, PersistentObject> classIndex = index.get(persistentObjectClass);
+    if (classIndex==null) {
+      return null;
+    }
+    return classIndex.get(persistentObjectId);
+  }
+  
+  protected static void indexRemove(Map<Class<?>, Map<String, PersistentObject>> index, Class<?> persistentObjectClass, String persistentObjectId) {
+    Map<String, PersistentObject> classIndex = index.get(persistentObjectClass);
+    if (classIndex!=null) {
+      classIndex.remove(persistentObjectId);
+    }
+  }
 
   
   public static class CachedObject {
     protected PersistentObject persistentObject;
     protected Object persistentObjectState;
+    protected boolean dirtyTracked;
     
     public CachedObject(PersistentObject persistentObject, boolean storeState) {
+      this(persistentObject, storeState, false);
+    }
+    
+    /** a dirty tracked object doesn't keep a snapshot of its state, its dirty flag is reset instead */
+    public CachedObject(PersistentObject persistentObject, boolean storeState, boolean dirtyTracked) {
       this.persistentObject = persistentObject;
-      if (storeState) {
+      this.dirtyTracked = dirtyTracked;
+      if (dirtyTracked) {
+        ((HasDirtyState) persistentObject).setDirty(false);
+      } else if (storeState) {
         this.persistentObjectState = persistentObject.getPersistentState();
       }
     }
@@ -430,6 +573,10 @@ public class DbSqlSession implements Session {
     public Object getPersistentObjectState() {
       return persistentObjectState;
     }
+    
+    public boolean isDirtyTracked() {
+      return dirtyTracked;
+    }
   }
 
   // deserialized objects /////////////////////////////////////////////////////
@@ -438,9 +585,20 @@ public class DbSqlSession implements Session {
     deserializedObjects.add(new DeserializedObject(deserializedObject, serializedBytes, variableInstanceEntity));
   }
 
+  public void addDeserializedObject(DeserializedObject deserializedObject) {
+    deserializedObjects.add(deserializedObject);
+  }
+
   // flush ////////////////////////////////////////////////////////////////////
 
   public void flush() {
+    if (readOnly) {
+      if (!insertedObjects.isEmpty() || !updatedObjects.isEmpty() || !deleteOperations.isEmpty()) {
+        throw new ActivitiException("read-only command can't insert, update or delete: "+Context.getCommandContext().getCommand());
+      }
+      // loaded objects have no state snapshot, they are never updated
+      return;
+    }
     removeUnnecessaryOperations();
     flushDeserializedObjects();
     List<PersistentObject> updatedObjects = getUpdatedObjects();
@@ -459,9 +617,13 @@ public class DbSqlSession implements Session {
       log.debug("now executing flush...");
     }
 
-    flushInserts();
-    flushUpdates(updatedObjects);
-    flushDeletes();
+    if (dbSqlSessionFactory.isDbBatchFlushEnabled() || batchFlush) {
+      flushBatch(updatedObjects);
+    } else {
+      flushInserts();
+      flushUpdates(updatedObjects);
+      flushDeletes();
+    }
   }
 
 //  protected void removeUnnecessaryOperations() {
@@ -487,28 +649,43 @@ public class DbSqlSession implements Session {
 //  }
   
   protected void removeUnnecessaryOperations() {
-    List<DeleteOperation> deletedObjectsCopy = new ArrayList<DeleteOperation>(deleteOperations);
+    List<DeleteOperation> remainingDeleteOperations = new ArrayList<DeleteOperation>(deleteOperations.size());
+    Map<PersistentObject, PersistentObject> cancelledInserts = new IdentityHashMap<PersistentObject, PersistentObject>();
     
     // Check all delete operations to see if there are any inserts that cancel the delete
-    for (DeleteOperation deleteOperation: deletedObjectsCopy) {
+    for (DeleteOperation deleteOperation: deleteOperations) {
       if (deleteOperation instanceof DeletePersistentObjectOperation) {
         
-        DeletePersistentObjectOperation deletePersistentObjectOperation = (DeletePersistentObjectOperation) deleteOperation;
-        PersistentObject insertedObject = findInsertedObject(deletePersistentObjectOperation.getPersistentObject().getClass(),
-                deletePersistentObjectOperation.getPersistentObject().getId());
+        PersistentObject deletedObject = ((DeletePersistentObjectOperation) deleteOperation).getPersistentObject();
+        PersistentObject insertedObject = findInsertedObject(deletedObject.getClass(), deletedObject.getId());
+        
+        // in any case, remove the deleted object from the cache
+        cacheRemove(deletedObject.getClass(), deletedObject.getId());
         
         // if the deleted object is inserted,
         if (insertedObject != null) {
           // remove the insert and the delete, they cancel each other
-          insertedObjects.remove(insertedObject);
-          deleteOperations.remove(deleteOperation);
+          cancelledInserts.put(insertedObject, insertedObject);
+          indexRemove(insertedObjectsIndex, deletedObject.getClass(), deletedObject.getId());
+          indexRemove(deletedObjectsIndex, deletedObject.getClass(), deletedObject.getId());
+          continue;
         }
-        
-        // in any case, remove the deleted object from the cache
-        cacheRemove(deletePersistentObjectOperation.getPersistentObject().getClass(), 
-                deletePersistentObjectOperation.getPersistentObject().getId());
-        
-      } 
+      }
+      remainingDeleteOperations.add(deleteOperation);
+    }
+    
+    // rebuild the lists in one pass, so the flush order stays unchanged
+    if (remainingDeleteOperations.size()!=deleteOperations.size()) {
+      deleteOperations = remainingDeleteOperations;
+    }
+    if (!cancelledInserts.isEmpty()) {
+      List<PersistentObject> remainingInsertedObjects = new ArrayList<PersistentObject>(insertedObjects.size());
+      for (PersistentObject insertedObject: insertedObjects) {
+        if (!cancelledInserts.containsKey(insertedObject)) {
+          remainingInsertedObjects.add(insertedObject);
+        }
+      }
+      insertedObjects = remainingInsertedObjects;
     }
     
     for (PersistentObject insertedObject: insertedObjects) {
@@ -518,14 +695,7 @@ public class DbSqlSession implements Session {
   }
 
   protected PersistentObject findInsertedObject(Class< ? > persistenceObjectClass, String persistentObjectId) {
-    for (PersistentObject insertedObject: insertedObjects) {
-      if ( insertedObject.getClass().equals(persistenceObjectClass)
-           && insertedObject.getId().equals(persistentObjectId)
-         ) {
-        return insertedObject;
-      }
-    }
-    return null;
+    return indexGet(insertedObjectsIndex, persistenceObjectClass, persistentObjectId);
   }
 
   protected void flushDeserializedObjects() {
@@ -562,6 +732,14 @@ public class DbSqlSession implements Session {
         
         PersistentObject persistentObject = (PersistentObject) cachedObject.getPersistentObject();
         if (!isPersistentObjectDeleted(persistentObject)) {
+          if (cachedObject.isDirtyTracked()) {
+            if (((HasDirtyState) persistentObject).isDirty()) {
+              updatedObjects.add(persistentObject);
+            } else {
+              log.trace("loaded object '{}' was not updated", persistentObject);
+            }
+            continue;
+          }
           Object originalState = cachedObject.getPersistentObjectState();
           if (!persistentObject.getPersistentState().equals(originalState)) {
             updatedObjects.add(persistentObject);
@@ -577,14 +755,8 @@ public class DbSqlSession implements Session {
   }
   
   protected boolean isPersistentObjectDeleted(PersistentObject persistentObject) {
-    for (DeleteOperation deleteOperation : deleteOperations) {
-      if (deleteOperation instanceof DeletePersistentObjectOperation) {
-        if ( ((DeletePersistentObjectOperation) deleteOperation).getPersistentObject().equals(persistentObject)) {
-          return true;
-        }
-      }
-    }
-    return false;
+    PersistentObject deletedObject = indexGet(deletedObjectsIndex, persistentObject.getClass(), persistentObject.getId());
+    return deletedObject!=null && deletedObject.equals(persistentObject);
   }
   
 //  public <T extends PersistentObject> List<T> pruneDeletedEntities(List<T> listToPrune) {   
@@ -605,18 +777,10 @@ public class DbSqlSession implements Session {
 //  }
   
   public <T extends PersistentObject> List<T> pruneDeletedEntities(List<T> listToPrune) {   
-    ArrayList<T> prunedList = new ArrayList<T>(listToPrune);
+    ArrayList<T> prunedList = new ArrayList<T>(listToPrune.size());
     for (T potentiallyDeleted : listToPrune) {
-      for (DeleteOperation deleteOperation: deleteOperations) {
-        if (deleteOperation instanceof DeletePersistentObjectOperation) {
-          
-          DeletePersistentObjectOperation deletePersistentObjectOperation = (DeletePersistentObjectOperation) deleteOperation;
-          if (potentiallyDeleted.getClass().equals(deletePersistentObjectOperation.getPersistentObject().getClass())
-                  && potentiallyDeleted.getId().equals(deletePersistentObjectOperation.getPersistentObject().getId())) {
-            prunedList.remove(potentiallyDeleted);
-          }
-          
-        }
+      if (indexGet(deletedObjectsIndex, potentiallyDeleted.getClass(), potentiallyDeleted.getId())==null) {
+        prunedList.add(potentiallyDeleted);
       }
     }
     return prunedList;
@@ -640,6 +804,7 @@ public class DbSqlSession implements Session {
       }
     }
     insertedObjects.clear();
+    insertedObjectsIndex.clear();
   }
 
   protected void flushUpdates(List<PersistentObject> updatedObjects) {
@@ -659,6 +824,9 @@ public class DbSqlSession implements Session {
       if (updatedObject instanceof HasRevision) {
         ((HasRevision) updatedObject).setRevision(((HasRevision) updatedObject).getRevisionNext());
       }
+      if (updatedObject instanceof HasDirtyState) {
+        ((HasDirtyState) updatedObject).setDirty(false);
+      }
       
     }
     updatedObjects.clear();
@@ -670,18 +838,209 @@ public class DbSqlSession implements Session {
       delete.execute();
     }
     deleteOperations.clear();
+    deletedObjectsIndex.clear();
+  }
+
+  // batch flush /////////////////////////////////////////////////////////////
+  
+  /**
+   * Writes the inserts, updates and deletes of this session as JDBC batches.
+   * 
+   * Inserts are grouped per statement, with the groups ordered by {@link #BATCH_INSERT_ORDER}.
+   * Updates are grouped per statement.  Deletes keep their original order, so consecutive
+   * deletes with the same statement end up in the same batch.  Optimistic locking is 
+   * verified afterwards on the update counts reported for each batched statement.
+   */
+  protected void flushBatch(List<PersistentObject> updatedObjects) {
+    SqlSession batchSession = getBatchSqlSession();
+    // parameter object -> statement type for which the update count must be checked
+    Map<Object, String> checkedObjects = new IdentityHashMap<Object, String>();
+    // parameter objects of the batched statements in the order they were added, the batch 
+    // results of a flush report their update counts in the same order
+    List<Object> batchedObjects = new ArrayList<Object>();
+    
+    for (List<PersistentObject> insertGroup: getBatchInsertGroups()) {
+      for (PersistentObject insertedObject: insertGroup) {
+        String insertStatement = dbSqlSessionFactory.getInsertStatement(insertedObject);
+        insertStatement = dbSqlSessionFactory.mapStatement(insertStatement);
+        if (insertStatement==null) {
+          throw new ActivitiException("no insert statement for "+insertedObject.getClass()+" in the ibatis mapping files");
+        }
+        log.debug("batch inserting: {}", toString(insertedObject));
+        batchSession.insert(insertStatement, insertedObject);
+        batchedObjects.add(insertedObject);
+      }
+    }
+    
+    Map<String, List<PersistentObject>> updateGroups = new LinkedHashMap<String, List<PersistentObject>>();
+    for (PersistentObject updatedObject: updatedObjects) {
+      String updateStatement = dbSqlSessionFactory.getUpdateStatement(updatedObject);
+      updateStatement = dbSqlSessionFactory.mapStatement(updateStatement);
+      if (updateStatement==null) {
+        throw new ActivitiException("no update statement for "+updatedObject.getClass()+" in the ibatis mapping files");
+      }
+      List<PersistentObject> updateGroup = updateGroups.get(updateStatement);
+      if (updateGroup==null) {
+        updateGroup = new ArrayList<PersistentObject>();
+        updateGroups.put(updateStatement, updateGroup);
+      }
+      updateGroup.add(updatedObject);
+    }
+    for (Map.Entry<String, List<PersistentObject>> updateGroup: updateGroups.entrySet()) {
+      for (PersistentObject updatedObject: updateGroup.getValue()) {
+        log.debug("batch updating: {}", toString(updatedObject));
+        batchSession.update(updateGroup.getKey(), updatedObject);
+        batchedObjects.add(updatedObject);
+        checkedObjects.put(updatedObject, "update");
+      }
+    }
+    
+    for (DeleteOperation delete: deleteOperations) {
+      log.debug("batch executing: {}", delete);
+      if (delete instanceof DeletePersistentObjectOperation) {
+        PersistentObject persistentObject = ((DeletePersistentObjectOperation) delete).getPersistentObject();
+        String deleteStatement = dbSqlSessionFactory.getDeleteStatement(persistentObject.getClass());
+        deleteStatement = dbSqlSessionFactory.mapStatement(deleteStatement);
+        if (deleteStatement == null) {
+          throw new ActivitiException("no delete statement for " + persistentObject.getClass() + " in the ibatis mapping files");
+        }
+        batchSession.delete(deleteStatement, persistentObject);
+        batchedObjects.add(persistentObject);
+        if (persistentObject instanceof HasRevision) {
+          checkedObjects.put(persistentObject, "delete");
+        }
+      } else if (delete instanceof BulkDeleteOperation) {
+        BulkDeleteOperation bulkDeleteOperation = (BulkDeleteOperation) delete;
+        batchSession.delete(bulkDeleteOperation.statement, bulkDeleteOperation.parameter);
+        batchedObjects.add(bulkDeleteOperation.parameter);
+      } else {
+        // unknown delete operations run on the regular session, after everything before them is written
+        checkBatchResults(batchSession.flushStatements(), batchedObjects, checkedObjects);
+        delete.execute();
+      }
+    }
+    
+    checkBatchResults(batchSession.flushStatements(), batchedObjects, checkedObjects);
+    // the regular session didn't see the batched statements
+    sqlSession.clearCache();
+    
+    // See http://jira.codehaus.org/browse/ACT-1290
+    for (PersistentObject insertedObject: insertedObjects) {
+      if (insertedObject instanceof HasRevision) {
+        ((HasRevision) insertedObject).setRevision(((HasRevision) insertedObject).getRevisionNext());
+      }
+    }
+    for (PersistentObject updatedObject: updatedObjects) {
+      if (updatedObject instanceof HasRevision) {
+        ((HasRevision) updatedObject).setRevision(((HasRevision) updatedObject).getRevisionNext());
+      }
+      if (updatedObject instanceof HasDirtyState) {
+        ((HasDirtyState) updatedObject).setDirty(false);
+      }
+    }
+    
+    insertedObjects.clear();
+    insertedObjectsIndex.clear();
+    updatedObjects.clear();
+    deleteOperations.clear();
+    deletedObjectsIndex.clear();
+  }
+  
+  /**
+   * Verifies the update counts of the executed batches: each updated entity must have hit 
+   * exactly one row and each deleted entity with a revision at least one.  Drivers that 
+   * report {@link Statement#SUCCESS_NO_INFO} for batched statements can't be checked.
+   * 
+   * A {@link BatchResult} only keeps the parameter object of the first statement of its batch.
+   * The batches are consecutive runs of the batched statements, so the update counts of each 
+   * batch are mapped onto the next entries of batchedObjects, which is cleared afterwards.
+   */
+  protected void checkBatchResults(List<BatchResult> batchResults, List<Object> batchedObjects, Map<Object, String> checkedObjects) {
+    int offset = 0;
+    for (BatchResult batchResult: batchResults) {
+      int[] updateCounts = batchResult.getUpdateCounts();
+      for (int i=0; i<updateCounts.length && offset+i<batchedObjects.size(); i++) {
+        Object parameterObject = batchedObjects.get(offset+i);
+        String statementType = checkedObjects.get(parameterObject);
+        int updateCount = updateCounts[i];
+        if (statementType==null || updateCount==Statement.SUCCESS_NO_INFO) {
+          continue;
+        }
+        if ( ("update".equals(statementType) && updateCount!=1)
+             || ("delete".equals(statementType) && updateCount==0) ) {
+          throw new ActivitiOptimisticLockingException(toString((PersistentObject) parameterObject)+" was updated by another transaction concurrently");
+        }
+      }
+      offset += updateCounts.length;
+    }
+    batchedObjects.clear();
+  }
+  
+  /** the inserted objects grouped per insert statement, in foreign key order */
+  protected List<List<PersistentObject>> getBatchInsertGroups() {
+    Map<Class<?>, List<PersistentObject>> insertGroups = new LinkedHashMap<Class<?>, List<PersistentObject>>();
+    for (PersistentObject insertedObject: insertedObjects) {
+      List<PersistentObject> insertGroup = insertGroups.get(insertedObject.getClass());
+      if (insertGroup==null) {
+        insertGroup = new ArrayList<PersistentObject>();
+        insertGroups.put(insertedObject.getClass(), insertGroup);
+      }
+      insertGroup.add(insertedObject);
+    }
+    List<List<PersistentObject>> orderedGroups = new ArrayList<List<PersistentObject>>(insertGroups.values());
+    // stable sort: groups with the same rank keep the order in which they were first inserted
+    Collections.sort(orderedGroups, new Comparator<List<PersistentObject>>() {
+      public int compare(List<PersistentObject> group1, List<PersistentObject> group2) {
+        return getBatchInsertRank(group1.get(0).getClass()) - getBatchInsertRank(group2.get(0).getClass());
+      }
+    });
+    return orderedGroups;
+  }
+  
+  protected static int getBatchInsertRank(Class<?> persistentObjectClass) {
+    for (int i=0; i<BATCH_INSERT_ORDER.size(); i++) {
+      if (BATCH_INSERT_ORDER.get(i).isAssignableFrom(persistentObjectClass)) {
+        return i;
+      }
+    }
+    return BATCH_INSERT_ORDER.size();
+  }
+  
+  public boolean isBatchFlush() {
+    return batchFlush;
+  }
+
+  public void setBatchFlush(boolean batchFlush) {
+    this.batchFlush = batchFlush;
+  }
+
+  protected SqlSession getBatchSqlSession() {
+    if (batchSqlSession==null) {
+      batchSqlSession = dbSqlSessionFactory
+        .getSqlSessionFactory()
+        .openSession(ExecutorType.BATCH, sqlSession.getConnection());
+    }
+    return batchSqlSession;
   }
 
   public void close() {
+    // the batch session shares the connection of the regular session, 
+    // closing it would close that connection.  All its statements are 
+    // already closed by flushStatements().
+    batchSqlSession = null;
     sqlSession.close();
   }
 
+  /**
+   * The regular session doesn't know about the statements written by the batch session
+   * on its connection, so the commit and rollback are forced once the batch session was used.
+   */
   public void commit() {
-    sqlSession.commit();
+    sqlSession.commit(batchSqlSession!=null);
   }
 
   public void rollback() {
-    sqlSession.rollback();
+    sqlSession.rollback(batchSqlSession!=null);
   }
 
   protected String toString(PersistentObject persistentObject) {
@@ -862,6 +1221,15 @@ public class DbSqlSession implements Session {
   public boolean isIdentityTablePresent(){
     return isTablePresent("ACT_ID_USER");
   }
+  /** schemas created before the join counters were added don't have the table, checked once per engine */
+  public boolean isJoinCounterTablePresent(){
+    Boolean joinCounterTablePresent = dbSqlSessionFactory.getJoinCounterTablePresent();
+    if (joinCounterTablePresent==null) {
+      joinCounterTablePresent = isTablePresent("TD_WF_JOINCOUNTER");
+      dbSqlSessionFactory.setJoinCounterTablePresent(joinCounterTablePresent);
+    }
+    return joinCounterTablePresent;
+  }
 
   public boolean isTablePresent(String tableName) {
     tableName = prependDatabaseTablePrefix(tableName);
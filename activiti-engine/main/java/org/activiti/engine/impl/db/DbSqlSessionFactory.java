@@ -20,6 +20,8 @@ import java.util.concurrent.ConcurrentHashMap;
 import javax.sql.DataSource;
 
 import org.activiti.engine.impl.cfg.IdGenerator;
+import org.activiti.engine.impl.context.Context;
+import org.activiti.engine.impl.interceptor.CommandContext;
 import org.activiti.engine.impl.interceptor.Session;
 import org.activiti.engine.impl.interceptor.SessionFactory;
 import org.apache.ibatis.session.SqlSessionFactory;
@@ -54,6 +56,7 @@ public class DbSqlSessionFactory implements SessionFactory {
     databaseSpecificOrderByStatements.put("mysql", defaultOrderBy);
     addDatabaseSpecificStatement("mysql", "selectNextJobsToExecute", "selectNextJobsToExecute_mysql");
     addDatabaseSpecificStatement("mysql", "selectExclusiveJobsToExecute", "selectExclusiveJobsToExecute_mysql");
+    addDatabaseSpecificStatement("mysql", "selectExclusiveJobsToExecuteForProcessInstances", "selectExclusiveJobsToExecuteForProcessInstances_mysql");
     addDatabaseSpecificStatement("mysql", "selectProcessDefinitionsByQueryCriteria", "selectProcessDefinitionsByQueryCriteria_mysql");
     addDatabaseSpecificStatement("mysql", "selectProcessDefinitionCountByQueryCriteria", "selectProcessDefinitionCountByQueryCriteria_mysql");
     addDatabaseSpecificStatement("mysql", "selectDeploymentsByQueryCriteria", "selectDeploymentsByQueryCriteria_mysql");
@@ -87,6 +90,7 @@ public class DbSqlSessionFactory implements SessionFactory {
     databaseSpecificLimitBetweenStatements.put("oracle", "");
     databaseSpecificOrderByStatements.put("oracle", defaultOrderBy);
     addDatabaseSpecificStatement("oracle", "selectExclusiveJobsToExecute", "selectExclusiveJobsToExecute_integerBoolean");
+    addDatabaseSpecificStatement("oracle", "selectExclusiveJobsToExecuteForProcessInstances", "selectExclusiveJobsToExecuteForProcessInstances_integerBoolean");
     
     // db2
     databaseSpecificLimitBeforeStatements.put("db2", "SELECT SUB.* FROM (");
@@ -94,6 +98,7 @@ public class DbSqlSessionFactory implements SessionFactory {
     databaseSpecificLimitBetweenStatements.put("db2", ", row_number() over (ORDER BY ${orderBy}) rnk FROM ( select distinct RES.* ");
     databaseSpecificOrderByStatements.put("db2", "");
     addDatabaseSpecificStatement("db2", "selectExclusiveJobsToExecute", "selectExclusiveJobsToExecute_integerBoolean");
+    addDatabaseSpecificStatement("db2", "selectExclusiveJobsToExecuteForProcessInstances", "selectExclusiveJobsToExecuteForProcessInstances_integerBoolean");
     
     // mssql
     databaseSpecificLimitBeforeStatements.put("mssql", "SELECT SUB.* FROM (");
@@ -101,6 +106,7 @@ public class DbSqlSessionFactory implements SessionFactory {
     databaseSpecificLimitBetweenStatements.put("mssql", ", row_number() over (ORDER BY ${orderBy}) rnk FROM ( select distinct RES.* ");
     databaseSpecificOrderByStatements.put("mssql", "");
     addDatabaseSpecificStatement("mssql", "selectExclusiveJobsToExecute", "selectExclusiveJobsToExecute_integerBoolean");
+    addDatabaseSpecificStatement("mssql", "selectExclusiveJobsToExecuteForProcessInstances", "selectExclusiveJobsToExecuteForProcessInstances_integerBoolean");
   }
   
   protected String databaseType;
@@ -114,6 +120,8 @@ public class DbSqlSessionFactory implements SessionFactory {
    */
   protected String databaseSchema;
   protected SqlSessionFactory sqlSessionFactory;
+  /** optional, on a read replica, used by the sessions of read-only commands */
+  protected SqlSessionFactory readOnlySqlSessionFactory;
   protected IdGenerator idGenerator;
   protected Map<String, String> statementMappings;
   protected Map<Class<?>,String>  insertStatements = new ConcurrentHashMap<Class<?>, String>();
@@ -122,12 +130,20 @@ public class DbSqlSessionFactory implements SessionFactory {
   protected Map<Class<?>,String>  selectStatements = new ConcurrentHashMap<Class<?>, String>();
   protected boolean isDbIdentityUsed = true;
   protected boolean isDbHistoryUsed = true;
+  protected boolean isDbBatchFlushEnabled = false;
+  protected boolean isDbDirtyTrackingEnabled = false;
+  /** whether the parallel gateway join counter table exists, checked once by the first session that needs it */
+  protected volatile Boolean joinCounterTablePresent;
 
   public Class< ? > getSessionType() {
     return DbSqlSession.class;
   }
 
   public Session openSession() {
+    CommandContext commandContext = Context.getCommandContext();
+    if (commandContext!=null && commandContext.isReadOnly()) {
+      return new DbSqlSession(this, true);
+    }
     return new DbSqlSession(this);
   }
   
@@ -196,6 +212,14 @@ public class DbSqlSessionFactory implements SessionFactory {
     this.sqlSessionFactory = sqlSessionFactory;
   }
   
+  public SqlSessionFactory getReadOnlySqlSessionFactory() {
+    return readOnlySqlSessionFactory;
+  }
+  
+  public void setReadOnlySqlSessionFactory(SqlSessionFactory readOnlySqlSessionFactory) {
+    this.readOnlySqlSessionFactory = readOnlySqlSessionFactory;
+  }
+  
   public IdGenerator getIdGenerator() {
     return idGenerator;
   }
@@ -275,6 +299,30 @@ public class DbSqlSessionFactory implements SessionFactory {
     this.isDbHistoryUsed = isDbHistoryUsed;
   }
 
+  public boolean isDbBatchFlushEnabled() {
+    return isDbBatchFlushEnabled;
+  }
+  
+  public void setDbBatchFlushEnabled(boolean isDbBatchFlushEnabled) {
+    this.isDbBatchFlushEnabled = isDbBatchFlushEnabled;
+  }
+
+  public boolean isDbDirtyTrackingEnabled() {
+    return isDbDirtyTrackingEnabled;
+  }
+  
+  public void setDbDirtyTrackingEnabled(boolean isDbDirtyTrackingEnabled) {
+    this.isDbDirtyTrackingEnabled = isDbDirtyTrackingEnabled;
+  }
+
+  public Boolean getJoinCounterTablePresent() {
+    return joinCounterTablePresent;
+  }
+  
+  public void setJoinCounterTablePresent(Boolean joinCounterTablePresent) {
+    this.joinCounterTablePresent = joinCounterTablePresent;
+  }
+
   public void setDatabaseTablePrefix(String databaseTablePrefix) {
     this.databaseTablePrefix = databaseTablePrefix;
   }
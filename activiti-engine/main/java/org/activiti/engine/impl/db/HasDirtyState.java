@@ -0,0 +1,29 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.impl.db;
+
+
+/**
+ * Entities that keep track of their own changes can implement this interface.
+ * 
+ * When dirty tracking is enabled, the {@link DbSqlSession} doesn't take a snapshot of the 
+ * {@link PersistentObject#getPersistentState() persistent state} of these entities when they 
+ * are loaded, but resets the dirty flag instead, and only updates them at flush when the flag 
+ * is set.  So every change to a field that is part of the persistent state must set the flag.
+ */
+public interface HasDirtyState {
+  
+  boolean isDirty();
+  void setDirty(boolean dirty);
+
+}
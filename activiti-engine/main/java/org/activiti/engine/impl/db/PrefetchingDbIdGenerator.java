@@ -0,0 +1,243 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.activiti.engine.impl.db;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.activiti.engine.ActivitiException;
+import org.activiti.engine.impl.cfg.IdGenerator;
+import org.activiti.engine.impl.cmd.GetNextIdBlockCmd;
+import org.activiti.engine.impl.interceptor.CommandExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * {@link IdGenerator} that hands out the ids of the current block with an atomic increment
+ * instead of a monitor. 
+ * 
+ * When the remaining ids of the current block drop below the low water mark, the next block
+ * is fetched on a background thread, so request threads normally never wait for the 
+ * next.dbid update on ACT_GE_PROPERTY. The block size adapts to the consumption rate, the 
+ * number of ids handed out since the previous block was sized: it grows (up to maxIdBlockSize)
+ * until a block lasts about targetBlockMillis, which keeps the update rate of the property row
+ * low on busy cluster nodes.
+ * 
+ * @author biaoping.yin
+ */
+public class PrefetchingDbIdGenerator implements IdGenerator {
+  
+  private static final Logger logger = LoggerFactory.getLogger(PrefetchingDbIdGenerator.class);
+  
+  protected int idBlockSize = 100;
+  protected int maxIdBlockSize = 10000;
+  /** percentage of the block that is left when the next block is prefetched */
+  protected int lowWaterMarkPercent = 25;
+  protected long targetBlockMillis = 60000;
+  
+  protected CommandExecutor commandExecutor;
+  
+  protected final AtomicReference<Segment> current = new AtomicReference<Segment>(new Segment(0, -1, -1));
+  protected final Object switchLock = new Object();
+  protected volatile Future<IdBlock> prefetchedBlock;
+  protected volatile int nextBlockSize = -1;
+  protected volatile long blockStartMillis;
+  /** ids of the exhausted segments, with the handed out ids of the current segment the consumed ids */
+  protected long exhaustedSegmentIds;
+  /** consumed ids when the last block was sized */
+  protected long blockStartConsumedIds;
+  protected final AtomicLong blockFetchCount = new AtomicLong();
+  protected ExecutorService prefetchExecutor;
+  
+  public String getNextId() {
+    while (true) {
+      Segment segment = current.get();
+      long id = segment.next.getAndIncrement();
+      if (id <= segment.lastId) {
+        if (segment.lastId - id == segment.lowWaterMark) {
+          prefetch();
+        }
+        return Long.toString(id);
+      }
+      switchSegment(segment);
+    }
+  }
+  
+  protected void switchSegment(Segment exhausted) {
+    synchronized (switchLock) {
+      if (current.get() != exhausted) {
+        return; // another thread already switched
+      }
+      IdBlock idBlock = null;
+      Future<IdBlock> future = prefetchedBlock;
+      prefetchedBlock = null;
+      if (future != null) {
+        try {
+          idBlock = future.get();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new ActivitiException("interrupted while waiting for the prefetched id block", e);
+        } catch (ExecutionException e) {
+          logger.warn("prefetching the next id block failed, fetching it inline", e.getCause());
+        }
+      }
+      if (idBlock == null) {
+        idBlock = fetchBlock(computeBlockSize());
+      }
+      long size = idBlock.getLastId() - idBlock.getNextId() + 1;
+      exhaustedSegmentIds += exhausted.size;
+      current.set(new Segment(idBlock.getNextId(), idBlock.getLastId(), size * lowWaterMarkPercent / 100));
+    }
+  }
+  
+  protected void prefetch() {
+    synchronized (switchLock) {
+      if (prefetchedBlock != null) {
+        return;
+      }
+      final int blockSize = computeBlockSize();
+      prefetchedBlock = getPrefetchExecutor().submit(new Callable<IdBlock>() {
+        public IdBlock call() throws Exception {
+          return fetchBlock(blockSize);
+        }
+      });
+    }
+  }
+  
+  /** 
+   * sizes the next block so that it lasts about targetBlockMillis at the current consumption rate,
+   * called with the switchLock held 
+   */
+  protected int computeBlockSize() {
+    long now = currentTimeMillis();
+    long consumedIds = getConsumedIds();
+    int blockSize = nextBlockSize > 0 ? nextBlockSize : idBlockSize;
+    if (blockStartMillis > 0) {
+      long elapsed = Math.max(now - blockStartMillis, 1);
+      long consumed = consumedIds - blockStartConsumedIds;
+      long wanted = consumed * targetBlockMillis / elapsed;
+      blockSize = (int) Math.max(idBlockSize, Math.min(maxIdBlockSize, wanted));
+    }
+    blockStartMillis = now;
+    blockStartConsumedIds = consumedIds;
+    nextBlockSize = blockSize;
+    return blockSize;
+  }
+  
+  /** the number of ids handed out so far, called with the switchLock held */
+  protected long getConsumedIds() {
+    Segment segment = current.get();
+    // threads that overran the last id of the segment didn't get an id
+    return exhaustedSegmentIds + Math.min(segment.next.get() - segment.firstId, segment.size);
+  }
+  
+  protected long currentTimeMillis() {
+    return System.currentTimeMillis();
+  }
+  
+  protected IdBlock fetchBlock(int blockSize) {
+    blockFetchCount.incrementAndGet();
+    return commandExecutor.execute(new GetNextIdBlockCmd(blockSize));
+  }
+  
+  protected synchronized ExecutorService getPrefetchExecutor() {
+    if (prefetchExecutor == null) {
+      prefetchExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        public Thread newThread(Runnable r) {
+          Thread thread = new Thread(r, "activiti-id-block-prefetch");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+    }
+    return prefetchExecutor;
+  }
+  
+  public synchronized void shutdown() {
+    if (prefetchExecutor != null) {
+      prefetchExecutor.shutdownNow();
+      prefetchExecutor = null;
+    }
+  }
+  
+  protected static class Segment {
+    
+    protected final AtomicLong next;
+    protected final long firstId;
+    protected final long lastId;
+    protected final long size;
+    protected final long lowWaterMark;
+    
+    public Segment(long nextId, long lastId, long lowWaterMark) {
+      this.next = new AtomicLong(nextId);
+      this.firstId = nextId;
+      this.lastId = lastId;
+      this.size = lastId - nextId + 1;
+      this.lowWaterMark = lowWaterMark;
+    }
+  }
+
+  // getters and setters //////////////////////////////////////////////////////
+  
+  public long getBlockFetchCount() {
+    return blockFetchCount.get();
+  }
+
+  public int getIdBlockSize() {
+    return idBlockSize;
+  }
+
+  public void setIdBlockSize(int idBlockSize) {
+    this.idBlockSize = idBlockSize;
+  }
+
+  public int getMaxIdBlockSize() {
+    return maxIdBlockSize;
+  }
+
+  public void setMaxIdBlockSize(int maxIdBlockSize) {
+    this.maxIdBlockSize = maxIdBlockSize;
+  }
+
+  public int getLowWaterMarkPercent() {
+    return lowWaterMarkPercent;
+  }
+
+  public void setLowWaterMarkPercent(int lowWaterMarkPercent) {
+    this.lowWaterMarkPercent = lowWaterMarkPercent;
+  }
+
+  public long getTargetBlockMillis() {
+    return targetBlockMillis;
+  }
+
+  public void setTargetBlockMillis(long targetBlockMillis) {
+    this.targetBlockMillis = targetBlockMillis;
+  }
+
+  public CommandExecutor getCommandExecutor() {
+    return commandExecutor;
+  }
+
+  public void setCommandExecutor(CommandExecutor commandExecutor) {
+    this.commandExecutor = commandExecutor;
+  }
+}
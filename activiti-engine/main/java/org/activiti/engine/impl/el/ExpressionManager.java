@@ -55,6 +55,11 @@ public class ExpressionManager {
   // Default implementation (does nothing)
   protected ELContext parsingElContext = new ParsingElContext();
   protected Map<Object, Object> beans;
+  /** 
+   * the resolvers that don't depend on a variable scope, created once and shared by all 
+   * el contexts so their reflection caches live as long as the engine 
+   */
+  protected volatile ELResolver sharedElResolver;
   
   
   public ExpressionManager() {
@@ -103,7 +108,22 @@ public class ExpressionManager {
   protected ELResolver createElResolver(VariableScope variableScope) {
     CompositeELResolver elResolver = new CompositeELResolver();
     elResolver.add(new VariableScopeElResolver(variableScope));
-    
+    elResolver.add(getSharedElResolver());
+    return elResolver;
+  }
+  
+  protected ELResolver getSharedElResolver() {
+    ELResolver elResolver = sharedElResolver;
+    if (elResolver==null) {
+      // a concurrent first use may build it twice, the resolvers are stateless apart from their caches
+      elResolver = createSharedElResolver();
+      sharedElResolver = elResolver;
+    }
+    return elResolver;
+  }
+
+  protected ELResolver createSharedElResolver() {
+    CompositeELResolver elResolver = new CompositeELResolver();
     if(beans != null) {
       // ACT-1102: Also expose all beans in configuration when using standalone activiti, not
       // in spring-context
@@ -0,0 +1,414 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.impl.history;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.activiti.engine.ActivitiException;
+import org.activiti.engine.impl.cmd.InsertHistoryRecordsCmd;
+import org.activiti.engine.impl.db.PersistentObject;
+import org.activiti.engine.impl.interceptor.CommandExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Writes insert-only history records (historic details: variable updates and form 
+ * properties) on a background thread, in batches of batchSize records per transaction, 
+ * instead of in the transaction of the runtime command that produced them.
+ * 
+ * The {@link HistoryManager} hands the records of a command over once its transaction 
+ * has committed. When a journalFile is configured the records are appended to it before 
+ * they are queued, the journal is replayed on {@link #start()} and rewritten with the records
+ * still queued after each written batch, so queued history survives a crash.
+ * 
+ * When a batch fails its records are written one by one. Records that still fail while 
+ * others of the batch could be written are moved out of the queue to the dead letter file
+ * (journalFile + ".deadletter", same format as the journal) so they don't hold up the writer;
+ * when no record of the batch can be written the whole batch is retried in the next cycle.
+ * Records the database refuses with an integrity constraint violation are dead lettered
+ * right away and never retried: usually they were written already and are replayed from a 
+ * journal that couldn't be checkpointed before a crash.
+ * 
+ * History queries are eventually consistent, {@link #flush()} writes all queued records 
+ * synchronously (e.g. in tests before querying history).
+ * 
+ * @author biaoping.yin
+ */
+public class AsyncHistoryWriter implements Runnable {
+  
+  private static Logger log = LoggerFactory.getLogger(AsyncHistoryWriter.class);
+  
+  protected CommandExecutor commandExecutor;
+  protected int batchSize = 500;
+  protected long waitTimeInMillis = 1000;
+  protected File journalFile;
+  
+  protected final ConcurrentLinkedQueue<PersistentObject> queue = new ConcurrentLinkedQueue<PersistentObject>();
+  protected final Object writeLock = new Object();
+  protected final Object journalLock = new Object();
+  protected final Object monitor = new Object();
+  protected Thread writerThread;
+  protected volatile boolean isActive = false;
+  
+  public synchronized void start() {
+    if (isActive) {
+      return;
+    }
+    replayJournal();
+    isActive = true;
+    writerThread = new Thread(this, "activiti-async-history-writer");
+    writerThread.setDaemon(true);
+    writerThread.start();
+  }
+  
+  /** stops the writer thread after the queued records have been written */
+  public synchronized void stop() {
+    if (!isActive) {
+      return;
+    }
+    isActive = false;
+    synchronized (monitor) {
+      monitor.notifyAll();
+    }
+    try {
+      writerThread.join();
+    } catch (InterruptedException e) {
+      log.warn("Interrupted while waiting for the async history writer to terminate", e);
+    }
+    writerThread = null;
+    flush();
+  }
+  
+  /** queues the history records of a committed transaction */
+  public void add(List<PersistentObject> historyRecords) {
+    synchronized (journalLock) {
+      if (journalFile != null) {
+        try {
+          appendToJournal(journalFile, historyRecords);
+        } catch (Exception e) {
+          // the transaction has committed already, the records are still written unless the engine stops first
+          log.error("couldn't append history records to journal {}: {}", journalFile, e.getMessage(), e);
+        }
+      }
+      queue.addAll(historyRecords);
+    }
+    if (queue.size() >= batchSize) {
+      synchronized (monitor) {
+        monitor.notifyAll();
+      }
+    }
+  }
+  
+  /** writes all queued history records in the calling thread */
+  public void flush() {
+    synchronized (writeLock) {
+      writeQueuedRecords();
+    }
+  }
+  
+  public void run() {
+    while (isActive) {
+      try {
+        synchronized (monitor) {
+          if (isActive && queue.size() < batchSize) {
+            monitor.wait(waitTimeInMillis);
+          }
+        }
+      } catch (InterruptedException e) {
+        log.debug("async history writer wait interrupted");
+      }
+      try {
+        flush();
+      } catch (Exception e) {
+        log.error("exception while writing history records: {}", e.getMessage(), e);
+      }
+    }
+  }
+  
+  /** called with the writeLock held */
+  protected void writeQueuedRecords() {
+    while (!queue.isEmpty()) {
+      List<PersistentObject> batch = new ArrayList<PersistentObject>(batchSize);
+      PersistentObject historyRecord;
+      while (batch.size() < batchSize && (historyRecord = queue.poll()) != null) {
+        batch.add(historyRecord);
+      }
+      try {
+        commandExecutor.execute(new InsertHistoryRecordsCmd(batch));
+      } catch (RuntimeException e) {
+        writeOneByOne(batch, e);
+      }
+      checkpointJournal();
+    }
+  }
+  
+  /**
+   * isolates the records that make a batch fail. Records violating an integrity constraint 
+   * (e.g. already written) are dead lettered. Throws when none of the other records could be
+   * written (e.g. the database is down), after putting them back in the queue.
+   */
+  protected void writeOneByOne(List<PersistentObject> batch, RuntimeException batchException) {
+    List<PersistentObject> failedRecords = new ArrayList<PersistentObject>();
+    List<PersistentObject> rejectedRecords = new ArrayList<PersistentObject>();
+    RuntimeException lastException = batchException;
+    RuntimeException lastRejection = null;
+    if (batch.size() > 1) {
+      for (PersistentObject historyRecord : batch) {
+        try {
+          commandExecutor.execute(new InsertHistoryRecordsCmd(Collections.singletonList(historyRecord)));
+        } catch (RuntimeException e) {
+          if (isIntegrityConstraintViolation(e)) {
+            rejectedRecords.add(historyRecord);
+            lastRejection = e;
+          } else {
+            failedRecords.add(historyRecord);
+            lastException = e;
+          }
+        }
+      }
+    } else if (isIntegrityConstraintViolation(batchException)) {
+      rejectedRecords.addAll(batch);
+      lastRejection = batchException;
+    } else {
+      failedRecords.addAll(batch);
+    }
+    if (!rejectedRecords.isEmpty()) {
+      // retrying them would fail forever
+      deadLetter(rejectedRecords, lastRejection);
+    }
+    if (failedRecords.isEmpty()) {
+      return;
+    }
+    if (failedRecords.size() + rejectedRecords.size() == batch.size()) {
+      // keep the records, the next cycle retries them
+      queue.addAll(failedRecords);
+      throw lastException;
+    }
+    deadLetter(failedRecords, lastException);
+  }
+  
+  /** SQL state class 23: duplicate key, not null, foreign key or check constraint violated */
+  protected boolean isIntegrityConstraintViolation(Throwable exception) {
+    for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+      if (cause instanceof SQLException) {
+        String sqlState = ((SQLException) cause).getSQLState();
+        if (sqlState != null && sqlState.startsWith("23")) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+  
+  protected void deadLetter(List<PersistentObject> historyRecords, Exception exception) {
+    for (PersistentObject historyRecord : historyRecords) {
+      log.error("couldn't write history record {} {}, moved to the dead letters", historyRecord.getClass().getSimpleName(), historyRecord.getId());
+    }
+    log.error("exception of the dead lettered history records: {}", exception.getMessage(), exception);
+    File deadLetterFile = getDeadLetterFile();
+    if (deadLetterFile != null) {
+      try {
+        appendToJournal(deadLetterFile, historyRecords);
+      } catch (Exception e) {
+        log.error("couldn't append history records to dead letter file {}: {}", deadLetterFile, e.getMessage(), e);
+      }
+    }
+  }
+  
+  // journal //////////////////////////////////////////////////////////////////
+  
+  /** appends one length prefixed, serialized entry per committed transaction */
+  protected void appendToJournal(File file, List<PersistentObject> historyRecords) {
+    FileOutputStream out = null;
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      ObjectOutputStream objectOut = new ObjectOutputStream(bytes);
+      objectOut.writeObject(new ArrayList<PersistentObject>(historyRecords));
+      objectOut.close();
+      byte[] entry = bytes.toByteArray();
+      
+      out = new FileOutputStream(file, true);
+      byte[] length = new byte[] {(byte) (entry.length >>> 24), (byte) (entry.length >>> 16), (byte) (entry.length >>> 8), (byte) entry.length};
+      out.write(length);
+      out.write(entry);
+      out.getFD().sync();
+    } catch (IOException e) {
+      throw new ActivitiException("couldn't append history records to " + file, e);
+    } finally {
+      closeQuietly(out);
+    }
+  }
+  
+  /** 
+   * replaces the journal by one entry with the records still queued, called after each batch. 
+   * The new journal is written next to the old one and renamed, a crash in between leaves
+   * either of them behind for {@link #replayJournal()}.
+   */
+  protected void checkpointJournal() {
+    if (journalFile == null) {
+      return;
+    }
+    synchronized (journalLock) {
+      if (queue.isEmpty()) {
+        truncateJournal();
+        return;
+      }
+      File checkpointFile = getCheckpointFile();
+      try {
+        checkpointFile.delete();
+        appendToJournal(checkpointFile, new ArrayList<PersistentObject>(queue));
+        if (!checkpointFile.renameTo(journalFile)) {
+          // renaming over an existing file fails on some platforms
+          journalFile.delete();
+          if (!checkpointFile.renameTo(journalFile)) {
+            log.warn("couldn't rename history journal checkpoint {} to {}", checkpointFile, journalFile);
+          }
+        }
+      } catch (Exception e) {
+        // the old journal still contains the queued records
+        log.warn("couldn't checkpoint history journal {}: {}", journalFile, e.getMessage(), e);
+      }
+    }
+  }
+  
+  @SuppressWarnings("unchecked")
+  protected void replayJournal() {
+    if (journalFile == null) {
+      return;
+    }
+    File checkpointFile = getCheckpointFile();
+    if (!journalFile.exists() && checkpointFile.exists()) {
+      // crashed between deleting the journal and renaming its checkpoint
+      checkpointFile.renameTo(journalFile);
+    }
+    if (!journalFile.exists()) {
+      return;
+    }
+    DataInputStream in = null;
+    int replayed = 0;
+    try {
+      in = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFile)));
+      while (true) {
+        int length;
+        try {
+          length = in.readInt();
+        } catch (EOFException e) {
+          break;
+        }
+        byte[] entry = new byte[length];
+        try {
+          in.readFully(entry);
+        } catch (EOFException e) {
+          log.warn("ignoring incomplete last entry of history journal {}", journalFile);
+          break;
+        }
+        ObjectInputStream objectIn = new ObjectInputStream(new ByteArrayInputStream(entry));
+        List<PersistentObject> historyRecords = (List<PersistentObject>) objectIn.readObject();
+        queue.addAll(historyRecords);
+        replayed += historyRecords.size();
+      }
+    } catch (Exception e) {
+      throw new ActivitiException("couldn't replay history journal " + journalFile, e);
+    } finally {
+      closeQuietly(in);
+    }
+    log.info("replayed {} history records from journal {}", replayed, journalFile);
+  }
+  
+  protected void truncateJournal() {
+    FileOutputStream out = null;
+    try {
+      out = new FileOutputStream(journalFile, false);
+    } catch (IOException e) {
+      log.warn("couldn't truncate history journal {}", journalFile, e);
+    } finally {
+      closeQuietly(out);
+    }
+  }
+  
+  protected void closeQuietly(java.io.Closeable closeable) {
+    if (closeable != null) {
+      try {
+        closeable.close();
+      } catch (IOException e) {
+        // ignore
+      }
+    }
+  }
+  
+  protected File getCheckpointFile() {
+    return new File(journalFile.getPath() + ".checkpoint");
+  }
+  
+  // getters and setters //////////////////////////////////////////////////////
+  
+  public File getDeadLetterFile() {
+    return (journalFile != null ? new File(journalFile.getPath() + ".deadletter") : null);
+  }
+  
+  public int getQueueSize() {
+    return queue.size();
+  }
+
+  public CommandExecutor getCommandExecutor() {
+    return commandExecutor;
+  }
+
+  public void setCommandExecutor(CommandExecutor commandExecutor) {
+    this.commandExecutor = commandExecutor;
+  }
+
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  public void setBatchSize(int batchSize) {
+    this.batchSize = batchSize;
+  }
+
+  public long getWaitTimeInMillis() {
+    return waitTimeInMillis;
+  }
+
+  public void setWaitTimeInMillis(long waitTimeInMillis) {
+    this.waitTimeInMillis = waitTimeInMillis;
+  }
+
+  public File getJournalFile() {
+    return journalFile;
+  }
+
+  public void setJournalFile(File journalFile) {
+    this.journalFile = journalFile;
+  }
+  
+  public boolean isActive() {
+    return isActive;
+  }
+}
@@ -13,17 +13,22 @@
 
 package org.activiti.engine.impl.history;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
-import org.activiti.engine.history.HistoricActivityInstance;
 import org.activiti.engine.impl.HistoricActivityInstanceQueryImpl;
 import org.activiti.engine.impl.cfg.IdGenerator;
+import org.activiti.engine.impl.cfg.TransactionListener;
+import org.activiti.engine.impl.cfg.TransactionState;
 import org.activiti.engine.impl.context.Context;
-import org.activiti.engine.impl.db.DbSqlSession;
+import org.activiti.engine.impl.db.PersistentObject;
 import org.activiti.engine.impl.form.TaskFormHandler;
 import org.activiti.engine.impl.identity.Authentication;
+import org.activiti.engine.impl.interceptor.CommandContext;
 import org.activiti.engine.impl.persistence.AbstractManager;
 import org.activiti.engine.impl.persistence.entity.CommentEntity;
 import org.activiti.engine.impl.persistence.entity.CommentEntityManager;
@@ -34,6 +39,7 @@ import org.activiti.engine.impl.persistence.entity.HistoricFormPropertyEntity;
 import org.activiti.engine.impl.persistence.entity.HistoricProcessInstanceEntity;
 import org.activiti.engine.impl.persistence.entity.HistoricTaskInstanceEntity;
 import org.activiti.engine.impl.persistence.entity.HistoricVariableInstanceEntity;
+import org.activiti.engine.impl.persistence.entity.RejectPathEntity;
 import org.activiti.engine.impl.persistence.entity.TaskEntity;
 import org.activiti.engine.impl.persistence.entity.VariableInstanceEntity;
 import org.activiti.engine.impl.pvm.runtime.InterpretableExecution;
@@ -57,8 +63,41 @@ public class HistoryManager extends AbstractManager {
   
   private HistoryLevel historyLevel;
   
+  private AsyncHistoryWriter asyncHistoryWriter;
+  
+  /** historic details of this command, handed to the asyncHistoryWriter after commit */
+  private List<PersistentObject> asyncHistoryRecords;
+  
+  /** open historic activity instances known to this command, keyed by executionId and activityId */
+  private Map<String, HistoricActivityInstanceEntity> openActivityInstances = new HashMap<String, HistoricActivityInstanceEntity>();
+  
+  private boolean rejectPathEnabled;
+  
   public HistoryManager() {
     this.historyLevel = Context.getProcessEngineConfiguration().getHistoryLevel();
+    this.asyncHistoryWriter = Context.getProcessEngineConfiguration().getAsyncHistoryWriter();
+    this.rejectPathEnabled = Context.getProcessEngineConfiguration().isRejectPathEnabled();
+  }
+  
+  /**
+   * Inserts the insert-only history record now, or queues it for the {@link AsyncHistoryWriter}
+   * once the transaction has committed, if async history is enabled.
+   */
+  protected void insertHistoryRecord(PersistentObject historyRecord) {
+    if (asyncHistoryWriter == null) {
+      getDbSqlSession().insert(historyRecord);
+      return;
+    }
+    if (asyncHistoryRecords == null) {
+      asyncHistoryRecords = new ArrayList<PersistentObject>();
+      final List<PersistentObject> historyRecords = asyncHistoryRecords;
+      Context.getCommandContext().getTransactionContext().addTransactionListener(TransactionState.COMMITTED, new TransactionListener() {
+        public void execute(CommandContext commandContext) {
+          asyncHistoryWriter.add(historyRecords);
+        }
+      });
+    }
+    asyncHistoryRecords.add(historyRecord);
   }
   
   /**
@@ -99,6 +138,13 @@ public class HistoryManager extends AbstractManager {
         historicProcessInstance.setEndActivityId(activityId);
       }
     }
+    if (rejectPathEnabled) {
+      // removed with the session, so task ends flushed in the same command do not update a deleted path
+      RejectPathEntity rejectPath = getDbSqlSession().selectById(RejectPathEntity.class, processInstanceId);
+      if (rejectPath!=null) {
+        getDbSqlSession().delete(rejectPath);
+      }
+    }
   }
   
   /**
@@ -132,7 +178,9 @@ public class HistoryManager extends AbstractManager {
       
       getDbSqlSession()
         .insert(historicActivityInstance);
+      indexActivityInstance(historicActivityInstance);
     }
+    recordRejectPathStart(processInstance.getProcessInstanceId());
   }
   
   /**
@@ -151,6 +199,17 @@ public class HistoryManager extends AbstractManager {
       }
       
     }
+    recordRejectPathStart(subProcessInstance.getProcessInstanceId());
+  }
+  
+  /**
+   * Creates the reject path of a new process instance, if the reject path and audit history are enabled.
+   * The row exists from the start, so ending tasks in parallel only update it.
+   */
+  protected void recordRejectPathStart(String processInstanceId) {
+    if (rejectPathEnabled && isHistoryLevelAtLeast(HistoryLevel.AUDIT)) {
+      getDbSqlSession().insert(new RejectPathEntity(processInstanceId));
+    }
   }
   
   // Activity related history
@@ -178,6 +237,7 @@ public class HistoryManager extends AbstractManager {
       historicActivityInstance.setStartTimeLong(historicActivityInstance.getStartTime().getTime());
       
       getDbSqlSession().insert(historicActivityInstance);
+      indexActivityInstance(historicActivityInstance);
     }
   }
   
@@ -189,6 +249,7 @@ public class HistoryManager extends AbstractManager {
       HistoricActivityInstanceEntity historicActivityInstance = findActivityInstance(executionEntity);
       if (historicActivityInstance!=null) {
         historicActivityInstance.markEnded(executionEntity.getDeleteReason(),executionEntity.getBussinessop(),executionEntity.getBussinessRemark());
+        unindexActivityInstance(historicActivityInstance);
       }
     }
   }
@@ -238,58 +299,99 @@ public class HistoryManager extends AbstractManager {
         return;
       }
       
-      // Search for the historic activity instance in the dbsqlsession cache, since process hasn't been persisted to db yet
-      List<HistoricActivityInstanceEntity> cachedHistoricActivityInstances = getDbSqlSession().findInCache(HistoricActivityInstanceEntity.class);
-      for (HistoricActivityInstanceEntity cachedHistoricActivityInstance: cachedHistoricActivityInstances) {
-        if ( executionId.equals(cachedHistoricActivityInstance.getExecutionId())
-                && (activityId.equals(cachedHistoricActivityInstance.getActivityId()))
-                && (cachedHistoricActivityInstance.getEndTime()==null)
-                ) {
-          cachedHistoricActivityInstance.markEnded(null,null,null);
-          return;
-        }
+      // The start event was recorded by this command, since process hasn't been persisted to db yet
+      HistoricActivityInstanceEntity historicActivityInstance = findIndexedActivityInstance(executionId, activityId);
+      if (historicActivityInstance != null) {
+        historicActivityInstance.markEnded(null,null,null);
+        unindexActivityInstance(historicActivityInstance);
       }
     }
   }
   
   /**
    * Finds the {@link HistoricActivityInstanceEntity} that is active in the given
-   * execution. Uses the {@link DbSqlSession} cache to make sure the right instance
-   * is returned, regardless of whether or not entities have already been flushed to DB.
+   * execution or, if there is none, in the nearest parent execution. Instances
+   * started or loaded by this command are looked up in the open activity instance index,
+   * so the right instance is returned regardless of whether or not entities have already
+   * been flushed to DB. The remaining executions of the parent chain are resolved with
+   * one query.
    */
   public HistoricActivityInstanceEntity findActivityInstance(ExecutionEntity execution) {
-    String executionId = execution.getId();
-    String activityId = execution.getActivityId();
-
-    // search for the historic activity instance in the dbsqlsession cache
-    List<HistoricActivityInstanceEntity> cachedHistoricActivityInstances = getDbSqlSession().findInCache(HistoricActivityInstanceEntity.class);
-    for (HistoricActivityInstanceEntity cachedHistoricActivityInstance: cachedHistoricActivityInstances) {
-      if (executionId.equals(cachedHistoricActivityInstance.getExecutionId())
-           && activityId != null
-           && (activityId.equals(cachedHistoricActivityInstance.getActivityId()))
-           && (cachedHistoricActivityInstance.getEndTime()==null)
-         ) {
-        return cachedHistoricActivityInstance;
+    List<ExecutionEntity> unresolvedExecutions = new ArrayList<ExecutionEntity>();
+    HistoricActivityInstanceEntity indexedActivityInstance = null;
+    
+    ExecutionEntity current = execution;
+    while (current != null) {
+      indexedActivityInstance = findIndexedActivityInstance(current.getId(), current.getActivityId());
+      if (indexedActivityInstance != null) {
+        break;
       }
+      unresolvedExecutions.add(current);
+      current = current.getParentId() != null ? (ExecutionEntity) current.getParent() : null;
     }
     
-    List<HistoricActivityInstance> historicActivityInstances = new HistoricActivityInstanceQueryImpl(Context.getCommandContext())
-      .executionId(executionId)
-      .activityId(activityId)
-      .unfinished()
-      .listPage(0, 1);
+    if (unresolvedExecutions.isEmpty()) {
+      return indexedActivityInstance;
+    }
     
-    if (!historicActivityInstances.isEmpty()) {
-      return (HistoricActivityInstanceEntity) historicActivityInstances.get(0);
+    // executions below the indexed one take precedence, look them up in one go
+    List<String> executionIds = new ArrayList<String>(unresolvedExecutions.size());
+    for (ExecutionEntity unresolvedExecution: unresolvedExecutions) {
+      executionIds.add(unresolvedExecution.getId());
     }
+    List<HistoricActivityInstanceEntity> historicActivityInstances = getHistoricActivityInstanceManager()
+      .findUnfinishedHistoricActivityInstancesByExecutionIds(executionIds);
     
-    if (execution.getParentId()!=null) {
-      return findActivityInstance((ExecutionEntity) execution.getParent());
+    if (!historicActivityInstances.isEmpty()) {
+      for (ExecutionEntity unresolvedExecution: unresolvedExecutions) {
+        String activityId = unresolvedExecution.getActivityId();
+        for (HistoricActivityInstanceEntity historicActivityInstance: historicActivityInstances) {
+          if (historicActivityInstance.getEndTime() == null
+                && unresolvedExecution.getId().equals(historicActivityInstance.getExecutionId())
+                && (activityId == null || activityId.equals(historicActivityInstance.getActivityId()))
+              ) {
+            indexActivityInstance(historicActivityInstance);
+            return historicActivityInstance;
+          }
+        }
+      }
     }
     
+    return indexedActivityInstance;
+  }
+  
+  protected HistoricActivityInstanceEntity findIndexedActivityInstance(String executionId, String activityId) {
+    if (activityId == null) {
+      return null;
+    }
+    HistoricActivityInstanceEntity historicActivityInstance = openActivityInstances.get(getActivityInstanceKey(executionId, activityId));
+    if (historicActivityInstance != null
+          && historicActivityInstance.getEndTime() == null
+          && executionId.equals(historicActivityInstance.getExecutionId())
+          && activityId.equals(historicActivityInstance.getActivityId())
+        ) {
+      return historicActivityInstance;
+    }
     return null;
   }
   
+  protected void indexActivityInstance(HistoricActivityInstanceEntity historicActivityInstance) {
+    if (historicActivityInstance.getActivityId() != null && historicActivityInstance.getEndTime() == null) {
+      openActivityInstances.put(getActivityInstanceKey(historicActivityInstance.getExecutionId(), historicActivityInstance.getActivityId()), historicActivityInstance);
+    }
+  }
+  
+  protected void unindexActivityInstance(HistoricActivityInstanceEntity historicActivityInstance) {
+    String key = getActivityInstanceKey(historicActivityInstance.getExecutionId(), historicActivityInstance.getActivityId());
+    if (openActivityInstances.get(key) == historicActivityInstance) {
+      openActivityInstances.remove(key);
+    }
+  }
+  
+  protected String getActivityInstanceKey(String executionId, String activityId) {
+    return executionId + "|" + activityId;
+  }
+  
   /**
    * Replaces any open historic activityInstances' execution-id's to the id of the replaced
    * execution, if activity history is enabled. 
@@ -298,15 +400,22 @@ public class HistoryManager extends AbstractManager {
   public void recordExecutionReplacedBy(ExecutionEntity execution, InterpretableExecution replacedBy) {
     if (isHistoryLevelAtLeast(HistoryLevel.ACTIVITY)) {
       
-      // Update the cached historic activity instances that are open
-      List<HistoricActivityInstanceEntity> cachedHistoricActivityInstances = getDbSqlSession().findInCache(HistoricActivityInstanceEntity.class);
-      for (HistoricActivityInstanceEntity cachedHistoricActivityInstance: cachedHistoricActivityInstances) {
-        if ( (cachedHistoricActivityInstance.getEndTime()==null)
-             && (execution.getId().equals(cachedHistoricActivityInstance.getExecutionId())) 
+      // Update the open historic activity instances known to this command
+      List<HistoricActivityInstanceEntity> replacedActivityInstances = new ArrayList<HistoricActivityInstanceEntity>();
+      Iterator<HistoricActivityInstanceEntity> openActivityInstanceIterator = openActivityInstances.values().iterator();
+      while (openActivityInstanceIterator.hasNext()) {
+        HistoricActivityInstanceEntity openActivityInstance = openActivityInstanceIterator.next();
+        if ( (openActivityInstance.getEndTime()==null)
+             && (execution.getId().equals(openActivityInstance.getExecutionId())) 
            ) {
-          cachedHistoricActivityInstance.setExecutionId(replacedBy.getId());
+          openActivityInstanceIterator.remove();
+          openActivityInstance.setExecutionId(replacedBy.getId());
+          replacedActivityInstances.add(openActivityInstance);
         }
       }
+      for (HistoricActivityInstanceEntity replacedActivityInstance: replacedActivityInstances) {
+        indexActivityInstance(replacedActivityInstance);
+      }
     
       // Update the persisted historic activity instances that are open
       List<HistoricActivityInstanceEntity> historicActivityInstances = (List) new HistoricActivityInstanceQueryImpl(Context.getCommandContext())
@@ -315,6 +424,7 @@ public class HistoryManager extends AbstractManager {
         .list();
       for (HistoricActivityInstanceEntity historicActivityInstance: historicActivityInstances) {
         historicActivityInstance.setExecutionId(replacedBy.getId());
+        indexActivityInstance(historicActivityInstance);
       }
     }
   }
@@ -416,7 +526,13 @@ public class HistoryManager extends AbstractManager {
       HistoricTaskInstanceEntity historicTaskInstance = getDbSqlSession().selectById(HistoricTaskInstanceEntity.class, taskId);
       if (historicTaskInstance!=null) {
         historicTaskInstance.markEnded(deleteReason,  bussinessop,  bussinessRemark);
-        
+        if (rejectPathEnabled && historicTaskInstance.getProcessInstanceId()!=null) {
+          // instances started before the reject path was enabled have no path and keep using the task history
+          RejectPathEntity rejectPath = getDbSqlSession().selectById(RejectPathEntity.class, historicTaskInstance.getProcessInstanceId());
+          if (rejectPath!=null) {
+            rejectPath.taskEnded(taskId, historicTaskInstance.getTaskDefinitionKey());
+          }
+        }
       }
 //      HistoricActivityInstanceEntity historicActInstance = getDbSqlSession().selectById(HistoricActivityInstanceEntity.class, taskId);
 //      if (historicActInstance!=null) {
@@ -587,7 +703,7 @@ public class HistoryManager extends AbstractManager {
   public void recordHistoricDetailVariableCreate(VariableInstanceEntity variable, ExecutionEntity sourceActivityExecution, boolean useActivityId) {
     if(isHistoryLevelAtLeast(HistoryLevel.FULL)) {
       
-      HistoricDetailVariableInstanceUpdateEntity historicVariableUpdate = new HistoricDetailVariableInstanceUpdateEntity(variable);
+      HistoricDetailVariableInstanceUpdateEntity historicVariableUpdate = new HistoricDetailVariableInstanceUpdateEntity(variable, asyncHistoryWriter != null);
       
       if(useActivityId && sourceActivityExecution != null) {
         HistoricActivityInstanceEntity historicActivityInstance = findActivityInstance(sourceActivityExecution); 
@@ -596,7 +712,7 @@ public class HistoryManager extends AbstractManager {
         }
       }
       
-     getDbSqlSession().insert(historicVariableUpdate);
+      insertHistoryRecord(historicVariableUpdate);
     }
   }
   
@@ -694,7 +810,7 @@ public class HistoryManager extends AbstractManager {
       for (String propertyId: properties.keySet()) {
         String propertyValue = properties.get(propertyId);
         HistoricFormPropertyEntity historicFormProperty = new HistoricFormPropertyEntity(processInstance, propertyId, propertyValue, taskId);
-        getDbSqlSession().insert(historicFormProperty);
+        insertHistoryRecord(historicFormProperty);
       }
     }
   }
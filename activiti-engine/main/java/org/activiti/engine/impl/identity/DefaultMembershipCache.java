@@ -0,0 +1,151 @@
+/**
+ *  Copyright 2008 biaoping.yin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.  
+ */
+package org.activiti.engine.impl.identity;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>Title: DefaultMembershipCache.java</p>
+ *
+ * <p>Description: 默认的用户所属组缓存，缓存项在ttl毫秒后过期，缓存的用户数超过limit时随机淘汰一个用户。
+ * 所有用户共用一个版本号，每次invalidate、clear都会增加版本号，版本号变化期间查询的组成员关系不放入缓存。</p>
+ *
+ * <p>Copyright: Copyright (c) 2007</p>
+ *
+ * <p>bboss workgroup</p>
+ * @Date 2026-10-17
+ * @author biaoping.yin
+ * @version 1.0
+ */
+public class DefaultMembershipCache implements MembershipCache {
+	
+	static class Entry
+	{
+		final List<String> groupIds;
+		final long expireTime;
+		Entry(List<String> groupIds, long expireTime)
+		{
+			this.groupIds = groupIds;
+			this.expireTime = expireTime;
+		}
+	}
+	
+	protected final ConcurrentMap<String, Entry> users = new ConcurrentHashMap<String, Entry>();
+	protected final long ttl;
+	protected final int limit;
+	protected final AtomicLong hitCount = new AtomicLong();
+	protected final AtomicLong missCount = new AtomicLong();
+	/** 每次invalidate、clear时加1 */
+	protected final AtomicLong version = new AtomicLong();
+	
+	/**
+	 * @param ttl 缓存项的有效时间（毫秒），小于等于0时不过期
+	 * @param limit 缓存的最大用户数，小于等于0时不限制
+	 */
+	public DefaultMembershipCache(long ttl, int limit) {
+		this.ttl = ttl;
+		this.limit = limit;
+	}
+
+	@Override
+	public List<String> getGroupIds(String userId) {
+		Entry entry = users.get(userId);
+		if(entry != null && (ttl <= 0 || entry.expireTime > System.currentTimeMillis()))
+		{
+			hitCount.incrementAndGet();
+			return entry.groupIds;
+		}
+		if(entry != null)
+			users.remove(userId);
+		missCount.incrementAndGet();
+		return null;
+	}
+
+	@Override
+	public void putGroupIds(String userId, List<String> groupIds) {
+		doPut(userId, groupIds);
+	}
+
+	@Override
+	public long getVersion(String userId) {
+		return version.get();
+	}
+
+	@Override
+	public void putGroupIds(String userId, List<String> groupIds, long version) {
+		if(this.version.get() != version)
+			return;
+		Entry entry = doPut(userId, groupIds);
+		// invalidate或clear在检查版本号之后、放入缓存之前执行时，移除可能已经过时的缓存项
+		if(this.version.get() != version)
+			users.remove(userId, entry);
+	}
+
+	protected Entry doPut(String userId, List<String> groupIds) {
+		if(limit > 0 && users.size() >= limit && !users.containsKey(userId))
+		{
+			Iterator<String> iterator = users.keySet().iterator();
+			if(iterator.hasNext())
+			{
+				iterator.next();
+				iterator.remove();
+			}
+		}
+		long expireTime = ttl > 0 ? System.currentTimeMillis() + ttl : Long.MAX_VALUE;
+		Entry entry = new Entry(Collections.unmodifiableList(groupIds), expireTime);
+		users.put(userId, entry);
+		return entry;
+	}
+
+	@Override
+	public void invalidate(String userId) {
+		version.incrementAndGet();
+		users.remove(userId);
+	}
+
+	@Override
+	public void clear() {
+		version.incrementAndGet();
+		users.clear();
+	}
+	
+	public int size() {
+		return users.size();
+	}
+
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	public double getHitRate() {
+		long hits = hitCount.get();
+		long total = hits + missCount.get();
+		return total == 0 ? 0 : (double) hits / total;
+	}
+	
+	public String toString() {
+		return "DefaultMembershipCache[users=" + size() + ", hits=" + getHitCount() + ", misses=" + getMissCount() + "]";
+	}
+}
@@ -0,0 +1,69 @@
+/**
+ *  Copyright 2008 biaoping.yin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.  
+ */
+package org.activiti.engine.impl.identity;
+
+import java.util.List;
+
+/**
+ * <p>Title: MembershipCache.java</p>
+ *
+ * <p>Description: 用户所属组（机构、角色）的缓存，候选人任务查询通过缓存获取用户的组，
+ * 避免每次查询待办任务都执行用户组成员关系查询。引擎在IdentityService创建、删除组成员关系以及删除用户、组时
+ * 使对应的缓存失效；使用UserInfoMap或外部身份系统管理组成员关系时，由外部系统调用put/invalidate维护缓存。</p>
+ *
+ * <p>Copyright: Copyright (c) 2007</p>
+ *
+ * <p>bboss workgroup</p>
+ * @Date 2026-10-17
+ * @author biaoping.yin
+ * @version 1.0
+ */
+public interface MembershipCache {
+	/**
+	 * 获取用户所属组的id
+	 * @param userId
+	 * @return 用户所属组的id，没有缓存或者缓存已过期时返回null
+	 */
+	List<String> getGroupIds(String userId);
+	/**
+	 * 缓存用户所属组的id
+	 * @param userId
+	 * @param groupIds
+	 */
+	void putGroupIds(String userId, List<String> groupIds);
+	/**
+	 * 获取缓存的当前版本，在查询用户组成员关系之前调用，查询结果通过{@link #putGroupIds(String, List, long)}放入缓存
+	 * @param userId
+	 * @return 版本号，invalidate或clear后改变
+	 */
+	long getVersion(String userId);
+	/**
+	 * 缓存查询得到的用户所属组的id，如果查询之后（version之后）用户的缓存被invalidate或clear，查询结果可能已经过时，不放入缓存
+	 * @param userId
+	 * @param groupIds
+	 * @param version 查询之前通过{@link #getVersion(String)}获取的版本号
+	 */
+	void putGroupIds(String userId, List<String> groupIds, long version);
+	/**
+	 * 用户的组成员关系发生变化时，使用户的缓存失效
+	 * @param userId
+	 */
+	void invalidate(String userId);
+	/**
+	 * 清除所有用户的缓存，例如删除组时
+	 */
+	void clear();
+}
@@ -20,6 +20,7 @@ import org.activiti.engine.ActivitiException;
 import org.activiti.engine.ActivitiOptimisticLockingException;
 import org.activiti.engine.ActivitiTaskAlreadyClaimedException;
 import org.activiti.engine.JobNotFoundException;
+import org.activiti.engine.impl.ControlParamManager;
 import org.activiti.engine.impl.cfg.ProcessEngineConfigurationImpl;
 import org.activiti.engine.impl.cfg.TransactionContext;
 import org.activiti.engine.impl.context.Context;
@@ -71,6 +72,7 @@ public class CommandContext {
   protected LinkedList<AtomicOperation> nextOperations = new LinkedList<AtomicOperation>();
   protected ProcessEngineConfigurationImpl processEngineConfiguration;
   protected FailedJobCommandFactory failedJobCommandFactory;
+  protected boolean readOnly;
 
   
   public void performOperation(AtomicOperation executionOperation, InterpretableExecution execution) {
@@ -93,6 +95,7 @@ public class CommandContext {
 
   public CommandContext(Command<?> command, ProcessEngineConfigurationImpl processEngineConfiguration) {
     this.command = command;
+    this.readOnly = (command instanceof ReadOnlyCommand);
     this.processEngineConfiguration = processEngineConfiguration;
     this.failedJobCommandFactory = processEngineConfiguration.getFailedJobCommandFactory();
     sessionFactories = processEngineConfiguration.getSessionFactories();
@@ -120,7 +123,8 @@ public class CommandContext {
         } finally {
 
           try {
-            if (exception == null) {
+            // a read-only command has nothing to commit
+            if (exception == null && !readOnly) {
               transactionContext.commit();
             }
           } catch (Throwable exception) {
@@ -179,6 +183,11 @@ public class CommandContext {
     }
   }
 
+  /** true when the command of this context is a {@link ReadOnlyCommand} */
+  public boolean isReadOnly() {
+    return readOnly;
+  }
+
   public void exception(Throwable exception) {
     if (this.exception == null) {
       this.exception = exception;
@@ -309,6 +318,10 @@ public class CommandContext {
   public HistoryManager getHistoryManager() {
     return getSession(HistoryManager.class);
   }
+  
+  public ControlParamManager getControlParamManager() {
+    return getSession(ControlParamManager.class);
+  }
 
   // getters and setters //////////////////////////////////////////////////////
 
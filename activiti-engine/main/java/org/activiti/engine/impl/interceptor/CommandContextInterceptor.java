@@ -45,7 +45,9 @@ public class CommandContextInterceptor extends CommandInterceptor {
     boolean contextReused = false;
     // We need to check the exception, because the transaction can be in a rollback state,
     // and some other command is being fired to compensate (eg. decrementing job retries)
-    if (!isContextReusePossible || context == null || context.getException() != null) { 
+    // A read-only context can't be reused for a command that writes
+    if (!isContextReusePossible || context == null || context.getException() != null
+            || (context.isReadOnly() && !(command instanceof ReadOnlyCommand))) { 
     	context = commandContextFactory.createCommandContext(command);    	
     }  
     else {
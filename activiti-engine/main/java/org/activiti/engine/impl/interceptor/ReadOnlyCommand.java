@@ -0,0 +1,27 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.impl.interceptor;
+
+
+
+/**
+ * Marker for {@link Command}s that only read data.
+ * 
+ * The {@link CommandContext} of a read-only command doesn't take persistent state
+ * snapshots of the loaded entities, doesn't flush and doesn't commit.  Changes made
+ * to loaded entities are discarded, inserts and deletes are refused.  When a 
+ * read-only data source is configured, these commands are executed on it.
+ */
+public interface ReadOnlyCommand {
+
+}
@@ -38,6 +38,7 @@ public class AcquireJobsRunnable implements Runnable {
   protected volatile boolean isJobAdded = false;
   protected final Object MONITOR = new Object();
   protected final AtomicBoolean isWaiting = new AtomicBoolean(false);
+  protected final AtomicBoolean isWaitingForCapacity = new AtomicBoolean(false);
   
   protected long millisToWait = 0;
   protected float waitIncreaseFactor = 2;
@@ -53,7 +54,13 @@ public class AcquireJobsRunnable implements Runnable {
     final CommandExecutor commandExecutor = jobExecutor.getCommandExecutor();
 
     while (!isInterrupted) {
-      int maxJobsPerAcquisition = jobExecutor.getMaxJobsPerAcquisition();
+      int availableCapacity = jobExecutor.getAvailableCapacity();
+      if (availableCapacity <= 0) {
+        // all worker threads are busy and the queue is full: don't lock jobs that would only be rejected
+        waitForCapacity();
+        continue;
+      }
+      int maxJobsPerAcquisition = Math.min(jobExecutor.getMaxJobsPerAcquisition(), availableCapacity);
 
       try {
         AcquiredJobs acquiredJobs = commandExecutor.execute(jobExecutor.getAcquireJobsCmd());
@@ -131,6 +138,37 @@ public class AcquireJobsRunnable implements Runnable {
     log.info("{} stopped job acquisition", jobExecutor.getName());
   }
 
+  protected void waitForCapacity() {
+    try {
+      synchronized (MONITOR) {
+        isWaiting.set(true);
+        isWaitingForCapacity.set(true);
+        // re-check under the monitor, capacityAvailable() notifies while holding it
+        if (!isInterrupted && jobExecutor.getAvailableCapacity() <= 0) {
+          if (log.isDebugEnabled()) {
+            log.debug("job executor is saturated, job acquisition waits for free capacity");
+          }
+          MONITOR.wait(jobExecutor.getWaitTimeInMillis());
+        }
+      }
+    } catch (InterruptedException e) {
+      if (log.isDebugEnabled()) {
+        log.debug("job acquisition wait interrupted");
+      }
+    } finally {
+      isWaiting.set(false);
+      isWaitingForCapacity.set(false);
+    }
+  }
+
+  public void capacityAvailable() {
+    if (isWaitingForCapacity.compareAndSet(true, false)) {
+      synchronized (MONITOR) {
+        MONITOR.notifyAll();
+      }
+    }
+  }
+
   public void stop() {
     synchronized (MONITOR) {
       isInterrupted = true; 
@@ -18,6 +18,7 @@ import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,7 +29,12 @@ import org.slf4j.LoggerFactory;
  * threads for performing background work.</p>
  * 
  * <p>This implementation uses a {@link ThreadPoolExecutor} backed by a queue to which
- * work is submitted.</p>
+ * work is submitted. Job acquisition only asks for as many jobs as there are free threads 
+ * and queue slots (see {@link #getAvailableCapacity()}).</p>
+ * 
+ * <p>With elasticPoolEnabled the number of core threads moves between corePoolSize and 
+ * maxPoolSize: it grows while jobs wait in the queue longer than maxQueueWaitMillis (or the 
+ * queue is full) and shrinks again when the queue is empty and threads are idle.</p>
  * 
  * <p><em>NOTE: use this class in environments in which self-management of threads 
  * is permitted. Consider using a different thread-management strategy in 
@@ -43,6 +49,13 @@ public class DefaultJobExecutor extends JobExecutor {
   protected int queueSize = 3;
   protected int corePoolSize = 3;
   private int maxPoolSize = 10;
+  protected boolean elasticPoolEnabled = false;
+  protected long maxQueueWaitMillis = 500;
+  protected long keepAliveMillis = 60 * 1000;
+  
+  /** moving averages of the time jobs wait in the queue and of their execution time */
+  protected final AtomicLong averageQueueWaitMillis = new AtomicLong();
+  protected final AtomicLong averageJobMillis = new AtomicLong();
 
   protected BlockingQueue<Runnable> threadPoolQueue;
   protected ThreadPoolExecutor threadPoolExecutor;
@@ -52,7 +65,11 @@ public class DefaultJobExecutor extends JobExecutor {
       threadPoolQueue = new ArrayBlockingQueue<Runnable>(queueSize);
     }
     if (threadPoolExecutor==null) {
-      threadPoolExecutor = new ThreadPoolExecutor(corePoolSize, maxPoolSize, 0L, TimeUnit.MILLISECONDS, threadPoolQueue);      
+      threadPoolExecutor = new ThreadPoolExecutor(corePoolSize, maxPoolSize, elasticPoolEnabled ? keepAliveMillis : 0L, TimeUnit.MILLISECONDS, threadPoolQueue) {
+        protected void afterExecute(Runnable r, Throwable t) {
+          capacityAvailable();
+        }
+      };
       threadPoolExecutor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
     }
     startJobAcquisitionThread(); 
@@ -79,12 +96,72 @@ public class DefaultJobExecutor extends JobExecutor {
   
   public void executeJobs(List<String> jobIds) {
     try {
-      threadPoolExecutor.execute(new ExecuteJobsRunnable(this, jobIds));
+      Runnable executeJobsRunnable = new ExecuteJobsRunnable(this, jobIds);
+      if (elasticPoolEnabled) {
+        executeJobsRunnable = new TimedRunnable(executeJobsRunnable);
+      }
+      threadPoolExecutor.execute(executeJobsRunnable);
     }catch (RejectedExecutionException e) {
       rejectedJobsHandler.jobsRejected(this, jobIds);
     }
   }
   
+  public int getAvailableCapacity() {
+    ThreadPoolExecutor executor = threadPoolExecutor;
+    if (executor == null) {
+      return super.getAvailableCapacity();
+    }
+    if (elasticPoolEnabled) {
+      adaptPoolSize(executor);
+    }
+    int idleThreads = executor.getMaximumPoolSize() - executor.getActiveCount();
+    return Math.max(idleThreads, 0) + executor.getQueue().remainingCapacity();
+  }
+  
+  protected void adaptPoolSize(ThreadPoolExecutor executor) {
+    int currentCorePoolSize = executor.getCorePoolSize();
+    int queued = executor.getQueue().size();
+    // time the queued jobs will wait with the current threads, at the observed job latency
+    long expectedQueueWaitMillis = averageJobMillis.get() * queued / Math.max(executor.getActiveCount(), 1);
+    if (queued > 0 && currentCorePoolSize < maxPoolSize
+            && (executor.getQueue().remainingCapacity() == 0 
+                    || averageQueueWaitMillis.get() > maxQueueWaitMillis
+                    || expectedQueueWaitMillis > maxQueueWaitMillis)) {
+      executor.setCorePoolSize(currentCorePoolSize + 1);
+      log.debug("job executor backlog of {} jobs, growing core pool size to {}", queued, currentCorePoolSize + 1);
+    } else if (queued == 0 && currentCorePoolSize > corePoolSize && executor.getActiveCount() < currentCorePoolSize - 1) {
+      executor.setCorePoolSize(currentCorePoolSize - 1);
+      log.debug("job executor is idle, shrinking core pool size to {}", currentCorePoolSize - 1);
+    }
+  }
+  
+  protected static void updateAverage(AtomicLong average, long sample) {
+    // exponential moving average with a weight of 1/8 for the new sample
+    long current = average.get();
+    average.compareAndSet(current, current + (sample - current) / 8);
+  }
+  
+  /** measures the queue wait and execution time of the jobs for the elastic pool sizing */
+  protected class TimedRunnable implements Runnable {
+    
+    protected final Runnable runnable;
+    protected final long submitted = System.currentTimeMillis();
+    
+    public TimedRunnable(Runnable runnable) {
+      this.runnable = runnable;
+    }
+    
+    public void run() {
+      long started = System.currentTimeMillis();
+      updateAverage(averageQueueWaitMillis, started - submitted);
+      try {
+        runnable.run();
+      } finally {
+        updateAverage(averageJobMillis, System.currentTimeMillis() - started);
+      }
+    }
+  }
+  
   // getters and setters ////////////////////////////////////////////////////// 
   
   public int getQueueSize() {
@@ -111,6 +188,38 @@ public class DefaultJobExecutor extends JobExecutor {
     this.maxPoolSize = maxPoolSize;
   }
   
+  public boolean isElasticPoolEnabled() {
+    return elasticPoolEnabled;
+  }
+
+  public void setElasticPoolEnabled(boolean elasticPoolEnabled) {
+    this.elasticPoolEnabled = elasticPoolEnabled;
+  }
+
+  public long getMaxQueueWaitMillis() {
+    return maxQueueWaitMillis;
+  }
+
+  public void setMaxQueueWaitMillis(long maxQueueWaitMillis) {
+    this.maxQueueWaitMillis = maxQueueWaitMillis;
+  }
+
+  public long getKeepAliveMillis() {
+    return keepAliveMillis;
+  }
+
+  public void setKeepAliveMillis(long keepAliveMillis) {
+    this.keepAliveMillis = keepAliveMillis;
+  }
+
+  public long getAverageQueueWaitMillis() {
+    return averageQueueWaitMillis.get();
+  }
+
+  public long getAverageJobMillis() {
+    return averageJobMillis.get();
+  }
+  
   public BlockingQueue<Runnable> getThreadPoolQueue() {
     return threadPoolQueue;
   }
@@ -54,6 +54,11 @@ public abstract class JobExecutor {
   protected int waitTimeInMillis = 5 * 1000;
   protected String lockOwner = UUID.randomUUID().toString();
   protected int lockTimeInMillis = 5 * 60 * 1000;
+  /**
+   * lock the acquired jobs with one conditional update statement instead of 
+   * an optimistic locking update per job, see {@link AcquireJobsCmd}.
+   */
+  protected boolean batchAcquisitionEnabled = false;
       
   public void start() {
     if (isActive) {
@@ -96,6 +101,22 @@ public abstract class JobExecutor {
   protected abstract void stopExecutingJobs(); 
   protected abstract void executeJobs(List<String> jobIds);
   
+  /**
+   * number of job batches that can be handed to {@link #executeJobs(List)} right now without 
+   * being rejected. Job acquisition never locks more jobs than this and pauses at 0.
+   */
+  public int getAvailableCapacity() {
+    return Integer.MAX_VALUE;
+  }
+  
+  /** wakes up the acquisition thread if it waits for free capacity */
+  protected void capacityAvailable() {
+    AcquireJobsRunnable runnable = acquireJobsRunnable;
+    if (runnable != null) {
+      runnable.capacityAvailable();
+    }
+  }
+  
   // getters and setters //////////////////////////////////////////////////////
 
   public CommandExecutor getCommandExecutor() {
@@ -130,6 +151,14 @@ public abstract class JobExecutor {
     return isAutoActivate;
   }
 
+  public boolean isBatchAcquisitionEnabled() {
+    return batchAcquisitionEnabled;
+  }
+
+  public void setBatchAcquisitionEnabled(boolean batchAcquisitionEnabled) {
+    this.batchAcquisitionEnabled = batchAcquisitionEnabled;
+  }
+
   public void setCommandExecutor(CommandExecutor commandExecutor) {
     this.commandExecutor = commandExecutor;
   }
@@ -0,0 +1,32 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.impl.jobexecutor;
+
+import java.util.List;
+
+import org.activiti.engine.impl.cmd.UnlockJobsCmd;
+
+/**
+ * Releases the locks of rejected jobs, so that they are picked up again by the next 
+ * acquisition (of this or another job executor) instead of staying locked until the 
+ * lock expires. Unlike the {@link CallerRunsRejectedJobsHandler} it never blocks job acquisition.
+ * 
+ * @author biaoping.yin
+ */
+public class UnlockRejectedJobsHandler implements RejectedJobsHandler {
+
+  public void jobsRejected(JobExecutor jobExecutor, List<String> jobIds) {
+    jobExecutor.getCommandExecutor().execute(new UnlockJobsCmd(jobIds, jobExecutor.getLockOwner()));
+  }
+
+}
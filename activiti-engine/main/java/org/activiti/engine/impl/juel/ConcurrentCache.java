@@ -0,0 +1,128 @@
+/*
+ * Based on JUEL 2.2.1 code, 2006-2009 Odysseus Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+package org.activiti.engine.impl.juel;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrent tree cache with approximate LRU eviction.
+ * Lookups don't lock and don't reorder anything, they only mark the entry as used.
+ * When the cache exceeds its size, entries are evicted in insertion order, skipping
+ * (and unmarking) entries that were used since they were last considered (second chance).
+ *
+ * @author biaoping.yin
+ */
+public final class ConcurrentCache implements TreeCache {
+	private final int size;
+	private final ConcurrentMap<String,Entry> entries;
+	private final Queue<String> evictionQueue = new ConcurrentLinkedQueue<String>();
+	private final ReentrantLock evictionLock = new ReentrantLock();
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	private static final class Entry {
+		final Tree tree;
+		volatile boolean used;
+
+		Entry(Tree tree) {
+			this.tree = tree;
+		}
+	}
+
+	/**
+	 * Constructor.
+	 * @param size maximum cache size
+	 */
+	public ConcurrentCache(int size) {
+		this.size = size;
+		this.entries = new ConcurrentHashMap<String,Entry>(Math.min(size, 1024) * 4 / 3 + 1, 0.75f, 16);
+	}
+
+	public Tree get(String expression) {
+		Entry entry = entries.get(expression);
+		if (entry == null) {
+			misses.incrementAndGet();
+			return null;
+		}
+		if (!entry.used) {
+			entry.used = true;
+		}
+		hits.incrementAndGet();
+		return entry.tree;
+	}
+
+	public void put(String expression, Tree tree) {
+		if (entries.putIfAbsent(expression, new Entry(tree)) == null) {
+			evictionQueue.offer(expression);
+			if (entries.size() > size) {
+				evict();
+			}
+		}
+	}
+
+	private void evict() {
+		// one thread evicts, the others go on, the cache may exceed its size for a moment
+		if (!evictionLock.tryLock()) {
+			return;
+		}
+		try {
+			while (entries.size() > size) {
+				String expression = evictionQueue.poll();
+				if (expression == null) {
+					return;
+				}
+				Entry entry = entries.get(expression);
+				if (entry != null && entry.used) {
+					entry.used = false;
+					evictionQueue.offer(expression);
+				} else if (entry != null) {
+					entries.remove(expression);
+					evictions.incrementAndGet();
+				}
+			}
+		} finally {
+			evictionLock.unlock();
+		}
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	public long getEvictionCount() {
+		return evictions.get();
+	}
+
+	@Override
+	public String toString() {
+		return "ConcurrentCache[size=" + size() + ", hits=" + getHitCount() + ", misses=" + getMissCount() + ", evictions=" + getEvictionCount() + "]";
+	}
+}
@@ -58,6 +58,10 @@ import org.activiti.engine.impl.juel.Builder.Feature;
  * <li>
  * <code>javax.el.cacheSize</code> - cache size (int, default is 1000)</li>
  * <li>
+ * <code>javax.el.cacheType</code> - cache implementation, <code>lru</code> for the synchronized
+ * {@link Cache} or <code>concurrent</code> for the {@link ConcurrentCache} (default is
+ * <code>lru</code>).</li>
+ * <li>
  * <code>javax.el.methodInvocations</code> - allow method invocations as in
  * <code>${foo.bar(baz)}</code> (boolean, default is <code>false</code>).</li>
  * <li>
@@ -124,6 +128,15 @@ public class ExpressionFactoryImpl extends org.activiti.engine.impl.javax.el.Exp
 	 */
 	public static final String PROP_CACHE_SIZE = "javax.el.cacheSize";
 
+	/**
+	 * <code>javax.el.cacheType</code>
+	 */
+	public static final String PROP_CACHE_TYPE = "javax.el.cacheType";
+
+	public static final String CACHE_TYPE_LRU = "lru";
+
+	public static final String CACHE_TYPE_CONCURRENT = "concurrent";
+
 	private final TreeStore store;
 	private final TypeConverter converter;
 
@@ -334,11 +347,32 @@ public class ExpressionFactoryImpl extends org.activiti.engine.impl.javax.el.Exp
 				throw new ELException("Cannot parse EL property " + PROP_CACHE_SIZE, e);
 			}
 		}
-		Cache cache = cacheSize > 0 ? new Cache(cacheSize) : null;
+		TreeCache cache = cacheSize > 0 ? createTreeCache(cacheSize, properties) : null;
 
 		return new TreeStore(builder, cache);
 	}
 
+	/**
+	 * Create the factory's tree cache, selected by property <code>javax.el.cacheType</code>.
+	 */
+	protected TreeCache createTreeCache(int cacheSize, Properties properties) {
+		String cacheType = properties == null ? null : properties.getProperty(PROP_CACHE_TYPE);
+		if (cacheType == null || CACHE_TYPE_LRU.equalsIgnoreCase(cacheType)) {
+			return new Cache(cacheSize);
+		}
+		if (CACHE_TYPE_CONCURRENT.equalsIgnoreCase(cacheType)) {
+			return new ConcurrentCache(cacheSize);
+		}
+		throw new ELException("Unknown EL cache type " + cacheType + " for property " + PROP_CACHE_TYPE);
+	}
+
+	/**
+	 * @return the factory's tree store
+	 */
+	public TreeStore getTreeStore() {
+		return store;
+	}
+
 	/**
 	 * Create the factory's type converter. This implementation takes the
 	 * <code>de.odysseus.el.misc.TypeConverter</code> property as the name of a class implementing
@@ -43,6 +43,13 @@ public class TreeStore {
 	public TreeBuilder getBuilder() {
 		return builder;
 	}
+
+	/**
+	 * @return the tree cache (may be <code>null</code>)
+	 */
+	public TreeCache getCache() {
+		return cache;
+	}
 	
 	/**
 	 * Get a {@link Tree}.
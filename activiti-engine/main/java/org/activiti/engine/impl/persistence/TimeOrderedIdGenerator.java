@@ -0,0 +1,95 @@
+package org.activiti.engine.impl.persistence;
+
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.activiti.engine.ActivitiIllegalArgumentException;
+import org.activiti.engine.impl.cfg.IdGenerator;
+
+/**
+ * {@link IdGenerator} producing k-ordered ids without any database coordination.
+ * 
+ * An id packs 41 bits of milliseconds since 2013-01-01, a 10 bit node id and a 12 bit
+ * sequence into a long, encoded as a fixed width 13 character base 36 string. The
+ * strings sort in generation order, so inserts append to the end of the ID_ indexes
+ * instead of being scattered like random uuids. They never collide with ids of the 
+ * {@link org.activiti.engine.impl.db.DbIdGenerator} (no leading zeros) or of the 
+ * {@link StrongUuidGenerator} (36 characters), so existing rows can stay as they are.
+ * 
+ * Each node of a cluster must use its own nodeId (0-1023); by default it is derived 
+ * from the host name and the process name.
+ * 
+ * @author biaoping.yin
+ */
+public class TimeOrderedIdGenerator implements IdGenerator {
+  
+  /** 2013-01-01T00:00:00Z */
+  public static final long EPOCH = 1356998400000L;
+  
+  protected static final int NODE_BITS = 10;
+  protected static final int SEQUENCE_BITS = 12;
+  protected static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+  protected static final int ID_LENGTH = 13;
+  
+  protected int nodeId;
+  
+  /** (milliseconds since EPOCH << SEQUENCE_BITS) | sequence of the last id handed out */
+  protected final AtomicLong lastTimestampAndSequence = new AtomicLong();
+
+  public TimeOrderedIdGenerator() {
+    this(defaultNodeId());
+  }
+  
+  public TimeOrderedIdGenerator(int nodeId) {
+    setNodeId(nodeId);
+  }
+
+  public String getNextId() {
+    long next;
+    while (true) {
+      long last = lastTimestampAndSequence.get();
+      long now = (System.currentTimeMillis() - EPOCH) << SEQUENCE_BITS;
+      // a sequence overflow or a clock going backwards borrows from the next millisecond
+      next = now > last ? now : last + 1;
+      if (lastTimestampAndSequence.compareAndSet(last, next)) {
+        break;
+      }
+    }
+    long timestamp = next >>> SEQUENCE_BITS;
+    long sequence = next & ((1 << SEQUENCE_BITS) - 1);
+    long id = (timestamp << (NODE_BITS + SEQUENCE_BITS)) | ((long) nodeId << SEQUENCE_BITS) | sequence;
+    return encode(id);
+  }
+  
+  protected static String encode(long id) {
+    String encoded = Long.toString(id, Character.MAX_RADIX);
+    StringBuilder builder = new StringBuilder(ID_LENGTH);
+    for (int i = encoded.length(); i < ID_LENGTH; i++) {
+      builder.append('0');
+    }
+    return builder.append(encoded).toString();
+  }
+  
+  protected static int defaultNodeId() {
+    String name;
+    try {
+      name = InetAddress.getLocalHost().getHostName() + "/" + ManagementFactory.getRuntimeMXBean().getName();
+    } catch (Exception e) {
+      name = ManagementFactory.getRuntimeMXBean().getName();
+    }
+    return (name.hashCode() & Integer.MAX_VALUE) % (MAX_NODE_ID + 1);
+  }
+
+  public int getNodeId() {
+    return nodeId;
+  }
+
+  public void setNodeId(int nodeId) {
+    if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+      throw new ActivitiIllegalArgumentException("nodeId must be between 0 and " + MAX_NODE_ID + ": " + nodeId);
+    }
+    this.nodeId = nodeId;
+  }
+
+}
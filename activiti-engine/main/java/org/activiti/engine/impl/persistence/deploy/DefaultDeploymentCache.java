@@ -12,9 +12,9 @@
  */
 package org.activiti.engine.impl.persistence.deploy;
 
-import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -22,51 +22,132 @@ import org.slf4j.LoggerFactory;
 /**
  * Default cache: keep everything in memory, unless a limit is set.
  * 
+ * The cache is shared by all request and job executor threads, reads are lock free 
+ * ({@link ConcurrentHashMap}) and only record an access stamp and counter on the entry. 
+ * Evictions happen under a lock when the entry limit or the weight limit is exceeded; 
+ * the victim is the least recently used ({@link EvictionPolicy#LRU}) or the least 
+ * frequently used ({@link EvictionPolicy#LFU}) entry.
+ * 
  * @author Joram Barrez
  */
 public class DefaultDeploymentCache<T> implements DeploymentCache<T> {
   
   private static final Logger logger = LoggerFactory.getLogger(DefaultDeploymentCache.class);
   
-  protected Map<String, T> cache;
+  public enum EvictionPolicy {
+    LRU, LFU
+  }
+  
+  protected Map<String, CacheEntry<T>> cache = new ConcurrentHashMap<String, CacheEntry<T>>();
+  
+  protected int limit = -1;
+  protected long weightLimit = -1;
+  protected DeploymentCacheWeigher<T> weigher;
+  protected EvictionPolicy evictionPolicy = EvictionPolicy.LRU;
+  
+  protected final Object evictionLock = new Object();
+  protected final AtomicLong clock = new AtomicLong();
+  protected final AtomicLong totalWeight = new AtomicLong();
+  
+  protected final AtomicLong hitCount = new AtomicLong();
+  protected final AtomicLong missCount = new AtomicLong();
+  protected final AtomicLong evictionCount = new AtomicLong();
   
   /** Cache with no limit */
   public DefaultDeploymentCache() {
-    this.cache = new HashMap<String, T>();
   }
   
   /** Cache which has a hard limit: no more elements will be cached than the limit. */
-  public DefaultDeploymentCache(final int limit) {
-    this.cache = new LinkedHashMap<String, T>(limit + 1, 0.75f, true) { // +1 is needed, because the entry is inserted first, before it is removed
-                                                                       // 0.75 is the default (see javadocs)
-                                                                       // true will keep the 'access-order', which is needed to have a real LRU cache
-      private static final long serialVersionUID = 1L;
-
-      protected boolean removeEldestEntry(java.util.Map.Entry<String, T> eldest) {
-        boolean removeEldest = size() > limit;
-        if (removeEldest) {
-          logger.trace("Cache limit is reached, {} will be evicted",  eldest.getKey());
-        }
-        return removeEldest;
-      }
-      
-    };
+  public DefaultDeploymentCache(int limit) {
+    this.limit = limit;
+  }
+  
+  /**
+   * Cache bounded by the number of entries (limit) and/or by the sum of the weights the 
+   * weigher estimates for the cached objects (weightLimit); a value <= 0 means no bound.
+   */
+  public DefaultDeploymentCache(int limit, long weightLimit, DeploymentCacheWeigher<T> weigher, EvictionPolicy evictionPolicy) {
+    this.limit = limit;
+    this.weightLimit = weigher != null ? weightLimit : -1;
+    this.weigher = weigher;
+    if (evictionPolicy != null) {
+      this.evictionPolicy = evictionPolicy;
+    }
   }
   
   public T get(String id) {
-    return cache.get(id);
+    CacheEntry<T> entry = cache.get(id);
+    if (entry == null) {
+      missCount.incrementAndGet();
+      return null;
+    }
+    hitCount.incrementAndGet();
+    entry.lastAccess = clock.incrementAndGet();
+    entry.accessCount++; // racy increments only make the LFU order approximate
+    return entry.value;
   }
   
   public void add(String id, T obj) {
-    cache.put(id, obj);
+    CacheEntry<T> entry = new CacheEntry<T>(obj, weigher != null ? weigher.weigh(id, obj) : 1, clock.incrementAndGet());
+    synchronized (evictionLock) {
+      CacheEntry<T> previous = cache.put(id, entry);
+      if (previous != null) {
+        totalWeight.addAndGet(-previous.weight);
+      }
+      totalWeight.addAndGet(entry.weight);
+      evictIfNeeded(id);
+    }
   }
   
   public void remove(String id) {
-    cache.remove(id);
+    synchronized (evictionLock) {
+      CacheEntry<T> previous = cache.remove(id);
+      if (previous != null) {
+        totalWeight.addAndGet(-previous.weight);
+      }
+    }
   }
   
   public void clear() {
-    cache.clear();
+    synchronized (evictionLock) {
+      cache.clear();
+      totalWeight.set(0);
+    }
+  }
+  
+  /** called with the evictionLock held; never evicts the entry that was just added */
+  protected void evictIfNeeded(String addedId) {
+    while (isOverLimit() && cache.size() > 1) {
+      String victimId = null;
+      CacheEntry<T> victim = null;
+      for (Map.Entry<String, CacheEntry<T>> candidate : cache.entrySet()) {
+        if (candidate.getKey().equals(addedId)) {
+          continue;
+        }
+        if (victim == null || isColder(candidate.getValue(), victim)) {
+          victimId = candidate.getKey();
+          victim = candidate.getValue();
+        }
+      }
+      if (victim == null) {
+        return;
+      }
+      logger.trace("Cache limit is reached, {} will be evicted", victimId);
+      cache.remove(victimId);
+      totalWeight.addAndGet(-victim.weight);
+      evictionCount.incrementAndGet();
+    }
+  }
+  
+  protected boolean isOverLimit() {
+    return (limit > 0 && cache.size() > limit) || (weightLimit > 0 && totalWeight.get() > weightLimit);
+  }
+  
+  protected boolean isColder(CacheEntry<T> entry, CacheEntry<T> other) {
+    if (evictionPolicy == EvictionPolicy.LFU && entry.accessCount != other.accessCount) {
+      return entry.accessCount < other.accessCount;
+    }
+    return entry.lastAccess < other.lastAccess;
   }
   
   // For testing purposes only
@@ -74,4 +155,36 @@ public class DefaultDeploymentCache<T> implements DeploymentCache<T> {
     return cache.size();
   }
   
+  // statistics ///////////////////////////////////////////////////////////////
+  
+  public long getHitCount() {
+    return hitCount.get();
+  }
+  
+  public long getMissCount() {
+    return missCount.get();
+  }
+  
+  public long getEvictionCount() {
+    return evictionCount.get();
+  }
+  
+  public long getTotalWeight() {
+    return totalWeight.get();
+  }
+  
+  protected static class CacheEntry<T> {
+    
+    protected final T value;
+    protected final int weight;
+    protected volatile long lastAccess;
+    protected volatile int accessCount;
+    
+    public CacheEntry(T value, int weight, long lastAccess) {
+      this.value = value;
+      this.weight = weight;
+      this.lastAccess = lastAccess;
+    }
+  }
+  
 }
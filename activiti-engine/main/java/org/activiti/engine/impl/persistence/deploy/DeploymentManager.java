@@ -13,13 +13,21 @@
 
 package org.activiti.engine.impl.persistence.deploy;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.activiti.engine.ActivitiException;
 import org.activiti.engine.ActivitiIllegalArgumentException;
 import org.activiti.engine.ActivitiObjectNotFoundException;
 import org.activiti.engine.impl.ProcessDefinitionQueryImpl;
+import org.activiti.engine.impl.cfg.TransactionListener;
+import org.activiti.engine.impl.cfg.TransactionState;
 import org.activiti.engine.impl.context.Context;
+import org.activiti.engine.impl.interceptor.CommandContext;
 import org.activiti.engine.impl.persistence.entity.DeploymentEntity;
 import org.activiti.engine.impl.persistence.entity.DeploymentEntityManager;
 import org.activiti.engine.impl.persistence.entity.ProcessDefinitionEntity;
@@ -37,16 +45,50 @@ public class DeploymentManager {
   protected DeploymentCache<Object> knowledgeBaseCache; // Needs to be object to avoid an import to Drools in this core class
   protected List<Deployer> deployers;
   
+  /**
+   * when enabled, process definitions are looked up by id, by key and version and latest by key
+   * in the processDefinitionCache first, without a query on ACT_RE_PROCDEF. 
+   */
+  protected boolean secondLevelCacheEnabled;
+  /** process definition key -> (version -> process definition id) */
+  protected ConcurrentMap<String, ConcurrentMap<Integer, String>> processDefinitionVersionIds = new ConcurrentHashMap<String, ConcurrentMap<Integer, String>>();
+  /** process definition key -> id of the latest version */
+  protected ConcurrentMap<String, String> latestProcessDefinitionIds = new ConcurrentHashMap<String, String>();
+  protected List<ProcessDefinitionCacheListener> processDefinitionCacheListeners;
+  protected AtomicLong processDefinitionCacheHitCount = new AtomicLong();
+  protected AtomicLong processDefinitionCacheMissCount = new AtomicLong();
+  /** deployment id -> lock, so concurrent cache misses of one deployment parse it only once */
+  protected ConcurrentMap<String, Object> deploymentLoadLocks = new ConcurrentHashMap<String, Object>();
+  protected AtomicLong processDefinitionLoadCount = new AtomicLong();
+  protected AtomicLong processDefinitionLoadTime = new AtomicLong();
+  
   public void deploy(DeploymentEntity deployment) {
     for (Deployer deployer: deployers) {
       deployer.deploy(deployment);
     }
+    if (deployment.isNew()) {
+      List<ProcessDefinitionEntity> processDefinitions = deployment.getDeployedArtifacts(ProcessDefinitionEntity.class);
+      if (processDefinitions != null) {
+        for (ProcessDefinitionEntity processDefinition : processDefinitions) {
+          indexProcessDefinitionAfterCommit(processDefinition);
+          processDefinitionsChanged(processDefinition.getKey());
+        }
+      }
+    }
   }
 
   public ProcessDefinitionEntity findDeployedProcessDefinitionById(String processDefinitionId) {
     if (processDefinitionId == null) {
       throw new ActivitiIllegalArgumentException("Invalid process definition id : null");
     }
+    if (secondLevelCacheEnabled) {
+      ProcessDefinitionEntity cachedProcessDefinition = processDefinitionCache.get(processDefinitionId);
+      if (cachedProcessDefinition != null) {
+        processDefinitionCacheHitCount.incrementAndGet();
+        return cachedProcessDefinition;
+      }
+      processDefinitionCacheMissCount.incrementAndGet();
+    }
     ProcessDefinitionEntity processDefinition = Context
       .getCommandContext()
       .getProcessDefinitionEntityManager()
@@ -55,10 +97,19 @@ public class DeploymentManager {
       throw new ActivitiObjectNotFoundException("no deployed process definition found with id '" + processDefinitionId + "'", ProcessDefinition.class);
     }
     processDefinition = resolveProcessDefinition(processDefinition);
+    indexProcessDefinitionAfterCommit(processDefinition);
     return processDefinition;
   }
 
   public ProcessDefinitionEntity findDeployedLatestProcessDefinitionByKey(String processDefinitionKey) {
+    if (secondLevelCacheEnabled && processDefinitionKey != null) {
+      ProcessDefinitionEntity cachedProcessDefinition = getCachedProcessDefinition(latestProcessDefinitionIds.get(processDefinitionKey));
+      if (cachedProcessDefinition != null) {
+        processDefinitionCacheHitCount.incrementAndGet();
+        return cachedProcessDefinition;
+      }
+      processDefinitionCacheMissCount.incrementAndGet();
+    }
     ProcessDefinitionEntity processDefinition = Context
       .getCommandContext()
       .getProcessDefinitionEntityManager()
@@ -67,10 +118,20 @@ public class DeploymentManager {
       throw new ActivitiObjectNotFoundException("no processes deployed with key '"+processDefinitionKey+"'", ProcessDefinition.class);
     }
     processDefinition = resolveProcessDefinition(processDefinition);
+    indexProcessDefinitionAfterCommit(processDefinition);
     return processDefinition;
   }
 
   public ProcessDefinitionEntity findDeployedProcessDefinitionByKeyAndVersion(String processDefinitionKey, Integer processDefinitionVersion) {
+    if (secondLevelCacheEnabled && processDefinitionKey != null && processDefinitionVersion != null) {
+      Map<Integer, String> versionIds = processDefinitionVersionIds.get(processDefinitionKey);
+      ProcessDefinitionEntity cachedProcessDefinition = versionIds != null ? getCachedProcessDefinition(versionIds.get(processDefinitionVersion)) : null;
+      if (cachedProcessDefinition != null) {
+        processDefinitionCacheHitCount.incrementAndGet();
+        return cachedProcessDefinition;
+      }
+      processDefinitionCacheMissCount.incrementAndGet();
+    }
     ProcessDefinitionEntity processDefinition = (ProcessDefinitionEntity) Context
       .getCommandContext()
       .getProcessDefinitionEntityManager()
@@ -79,21 +140,197 @@ public class DeploymentManager {
       throw new ActivitiObjectNotFoundException("no processes deployed with key = '" + processDefinitionKey + "' and version = '" + processDefinitionVersion + "'", ProcessDefinition.class);
     }
     processDefinition = resolveProcessDefinition(processDefinition);
+    indexProcessDefinitionAfterCommit(processDefinition);
     return processDefinition;
   }
+  
+  protected ProcessDefinitionEntity getCachedProcessDefinition(String processDefinitionId) {
+    if (processDefinitionId == null) {
+      return null;
+    }
+    return processDefinitionCache.get(processDefinitionId);
+  }
+  
+  /**
+   * Indexes the process definition once the current transaction has committed. A definition read
+   * or deployed by a transaction that rolls back, or that still sees a deployment being removed
+   * by another transaction, must not get into the shared key and version index.
+   */
+  protected void indexProcessDefinitionAfterCommit(final ProcessDefinitionEntity processDefinition) {
+    if (!secondLevelCacheEnabled) {
+      return;
+    }
+    afterCommit(new TransactionListener() {
+      public void execute(CommandContext commandContext) {
+        indexProcessDefinition(processDefinition);
+      }
+    });
+  }
+  
+  /** runs the listener when the current transaction has committed, right away outside of a command */
+  protected void afterCommit(TransactionListener transactionListener) {
+    CommandContext commandContext = Context.getCommandContext();
+    if (commandContext == null) {
+      transactionListener.execute(null);
+    } else {
+      commandContext.getTransactionContext().addTransactionListener(TransactionState.COMMITTED, transactionListener);
+    }
+  }
+  
+  /**
+   * registers the process definition in the key and version index of the second level cache.
+   * The latest id of a key is only ever replaced by a higher version, so a stale read
+   * racing with a deployment can't push the new version out again.
+   */
+  protected void indexProcessDefinition(ProcessDefinitionEntity processDefinition) {
+    if (!secondLevelCacheEnabled || processDefinition.getKey() == null) {
+      return;
+    }
+    String processDefinitionKey = processDefinition.getKey();
+    ConcurrentMap<Integer, String> versionIds = processDefinitionVersionIds.get(processDefinitionKey);
+    if (versionIds == null) {
+      versionIds = new ConcurrentHashMap<Integer, String>();
+      ConcurrentMap<Integer, String> existing = processDefinitionVersionIds.putIfAbsent(processDefinitionKey, versionIds);
+      if (existing != null) {
+        versionIds = existing;
+      }
+    }
+    versionIds.put(processDefinition.getVersion(), processDefinition.getId());
+    
+    if (processDefinition.getVersion() < getLatestVersion(processDefinitionKey)) {
+      return;
+    }
+    while (true) {
+      String latestId = latestProcessDefinitionIds.get(processDefinitionKey);
+      if (latestId == null) {
+        if (latestProcessDefinitionIds.putIfAbsent(processDefinitionKey, processDefinition.getId()) == null) {
+          return;
+        }
+      } else {
+        if (latestId.equals(processDefinition.getId()) || processDefinition.getVersion() < versionOf(versionIds, latestId)) {
+          return;
+        }
+        if (latestProcessDefinitionIds.replace(processDefinitionKey, latestId, processDefinition.getId())) {
+          return;
+        }
+      }
+    }
+  }
+  
+  protected int getLatestVersion(String processDefinitionKey) {
+    String latestId = latestProcessDefinitionIds.get(processDefinitionKey);
+    Map<Integer, String> versionIds = processDefinitionVersionIds.get(processDefinitionKey);
+    if (latestId == null || versionIds == null) {
+      return -1;
+    }
+    return versionOf(versionIds, latestId);
+  }
+  
+  protected int versionOf(Map<Integer, String> versionIds, String processDefinitionId) {
+    for (Map.Entry<Integer, String> entry : versionIds.entrySet()) {
+      if (entry.getValue().equals(processDefinitionId)) {
+        return entry.getKey();
+      }
+    }
+    return -1;
+  }
+  
+  /**
+   * Drops the cached process definitions of the given key and their key and version index entries,
+   * they are loaded again from the database on the next lookup.
+   * Called locally on rollback of a deployment, on commit of a deployment removal and by cluster nodes receiving a 
+   * {@link ProcessDefinitionCacheListener} notification of another node.
+   */
+  public void invalidateProcessDefinitionKey(String processDefinitionKey) {
+    latestProcessDefinitionIds.remove(processDefinitionKey);
+    Map<Integer, String> versionIds = processDefinitionVersionIds.remove(processDefinitionKey);
+    if (versionIds != null) {
+      for (String processDefinitionId : versionIds.values()) {
+        processDefinitionCache.remove(processDefinitionId);
+      }
+    }
+  }
+  
+  /**
+   * Evicts a process definition whose persistent state changed (e.g. suspension state) from the cache.
+   */
+  public void removeProcessDefinition(ProcessDefinitionEntity processDefinition) {
+    processDefinitionCache.remove(processDefinition.getId());
+    processDefinitionsChanged(processDefinition.getKey());
+  }
+  
+  /**
+   * Invalidates the key locally if the current transaction rolls back and notifies the
+   * {@link ProcessDefinitionCacheListener}s once it is committed.
+   */
+  protected void processDefinitionsChanged(final String processDefinitionKey) {
+    if (processDefinitionKey == null) {
+      return;
+    }
+    CommandContext commandContext = Context.getCommandContext();
+    if (commandContext == null) {
+      invalidateProcessDefinitionKey(processDefinitionKey);
+      notifyProcessDefinitionCacheListeners(processDefinitionKey);
+      return;
+    }
+    if (secondLevelCacheEnabled) {
+      commandContext.getTransactionContext().addTransactionListener(TransactionState.ROLLED_BACK, new TransactionListener() {
+        public void execute(CommandContext commandContext) {
+          invalidateProcessDefinitionKey(processDefinitionKey);
+        }
+      });
+    }
+    if (processDefinitionCacheListeners != null && !processDefinitionCacheListeners.isEmpty()) {
+      commandContext.getTransactionContext().addTransactionListener(TransactionState.COMMITTED, new TransactionListener() {
+        public void execute(CommandContext commandContext) {
+          notifyProcessDefinitionCacheListeners(processDefinitionKey);
+        }
+      });
+    }
+  }
+  
+  protected void notifyProcessDefinitionCacheListeners(String processDefinitionKey) {
+    if (processDefinitionCacheListeners == null) {
+      return;
+    }
+    for (ProcessDefinitionCacheListener listener : processDefinitionCacheListeners) {
+      listener.processDefinitionsChanged(processDefinitionKey);
+    }
+  }
 
   public ProcessDefinitionEntity resolveProcessDefinition(ProcessDefinitionEntity processDefinition) {
     String processDefinitionId = processDefinition.getId();
     String deploymentId = processDefinition.getDeploymentId();
     processDefinition = processDefinitionCache.get(processDefinitionId);
     if (processDefinition==null) {
-      DeploymentEntity deployment = Context
-        .getCommandContext()
-        .getDeploymentEntityManager()
-        .findDeploymentById(deploymentId);
-      deployment.setNew(false);
-      deploy(deployment);
-      processDefinition = processDefinitionCache.get(processDefinitionId);
+      Object lock = deploymentLoadLocks.get(deploymentId);
+      if (lock == null) {
+        lock = new Object();
+        Object existing = deploymentLoadLocks.putIfAbsent(deploymentId, lock);
+        if (existing != null) {
+          lock = existing;
+        }
+      }
+      try {
+        synchronized (lock) {
+          // another thread may have parsed the deployment while we were waiting
+          processDefinition = processDefinitionCache.get(processDefinitionId);
+          if (processDefinition==null) {
+            long start = System.nanoTime();
+            DeploymentEntity deployment = Context
+              .getCommandContext()
+              .getDeploymentEntityManager()
+              .findDeploymentById(deploymentId);
+            deployment.setNew(false);
+            deploy(deployment);
+            processDefinitionLoadCount.incrementAndGet();
+            processDefinitionLoadTime.addAndGet(System.nanoTime() - start);
+            processDefinition = processDefinitionCache.get(processDefinitionId);
+          }
+        }
+      } finally {
+        deploymentLoadLocks.remove(deploymentId, lock);
+      }
       
       if (processDefinition==null) {
         throw new ActivitiException("deployment '"+deploymentId+"' didn't put process definition '"+processDefinitionId+"' in the cache");
@@ -113,8 +350,28 @@ public class DeploymentManager {
     List<ProcessDefinition> processDefinitions = new ProcessDefinitionQueryImpl(Context.getCommandContext())
             .deploymentId(deploymentId)
             .list();
+    final List<String> processDefinitionIds = new ArrayList<String>();
+    final List<String> processDefinitionKeys = new ArrayList<String>();
     for (ProcessDefinition processDefinition : processDefinitions) {
       processDefinitionCache.remove(processDefinition.getId());
+      processDefinitionIds.add(processDefinition.getId());
+      if (!processDefinitionKeys.contains(processDefinition.getKey())) {
+        processDefinitionKeys.add(processDefinition.getKey());
+      }
+    }
+    // lookups running before the commit may cache and index the definitions again from the database
+    afterCommit(new TransactionListener() {
+      public void execute(CommandContext commandContext) {
+        for (String processDefinitionKey : processDefinitionKeys) {
+          invalidateProcessDefinitionKey(processDefinitionKey);
+        }
+        for (String processDefinitionId : processDefinitionIds) {
+          processDefinitionCache.remove(processDefinitionId);
+        }
+      }
+    });
+    for (String processDefinitionKey : processDefinitionKeys) {
+      processDefinitionsChanged(processDefinitionKey);
     }
     
     // Delete data
@@ -146,5 +403,39 @@ public class DeploymentManager {
   public void setKnowledgeBaseCache(DeploymentCache<Object> knowledgeBaseCache) {
     this.knowledgeBaseCache = knowledgeBaseCache;
   }
+
+  public boolean isSecondLevelCacheEnabled() {
+    return secondLevelCacheEnabled;
+  }
+
+  public void setSecondLevelCacheEnabled(boolean secondLevelCacheEnabled) {
+    this.secondLevelCacheEnabled = secondLevelCacheEnabled;
+  }
+
+  public List<ProcessDefinitionCacheListener> getProcessDefinitionCacheListeners() {
+    return processDefinitionCacheListeners;
+  }
+
+  public void setProcessDefinitionCacheListeners(List<ProcessDefinitionCacheListener> processDefinitionCacheListeners) {
+    this.processDefinitionCacheListeners = processDefinitionCacheListeners;
+  }
+
+  public long getProcessDefinitionCacheHitCount() {
+    return processDefinitionCacheHitCount.get();
+  }
+
+  public long getProcessDefinitionCacheMissCount() {
+    return processDefinitionCacheMissCount.get();
+  }
+
+  /** number of times a deployment had to be parsed again because of a processDefinitionCache miss */
+  public long getProcessDefinitionLoadCount() {
+    return processDefinitionLoadCount.get();
+  }
+
+  /** nanoseconds spent parsing deployments again after processDefinitionCache misses */
+  public long getProcessDefinitionLoadTime() {
+    return processDefinitionLoadTime.get();
+  }
   
 }
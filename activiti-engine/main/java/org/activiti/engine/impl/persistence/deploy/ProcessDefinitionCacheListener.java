@@ -0,0 +1,29 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.impl.persistence.deploy;
+
+
+/**
+ * Invalidation hook of the process definition second level cache in the {@link DeploymentManager}.
+ * 
+ * Called after the transaction that deployed, deleted, suspended or activated process definitions
+ * of the given key has been committed. In a cluster an implementation broadcasts the key to the
+ * other nodes, which call {@link DeploymentManager#invalidateProcessDefinitionKey(String)}.
+ * 
+ * @author biaoping.yin
+ */
+public interface ProcessDefinitionCacheListener {
+
+  void processDefinitionsChanged(String processDefinitionKey);
+  
+}
@@ -0,0 +1,41 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.impl.persistence.deploy;
+
+import java.util.List;
+
+import org.activiti.engine.impl.persistence.entity.ProcessDefinitionEntity;
+import org.activiti.engine.impl.pvm.process.ActivityImpl;
+
+
+/**
+ * Weighs a parsed process definition by the number of activities and outgoing 
+ * transitions, nested scopes included.
+ * 
+ * @author biaoping.yin
+ */
+public class ProcessDefinitionWeigher implements DeploymentCacheWeigher<ProcessDefinitionEntity> {
+
+  public int weigh(String id, ProcessDefinitionEntity processDefinition) {
+    return 1 + weigh(processDefinition.getActivities());
+  }
+  
+  protected int weigh(List<ActivityImpl> activities) {
+    int weight = 0;
+    for (ActivityImpl activity : activities) {
+      weight += 1 + activity.getOutgoingTransitions().size() + weigh(activity.getActivities());
+    }
+    return weight;
+  }
+  
+}
@@ -2,9 +2,11 @@ package org.activiti.engine.impl.persistence.entity;
 
 import java.sql.Timestamp;
 
+import org.activiti.engine.impl.db.PersistentObject;
+
 import com.frameworkset.orm.annotation.PrimaryKey;
 
-public class CopyHistoryTaskEntity {
+public class CopyHistoryTaskEntity implements PersistentObject {
 	@PrimaryKey
 	private String id;
 	private String copyid;
@@ -112,4 +114,10 @@ public class CopyHistoryTaskEntity {
 	public void setTasktype(int tasktype) {
 		this.tasktype = tasktype;
 	}
+	/**
+	 * 阅读记录只插入
+	 */
+	public Object getPersistentState() {
+		return CopyHistoryTaskEntity.class;
+	}
 }
@@ -2,9 +2,11 @@ package org.activiti.engine.impl.persistence.entity;
 
 import java.sql.Timestamp;
 
+import org.activiti.engine.impl.db.PersistentObject;
+
 import com.frameworkset.orm.annotation.PrimaryKey;
 
-public class CopyTaskEntity {
+public class CopyTaskEntity implements PersistentObject {
 	@PrimaryKey
 	private String id;
     private int copertype;
@@ -99,5 +101,11 @@ public class CopyTaskEntity {
 	public void setTasktype(int tasktype) {
 		this.tasktype = tasktype;
 	}
+	/**
+	 * 抄送任务创建后不再修改，只会被删除
+	 */
+	public Object getPersistentState() {
+		return CopyTaskEntity.class;
+	}
 
 }
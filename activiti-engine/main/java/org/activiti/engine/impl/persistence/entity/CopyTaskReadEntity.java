@@ -0,0 +1,62 @@
+package org.activiti.engine.impl.persistence.entity;
+
+import org.activiti.engine.impl.db.PersistentObject;
+
+/**
+ * 用户抄送阅读索引（TD_WF_COPYTASK_READ），每个用户在一个活动任务上的直接抄送记录和阅读记录各一条，
+ * 查询用户的机构抄送任务时通过主键排除用户已有直接抄送或已经阅读的活动任务，不需要对每条机构抄送
+ * 任务执行td_wf_copytask和td_wf_hi_copytask的关联子查询
+ * @author biaoping.yin
+ *
+ */
+public class CopyTaskReadEntity implements PersistentObject {
+	/**
+	 * 用户有直接抄送任务
+	 */
+	public static final int READTYPE_COPY = 0;
+	/**
+	 * 用户已经阅读
+	 */
+	public static final int READTYPE_READ = 1;
+	
+	private String coper;
+	private String act_instid;
+	private int readtype;
+	
+	public CopyTaskReadEntity() {
+	}
+	
+	public CopyTaskReadEntity(String coper, String act_instid, int readtype) {
+		this.coper = coper;
+		this.act_instid = act_instid;
+		this.readtype = readtype;
+	}
+	public String getId() {
+		return coper + "|" + act_instid + "|" + readtype;
+	}
+	public void setId(String id) {
+		
+	}
+	public Object getPersistentState() {
+		return CopyTaskReadEntity.class;
+	}
+	public String getCoper() {
+		return coper;
+	}
+	public void setCoper(String coper) {
+		this.coper = coper;
+	}
+	public String getAct_instid() {
+		return act_instid;
+	}
+	public void setAct_instid(String act_instid) {
+		this.act_instid = act_instid;
+	}
+	public int getReadtype() {
+		return readtype;
+	}
+	public void setReadtype(int readtype) {
+		this.readtype = readtype;
+	}
+
+}
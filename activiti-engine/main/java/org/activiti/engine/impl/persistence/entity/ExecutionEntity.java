@@ -14,6 +14,7 @@
 package org.activiti.engine.impl.persistence.entity;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -23,8 +24,10 @@ import org.activiti.engine.EngineServices;
 import org.activiti.engine.impl.TaskContext;
 import org.activiti.engine.impl.bpmn.parser.BpmnParse;
 import org.activiti.engine.impl.bpmn.parser.EventSubscriptionDeclaration;
+import org.activiti.engine.impl.cfg.ProcessEngineConfigurationImpl;
 import org.activiti.engine.impl.context.Context;
 import org.activiti.engine.impl.db.DbSqlSession;
+import org.activiti.engine.impl.db.HasDirtyState;
 import org.activiti.engine.impl.db.HasRevision;
 import org.activiti.engine.impl.db.PersistentObject;
 import org.activiti.engine.impl.interceptor.CommandContext;
@@ -63,7 +66,7 @@ import org.slf4j.LoggerFactory;
  * @author Saeid Mirzaei
  */
 
-public class ExecutionEntity extends VariableScopeImpl implements ActivityExecution, ExecutionListenerExecution, Execution, PvmExecution, ProcessInstance, InterpretableExecution, PersistentObject, HasRevision {
+public class ExecutionEntity extends VariableScopeImpl implements ActivityExecution, ExecutionListenerExecution, Execution, PvmExecution, ProcessInstance, InterpretableExecution, PersistentObject, HasRevision, HasDirtyState {
 
   private static final long serialVersionUID = 1L;
   
@@ -103,6 +106,9 @@ public class ExecutionEntity extends VariableScopeImpl implements ActivityExecut
   /** reference to a subprocessinstance, not-null if currently subprocess is started from this execution */
   protected ExecutionEntity subProcessInstance;
   
+  /** set when the execution tree was bulk loaded, a null subProcessInstance then means there is none */
+  protected boolean subProcessInstanceInitialized = false;
+  
   protected StartingExecution startingExecution;
   
   // state/type of execution ////////////////////////////////////////////////// 
@@ -136,6 +142,9 @@ public class ExecutionEntity extends VariableScopeImpl implements ActivityExecut
   protected List<IdentityLinkEntity> identityLinks;
   protected int cachedEntityState;
   
+  /** set when a field of the persistent state changed, see {@link HasDirtyState} */
+  protected boolean dirty;
+  
   // cascade deletion ////////////////////////////////////////////////////////
   
   protected boolean deleteRoot;
@@ -342,6 +351,7 @@ public class ExecutionEntity extends VariableScopeImpl implements ActivityExecut
    * if there is a parent, this method removes the bidirectional relation 
    * between parent and this execution. */
   public void end() {
+    markDirty(isActive, false);
     isActive = false;
     isEnded = true;
     performOperation(AtomicOperation.ACTIVITY_END);
@@ -481,6 +491,47 @@ public class ExecutionEntity extends VariableScopeImpl implements ActivityExecut
   
   
   
+  /**
+   * variant of {@link #findInactiveConcurrentExecutions(PvmActivity)} for the counter based 
+   * parallel gateway join: only the executions of the concurrent root that are positioned in 
+   * the activity are loaded, unless the children of the concurrent root are loaded already.
+   */
+  public List<ActivityExecution> findInactiveConcurrentExecutionsInActivity(PvmActivity activity) {
+    List<ActivityExecution> inactiveConcurrentExecutionsInActivity = new ArrayList<ActivityExecution>();
+    if (!isConcurrent()) {
+      if (!isActive()) {
+        inactiveConcurrentExecutionsInActivity.add(this);
+      }
+      return inactiveConcurrentExecutionsInActivity;
+    }
+    ExecutionEntity concurrentRoot = getParent();
+    List<ExecutionEntity> concurrentExecutions = concurrentRoot.executions;
+    if (concurrentExecutions==null) {
+      concurrentExecutions = new ArrayList<ExecutionEntity>(Context
+        .getCommandContext()
+        .getExecutionEntityManager()
+        .findChildExecutionsByParentExecutionIdAndActivityId(concurrentRoot.getId(), activity.getId()));
+      // the rows of the executions that moved in this command (at least this one) are not flushed 
+      // yet and still have their previous activity: add the concurrent executions of the cache
+      DbSqlSession dbSqlSession = Context.getCommandContext().getDbSqlSession();
+      for (ExecutionEntity cachedExecution: dbSqlSession.findInCache(ExecutionEntity.class)) {
+        if (concurrentRoot.getId().equals(cachedExecution.getParentId()) && !concurrentExecutions.contains(cachedExecution)) {
+          concurrentExecutions.add(cachedExecution);
+        }
+      }
+      concurrentExecutions = dbSqlSession.pruneDeletedEntities(concurrentExecutions);
+    }
+    for (ExecutionEntity concurrentExecution: concurrentExecutions) {
+      if (concurrentExecution.getActivity()==activity && !concurrentExecution.isActive()) {
+        inactiveConcurrentExecutionsInActivity.add(concurrentExecution);
+      }
+    }
+    if (log.isDebugEnabled()) {
+      log.debug("inactive concurrent executions in '{}': {}", activity, inactiveConcurrentExecutionsInActivity);
+    }
+    return inactiveConcurrentExecutionsInActivity;
+  }
+  
   protected List<ExecutionEntity> getAllChildExecutions() {
     List<ExecutionEntity> childExecutions = new ArrayList<ExecutionEntity>();
     for (ExecutionEntity childExecution : getExecutions()) {
@@ -775,6 +826,7 @@ public class ExecutionEntity extends VariableScopeImpl implements ActivityExecut
   }
 
   public void inactivate() {
+    markDirty(this.isActive, false);
     this.isActive = false;
   }
   
@@ -788,6 +840,9 @@ public class ExecutionEntity extends VariableScopeImpl implements ActivityExecut
 
   @SuppressWarnings({ "unchecked", "rawtypes" })
   protected void ensureExecutionsInitialized() {
+    if (executions==null) {
+      ensureExecutionTreeInitialized();
+    }
     if (executions==null) {
       this.executions = (List) Context
         .getCommandContext()
@@ -841,6 +896,7 @@ public class ExecutionEntity extends VariableScopeImpl implements ActivityExecut
   }
   
   public void setBusinessKey(String businessKey) {
+    markDirty(this.businessKey, businessKey);
     this.businessKey = businessKey;
   }
   
@@ -857,6 +913,7 @@ public class ExecutionEntity extends VariableScopeImpl implements ActivityExecut
   }
   
   public void setProcessDefinitionId(String processDefinitionId) {
+    markDirty(this.processDefinitionId, processDefinitionId);
     this.processDefinitionId = processDefinitionId;
   }
 
@@ -877,6 +934,7 @@ public class ExecutionEntity extends VariableScopeImpl implements ActivityExecut
 
   public void setProcessDefinition(ProcessDefinitionImpl processDefinition) {
     this.processDefinition = processDefinition;
+    markDirty(this.processDefinitionId, processDefinition.getId());
     this.processDefinitionId = processDefinition.getId();
   }
 
@@ -889,6 +947,9 @@ public class ExecutionEntity extends VariableScopeImpl implements ActivityExecut
   }
   
   protected void ensureProcessInstanceInitialized() {
+    if ((processInstance == null) && (processInstanceId != null)) {
+      ensureExecutionTreeInitialized();
+    }
     if ((processInstance == null) && (processInstanceId != null)) {
       processInstance =  Context
         .getCommandContext()
@@ -926,9 +987,11 @@ public class ExecutionEntity extends VariableScopeImpl implements ActivityExecut
   public void setActivity(ActivityImpl activity) {
     this.activity = activity;
     if (activity != null) {
+      markDirty(this.activityId, activity.getId());
       this.activityId = activity.getId();
       this.activityName = (String) activity.getProperty("name");
     } else {
+      markDirty(this.activityId, null);
       this.activityId = null;
       this.activityName = null;
     }
@@ -943,6 +1006,9 @@ public class ExecutionEntity extends VariableScopeImpl implements ActivityExecut
   }
 
   protected void ensureParentInitialized() {
+    if (parent == null && parentId != null) {
+      ensureExecutionTreeInitialized();
+    }
     if (parent == null && parentId != null) {
       parent = Context
         .getCommandContext()
@@ -955,8 +1021,10 @@ public class ExecutionEntity extends VariableScopeImpl implements ActivityExecut
     this.parent = (ExecutionEntity) parent;
 
     if (parent != null) {
+      markDirty(this.parentId, ((ExecutionEntity)parent).getId());
       this.parentId = ((ExecutionEntity)parent).getId();
     } else {
+      markDirty(this.parentId, null);
       this.parentId = null;
     }
   }
@@ -979,8 +1047,10 @@ public class ExecutionEntity extends VariableScopeImpl implements ActivityExecut
     }
     
     if (superExecution != null) {
+      markDirty(this.superExecutionId, superExecution.getId());
       this.superExecutionId = ((ExecutionEntity)superExecution).getId();
     } else {
+      markDirty(this.superExecutionId, null);
       this.superExecutionId = null;
     }
   }
@@ -1004,7 +1074,10 @@ public class ExecutionEntity extends VariableScopeImpl implements ActivityExecut
   }
 
   protected void ensureSubProcessInstanceInitialized() {
-    if (subProcessInstance == null) {
+    if (subProcessInstance == null && !subProcessInstanceInitialized) {
+      ensureExecutionTreeInitialized();
+    }
+    if (subProcessInstance == null && !subProcessInstanceInitialized) {
       subProcessInstance = Context
         .getCommandContext()
         .getExecutionEntityManager()
@@ -1012,6 +1085,20 @@ public class ExecutionEntity extends VariableScopeImpl implements ActivityExecut
     }
   }
   
+  /** loads all executions of the process instance with one query when execution tree prefetching is enabled */
+  protected void ensureExecutionTreeInitialized() {
+    if (processInstanceId == null) {
+      return;
+    }
+    ProcessEngineConfigurationImpl processEngineConfiguration = Context.getProcessEngineConfiguration();
+    if (processEngineConfiguration!=null && processEngineConfiguration.isExecutionTreePrefetchEnabled()) {
+      Context
+        .getCommandContext()
+        .getExecutionEntityManager()
+        .ensureExecutionTreeInitialized(processInstanceId);
+    }
+  }
+  
   // scopes ///////////////////////////////////////////////////////////////////
   
   protected ScopeImpl getScope() {
@@ -1029,6 +1116,7 @@ public class ExecutionEntity extends VariableScopeImpl implements ActivityExecut
   }
 
   public void setScope(boolean isScope) {
+    markDirty(this.isScope, isScope);
     this.isScope = isScope;
   }
   
@@ -1059,6 +1147,9 @@ public class ExecutionEntity extends VariableScopeImpl implements ActivityExecut
     
     // remove identity links
     removeIdentityLinks();
+    
+    // remove the parallel gateway join counters of the process instance
+    removeJoinCounters();
 
     this.taskContext = null;
     // finally delete this execution
@@ -1087,6 +1178,20 @@ public class ExecutionEntity extends VariableScopeImpl implements ActivityExecut
     // Daniel thought this would be needed, but it seems not: removeEventSubscriptions();
   } 
     
+  /**
+   * Also done while the join counters are switched off, the counters of joins that were 
+   * waiting when they were switched off would otherwise stay behind.
+   */
+  private void removeJoinCounters() {
+    if (!isProcessInstance()) {
+      return;
+    }
+    DbSqlSession dbSqlSession = Context.getCommandContext().getDbSqlSession();
+    if (Context.getProcessEngineConfiguration().isParallelJoinCounterEnabled() || dbSqlSession.isJoinCounterTablePresent()) {
+      dbSqlSession.delete("deleteJoinCountersByProcessInstanceId", id);
+    }
+  }
+    
   private void removeEventScopes() {
     List<InterpretableExecution> childExecutions = new ArrayList<InterpretableExecution>(getExecutions());
     for (InterpretableExecution childExecution : childExecutions) {
@@ -1230,6 +1335,14 @@ public class ExecutionEntity extends VariableScopeImpl implements ActivityExecut
       .findVariableInstancesByExecutionId(id);
   }
 
+  @Override
+  protected List<VariableInstanceEntity> loadVariableInstances(Collection<String> variableNames) {
+    return Context
+      .getCommandContext()
+      .getVariableInstanceEntityManager()
+      .findVariableInstancesByExecutionIdAndNames(id, variableNames);
+  }
+
   @Override
   protected VariableScopeImpl getParentVariableScope() {
     return getParent();
@@ -1287,6 +1400,7 @@ public class ExecutionEntity extends VariableScopeImpl implements ActivityExecut
   }
   
   public void forceUpdate() {
+    markDirty(this.forcedUpdate, true);
     this.forcedUpdate = true;
   }
   
@@ -1461,6 +1575,22 @@ public class ExecutionEntity extends VariableScopeImpl implements ActivityExecut
       .deleteIdentityLinksByProcInstance(id);
   }
   
+  // dirty tracking ///////////////////////////////////////////////////////////
+
+  protected void markDirty(Object oldValue, Object newValue) {
+    if (oldValue==null ? newValue!=null : !oldValue.equals(newValue)) {
+      dirty = true;
+    }
+  }
+  
+  public boolean isDirty() {
+    return dirty;
+  }
+  
+  public void setDirty(boolean dirty) {
+    this.dirty = dirty;
+  }
+
   // getters and setters //////////////////////////////////////////////////////
   
   
@@ -1481,6 +1611,7 @@ public class ExecutionEntity extends VariableScopeImpl implements ActivityExecut
   }
     
   public int getCachedEntityState() {
+    int previousCachedEntityState = cachedEntityState;
     cachedEntityState = 0;
     
     // Only mark a flag as false when the list is not-null and empty. If null, we can't be sure there are no entries in it since
@@ -1488,6 +1619,7 @@ public class ExecutionEntity extends VariableScopeImpl implements ActivityExecut
     cachedEntityState = BitMaskUtil.setBit(cachedEntityState, TASKS_STATE_BIT, (tasks == null || tasks.size() > 0));
     cachedEntityState = BitMaskUtil.setBit(cachedEntityState, EVENT_SUBSCRIPTIONS_STATE_BIT, (eventSubscriptions == null || eventSubscriptions.size() > 0));
     cachedEntityState = BitMaskUtil.setBit(cachedEntityState, JOBS_STATE_BIT, (jobs == null || jobs.size() > 0));
+    markDirty(previousCachedEntityState, cachedEntityState);
     
     return cachedEntityState;
   }
@@ -1499,6 +1631,7 @@ public class ExecutionEntity extends VariableScopeImpl implements ActivityExecut
     return parentId;
   }
   public void setParentId(String parentId) {
+    markDirty(this.parentId, parentId);
     this.parentId = parentId;
   }
   public String getId() {
@@ -1539,12 +1672,14 @@ public class ExecutionEntity extends VariableScopeImpl implements ActivityExecut
     return isConcurrent;
   }
   public void setConcurrent(boolean isConcurrent) {
+    markDirty(this.isConcurrent, isConcurrent);
     this.isConcurrent = isConcurrent;
   }
   public boolean isActive() {
     return isActive;
   }
   public void setActive(boolean isActive) {
+    markDirty(this.isActive, isActive);
     this.isActive = isActive;
   }
   public boolean isEnded() {
@@ -1577,6 +1712,7 @@ public class ExecutionEntity extends VariableScopeImpl implements ActivityExecut
   }
     
   public void setSuspensionState(int suspensionState) {
+    markDirty(this.suspensionState, suspensionState);
     this.suspensionState = suspensionState;
   }
   
@@ -1589,6 +1725,7 @@ public class ExecutionEntity extends VariableScopeImpl implements ActivityExecut
   }
 
   public void setEventScope(boolean isEventScope) {
+    markDirty(this.isEventScope, isEventScope);
     this.isEventScope = isEventScope;
   }
   
@@ -13,14 +13,19 @@
 
 package org.activiti.engine.impl.persistence.entity;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.activiti.engine.ActivitiObjectNotFoundException;
 import org.activiti.engine.impl.AbstractVariableQueryImpl;
 import org.activiti.engine.impl.Page;
 import org.activiti.engine.impl.context.Context;
+import org.activiti.engine.impl.db.DbSqlSession;
 import org.activiti.engine.impl.interceptor.CommandContext;
 import org.activiti.engine.impl.persistence.AbstractManager;
 import org.activiti.engine.runtime.Execution;
@@ -32,6 +37,9 @@ import org.activiti.engine.runtime.ProcessInstance;
  */
 public class ExecutionEntityManager extends AbstractManager {
   
+  /** process instances whose execution tree has been bulk loaded in this command */
+  protected Set<String> initializedExecutionTrees = new HashSet<String>();
+  
   @SuppressWarnings("unchecked")
   public void deleteProcessInstancesByProcessDefinition(String processDefinitionId, String deleteReason, boolean cascade,String bussinessOperation,String bussinessRemark) {
     List<String> processInstanceIds = getDbSqlSession()
@@ -87,11 +95,87 @@ public class ExecutionEntityManager extends AbstractManager {
     return getDbSqlSession().selectList("selectExecutionsByParentExecutionId", parentExecutionId);
   }
   
+  @SuppressWarnings("unchecked")
+  public List<ExecutionEntity> findChildExecutionsByParentExecutionIdAndActivityId(String parentExecutionId, String activityId) {
+    Map<String, String> parameters = new HashMap<String, String>();
+    parameters.put("parentId", parentExecutionId);
+    parameters.put("activityId", activityId);
+    return getDbSqlSession().selectList("selectExecutionsByParentExecutionIdAndActivityId", parameters);
+  }
+  
   @SuppressWarnings("unchecked")
   public List<ExecutionEntity> findChildExecutionsByProcessInstanceId(String processInstanceId) {
     return getDbSqlSession().selectList("selectExecutionsByProcessInstanceId", processInstanceId);
   }
 
+  /**
+   * loads all executions of a process instance, plus the sub process instances started from them, 
+   * with one query and wires the parent, child, process instance, super and sub process instance 
+   * references in memory. The loaded executions are registered in the {@link DbSqlSession} cache by 
+   * the select, so later lookups by id are served from the cache as well. References that are 
+   * already initialized are left untouched.
+   */
+  @SuppressWarnings("unchecked")
+  public void ensureExecutionTreeInitialized(String processInstanceId) {
+    if (!initializedExecutionTrees.add(processInstanceId)) {
+      return;
+    }
+    DbSqlSession dbSqlSession = getDbSqlSession();
+    List<ExecutionEntity> loadedExecutions = dbSqlSession.pruneDeletedEntities(
+            (List<ExecutionEntity>) dbSqlSession.selectList("selectExecutionTreeByProcessInstanceId", processInstanceId));
+    
+    Map<String, ExecutionEntity> tree = new LinkedHashMap<String, ExecutionEntity>();
+    List<ExecutionEntity> subProcessInstances = new ArrayList<ExecutionEntity>();
+    for (ExecutionEntity execution: loadedExecutions) {
+      if (processInstanceId.equals(execution.getProcessInstanceId())) {
+        tree.put(execution.getId(), execution);
+      } else {
+        subProcessInstances.add(execution);
+      }
+    }
+    
+    Map<String, List<ExecutionEntity>> childExecutions = new HashMap<String, List<ExecutionEntity>>();
+    for (ExecutionEntity execution: tree.values()) {
+      if (execution.parentId!=null) {
+        List<ExecutionEntity> children = childExecutions.get(execution.parentId);
+        if (children==null) {
+          children = new ArrayList<ExecutionEntity>();
+          childExecutions.put(execution.parentId, children);
+        }
+        children.add(execution);
+      }
+    }
+    
+    for (ExecutionEntity execution: tree.values()) {
+      if (execution.executions==null) {
+        List<ExecutionEntity> children = childExecutions.get(execution.getId());
+        execution.executions = children!=null ? children : new ArrayList<ExecutionEntity>();
+      }
+      if (execution.parent==null && execution.parentId!=null) {
+        execution.parent = tree.get(execution.parentId);
+      }
+      if (execution.processInstance==null) {
+        execution.processInstance = tree.get(processInstanceId);
+      }
+    }
+    
+    for (ExecutionEntity subProcessInstance: subProcessInstances) {
+      ExecutionEntity superExecution = tree.get(subProcessInstance.superExecutionId);
+      if (superExecution==null) {
+        continue;
+      }
+      if (superExecution.subProcessInstance==null) {
+        superExecution.subProcessInstance = subProcessInstance;
+      }
+      if (subProcessInstance.superExecution==null) {
+        subProcessInstance.superExecution = superExecution;
+      }
+    }
+    for (ExecutionEntity execution: tree.values()) {
+      execution.subProcessInstanceInitialized = true;
+    }
+  }
+
   public ExecutionEntity findExecutionById(String executionId) {
     return (ExecutionEntity) getDbSqlSession().selectById(ExecutionEntity.class, executionId);
   }
@@ -13,6 +13,7 @@
 
 package org.activiti.engine.impl.persistence.entity;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -24,6 +25,7 @@ import org.activiti.engine.impl.Page;
 import org.activiti.engine.impl.context.Context;
 import org.activiti.engine.impl.db.DbSqlSession;
 import org.activiti.engine.impl.db.PersistentObject;
+import org.activiti.engine.impl.identity.MembershipCache;
 import org.activiti.engine.impl.interceptor.CommandContext;
 import org.activiti.engine.impl.persistence.AbstractManager;
 
@@ -77,6 +79,34 @@ public class GroupEntityManager extends AbstractManager {
     return getDbSqlSession().selectList("selectGroupsByUserId", userId);
   }
 
+  /**
+   * the ids of the groups of the user, served from the membership cache when it is enabled. 
+   * On a miss the groups are resolved with findGroupsByUser, so custom identity managers 
+   * overriding it keep working.
+   */
+  public List<String> findGroupIdsByUser(String userId) {
+    MembershipCache membershipCache = Context.getProcessEngineConfiguration() != null ? 
+            Context.getProcessEngineConfiguration().getMembershipCache() : null;
+    long membershipCacheVersion = 0;
+    if (membershipCache != null) {
+      List<String> groupIds = membershipCache.getGroupIds(userId);
+      if (groupIds != null) {
+        return groupIds;
+      }
+      membershipCacheVersion = membershipCache.getVersion(userId);
+    }
+    List<Group> groups = findGroupsByUser(userId);
+    List<String> groupIds = new ArrayList<String>(groups.size());
+    for (Group group : groups) {
+      groupIds.add(group.getId());
+    }
+    if (membershipCache != null) {
+      // not cached when the memberships were invalidated while they were queried
+      membershipCache.putGroupIds(userId, groupIds, membershipCacheVersion);
+    }
+    return groupIds;
+  }
+
   @SuppressWarnings("unchecked")
   public List<Group> findPotentialStarterUsers(String proceDefId) {
     Map<String, String> parameters = new HashMap<String, String>();
@@ -13,6 +13,7 @@
 
 package org.activiti.engine.impl.persistence.entity;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -47,6 +48,16 @@ public class HistoricActivityInstanceEntityManager extends AbstractManager {
     return (HistoricActivityInstanceEntity) getDbSqlSession().selectOne("selectHistoricActivityInstance", parameters);
   }
 
+  /**
+   * all unfinished historic activity instances of the given executions, fetched with one query
+   */
+  @SuppressWarnings("unchecked")
+  public List<HistoricActivityInstanceEntity> findUnfinishedHistoricActivityInstancesByExecutionIds(Collection<String> executionIds) {
+    Map<String, Object> parameters = new HashMap<String, Object>();
+    parameters.put("executionIds", executionIds);
+    return getDbSqlSession().selectList("selectUnfinishedHistoricActivityInstancesByExecutionIds", parameters);
+  }
+
   public long findHistoricActivityInstanceCountByQueryCriteria(HistoricActivityInstanceQueryImpl historicActivityInstanceQuery) {
     return (Long) getDbSqlSession().selectOne("selectHistoricActivityInstanceCountByQueryCriteria", historicActivityInstanceQuery);
   }
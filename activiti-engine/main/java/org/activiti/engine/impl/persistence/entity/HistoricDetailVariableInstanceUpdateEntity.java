@@ -13,6 +13,9 @@
 
 package org.activiti.engine.impl.persistence.entity;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.Date;
 
 import org.activiti.engine.history.HistoricVariableUpdate;
@@ -34,7 +37,9 @@ public class HistoricDetailVariableInstanceUpdateEntity extends HistoricDetailEn
   
   protected String name;
   protected int revision;
-  protected VariableType variableType;
+  /** not serializable, the type name is written instead (see {@link #writeObject(ObjectOutputStream)}) */
+  protected transient VariableType variableType;
+  protected transient String variableTypeName;
 
   protected Long longValue;
   protected Double doubleValue; 
@@ -44,12 +49,20 @@ public class HistoricDetailVariableInstanceUpdateEntity extends HistoricDetailEn
   protected ByteArrayEntity byteArrayValue;
   protected String byteArrayValueId;
 
-  protected Object cachedValue;
+  protected transient Object cachedValue;
 
   public HistoricDetailVariableInstanceUpdateEntity() {
   }
 
   public HistoricDetailVariableInstanceUpdateEntity(VariableInstanceEntity variableInstance) {
+    this(variableInstance, false);
+  }
+  
+  /**
+   * @param deferByteArrayInsert when true, the copy of the byte array value is not inserted here
+   * but together with this detail (see {@link org.activiti.engine.impl.cmd.InsertHistoryRecordsCmd}). 
+   */
+  public HistoricDetailVariableInstanceUpdateEntity(VariableInstanceEntity variableInstance, boolean deferByteArrayInsert) {
     this.processInstanceId = variableInstance.getProcessInstanceId();
     this.executionId = variableInstance.getExecutionId();
     this.taskId = variableInstance.getTaskId();
@@ -60,11 +73,13 @@ public class HistoricDetailVariableInstanceUpdateEntity extends HistoricDetailEn
     if (variableInstance.getByteArrayValueId()!=null) {
       // TODO test and review.  name ok here?
       this.byteArrayValue = new ByteArrayEntity(name, variableInstance.getByteArrayValue().getBytes());
-      Context
-        .getCommandContext()
-        .getDbSqlSession()
-        .insert(byteArrayValue);
-      this.byteArrayValueId = byteArrayValue.getId();
+      if (!deferByteArrayInsert) {
+        Context
+          .getCommandContext()
+          .getDbSqlSession()
+          .insert(byteArrayValue);
+        this.byteArrayValueId = byteArrayValue.getId();
+      }
     }
     this.textValue = variableInstance.getTextValue();
     this.textValue2 = variableInstance.getTextValue2();
@@ -73,6 +88,7 @@ public class HistoricDetailVariableInstanceUpdateEntity extends HistoricDetailEn
   }
   
   public Object getValue() {
+    VariableType variableType = getVariableType();
     if (!variableType.isCachable() || cachedValue==null) {
       cachedValue = variableType.getValue(this);
     }
@@ -100,7 +116,19 @@ public class HistoricDetailVariableInstanceUpdateEntity extends HistoricDetailEn
   }
   
   public String getVariableTypeName() {
-    return (variableType!=null ? variableType.getTypeName() : null);
+    return (variableType!=null ? variableType.getTypeName() : variableTypeName);
+  }
+  
+  // serialization (async history journal) ////////////////////////////////////
+  
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    out.defaultWriteObject();
+    out.writeObject(getVariableTypeName());
+  }
+  
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    variableTypeName = (String) in.readObject();
   }
 
   // byte array value /////////////////////////////////////////////////////////
@@ -179,6 +207,13 @@ public class HistoricDetailVariableInstanceUpdateEntity extends HistoricDetailEn
   }
 
   public VariableType getVariableType() {
+    if (variableType==null && variableTypeName!=null) {
+      // deserialized from the journal: resolved when the record is written
+      variableType = Context
+        .getProcessEngineConfiguration()
+        .getVariableTypes()
+        .getVariableType(variableTypeName);
+    }
     return variableType;
   }
 
@@ -13,6 +13,7 @@
 
 package org.activiti.engine.impl.persistence.entity;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -118,6 +119,49 @@ public class JobEntityManager extends AbstractManager {
     return getDbSqlSession().selectList("selectExclusiveJobsToExecute", params);
   }
 
+  @SuppressWarnings("unchecked")
+  public List<JobEntity> findExclusiveJobsToExecute(Collection<String> processInstanceIds) {
+    Map<String,Object> params = new HashMap<String, Object>();
+    params.put("pids", processInstanceIds);
+    params.put("now",ClockUtil.getCurrentTime());
+    return getDbSqlSession().selectList("selectExclusiveJobsToExecuteForProcessInstances", params);
+  }
+  
+  /**
+   * locks the given jobs that are not locked by another job executor in one update statement
+   * and returns the number of locked jobs.
+   */
+  public int lockJobs(Collection<String> jobIds, String lockOwner, Date lockExpirationTime) {
+    Map<String,Object> params = new HashMap<String, Object>();
+    params.put("jobIds", jobIds);
+    params.put("lockOwner", lockOwner);
+    params.put("lockExpirationTime", lockExpirationTime);
+    params.put("now", ClockUtil.getCurrentTime());
+    return getDbSqlSession().directUpdate("updateJobLocksForAcquisition", params);
+  }
+  
+  /**
+   * releases the locks the given lock owner still holds on the given jobs. Jobs whose lock 
+   * expired and that were acquired by another job executor in the meantime are left alone.
+   * Batch acquisition locks the jobs as lockOwner:counter (see AcquireJobsCmd), those 
+   * locks are released as well.
+   */
+  public void unlockJobs(Collection<String> jobIds, String lockOwner) {
+    Map<String,Object> params = new HashMap<String, Object>();
+    params.put("jobIds", jobIds);
+    params.put("lockOwner", lockOwner);
+    params.put("batchLockOwners", lockOwner + ":%");
+    getDbSqlSession().directUpdate("updateJobLocksForRelease", params);
+  }
+  
+  @SuppressWarnings("unchecked")
+  public List<String> findJobIdsByLockOwner(Collection<String> jobIds, String lockOwner) {
+    Map<String,Object> params = new HashMap<String, Object>();
+    params.put("jobIds", jobIds);
+    params.put("lockOwner", lockOwner);
+    return getDbSqlSession().selectList("selectJobIdsByLockOwner", params);
+  }
+
 
   @SuppressWarnings("unchecked")
   public List<TimerEntity> findUnlockedTimersByDuedate(Date duedate, Page page) {
@@ -0,0 +1,102 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.impl.persistence.entity;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.activiti.engine.impl.db.HasRevision;
+import org.activiti.engine.impl.db.PersistentObject;
+
+
+/**
+ * Arrival counter of a parallel gateway join in a concurrent root execution (TD_WF_JOINCOUNTER).
+ * 
+ * The join only needs to load the executions waiting in the gateway once the counter 
+ * reaches the number of incoming sequence flows, instead of scanning all concurrent 
+ * executions on every arrival. Concurrent arrivals are serialized on the revision of 
+ * the counter, not on the concurrent root.
+ * 
+ * @author biaoping.yin
+ */
+public class JoinCounterEntity implements PersistentObject, HasRevision, Serializable {
+
+  private static final long serialVersionUID = 1L;
+  
+  protected String id;
+  protected int revision = 1;
+  protected String processInstanceId;
+  protected int arrivals;
+
+  public JoinCounterEntity() {
+  }
+
+  public JoinCounterEntity(String concurrentRootId, String activityId, String processInstanceId) {
+    this.id = createId(concurrentRootId, activityId);
+    this.processInstanceId = processInstanceId;
+  }
+  
+  public static String createId(String concurrentRootId, String activityId) {
+    return concurrentRootId + ":" + activityId;
+  }
+  
+  /** records the arrival of an execution in the gateway */
+  public void arrive() {
+    arrivals++;
+  }
+
+  public Object getPersistentState() {
+    Map<String, Object> persistentState = new HashMap<String, Object>();
+    persistentState.put("arrivals", arrivals);
+    return persistentState;
+  }
+  
+  public int getRevisionNext() {
+    return revision+1;
+  }
+  
+  // getters and setters //////////////////////////////////////////////////////
+
+  public String getId() {
+    return id;
+  }
+
+  public void setId(String id) {
+    this.id = id;
+  }
+
+  public int getRevision() {
+    return revision;
+  }
+
+  public void setRevision(int revision) {
+    this.revision = revision;
+  }
+
+  public String getProcessInstanceId() {
+    return processInstanceId;
+  }
+
+  public void setProcessInstanceId(String processInstanceId) {
+    this.processInstanceId = processInstanceId;
+  }
+
+  public int getArrivals() {
+    return arrivals;
+  }
+
+  public void setArrivals(int arrivals) {
+    this.arrivals = arrivals;
+  }
+}
@@ -0,0 +1,53 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.impl.persistence.entity;
+
+import java.io.Serializable;
+
+import org.activiti.engine.impl.db.PersistentObject;
+
+
+/**
+ * td_wf_rejectlog row managed by the {@link org.activiti.engine.impl.db.DbSqlSession}, 
+ * so the reject log of a new task is inserted with the other entities at flush.
+ * The log of a task is never updated, the id is the id of the new task.
+ * 
+ * @author biaoping.yin
+ */
+public class RejectLogEntity extends TaskRejectLog implements PersistentObject, Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  public RejectLogEntity() {
+  }
+
+  public RejectLogEntity(String rejectNode, String rejectTaskId, String newTaskId, int opType, String processInstanceId) {
+    setREJECTNODE(rejectNode);
+    setREJECTTASKID(rejectTaskId);
+    setNEWTASKID(newTaskId);
+    setOPTYPE(opType);
+    setPROCESS_ID(processInstanceId);
+  }
+
+  public String getId() {
+    return getNEWTASKID();
+  }
+
+  public void setId(String id) {
+    setNEWTASKID(id);
+  }
+
+  public Object getPersistentState() {
+    return RejectLogEntity.class;
+  }
+}
@@ -0,0 +1,127 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.impl.persistence.entity;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.activiti.engine.impl.db.HasRevision;
+import org.activiti.engine.impl.db.PersistentObject;
+
+
+/**
+ * Reject path of a process instance (TD_WF_REJECTPATH): the task key of the last 
+ * ended task and the key of the last ended task with another task key. 
+ * 
+ * This is all the rejecttoPretaskSQL and multirejecttoPretaskSQL queries need from 
+ * the ended tasks of the instance, so the reject node is found with a primary key 
+ * lookup instead of sorting the whole ACT_HI_TASKINST history of the instance.
+ * 
+ * @author biaoping.yin
+ */
+public class RejectPathEntity implements PersistentObject, HasRevision, Serializable {
+
+  private static final long serialVersionUID = 1L;
+  
+  protected String id;
+  protected int revision = 1;
+  protected String lastTaskKey;
+  protected String lastTaskId;
+  protected String prevTaskKey;
+
+  public RejectPathEntity() {
+  }
+
+  public RejectPathEntity(String processInstanceId) {
+    this.id = processInstanceId;
+  }
+  
+  /**
+   * move the path forward with an ended task of the process instance.
+   */
+  public void taskEnded(String taskId, String taskDefinitionKey) {
+    if (taskDefinitionKey==null) {
+      return;
+    }
+    if (!taskDefinitionKey.equals(lastTaskKey)) {
+      prevTaskKey = lastTaskKey;
+      lastTaskKey = taskDefinitionKey;
+    }
+    lastTaskId = taskId;
+  }
+  
+  /**
+   * @return the node a task with the given key is rejected to, null if no task ended before
+   */
+  public String getRejectedTaskKey(String taskDefinitionKey, boolean multiInstance) {
+    return getRejectedTaskKey(lastTaskKey, prevTaskKey, taskDefinitionKey, multiInstance);
+  }
+  
+  /**
+   * same as rejecttoPretaskSQL for a normal task: the key of the last ended task, and
+   * same as multirejecttoPretaskSQL for a multi instance task: the key of the last ended 
+   * task with another key than the current task.
+   */
+  public static String getRejectedTaskKey(String lastTaskKey, String prevTaskKey, String taskDefinitionKey, boolean multiInstance) {
+    if (!multiInstance || lastTaskKey==null || !lastTaskKey.equals(taskDefinitionKey)) {
+      return lastTaskKey;
+    }
+    return prevTaskKey;
+  }
+
+  public Object getPersistentState() {
+    Map<String, Object> persistentState = new HashMap<String, Object>();
+    persistentState.put("lastTaskKey", lastTaskKey);
+    persistentState.put("lastTaskId", lastTaskId);
+    persistentState.put("prevTaskKey", prevTaskKey);
+    return persistentState;
+  }
+  
+  public int getRevisionNext() {
+    return revision+1;
+  }
+
+  // getters and setters //////////////////////////////////////////////////////
+
+  public String getId() {
+    return id;
+  }
+  public void setId(String id) {
+    this.id = id;
+  }
+  public int getRevision() {
+    return revision;
+  }
+  public void setRevision(int revision) {
+    this.revision = revision;
+  }
+  public String getLastTaskKey() {
+    return lastTaskKey;
+  }
+  public void setLastTaskKey(String lastTaskKey) {
+    this.lastTaskKey = lastTaskKey;
+  }
+  public String getLastTaskId() {
+    return lastTaskId;
+  }
+  public void setLastTaskId(String lastTaskId) {
+    this.lastTaskId = lastTaskId;
+  }
+  public String getPrevTaskKey() {
+    return prevTaskKey;
+  }
+  public void setPrevTaskKey(String prevTaskKey) {
+    this.prevTaskKey = prevTaskKey;
+  }
+}
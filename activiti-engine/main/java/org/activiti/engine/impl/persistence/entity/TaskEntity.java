@@ -31,6 +31,7 @@ import org.activiti.engine.delegate.TaskListener;
 import org.activiti.engine.impl.TaskContext;
 import org.activiti.engine.impl.context.Context;
 import org.activiti.engine.impl.db.DbSqlSession;
+import org.activiti.engine.impl.db.HasDirtyState;
 import org.activiti.engine.impl.db.HasRevision;
 import org.activiti.engine.impl.db.PersistentObject;
 import org.activiti.engine.impl.delegate.TaskListenerInvocation;
@@ -51,7 +52,7 @@ import org.slf4j.LoggerFactory;
  * @author Joram Barrez
  * @author Falko Menge
  */ 
-public class TaskEntity extends VariableScopeImpl implements Task, DelegateTask, Serializable, PersistentObject, HasRevision {
+public class TaskEntity extends VariableScopeImpl implements Task, DelegateTask, Serializable, PersistentObject, HasRevision, HasDirtyState {
 
 //  public static final String DELETE_REASON_COMPLETED = "completed";
 //  public static final String DELETE_REASON_DELETED = "deleted";
@@ -62,6 +63,9 @@ public class TaskEntity extends VariableScopeImpl implements Task, DelegateTask,
 
   protected int revision;
 
+  /** set when a field of the persistent state changed, see {@link HasDirtyState} */
+  protected boolean dirty;
+
   protected String owner;
   protected String assignee;
   protected DelegationState delegationState;
@@ -491,6 +495,14 @@ public class TaskEntity extends VariableScopeImpl implements Task, DelegateTask,
       .findVariableInstancesByTaskId(id);
   }
 
+  @Override
+  protected List<VariableInstanceEntity> loadVariableInstances(Collection<String> variableNames) {
+    return Context
+      .getCommandContext()
+      .getVariableInstanceEntityManager()
+      .findVariableInstancesByTaskIdAndNames(id, variableNames);
+  }
+
   // execution ////////////////////////////////////////////////////////////////
 
   public ExecutionEntity getExecution() {
@@ -507,16 +519,20 @@ public class TaskEntity extends VariableScopeImpl implements Task, DelegateTask,
   public void setExecution(DelegateExecution execution) {
     if (execution!=null) {
       this.execution = (ExecutionEntity) execution;
+      markDirty(this.executionId, this.execution.getId());
       this.executionId = this.execution.getId();
       this.processInstanceId = this.execution.getProcessInstanceId();
+      markDirty(this.processDefinitionId, this.execution.getProcessDefinitionId());
       this.processDefinitionId = this.execution.getProcessDefinitionId();
       
       Context.getCommandContext().getHistoryManager().recordTaskExecutionIdChange(this.id, executionId);
       
     } else {
       this.execution = null;
+      markDirty(this.executionId, null);
       this.executionId = null;
       this.processInstanceId = null;
+      markDirty(this.processDefinitionId, null);
       this.processDefinitionId = null;
     }
   }
@@ -642,6 +658,7 @@ public class TaskEntity extends VariableScopeImpl implements Task, DelegateTask,
   // special setters //////////////////////////////////////////////////////////
   
   public void setName(String taskName) {
+    markDirty(this.name, taskName);
     this.name = taskName;
 
     CommandContext commandContext = Context.getCommandContext();
@@ -654,10 +671,12 @@ public class TaskEntity extends VariableScopeImpl implements Task, DelegateTask,
 
   /* plain setter for persistence */
   public void setNameWithoutCascade(String taskName) {
+    markDirty(this.name, taskName);
     this.name = taskName;
   }
 
   public void setDescription(String description) {
+    markDirty(this.description, description);
     this.description = description;
 
     CommandContext commandContext = Context.getCommandContext();
@@ -670,6 +689,7 @@ public class TaskEntity extends VariableScopeImpl implements Task, DelegateTask,
 
   /* plain setter for persistence */
   public void setDescriptionWithoutCascade(String description) {
+    markDirty(this.description, description);
     this.description = description;
   }
 
@@ -680,6 +700,7 @@ public class TaskEntity extends VariableScopeImpl implements Task, DelegateTask,
 //    if (assignee!=null && assignee.equals(this.assignee)) {
 //      return;
 //    }
+    markDirty(this.assignee, assignee);
     this.assignee = assignee;
 
     CommandContext commandContext = Context.getCommandContext();
@@ -700,6 +721,7 @@ public class TaskEntity extends VariableScopeImpl implements Task, DelegateTask,
 
   /* plain setter for persistence */
   public void setAssigneeWithoutCascade(String assignee) {
+    markDirty(this.assignee, assignee);
     this.assignee = assignee;
   }
   
@@ -710,6 +732,7 @@ public class TaskEntity extends VariableScopeImpl implements Task, DelegateTask,
 //    if (owner!=null && owner.equals(this.owner)) {
 //      return;
 //    }
+    markDirty(this.owner, owner);
     this.owner = owner;
 
     CommandContext commandContext = Context.getCommandContext();
@@ -726,10 +749,12 @@ public class TaskEntity extends VariableScopeImpl implements Task, DelegateTask,
 
   /* plain setter for persistence */
   public void setOwnerWithoutCascade(String owner) {
+    markDirty(this.owner, owner);
     this.owner = owner;
   }
   
   public void setDueDate(Date dueDate) {
+    markDirty(this.dueDate, dueDate);
     this.dueDate = dueDate;
     
     CommandContext commandContext = Context.getCommandContext();
@@ -741,10 +766,12 @@ public class TaskEntity extends VariableScopeImpl implements Task, DelegateTask,
   }
 
   public void setDueDateWithoutCascade(Date dueDate) {
+    markDirty(this.dueDate, dueDate);
     this.dueDate = dueDate;
   }
   
   public void setPriority(int priority) {
+    markDirty(this.priority, priority);
     this.priority = priority;
     
     CommandContext commandContext = Context.getCommandContext();
@@ -756,10 +783,12 @@ public class TaskEntity extends VariableScopeImpl implements Task, DelegateTask,
   }
 
   public void setPriorityWithoutCascade(int priority) {
+    markDirty(this.priority, priority);
     this.priority = priority;
   }
   
   public void setParentTaskId(String parentTaskId) {
+    markDirty(this.parentTaskId, parentTaskId);
     this.parentTaskId = parentTaskId;
     
     CommandContext commandContext = Context.getCommandContext();
@@ -771,6 +800,7 @@ public class TaskEntity extends VariableScopeImpl implements Task, DelegateTask,
   }
 
   public void setParentTaskIdWithoutCascade(String parentTaskId) {
+    markDirty(this.parentTaskId, parentTaskId);
     this.parentTaskId = parentTaskId;
   }
   
@@ -828,6 +858,22 @@ public class TaskEntity extends VariableScopeImpl implements Task, DelegateTask,
     return taskDefinition;
   }
   
+  // dirty tracking ///////////////////////////////////////////////////////////
+
+  protected void markDirty(Object oldValue, Object newValue) {
+    if (oldValue==null ? newValue!=null : !oldValue.equals(newValue)) {
+      dirty = true;
+    }
+  }
+  
+  public boolean isDirty() {
+    return dirty;
+  }
+  
+  public void setDirty(boolean dirty) {
+    this.dirty = dirty;
+  }
+
   // getters and setters //////////////////////////////////////////////////////
 
   public int getRevision() {
@@ -859,6 +905,7 @@ public class TaskEntity extends VariableScopeImpl implements Task, DelegateTask,
   }
 
   public void setCreateTime(Date createTime) {
+    markDirty(this.createTime, createTime);
     this.createTime = createTime;
   }
 
@@ -875,6 +922,7 @@ public class TaskEntity extends VariableScopeImpl implements Task, DelegateTask,
   }
 
   public void setProcessDefinitionId(String processDefinitionId) {
+    markDirty(this.processDefinitionId, processDefinitionId);
     this.processDefinitionId = processDefinitionId;
   }  
   
@@ -902,6 +950,7 @@ public class TaskEntity extends VariableScopeImpl implements Task, DelegateTask,
     this.eventName = eventName;
   }
   public void setExecutionId(String executionId) {
+    markDirty(this.executionId, executionId);
     this.executionId = executionId;
   }
   public ExecutionEntity getProcessInstance() {
@@ -929,12 +978,14 @@ public class TaskEntity extends VariableScopeImpl implements Task, DelegateTask,
     return delegationState;
   }
   public void setDelegationState(DelegationState delegationState) {
+    markDirty(this.delegationState, delegationState);
     this.delegationState = delegationState;
   }
   public String getDelegationStateString() {
     return (delegationState!=null ? delegationState.toString() : null);
   }
   public void setDelegationStateString(String delegationStateString) {
+    markDirty(this.delegationState, (delegationStateString!=null ? DelegationState.valueOf(DelegationState.class, delegationStateString) : null));
     this.delegationState = (delegationStateString!=null ? DelegationState.valueOf(DelegationState.class, delegationStateString) : null);
   }
   public boolean isDeleted() {
@@ -954,6 +1005,7 @@ public class TaskEntity extends VariableScopeImpl implements Task, DelegateTask,
     return suspensionState;
   }
   public void setSuspensionState(int suspensionState) {
+    markDirty(this.suspensionState, suspensionState);
     this.suspensionState = suspensionState;
   }
   public boolean isSuspended() {
@@ -17,6 +17,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 import org.activiti.engine.impl.context.Context;
+import org.activiti.engine.impl.db.HasDirtyState;
 import org.activiti.engine.impl.db.HasRevision;
 import org.activiti.engine.impl.db.PersistentObject;
 import org.activiti.engine.impl.variable.ValueFields;
@@ -25,7 +26,7 @@ import org.activiti.engine.impl.variable.VariableType;
 /**
  * @author Tom Baeyens
  */
-public class VariableInstanceEntity implements ValueFields, PersistentObject, HasRevision, Serializable {
+public class VariableInstanceEntity implements ValueFields, PersistentObject, HasRevision, HasDirtyState, Serializable {
 
   private static final long serialVersionUID = 1L;
 
@@ -51,6 +52,9 @@ public class VariableInstanceEntity implements ValueFields, PersistentObject, Ha
   protected VariableType type;
   
   boolean forcedUpdate;
+
+  /** set when a field of the persistent state changed, see {@link HasDirtyState} */
+  protected boolean dirty;
   
   // Default constructor for SQL mapping
   protected VariableInstanceEntity() {
@@ -79,6 +83,7 @@ public class VariableInstanceEntity implements ValueFields, PersistentObject, Ha
   public void setExecution(ExecutionEntity execution) {
     this.executionId = execution.getId();
     this.processInstanceId = execution.getProcessInstanceId();
+    markDirty(forcedUpdate, true);
     forcedUpdate = true;
   }
 
@@ -140,6 +145,7 @@ public class VariableInstanceEntity implements ValueFields, PersistentObject, Ha
   }
 
   public void setByteArrayValueId(String byteArrayValueId) {
+    markDirty(this.byteArrayValueId, byteArrayValueId);
     this.byteArrayValueId = byteArrayValueId;
     this.byteArrayValue = null;
   }
@@ -172,8 +178,10 @@ public class VariableInstanceEntity implements ValueFields, PersistentObject, Ha
     }
     this.byteArrayValue = byteArrayValue;
     if (byteArrayValue != null) {
+      markDirty(this.byteArrayValueId, byteArrayValue.getId());
       this.byteArrayValueId = byteArrayValue.getId();
     } else {
+      markDirty(this.byteArrayValueId, null);
       this.byteArrayValueId = null;
     }
   }
@@ -204,6 +212,22 @@ public class VariableInstanceEntity implements ValueFields, PersistentObject, Ha
     cachedValue = value;
   }
 
+  // dirty tracking ///////////////////////////////////////////////////////////
+
+  protected void markDirty(Object oldValue, Object newValue) {
+    if (oldValue==null ? newValue!=null : !oldValue.equals(newValue)) {
+      dirty = true;
+    }
+  }
+  
+  public boolean isDirty() {
+    return dirty;
+  }
+  
+  public void setDirty(boolean dirty) {
+    this.dirty = dirty;
+  }
+
   // getters and setters //////////////////////////////////////////////////////
 
   public String getId() {
@@ -225,18 +249,21 @@ public class VariableInstanceEntity implements ValueFields, PersistentObject, Ha
     return longValue;
   }
   public void setLongValue(Long longValue) {
+    markDirty(this.longValue, longValue);
     this.longValue = longValue;
   }
   public Double getDoubleValue() {
     return doubleValue;
   }
   public void setDoubleValue(Double doubleValue) {
+    markDirty(this.doubleValue, doubleValue);
     this.doubleValue = doubleValue;
   }
   public void setName(String name) {
     this.name = name;
   }
   public void setTextValue(String textValue) {
+    markDirty(this.textValue, textValue);
     this.textValue = textValue;
   }
   public String getName() {
@@ -264,6 +291,7 @@ public class VariableInstanceEntity implements ValueFields, PersistentObject, Ha
     return textValue2;
   }
   public void setTextValue2(String textValue2) {
+    markDirty(this.textValue2, textValue2);
     this.textValue2 = textValue2;
   }
   public String getTaskId() {
@@ -13,6 +13,8 @@
 
 package org.activiti.engine.impl.persistence.entity;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -34,6 +36,22 @@ public class VariableInstanceEntityManager extends AbstractManager {
     return getDbSqlSession().selectList("selectVariablesByExecutionId", executionId);
   }
 
+  @SuppressWarnings("unchecked")
+  public List<VariableInstanceEntity> findVariableInstancesByTaskIdAndNames(String taskId, Collection<String> names) {
+    Map<String, Object> params = new HashMap<String, Object>();
+    params.put("taskId", taskId);
+    params.put("names", names);
+    return getDbSqlSession().selectList("selectVariablesByTaskIdAndNames", params);
+  }
+  
+  @SuppressWarnings("unchecked")
+  public List<VariableInstanceEntity> findVariableInstancesByExecutionIdAndNames(String executionId, Collection<String> names) {
+    Map<String, Object> params = new HashMap<String, Object>();
+    params.put("executionId", executionId);
+    params.put("names", names);
+    return getDbSqlSession().selectList("selectVariablesByExecutionIdAndNames", params);
+  }
+
   public void deleteVariableInstanceByTask(TaskEntity task) {
     Map<String, VariableInstanceEntity> variableInstances = task.getVariableInstances();
     if (variableInstances!=null) {
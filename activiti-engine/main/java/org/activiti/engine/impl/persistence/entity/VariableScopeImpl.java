@@ -15,14 +15,17 @@ package org.activiti.engine.impl.persistence.entity;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import org.activiti.engine.ActivitiException;
 import org.activiti.engine.delegate.VariableScope;
+import org.activiti.engine.impl.cfg.ProcessEngineConfigurationImpl;
 import org.activiti.engine.impl.context.Context;
 import org.activiti.engine.impl.interceptor.CommandContext;
 import org.activiti.engine.impl.javax.el.ELContext;
@@ -41,6 +44,12 @@ public abstract class VariableScopeImpl implements Serializable, VariableScope {
   
   protected Map<String, VariableInstanceEntity> variableInstances = null;
   
+  /** 
+   * variables looked up by name before all variables of this scope were needed, 
+   * names that don't exist in this scope are kept with a null value 
+   */
+  protected Map<String, VariableInstanceEntity> loadedVariableInstances = null;
+  
   protected ELContext cachedElContext;
 
   protected String id = null;
@@ -49,6 +58,14 @@ public abstract class VariableScopeImpl implements Serializable, VariableScope {
   protected abstract VariableScopeImpl getParentVariableScope();
   protected abstract void initializeVariableInstanceBackPointer(VariableInstanceEntity variableInstance);
 
+  /**
+   * loads only the variables of this scope with the given names, returns null if the 
+   * scope can only load all its variables at once.
+   */
+  protected List<VariableInstanceEntity> loadVariableInstances(Collection<String> variableNames) {
+    return null;
+  }
+
   protected void ensureVariableInstancesInitialized() {
     if (variableInstances==null) {
       variableInstances = new HashMap<String, VariableInstanceEntity>();
@@ -60,13 +77,101 @@ public abstract class VariableScopeImpl implements Serializable, VariableScope {
       for (VariableInstanceEntity variableInstance : variableInstancesList) {
         variableInstances.put(variableInstance.getName(), variableInstance);
       }
+      loadedVariableInstances = null;
+    }
+  }
+  
+  protected boolean isSelectiveVariableLoading() {
+    if (variableInstances!=null) {
+      return false;
+    }
+    ProcessEngineConfigurationImpl processEngineConfiguration = Context.getProcessEngineConfiguration();
+    return processEngineConfiguration!=null && processEngineConfiguration.isSelectiveVariableLoadingEnabled();
+  }
+  
+  /**
+   * the variable instances of this scope with the given names. As long as not all variables 
+   * of this scope are initialized, only the requested variables are loaded, with one query.
+   */
+  protected Map<String, VariableInstanceEntity> getVariableInstancesLocal(Collection<String> variableNames) {
+    if (isSelectiveVariableLoading()) {
+      if (loadedVariableInstances==null) {
+        loadedVariableInstances = new HashMap<String, VariableInstanceEntity>();
+      }
+      List<String> unloadedVariableNames = new ArrayList<String>();
+      for (String variableName: variableNames) {
+        if (!loadedVariableInstances.containsKey(variableName)) {
+          unloadedVariableNames.add(variableName);
+        }
+      }
+      if (unloadedVariableNames.isEmpty()) {
+        return loadedVariableInstances;
+      }
+      CommandContext commandContext = Context.getCommandContext();
+      if (commandContext == null) {
+        throw new ActivitiException("lazy loading outside command context");
+      }
+      List<VariableInstanceEntity> variableInstancesList = loadVariableInstances(unloadedVariableNames);
+      if (variableInstancesList!=null) {
+        for (String variableName: unloadedVariableNames) {
+          loadedVariableInstances.put(variableName, null);
+        }
+        for (VariableInstanceEntity variableInstance : variableInstancesList) {
+          loadedVariableInstances.put(variableInstance.getName(), variableInstance);
+        }
+        return loadedVariableInstances;
+      }
     }
+    ensureVariableInstancesInitialized();
+    return variableInstances;
+  }
+  
+  protected VariableInstanceEntity getVariableInstanceLocal(String variableName) {
+    return getVariableInstancesLocal(Collections.singletonList(variableName)).get(variableName);
   }
   
   public Map<String, Object> getVariables() {
     return collectVariables(new HashMap<String, Object>());
   }
   
+  /**
+   * the variables with the given names, looked up in this scope and its parents. 
+   * Only the requested variables are loaded, with one query per scope.
+   */
+  public Map<String, Object> getVariables(Collection<String> variableNames) {
+    Map<String, Object> variables = new HashMap<String, Object>();
+    List<String> unresolvedVariableNames = new ArrayList<String>(variableNames);
+    VariableScopeImpl variableScope = this;
+    while (variableScope!=null && !unresolvedVariableNames.isEmpty()) {
+      Map<String, VariableInstanceEntity> scopeVariableInstances = variableScope.getVariableInstancesLocal(unresolvedVariableNames);
+      Iterator<String> variableNameIterator = unresolvedVariableNames.iterator();
+      while (variableNameIterator.hasNext()) {
+        VariableInstanceEntity variableInstance = scopeVariableInstances.get(variableNameIterator.next());
+        if (variableInstance!=null) {
+          variables.put(variableInstance.getName(), variableInstance.getValue());
+          variableNameIterator.remove();
+        }
+      }
+      variableScope = variableScope.getParentVariableScope();
+    }
+    return variables;
+  }
+  
+  /**
+   * the variables of this scope with the given names, only the requested variables are loaded.
+   */
+  public Map<String, Object> getVariablesLocal(Collection<String> variableNames) {
+    Map<String, Object> variables = new HashMap<String, Object>();
+    Map<String, VariableInstanceEntity> scopeVariableInstances = getVariableInstancesLocal(variableNames);
+    for (String variableName: variableNames) {
+      VariableInstanceEntity variableInstance = scopeVariableInstances.get(variableName);
+      if (variableInstance!=null) {
+        variables.put(variableName, variableInstance.getValue());
+      }
+    }
+    return variables;
+  }
+  
   protected Map<String, Object> collectVariables(HashMap<String, Object> variables) {
     ensureVariableInstancesInitialized();
     VariableScopeImpl parentScope = getParentVariableScope();
@@ -80,8 +185,7 @@ public abstract class VariableScopeImpl implements Serializable, VariableScope {
   }
   
   public Object getVariable(String variableName) {
-    ensureVariableInstancesInitialized();
-    VariableInstanceEntity variableInstance = variableInstances.get(variableName);
+    VariableInstanceEntity variableInstance = getVariableInstanceLocal(variableName);
     if (variableInstance!=null) {
       return variableInstance.getValue();
     }
@@ -93,8 +197,13 @@ public abstract class VariableScopeImpl implements Serializable, VariableScope {
   }
   
   public Object getVariableLocal(Object variableName) {
-    ensureVariableInstancesInitialized();
-    VariableInstanceEntity variableInstance = variableInstances.get(variableName);
+    VariableInstanceEntity variableInstance;
+    if (variableName instanceof String) {
+      variableInstance = getVariableInstanceLocal((String) variableName);
+    } else {
+      ensureVariableInstancesInitialized();
+      variableInstance = variableInstances.get(variableName);
+    }
     if (variableInstance!=null) {
       return variableInstance.getValue();
     }
@@ -130,8 +239,7 @@ public abstract class VariableScopeImpl implements Serializable, VariableScope {
   }
 
   public boolean hasVariableLocal(String variableName) {
-    ensureVariableInstancesInitialized();
-    return variableInstances.containsKey(variableName);
+    return getVariableInstanceLocal(variableName)!=null;
   }
 
   protected Set<String> collectVariableNames(Set<String> variableNames) {
@@ -29,6 +29,7 @@ import org.activiti.engine.impl.bpmn.behavior.ParallelMultiInstanceBehavior;
 import org.activiti.engine.impl.bpmn.behavior.SequentialMultiInstanceBehavior;
 import org.activiti.engine.impl.bpmn.behavior.UserTaskActivityBehavior;
 import org.activiti.engine.impl.context.Context;
+import org.activiti.engine.impl.interceptor.CommandContext;
 import org.activiti.engine.impl.persistence.entity.ExecutionEntity;
 import org.activiti.engine.impl.pvm.PvmActivity;
 import org.activiti.engine.impl.pvm.PvmException;
@@ -118,6 +119,28 @@ public class ActivityImpl extends ScopeImpl implements PvmActivity, HasDIBounds
   }
   
   
+  /**
+   * 节点的控制参数，在命令中通过ControlParamManager缓存
+   */
+  private ControlParam getControlParam(String procinstanceid)
+  {
+	  CommandContext commandContext = Context.getCommandContext();
+	  if(commandContext != null)
+		  return commandContext.getControlParamManager().getControlParam(procinstanceid, getId());
+	  return Context.getProcessEngineConfiguration().getKPIService().getControlParam(procinstanceid, getId());
+  }
+  
+  /**
+   * 节点的处理人变量，在命令中一次查询流程实例的所有处理人变量
+   */
+  private String getTaskAssignees(String procinstanceid,String variableName) throws Exception
+  {
+	  CommandContext commandContext = Context.getCommandContext();
+	  if(commandContext != null)
+		  return commandContext.getControlParamManager().getTaskAssignees(getProcessDefinition(), procinstanceid, variableName);
+	  return Context.getProcessEngineConfiguration().getExtendExecutor().queryObject(String.class, "getTaskAssignees", procinstanceid, variableName);
+  }
+  
   /**
    * 返回任务类型是否是多实例任务类型
    * @return
@@ -129,7 +152,7 @@ public class ActivityImpl extends ScopeImpl implements PvmActivity, HasDIBounds
 		boolean  isMultiTask = activityBehavior != null && activityBehavior instanceof MultiInstanceActivityBehavior;
 		  if(isMultiTask)
 			  return isMultiTask;
-		  ControlParam controlParam = Context.getProcessEngineConfiguration().getKPIService().getControlParam(procinstanceid, getId());
+		  ControlParam controlParam = getControlParam(procinstanceid);
 		  if(controlParam == null)
 			  return false;
 		 
@@ -141,7 +164,7 @@ public class ActivityImpl extends ScopeImpl implements PvmActivity, HasDIBounds
 		  }
 		  else
 		  {
-			  String assignee = Context.getProcessEngineConfiguration().getExtendExecutor().queryObject(String.class, "getTaskAssignees", procinstanceid, getId() +"_users");
+			  String assignee = getTaskAssignees(procinstanceid, getId() +"_users");
 			  if(assignee == null || assignee.equals(""))
 			  {
 				  taskContext.setHasassignee(false);
@@ -172,10 +195,10 @@ public class ActivityImpl extends ScopeImpl implements PvmActivity, HasDIBounds
 						  || (activityBehavior instanceof MixMultiInstanceActivityBehavior && ((MixMultiInstanceActivityBehavior)activityBehavior).isParreal()));
 			  if(isParreal)
 				  return isParreal;
-			  ControlParam controlParam = Context.getProcessEngineConfiguration().getKPIService().getControlParam(procinstanceid, getId());
+			  ControlParam controlParam = getControlParam(procinstanceid);
 			  if(controlParam == null)
 				  return false;
-			  String assignee = Context.getProcessEngineConfiguration().getExtendExecutor().queryObject(String.class, "getTaskAssignees", procinstanceid, getId());
+			  String assignee = getTaskAssignees(procinstanceid, getId());
 			  TaskContext taskContext = new TaskContext();
 			  taskContext.setControlParam(controlParam);
 			  taskContext.setOneassignee(assignee != null && assignee.indexOf(",") < 0);
@@ -200,10 +223,10 @@ public class ActivityImpl extends ScopeImpl implements PvmActivity, HasDIBounds
 						  || (activityBehavior instanceof MixMultiInstanceActivityBehavior && ((MixMultiInstanceActivityBehavior)activityBehavior).isSequence()));
 			  if(isSequence)
 				  return isSequence;
-			  ControlParam controlParam = Context.getProcessEngineConfiguration().getKPIService().getControlParam(procinstanceid, getId());
+			  ControlParam controlParam = getControlParam(procinstanceid);
 			  if(controlParam == null)
 				  return false;
-			  String assignee = Context.getProcessEngineConfiguration().getExtendExecutor().queryObject(String.class, "getTaskAssignees", procinstanceid, getId());
+			  String assignee = getTaskAssignees(procinstanceid, getId());
 			  TaskContext taskContext = new TaskContext();
 			  taskContext.setControlParam(controlParam);
 			  taskContext.setOneassignee(assignee != null && assignee.indexOf(",") < 0);
@@ -0,0 +1,71 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.impl.scripting;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * compile and evaluation counters of one script, kept by the {@link ScriptingEngines}
+ * when script compilation is enabled.
+ * 
+ * @author biaoping.yin
+ */
+public class ScriptStatistics {
+
+  protected final String language;
+  protected final AtomicLong compileCount = new AtomicLong();
+  protected final AtomicLong compileTime = new AtomicLong();
+  protected final AtomicLong evaluationCount = new AtomicLong();
+  protected final AtomicLong evaluationTime = new AtomicLong();
+  
+  public ScriptStatistics(String language) {
+    this.language = language;
+  }
+  
+  public void addCompile(long nanos) {
+    compileCount.incrementAndGet();
+    compileTime.addAndGet(nanos);
+  }
+  
+  public void addEvaluation(long nanos) {
+    evaluationCount.incrementAndGet();
+    evaluationTime.addAndGet(nanos);
+  }
+  
+  public String getLanguage() {
+    return language;
+  }
+  
+  public long getCompileCount() {
+    return compileCount.get();
+  }
+  
+  /** total compile time in nanoseconds */
+  public long getCompileTime() {
+    return compileTime.get();
+  }
+  
+  public long getEvaluationCount() {
+    return evaluationCount.get();
+  }
+  
+  /** total evaluation time in nanoseconds */
+  public long getEvaluationTime() {
+    return evaluationTime.get();
+  }
+  
+  public String toString() {
+    return "ScriptStatistics[language=" + language + ", compiles=" + getCompileCount() + ", compileTime=" + getCompileTime() 
+      + "ns, evaluations=" + getEvaluationCount() + ", evaluationTime=" + getEvaluationTime() + "ns]";
+  }
+}
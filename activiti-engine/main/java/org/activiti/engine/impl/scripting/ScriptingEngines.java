@@ -12,9 +12,18 @@
  */
 package org.activiti.engine.impl.scripting;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
 import javax.script.ScriptEngine;
 import javax.script.ScriptEngineFactory;
 import javax.script.ScriptEngineManager;
@@ -22,6 +31,8 @@ import javax.script.ScriptException;
 
 import org.activiti.engine.ActivitiException;
 import org.activiti.engine.delegate.VariableScope;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * @author Tom Baeyens
@@ -29,10 +40,37 @@ import org.activiti.engine.delegate.VariableScope;
  */
 public class ScriptingEngines {
 
+  private static final Logger log = LoggerFactory.getLogger(ScriptingEngines.class);
+
   public static final String DEFAULT_SCRIPTING_LANGUAGE = "juel";
 
   private final ScriptEngineManager scriptEngineManager;
   protected ScriptBindingsFactory scriptBindingsFactory;
+  
+  /** 
+   * compile scripts once with {@link Compilable} engines and reuse engine instances, 
+   * instead of creating an engine and parsing the script on every evaluation 
+   */
+  protected boolean scriptCompilationEnabled = false;
+  /** maximum number of distinct scripts that are kept compiled */
+  protected int compiledScriptLimit = 1000;
+  
+  /** engines that declare themselves thread safe, shared by all threads */
+  protected ConcurrentMap<String, ScriptEngine> sharedScriptEngines = new ConcurrentHashMap<String, ScriptEngine>();
+  /** idle instances of engines that are not thread safe */
+  protected ConcurrentMap<String, Queue<ScriptEngine>> scriptEnginePools = new ConcurrentHashMap<String, Queue<ScriptEngine>>();
+  protected ConcurrentMap<String, CachedScript> cachedScripts = new ConcurrentHashMap<String, CachedScript>();
+  
+  protected static class CachedScript {
+    /** null if the engine can't compile or compilation failed */
+    protected CompiledScript compiledScript;
+    protected ScriptStatistics statistics;
+    
+    protected CachedScript(CompiledScript compiledScript, ScriptStatistics statistics) {
+      this.compiledScript = compiledScript;
+      this.statistics = statistics;
+    }
+  }
 
   public ScriptingEngines(ScriptBindingsFactory scriptBindingsFactory) {
     this(new ScriptEngineManager());
@@ -65,6 +103,10 @@ public class ScriptingEngines {
   }
   
   protected Object evaluate(String script, String language, Bindings bindings) {
+    if (scriptCompilationEnabled) {
+      return evaluateCached(script, language, bindings);
+    }
+    
     ScriptEngine scriptEngine = scriptEngineManager.getEngineByName(language);
 
     if (scriptEngine == null) {
@@ -77,6 +119,121 @@ public class ScriptingEngines {
       throw new ActivitiException("problem evaluating script: " + e.getMessage(), e);
     }
   }
+  
+  protected Object evaluateCached(String script, String language, Bindings bindings) {
+    CachedScript cachedScript = getCachedScript(script, language);
+    long start = System.nanoTime();
+    try {
+      if (cachedScript != null && cachedScript.compiledScript != null) {
+        return cachedScript.compiledScript.eval(bindings);
+      }
+      ScriptEngine scriptEngine = borrowScriptEngine(language);
+      try {
+        return scriptEngine.eval(script, bindings);
+      } finally {
+        returnScriptEngine(language, scriptEngine);
+      }
+    } catch (ScriptException e) {
+      throw new ActivitiException("problem evaluating script: " + e.getMessage(), e);
+    } finally {
+      if (cachedScript != null) {
+        cachedScript.statistics.addEvaluation(System.nanoTime() - start);
+      }
+    }
+  }
+  
+  /**
+   * compiles the script ahead of its first evaluation, e.g. when a process definition is 
+   * deployed. Compile errors are only logged here, they surface when the script is evaluated.
+   */
+  public void precompile(String script, String language) {
+    if (scriptCompilationEnabled && script != null && language != null) {
+      getCachedScript(script, language);
+    }
+  }
+  
+  protected CachedScript getCachedScript(String script, String language) {
+    String key = language + ':' + script;
+    CachedScript cachedScript = cachedScripts.get(key);
+    if (cachedScript != null) {
+      return cachedScript;
+    }
+    if (cachedScripts.size() >= compiledScriptLimit) {
+      return null;
+    }
+    
+    ScriptStatistics statistics = new ScriptStatistics(language);
+    CompiledScript compiledScript = null;
+    ScriptEngine scriptEngine = getSharedScriptEngine(language);
+    // a compiled script is bound to its engine, so only thread safe engines are compiled
+    if (scriptEngine instanceof Compilable) {
+      long start = System.nanoTime();
+      try {
+        compiledScript = ((Compilable) scriptEngine).compile(script);
+      } catch (ScriptException e) {
+        log.warn("could not compile " + language + " script, it will be evaluated from source: " + e.getMessage());
+      }
+      statistics.addCompile(System.nanoTime() - start);
+    }
+    cachedScript = new CachedScript(compiledScript, statistics);
+    CachedScript existing = cachedScripts.putIfAbsent(key, cachedScript);
+    return existing != null ? existing : cachedScript;
+  }
+  
+  /** the shared engine of the language, or null if the engine is not thread safe */
+  protected ScriptEngine getSharedScriptEngine(String language) {
+    ScriptEngine scriptEngine = sharedScriptEngines.get(language);
+    if (scriptEngine == null && !scriptEnginePools.containsKey(language)) {
+      scriptEngine = createScriptEngine(language);
+      // engines without THREADING parameter are not thread safe (see ScriptEngineFactory.getParameter)
+      if (scriptEngine.getFactory().getParameter("THREADING") != null) {
+        ScriptEngine existing = sharedScriptEngines.putIfAbsent(language, scriptEngine);
+        return existing != null ? existing : scriptEngine;
+      }
+      Queue<ScriptEngine> pool = new ConcurrentLinkedQueue<ScriptEngine>();
+      pool.offer(scriptEngine);
+      scriptEnginePools.putIfAbsent(language, pool);
+      return null;
+    }
+    return scriptEngine;
+  }
+  
+  protected ScriptEngine borrowScriptEngine(String language) {
+    ScriptEngine scriptEngine = getSharedScriptEngine(language);
+    if (scriptEngine != null) {
+      return scriptEngine;
+    }
+    scriptEngine = scriptEnginePools.get(language).poll();
+    return scriptEngine != null ? scriptEngine : createScriptEngine(language);
+  }
+  
+  protected void returnScriptEngine(String language, ScriptEngine scriptEngine) {
+    Queue<ScriptEngine> pool = scriptEnginePools.get(language);
+    if (pool != null) {
+      pool.offer(scriptEngine);
+    }
+  }
+  
+  protected ScriptEngine createScriptEngine(String language) {
+    ScriptEngine scriptEngine = scriptEngineManager.getEngineByName(language);
+    if (scriptEngine == null) {
+      throw new ActivitiException("Can't find scripting engine for '" + language + "'");
+    }
+    return scriptEngine;
+  }
+  
+  /** compile and evaluation statistics per script source, empty unless script compilation is enabled */
+  public Map<String, ScriptStatistics> getScriptStatistics() {
+    Map<String, ScriptStatistics> statistics = new HashMap<String, ScriptStatistics>();
+    for (Map.Entry<String, CachedScript> entry: cachedScripts.entrySet()) {
+      statistics.put(entry.getKey(), entry.getValue().statistics);
+    }
+    return Collections.unmodifiableMap(statistics);
+  }
+  
+  public void clearCompiledScripts() {
+    cachedScripts.clear();
+  }
 
   /** override to build a spring aware ScriptingEngines */
   protected Bindings createBindings(VariableScope variableScope) {
@@ -94,4 +251,16 @@ public class ScriptingEngines {
   public void setScriptBindingsFactory(ScriptBindingsFactory scriptBindingsFactory) {
     this.scriptBindingsFactory = scriptBindingsFactory;
   }
+  public boolean isScriptCompilationEnabled() {
+    return scriptCompilationEnabled;
+  }
+  public void setScriptCompilationEnabled(boolean scriptCompilationEnabled) {
+    this.scriptCompilationEnabled = scriptCompilationEnabled;
+  }
+  public int getCompiledScriptLimit() {
+    return compiledScriptLimit;
+  }
+  public void setCompiledScriptLimit(int compiledScriptLimit) {
+    this.compiledScriptLimit = compiledScriptLimit;
+  }
 }
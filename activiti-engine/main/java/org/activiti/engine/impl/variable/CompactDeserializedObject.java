@@ -0,0 +1,50 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.impl.variable;
+
+import java.util.Arrays;
+
+import org.activiti.engine.impl.persistence.entity.VariableInstanceEntity;
+
+/**
+ * {@link DeserializedObject} of the {@link CompactSerializableType}, only created with in-place
+ * mutation detection. Keeps the codec output of the value instead of the stored bytes: at flush 
+ * the value is encoded again and only compressed and written when the codec output differs.
+ * 
+ * @author biaoping.yin
+ */
+public class CompactDeserializedObject extends DeserializedObject {
+
+  protected CompactSerializableType type;
+
+  /**
+   * @param encoded the codec output of the value, as read from or written to the database
+   */
+  public CompactDeserializedObject(CompactSerializableType type, Object deserializedObject, byte[] encoded, VariableInstanceEntity variableInstanceEntity) {
+    super(deserializedObject, encoded, variableInstanceEntity);
+    this.type = type;
+  }
+
+  public void flush() {
+    // this first check verifies if the variable value was not overwritten with another object
+    if (deserializedObject!=variableInstanceEntity.getCachedValue()) {
+      return;
+    }
+    byte[] encoded = type.encodeValue(deserializedObject, variableInstanceEntity);
+    if (!Arrays.equals(originalBytes, encoded)) {
+      variableInstanceEntity
+        .getByteArrayValue()
+        .setBytes(type.pack(encoded));
+    }
+  }
+}
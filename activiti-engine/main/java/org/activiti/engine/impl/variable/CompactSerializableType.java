@@ -0,0 +1,205 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.impl.variable;
+
+import java.io.ByteArrayOutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.activiti.engine.ActivitiException;
+import org.activiti.engine.impl.context.Context;
+import org.activiti.engine.impl.persistence.entity.VariableInstanceEntity;
+
+/**
+ * Stores object variables with a pluggable {@link VariableCodec}. Encoded values larger than 
+ * the compression threshold are deflated, the first byte of the stored bytes tells the format.
+ * 
+ * Values are decoded on first access only and, by default, never encoded again when they were
+ * only read: a value that is modified in place must be stored with setVariable, otherwise the
+ * modification is lost. With in-place mutation detection the values that were read or set are 
+ * encoded again at flush, like by the {@link SerializableType}, and only compressed and written 
+ * when the encoded bytes changed.
+ * 
+ * @author biaoping.yin
+ */
+public class CompactSerializableType extends ByteArrayType {
+
+  public static final String TYPE_NAME = "compactSerializable";
+  
+  private static final long serialVersionUID = 1L;
+  
+  protected static final byte FORMAT_PLAIN = 0;
+  protected static final byte FORMAT_DEFLATED = 1;
+  
+  protected VariableCodec codec;
+  /** encoded values larger than this number of bytes are compressed, 0 or less disables compression */
+  protected int compressionThreshold;
+  /** re-encode values that were read or set at flush to find in-place modifications */
+  protected boolean detectInPlaceMutations;
+  
+  public CompactSerializableType() {
+    this(new JavaSerializationCodec(), 4096, false);
+  }
+  
+  public CompactSerializableType(VariableCodec codec, int compressionThreshold, boolean detectInPlaceMutations) {
+    this.codec = codec;
+    this.compressionThreshold = compressionThreshold;
+    this.detectInPlaceMutations = detectInPlaceMutations;
+  }
+  
+  public String getTypeName() {
+    return TYPE_NAME;
+  }
+
+  public Object getValue(ValueFields valueFields) {
+    Object cachedObject = valueFields.getCachedValue();
+    if (cachedObject!=null) {
+      return cachedObject;
+    }
+    byte[] bytes = (byte[]) super.getValue(valueFields);
+    if (bytes==null) {
+      return null;
+    }
+    byte[] encoded;
+    Object decodedObject;
+    try {
+      encoded = unpack(bytes);
+      decodedObject = codec.decode(encoded);
+    } catch (Exception e) {
+      throw new ActivitiException("Couldn't deserialize object in variable '"+valueFields.getName()+"'", e);
+    }
+    valueFields.setCachedValue(decodedObject);
+    trackValue(decodedObject, encoded, valueFields);
+    return decodedObject;
+  }
+
+  public void setValue(Object value, ValueFields valueFields) {
+    byte[] encoded = encodeValue(value, valueFields);
+    valueFields.setCachedValue(value);
+    super.setValue(pack(encoded), valueFields);
+    // also for existing variables: the tracked object of the previous value is skipped at flush
+    // as it is no longer the cached value
+    trackValue(value, encoded, valueFields);
+  }
+
+  public boolean isAbleToStore(Object value) {
+    return value != null && codec.isAbleToEncode(value);
+  }
+  
+  protected void trackValue(Object value, byte[] encoded, ValueFields valueFields) {
+    if (value==null || !detectInPlaceMutations || !(valueFields instanceof VariableInstanceEntity)) {
+      return;
+    }
+    Context
+      .getCommandContext()
+      .getDbSqlSession()
+      .addDeserializedObject(new CompactDeserializedObject(this, value, encoded, (VariableInstanceEntity) valueFields));
+  }
+  
+  /** the stored bytes of the value */
+  public byte[] encode(Object value, ValueFields valueFields) {
+    if (value==null) {
+      return null;
+    }
+    return pack(encodeValue(value, valueFields));
+  }
+  
+  /** the codec output of the value, without format byte and compression */
+  public byte[] encodeValue(Object value, ValueFields valueFields) {
+    try {
+      return codec.encode(value);
+    } catch (Exception e) {
+      throw new ActivitiException("Couldn't serialize value '"+value+"' in variable '"+valueFields.getName()+"'", e);
+    }
+  }
+  
+  /** prefixes the codec output with the format byte, compressed when larger than the threshold */
+  public byte[] pack(byte[] encoded) {
+    if (encoded==null) {
+      return null;
+    }
+    if (compressionThreshold > 0 && encoded.length > compressionThreshold) {
+      return deflate(encoded);
+    }
+    byte[] bytes = new byte[encoded.length + 1];
+    bytes[0] = FORMAT_PLAIN;
+    System.arraycopy(encoded, 0, bytes, 1, encoded.length);
+    return bytes;
+  }
+  
+  public Object decode(byte[] bytes) throws Exception {
+    return codec.decode(unpack(bytes));
+  }
+  
+  /** the codec output of the stored bytes */
+  public byte[] unpack(byte[] bytes) throws DataFormatException {
+    if (bytes[0]==FORMAT_DEFLATED) {
+      return inflate(bytes);
+    } else if (bytes[0]==FORMAT_PLAIN) {
+      byte[] encoded = new byte[bytes.length - 1];
+      System.arraycopy(bytes, 1, encoded, 0, encoded.length);
+      return encoded;
+    }
+    throw new ActivitiException("unknown compact variable format "+bytes[0]);
+  }
+
+  protected byte[] deflate(byte[] encoded) {
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    try {
+      deflater.setInput(encoded);
+      deflater.finish();
+      ByteArrayOutputStream out = new ByteArrayOutputStream(encoded.length / 2 + 16);
+      out.write(FORMAT_DEFLATED);
+      byte[] buffer = new byte[4096];
+      while (!deflater.finished()) {
+        int count = deflater.deflate(buffer);
+        out.write(buffer, 0, count);
+      }
+      return out.toByteArray();
+    } finally {
+      deflater.end();
+    }
+  }
+  
+  protected byte[] inflate(byte[] bytes) throws DataFormatException {
+    Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(bytes, 1, bytes.length - 1);
+      ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length * 2);
+      byte[] buffer = new byte[4096];
+      while (!inflater.finished()) {
+        int count = inflater.inflate(buffer);
+        if (count==0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          throw new DataFormatException("truncated compact variable value");
+        }
+        out.write(buffer, 0, count);
+      }
+      return out.toByteArray();
+    } finally {
+      inflater.end();
+    }
+  }
+
+  public VariableCodec getCodec() {
+    return codec;
+  }
+  
+  public int getCompressionThreshold() {
+    return compressionThreshold;
+  }
+  
+  public boolean isDetectInPlaceMutations() {
+    return detectInPlaceMutations;
+  }
+}
@@ -0,0 +1,61 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.impl.variable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+
+import org.activiti.engine.impl.util.IoUtil;
+import org.activiti.engine.impl.util.ReflectUtil;
+
+/**
+ * Default {@link VariableCodec}: java serialization, classes are resolved with the
+ * activiti class loader like the {@link SerializableType} does.
+ * 
+ * @author biaoping.yin
+ */
+public class JavaSerializationCodec implements VariableCodec {
+
+  public boolean isAbleToEncode(Object value) {
+    return value instanceof Serializable;
+  }
+
+  public byte[] encode(Object value) throws Exception {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    ObjectOutputStream oos = new ObjectOutputStream(baos);
+    try {
+      oos.writeObject(value);
+    } finally {
+      IoUtil.closeSilently(oos);
+    }
+    return baos.toByteArray();
+  }
+
+  public Object decode(byte[] bytes) throws Exception {
+    ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes)) {
+      protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+        return ReflectUtil.loadClass(desc.getName());
+      }
+    };
+    try {
+      return ois.readObject();
+    } finally {
+      IoUtil.closeSilently(ois);
+    }
+  }
+}
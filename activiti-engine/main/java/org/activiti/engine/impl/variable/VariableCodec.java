@@ -0,0 +1,29 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.impl.variable;
+
+/**
+ * Binary encoding of object variables stored by the {@link CompactSerializableType}.
+ * Implementations must be thread safe, one codec is shared by all commands.
+ * 
+ * @author biaoping.yin
+ */
+public interface VariableCodec {
+
+  /** true if the value can be encoded by this codec */
+  boolean isAbleToEncode(Object value);
+
+  byte[] encode(Object value) throws Exception;
+
+  Object decode(byte[] bytes) throws Exception;
+}
@@ -281,4 +281,13 @@ public interface TaskQuery extends Query<TaskQuery, Task>{
   
   /** Order by due date (needs to be followed by {@link #asc()} or {@link #desc()}). */
   TaskQuery orderByDueDate();
+  
+  /**
+   * Keyset pagination: the maxResults tasks that follow the given last task of the previous page, 
+   * in the order of the (single) order property and then of the task id. Unlike {@link #listPage(int, int)} 
+   * deep pages don't get slower, use it with {@link #orderByTaskCreateTime()} for inboxes.
+   * @param lastSortValue value of the order property of the last task, e.g. its create time
+   * @param lastId id of the last task, null for the first page
+   */
+  List<Task> listPageAfter(Object lastSortValue, String lastId, int maxResults);
 }
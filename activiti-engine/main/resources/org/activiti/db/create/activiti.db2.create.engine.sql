@@ -272,3 +272,12 @@ alter table ACT_RE_MODEL
     add constraint ACT_FK_MODEL_DEPLOYMENT 
     foreign key (DEPLOYMENT_ID_) 
     references ACT_RE_DEPLOYMENT (ID_);    
+
+create table TD_WF_JOINCOUNTER (
+    ID_ varchar(255) not null,
+    REV_ integer,
+    PROC_INST_ID_ varchar(64),
+    ARRIVALS_ integer,
+    primary key (ID_)
+);
+create index IDX_JOINCOUNTER_PROCINST on TD_WF_JOINCOUNTER(PROC_INST_ID_);
@@ -264,4 +264,13 @@ alter table ACT_RE_MODEL
 alter table ACT_RE_MODEL 
     add constraint ACT_FK_MODEL_DEPLOYMENT 
     foreign key (DEPLOYMENT_ID_) 
-    references ACT_RE_DEPLOYMENT (ID_);    
\ No newline at end of file
+    references ACT_RE_DEPLOYMENT (ID_);    
+
+create table TD_WF_JOINCOUNTER (
+    ID_ nvarchar(255) not null,
+    REV_ int,
+    PROC_INST_ID_ nvarchar(64),
+    ARRIVALS_ int,
+    primary key (ID_)
+);
+create index IDX_JOINCOUNTER_PROCINST on TD_WF_JOINCOUNTER(PROC_INST_ID_);
@@ -292,3 +292,12 @@ alter table ACT_RE_MODEL
 create unique index ACT_UNIQ_RU_BUS_KEY on ACT_RU_EXECUTION
    (case when BUSINESS_KEY_ is null then null else PROC_DEF_ID_ end,
     case when BUSINESS_KEY_ is null then null else BUSINESS_KEY_ end);
+
+create table TD_WF_JOINCOUNTER (
+    ID_ NVARCHAR2(255) not null,
+    REV_ INTEGER,
+    PROC_INST_ID_ NVARCHAR2(64),
+    ARRIVALS_ INTEGER,
+    primary key (ID_)
+);
+create index IDX_JOINCOUNTER_PROCINST on TD_WF_JOINCOUNTER(PROC_INST_ID_);
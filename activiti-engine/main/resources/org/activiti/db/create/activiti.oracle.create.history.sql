@@ -121,6 +121,8 @@ create table ACT_HI_ATTACHMENT (
 );
 
 create index ACT_IDX_HI_PRO_INST_END on ACT_HI_PROCINST(END_TIME_);
+create index ACT_IDX_HI_PRO_INST_START on ACT_HI_PROCINST(START_TIME_, ID_);
+create index ACT_IDX_HI_TASK_INST_START on ACT_HI_TASKINST(START_TIME_, ID_);
 create index ACT_IDX_HI_PRO_I_BUSKEY on ACT_HI_PROCINST(BUSINESS_KEY_);
 create index ACT_IDX_HI_ACT_INST_START on ACT_HI_ACTINST(START_TIME_);
 create index ACT_IDX_HI_ACT_INST_END on ACT_HI_ACTINST(END_TIME_);
@@ -309,6 +311,18 @@ ALTER TABLE ACT_HI_ACTINST
  ADD   (optype  NUMBER(1)   DEFAULT 0); 
 ALTER TABLE TD_WF_REJECTLOG
  ADD (PROCESS_ID  NVARCHAR2(100));
+create index IDX_REJECTLOG_PROCID on TD_WF_REJECTLOG(PROCESS_ID);
+
+create table TD_WF_REJECTPATH
+(
+  PROCESS_ID_    nvarchar2(64) not null,
+  REV_           integer,
+  LAST_TASK_KEY_ nvarchar2(255),
+  LAST_TASK_ID_  nvarchar2(64),
+  PREV_TASK_KEY_ nvarchar2(255)
+);
+alter table TD_WF_REJECTPATH
+  add constraint rejectpath_pk primary key (PROCESS_ID_);
  -- Create table
 create table td_wf_hi_rejectlog
 (
@@ -383,4 +397,23 @@ create index IDX_COPYTASK on TD_WF_COPYTASK(COPER,COPERTYPE);
 create index IDX_HI_COPYTASK_BKEY on TD_WF_HI_COPYTASK(BUSINESSKEY);    
 create index IDX_COPYTASK_BKEY on TD_WF_COPYTASK(BUSINESSKEY);  
 create index IDX_HI_COPYTASK_PKEY on TD_WF_HI_COPYTASK(PROCESS_KEY);    
-create index IDX_COPYTASK_PKEY on TD_WF_COPYTASK(PROCESS_KEY);   
\ No newline at end of file
+create index IDX_COPYTASK_PKEY on TD_WF_COPYTASK(PROCESS_KEY);
+create index IDX_COPYTASK_ACTINST on TD_WF_COPYTASK(ACT_INSTID);
+create index IDX_COPYTASK_COPYTIME on TD_WF_COPYTASK(COPER,COPERTYPE,COPYTIME,ID);
+create index IDX_COPYTASK_ADMIN on TD_WF_COPYTASK(COPYTIME,ID);
+
+-----------------------------------------------------------------------------
+-- TD_WF_COPYTASK_READ 用户直接抄送和阅读索引
+-----------------------------------------------------------------------------
+
+CREATE TABLE TD_WF_COPYTASK_READ
+(
+    COPER VARCHAR2(255) NOT NULL,
+    ACT_INSTID NVARCHAR2(64) NOT NULL,
+    READTYPE NUMBER(1) NOT NULL
+);
+
+ALTER TABLE TD_WF_COPYTASK_READ
+    ADD CONSTRAINT TD_WF_COPYTASK_READ_PK
+PRIMARY KEY (COPER,ACT_INSTID,READTYPE);
+   
\ No newline at end of file
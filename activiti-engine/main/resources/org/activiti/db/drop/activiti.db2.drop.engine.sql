@@ -1,3 +1,4 @@
+drop index IDX_JOINCOUNTER_PROCINST;
 drop index ACT_IDX_EXEC_BUSKEY;
 drop index ACT_IDX_TASK_CREATE;
 drop index ACT_IDX_IDENT_LNK_USER;
@@ -72,3 +73,4 @@ drop table ACT_RU_TASK;
 drop table ACT_RU_EXECUTION;
 drop table ACT_RU_JOB;
 drop table ACT_RU_EVENT_SUBSCR;
+drop table TD_WF_JOINCOUNTER;
\ No newline at end of file
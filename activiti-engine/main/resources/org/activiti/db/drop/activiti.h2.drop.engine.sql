@@ -1,3 +1,4 @@
+drop table if exists TD_WF_JOINCOUNTER cascade constraints;
 drop table if exists ACT_GE_PROPERTY cascade constraints;
 drop table if exists ACT_GE_BYTEARRAY cascade constraints;
 drop table if exists ACT_RE_DEPLOYMENT cascade constraints;
@@ -16,4 +17,5 @@ drop index if exists ACT_IDX_IDENT_LNK_USER;
 drop index if exists ACT_IDX_IDENT_LNK_GROUP;
 drop index if exists ACT_IDX_VARIABLE_TASK_ID;
 drop index if exists ACT_IDX_EVENT_SUBSCR_CONFIG_;
-drop index if exists ACT_IDX_ATHRZ_PROCEDEF;
\ No newline at end of file
+drop index if exists ACT_IDX_ATHRZ_PROCEDEF;
+drop index if exists IDX_JOINCOUNTER_PROCINST;
\ No newline at end of file
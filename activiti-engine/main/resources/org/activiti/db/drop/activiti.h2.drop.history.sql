@@ -7,6 +7,8 @@ drop table if exists ACT_HI_COMMENT cascade constraints;
 drop table if exists ACT_HI_ATTACHMENT cascade constraints;
 
 drop index if exists ACT_IDX_HI_PRO_INST_END;
+drop index if exists ACT_IDX_HI_PRO_INST_START;
+drop index if exists ACT_IDX_HI_TASK_INST_START;
 drop index if exists ACT_IDX_HI_PRO_I_BUSKEY;
 drop index if exists ACT_IDX_HI_ACT_INST_START;
 drop index if exists ACT_IDX_HI_ACT_INST_END;
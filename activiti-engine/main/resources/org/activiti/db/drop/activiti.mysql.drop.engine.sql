@@ -1,3 +1,4 @@
+drop index IDX_JOINCOUNTER_PROCINST on TD_WF_JOINCOUNTER;
 drop index ACT_IDX_EXEC_BUSKEY on ACT_RU_EXECUTION;
 drop index ACT_IDX_TASK_CREATE on ACT_RU_TASK;
 drop index ACT_IDX_IDENT_LNK_USER on ACT_RU_IDENTITYLINK;
@@ -71,4 +72,5 @@ drop table if exists ACT_RU_TASK;
 drop table if exists ACT_RE_PROCDEF;
 drop table if exists ACT_RU_EXECUTION;
 drop table if exists ACT_RU_JOB; 
-drop table if exists ACT_RU_EVENT_SUBSCR;
\ No newline at end of file
+drop table if exists ACT_RU_EVENT_SUBSCR;
+drop table if exists TD_WF_JOINCOUNTER;
\ No newline at end of file
@@ -1,4 +1,6 @@
 drop index ACT_IDX_HI_PRO_INST_END on ACT_HI_PROCINST;
+drop index ACT_IDX_HI_PRO_INST_START on ACT_HI_PROCINST;
+drop index ACT_IDX_HI_TASK_INST_START on ACT_HI_TASKINST;
 drop index ACT_IDX_HI_PRO_I_BUSKEY on ACT_HI_PROCINST;
 drop index ACT_IDX_HI_ACT_INST_START on ACT_HI_ACTINST;
 drop index ACT_IDX_HI_ACT_INST_END on ACT_HI_ACTINST;
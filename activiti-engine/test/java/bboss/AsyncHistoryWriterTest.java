@@ -0,0 +1,282 @@
+/**
+ *  Copyright 2008 biaoping.yin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package bboss;
+
+import java.io.File;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.activiti.engine.ActivitiException;
+import org.activiti.engine.impl.cmd.InsertHistoryRecordsCmd;
+import org.activiti.engine.impl.db.PersistentObject;
+import org.activiti.engine.impl.history.AsyncHistoryWriter;
+import org.activiti.engine.impl.interceptor.Command;
+import org.activiti.engine.impl.interceptor.CommandExecutor;
+import org.activiti.engine.impl.persistence.entity.HistoricDetailVariableInstanceUpdateEntity;
+import org.activiti.engine.impl.persistence.entity.HistoricFormPropertyEntity;
+import org.activiti.engine.impl.variable.StringType;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * <p>Title: AsyncHistoryWriterTest.java</p>
+ *
+ * <p>Description: 测试异步历史记录写入器：变量更新记录经日志文件重放后仍能写入（变量类型按名称重建），
+ * 写入失败的单条记录被转入死信文件而不阻塞其他记录，数据库不可用时整批记录保留在队列中重试，
+ * 每批写入后日志文件只保留尚未写入的记录，提交后、日志检查点之前崩溃时重放的已写入记录因主键冲突转入死信文件而不会无限重试。</p>
+ *
+ * <p>Copyright: Copyright (c) 2007</p>
+ *
+ * <p>bboss workgroup</p>
+ * @Date 2026-10-17
+ * @author biaoping.yin
+ * @version 1.0
+ */
+public class AsyncHistoryWriterTest {
+
+	private File journalFile;
+
+	@After
+	public void deleteJournal()
+	{
+		if(journalFile != null)
+		{
+			journalFile.delete();
+			new File(journalFile.getPath() + ".deadletter").delete();
+			new File(journalFile.getPath() + ".checkpoint").delete();
+		}
+	}
+
+	@Test
+	public void testReplayVariableUpdateFromJournal() throws Exception
+	{
+		journalFile = File.createTempFile("asynchistory", ".journal");
+		AsyncHistoryWriter writer = createWriter(new RecordingCommandExecutor(true, null));
+		writer.add(Arrays.asList(variableUpdate("1", "hello"), formProperty("2")));
+		try
+		{
+			writer.flush();
+			Assert.fail("expected the database exception");
+		}
+		catch(ActivitiException e)
+		{
+		}
+		Assert.assertEquals(2, writer.getQueueSize());
+
+		// restart on the same journal
+		RecordingCommandExecutor commandExecutor = new RecordingCommandExecutor(false, null);
+		AsyncHistoryWriter restarted = createWriter(commandExecutor);
+		restarted.start();
+		restarted.stop();
+
+		Assert.assertEquals(2, commandExecutor.written.size());
+		HistoricDetailVariableInstanceUpdateEntity replayed = (HistoricDetailVariableInstanceUpdateEntity) commandExecutor.written.get(0);
+		Assert.assertEquals("1", replayed.getId());
+		Assert.assertEquals("string", replayed.getVariableTypeName());
+		Assert.assertEquals("hello", replayed.getTextValue());
+		Assert.assertEquals("2", commandExecutor.written.get(1).getId());
+		Assert.assertEquals(0, journalFile.length());
+	}
+
+	@Test
+	public void testBadRecordIsDeadLettered() throws Exception
+	{
+		journalFile = File.createTempFile("asynchistory", ".journal");
+		RecordingCommandExecutor commandExecutor = new RecordingCommandExecutor(false, "bad");
+		AsyncHistoryWriter writer = createWriter(commandExecutor);
+		writer.add(Arrays.asList(formProperty("1"), formProperty("bad"), formProperty("3")));
+		writer.flush();
+
+		Assert.assertEquals(0, writer.getQueueSize());
+		Assert.assertEquals(2, commandExecutor.written.size());
+		Assert.assertEquals("1", commandExecutor.written.get(0).getId());
+		Assert.assertEquals("3", commandExecutor.written.get(1).getId());
+		Assert.assertTrue(writer.getDeadLetterFile().length() > 0);
+		Assert.assertEquals(0, journalFile.length());
+
+		// the writer goes on with the next records
+		writer.add(Arrays.asList(formProperty("4")));
+		writer.flush();
+		Assert.assertEquals(3, commandExecutor.written.size());
+	}
+
+	@Test
+	public void testJournalKeepsOnlyUnwrittenRecords() throws Exception
+	{
+		journalFile = File.createTempFile("asynchistory", ".journal");
+		CountingCommandExecutor commandExecutor = new CountingCommandExecutor(1);
+		AsyncHistoryWriter writer = createWriter(commandExecutor);
+		writer.setBatchSize(2);
+		writer.add(Arrays.asList(formProperty("1"), formProperty("2"), formProperty("3"), formProperty("4")));
+		try
+		{
+			writer.flush();
+			Assert.fail("expected the database exception");
+		}
+		catch(ActivitiException e)
+		{
+		}
+		Assert.assertEquals(2, writer.getQueueSize());
+
+		// only the records of the failed batch are replayed
+		RecordingCommandExecutor restartedExecutor = new RecordingCommandExecutor(false, null);
+		AsyncHistoryWriter restarted = createWriter(restartedExecutor);
+		restarted.start();
+		restarted.stop();
+		Assert.assertEquals(2, restartedExecutor.written.size());
+		Assert.assertEquals("3", restartedExecutor.written.get(0).getId());
+		Assert.assertEquals("4", restartedExecutor.written.get(1).getId());
+	}
+
+	@Test
+	public void testReplayAfterCommitIsNotRetried() throws Exception
+	{
+		journalFile = File.createTempFile("asynchistory", ".journal");
+		DuplicateRejectingCommandExecutor commandExecutor = new DuplicateRejectingCommandExecutor();
+		// crashes after the batch is committed, before the journal is checkpointed
+		AsyncHistoryWriter crashing = new AsyncHistoryWriter() {
+			protected void checkpointJournal()
+			{
+			}
+		};
+		crashing.setCommandExecutor(commandExecutor);
+		crashing.setJournalFile(journalFile);
+		crashing.setBatchSize(2);
+		crashing.add(Arrays.asList(formProperty("1"), formProperty("2")));
+		crashing.flush();
+		Assert.assertEquals(2, commandExecutor.ids.size());
+		Assert.assertTrue(journalFile.length() > 0);
+
+		// the committed records are replayed together with a record that was not written yet
+		crashing.add(Arrays.asList(formProperty("3")));
+		AsyncHistoryWriter restarted = createWriter(commandExecutor);
+		restarted.setBatchSize(2);
+		restarted.start();
+		restarted.stop();
+
+		Assert.assertEquals(0, restarted.getQueueSize());
+		Assert.assertEquals(new HashSet<String>(Arrays.asList("1", "2", "3")), commandExecutor.ids);
+		Assert.assertTrue(restarted.getDeadLetterFile().length() > 0);
+		Assert.assertEquals(0, journalFile.length());
+	}
+
+	private AsyncHistoryWriter createWriter(CommandExecutor commandExecutor)
+	{
+		AsyncHistoryWriter writer = new AsyncHistoryWriter();
+		writer.setCommandExecutor(commandExecutor);
+		writer.setJournalFile(journalFile);
+		writer.setWaitTimeInMillis(10);
+		return writer;
+	}
+
+	private PersistentObject variableUpdate(String id, String value)
+	{
+		HistoricDetailVariableInstanceUpdateEntity variableUpdate = new HistoricDetailVariableInstanceUpdateEntity();
+		variableUpdate.setId(id);
+		variableUpdate.setName("var");
+		variableUpdate.setVariableType(new StringType());
+		variableUpdate.setTextValue(value);
+		variableUpdate.setCachedValue(new Object());
+		return variableUpdate;
+	}
+
+	private PersistentObject formProperty(String id)
+	{
+		HistoricFormPropertyEntity formProperty = new HistoricFormPropertyEntity();
+		formProperty.setId(id);
+		return formProperty;
+	}
+
+	/**
+	 * collects the written records instead of inserting them, fails a command when the database
+	 * is down or when it contains the record with the failing id
+	 */
+	private static class RecordingCommandExecutor implements CommandExecutor
+	{
+		private final boolean databaseDown;
+		private final String failingId;
+		private final List<PersistentObject> written = new ArrayList<PersistentObject>();
+
+		RecordingCommandExecutor(boolean databaseDown, String failingId)
+		{
+			this.databaseDown = databaseDown;
+			this.failingId = failingId;
+		}
+
+		public <T> T execute(Command<T> command)
+		{
+			List<PersistentObject> historyRecords = ((InsertHistoryRecordsCmd) command).getHistoryRecords();
+			if(databaseDown)
+				throw new ActivitiException("database down");
+			for(PersistentObject historyRecord : historyRecords)
+			{
+				if(historyRecord.getId().equals(failingId))
+					throw new ActivitiException("couldn't insert " + failingId);
+			}
+			written.addAll(historyRecords);
+			return null;
+		}
+	}
+
+	/**
+	 * rejects a command with a duplicate key violation when a record of it was written before
+	 */
+	private static class DuplicateRejectingCommandExecutor implements CommandExecutor
+	{
+		private final Set<String> ids = new HashSet<String>();
+
+		public <T> T execute(Command<T> command)
+		{
+			List<PersistentObject> historyRecords = ((InsertHistoryRecordsCmd) command).getHistoryRecords();
+			for(PersistentObject historyRecord : historyRecords)
+			{
+				if(ids.contains(historyRecord.getId()))
+					throw new ActivitiException("couldn't insert " + historyRecord.getId(),
+							new SQLException("Unique index or primary key violation", "23505"));
+			}
+			for(PersistentObject historyRecord : historyRecords)
+				ids.add(historyRecord.getId());
+			return null;
+		}
+	}
+
+	/**
+	 * writes the given number of commands, then behaves as if the database went down
+	 */
+	private static class CountingCommandExecutor implements CommandExecutor
+	{
+		private int remaining;
+
+		CountingCommandExecutor(int remaining)
+		{
+			this.remaining = remaining;
+		}
+
+		public <T> T execute(Command<T> command)
+		{
+			if(remaining == 0)
+				throw new ActivitiException("database down");
+			remaining --;
+			return null;
+		}
+	}
+
+}
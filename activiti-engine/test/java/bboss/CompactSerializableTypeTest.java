@@ -0,0 +1,252 @@
+/**
+ *  Copyright 2008 biaoping.yin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package bboss;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.activiti.engine.ActivitiException;
+import org.activiti.engine.ProcessEngine;
+import org.activiti.engine.ProcessEngineConfiguration;
+import org.activiti.engine.impl.cfg.ProcessEngineConfigurationImpl;
+import org.activiti.engine.impl.cfg.StandaloneInMemProcessEngineConfiguration;
+import org.activiti.engine.impl.interceptor.Command;
+import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.impl.persistence.entity.ByteArrayEntity;
+import org.activiti.engine.impl.persistence.entity.ExecutionEntity;
+import org.activiti.engine.impl.persistence.entity.VariableInstanceEntity;
+import org.activiti.engine.impl.variable.CompactDeserializedObject;
+import org.activiti.engine.impl.variable.CompactSerializableType;
+import org.activiti.engine.impl.variable.JavaSerializationCodec;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * <p>Title: CompactSerializableTypeTest.java</p>
+ *
+ * <p>Description: 测试CompactSerializableType的编码格式（未压缩、deflate压缩、未知格式）以及flush时的
+ * 修改检测：默认不检测原地修改，只读的值不再重新编码；启用检测后hashCode只依赖id的对象被原地修改后也会重新写入，
+未修改或已被替换的值不会重新写入，对已有变量setVariable后再原地修改的值也会写入。</p>
+ *
+ * <p>Copyright: Copyright (c) 2007</p>
+ *
+ * <p>bboss workgroup</p>
+ * @Date 2026-10-17
+ * @author biaoping.yin
+ * @version 1.0
+ */
+public class CompactSerializableTypeTest {
+
+	private static final String WAIT = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+			+ "<definitions xmlns=\"http://www.omg.org/spec/BPMN/20100524/MODEL\" targetNamespace=\"bboss\">"
+			+ "<process id=\"wait\">"
+			+ "<startEvent id=\"start\"/>"
+			+ "<sequenceFlow id=\"flow1\" sourceRef=\"start\" targetRef=\"receive\"/>"
+			+ "<receiveTask id=\"receive\"/>"
+			+ "<sequenceFlow id=\"flow2\" sourceRef=\"receive\" targetRef=\"end\"/>"
+			+ "<endEvent id=\"end\"/>"
+			+ "</process>"
+			+ "</definitions>";
+
+	@Test
+	public void testPlainRoundTrip() throws Exception
+	{
+		CompactSerializableType type = new CompactSerializableType(new JavaSerializationCodec(), 4096, true);
+		Bean bean = new Bean("1", "plain");
+		byte[] bytes = type.encode(bean, new TestVariableInstance());
+		Assert.assertEquals(0, bytes[0]);
+		Assert.assertEquals("plain", ((Bean) type.decode(bytes)).name);
+	}
+
+	@Test
+	public void testDeflatedRoundTrip() throws Exception
+	{
+		CompactSerializableType type = new CompactSerializableType(new JavaSerializationCodec(), 64, true);
+		List<String> value = new ArrayList<String>();
+		for(int i = 0; i < 1000; i ++)
+			value.add("value");
+		byte[] encoded = type.encodeValue(value, new TestVariableInstance());
+		byte[] bytes = type.pack(encoded);
+		Assert.assertEquals(1, bytes[0]);
+		Assert.assertTrue(bytes.length < encoded.length);
+		Assert.assertEquals(value, type.decode(bytes));
+	}
+
+	@Test
+	public void testUnknownFormat() throws Exception
+	{
+		CompactSerializableType type = new CompactSerializableType();
+		try
+		{
+			type.decode(new byte[]{9, 1, 2});
+			Assert.fail("expected an ActivitiException");
+		}
+		catch(ActivitiException e)
+		{
+		}
+	}
+
+	@Test
+	public void testInPlaceMutationIsWritten() throws Exception
+	{
+		CompactSerializableType type = new CompactSerializableType();
+		Bean bean = new Bean("1", "before");
+		TestVariableInstance variable = load(type, bean);
+		CompactDeserializedObject deserializedObject = new CompactDeserializedObject(type, bean, type.encodeValue(bean, variable), variable);
+
+		// the hash code only depends on the id and doesn't change
+		bean.name = "after";
+		deserializedObject.flush();
+		Assert.assertEquals("after", ((Bean) type.decode(variable.getByteArrayValue().getBytes())).name);
+	}
+
+	@Test
+	public void testUnchangedValueIsNotWritten() throws Exception
+	{
+		CompactSerializableType type = new CompactSerializableType();
+		Bean bean = new Bean("1", "unchanged");
+		TestVariableInstance variable = load(type, bean);
+		byte[] storedBytes = variable.getByteArrayValue().getBytes();
+		new CompactDeserializedObject(type, bean, type.encodeValue(bean, variable), variable).flush();
+		Assert.assertSame(storedBytes, variable.getByteArrayValue().getBytes());
+	}
+
+	@Test
+	public void testReplacedValueIsNotWritten() throws Exception
+	{
+		CompactSerializableType type = new CompactSerializableType();
+		Bean bean = new Bean("1", "before");
+		TestVariableInstance variable = load(type, bean);
+		byte[] storedBytes = variable.getByteArrayValue().getBytes();
+		CompactDeserializedObject deserializedObject = new CompactDeserializedObject(type, bean, type.encodeValue(bean, variable), variable);
+
+		bean.name = "after";
+		variable.setCachedValue(new Bean("1", "replaced"));
+		deserializedObject.flush();
+		Assert.assertSame(storedBytes, variable.getByteArrayValue().getBytes());
+	}
+
+	@Test
+	public void testMutationDetectionIsOffByDefault()
+	{
+		Assert.assertFalse(new CompactSerializableType().isDetectInPlaceMutations());
+		Assert.assertFalse(new StandaloneInMemProcessEngineConfiguration().isVariableInPlaceMutationDetection());
+	}
+
+	@Test
+	public void testMutationAfterSetOnExistingVariableIsWritten()
+	{
+		ProcessEngineConfigurationImpl config = new StandaloneInMemProcessEngineConfiguration();
+		config.setJdbcUrl("jdbc:h2:mem:compactserializabletype");
+		config.setDatabaseSchemaUpdate(ProcessEngineConfiguration.DB_SCHEMA_UPDATE_CREATE_DROP);
+		config.setHistory("none");
+		config.setCompactVariableSerializationEnabled(true);
+		config.setVariableInPlaceMutationDetection(true);
+		ProcessEngine processEngine = config.buildProcessEngine();
+		try
+		{
+			processEngine.getRepositoryService().createDeployment()
+				.addString("wait.bpmn20.xml", WAIT).deploy();
+			final String processInstanceId = processEngine.getRuntimeService()
+				.startProcessInstanceByKey("wait", Collections.<String, Object>singletonMap("bean", new Bean("1", "start")))
+				.getId();
+
+			config.getCommandExecutorTxRequired().execute(new Command<Void>() {
+				public Void execute(CommandContext commandContext)
+				{
+					ExecutionEntity execution = commandContext.getExecutionEntityManager().findExecutionById(processInstanceId);
+					Bean bean = new Bean("1", "set");
+					execution.setVariable("bean", bean);
+					bean.name = "mutated";
+					return null;
+				}
+			});
+			Bean bean = (Bean) processEngine.getRuntimeService().getVariable(processInstanceId, "bean");
+			Assert.assertEquals("mutated", bean.name);
+		}
+		finally
+		{
+			processEngine.close();
+		}
+	}
+
+	@Test
+	public void testReadWithoutMutationDetection() throws Exception
+	{
+		// no command context: a value that is not tracked doesn't need the DbSqlSession
+		CompactSerializableType type = new CompactSerializableType(new JavaSerializationCodec(), 4096, false);
+		TestVariableInstance variable = new TestVariableInstance();
+		variable.inMemoryByteArray = new ByteArrayEntity(type.encode(new Bean("1", "read"), variable));
+		variable.setByteArrayValueId("byteArray");
+		Bean value = (Bean) type.getValue(variable);
+		Assert.assertEquals("read", value.name);
+		Assert.assertSame(value, type.getValue(variable));
+	}
+
+	/**
+	 * a variable instance whose stored bytes are the encoded value and whose cached value is the value
+	 */
+	private TestVariableInstance load(CompactSerializableType type, Object value)
+	{
+		TestVariableInstance variable = new TestVariableInstance();
+		variable.inMemoryByteArray = new ByteArrayEntity(type.encode(value, variable));
+		variable.setCachedValue(value);
+		return variable;
+	}
+
+	/**
+	 * keeps the byte array in memory instead of the DbSqlSession
+	 */
+	private static class TestVariableInstance extends VariableInstanceEntity
+	{
+		private static final long serialVersionUID = 1L;
+		private ByteArrayEntity inMemoryByteArray;
+
+		public ByteArrayEntity getByteArrayValue()
+		{
+			return inMemoryByteArray;
+		}
+	}
+
+	/**
+	 * hash code and equals based on the id only, like many persistent beans
+	 */
+	private static class Bean implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+		private final String id;
+		private String name;
+
+		Bean(String id, String name)
+		{
+			this.id = id;
+			this.name = name;
+		}
+
+		public int hashCode()
+		{
+			return id.hashCode();
+		}
+
+		public boolean equals(Object other)
+		{
+			return other instanceof Bean && ((Bean) other).id.equals(id);
+		}
+	}
+
+}
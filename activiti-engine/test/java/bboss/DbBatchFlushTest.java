@@ -0,0 +1,165 @@
+/**
+ *  Copyright 2008 biaoping.yin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package bboss;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.activiti.engine.ActivitiOptimisticLockingException;
+import org.activiti.engine.ProcessEngine;
+import org.activiti.engine.ProcessEngineConfiguration;
+import org.activiti.engine.RuntimeService;
+import org.activiti.engine.impl.cfg.ProcessEngineConfigurationImpl;
+import org.activiti.engine.impl.cfg.StandaloneInMemProcessEngineConfiguration;
+import org.activiti.engine.impl.interceptor.Command;
+import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.impl.persistence.entity.VariableInstanceEntity;
+import org.activiti.engine.runtime.ProcessInstance;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * <p>Title: DbBatchFlushTest.java</p>
+ *
+ * <p>Description: 在H2内存数据库上启用jdbc批量flush，测试批量插入、更新和删除流程变量，
+ * 并验证同一批次中非第一条的过期更新也能根据批次的更新计数检测出乐观锁冲突。</p>
+ *
+ * <p>Copyright: Copyright (c) 2007</p>
+ *
+ * <p>bboss workgroup</p>
+ * @Date 2026-10-17
+ * @author biaoping.yin
+ * @version 1.0
+ */
+public class DbBatchFlushTest {
+
+	private static final String WAIT = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+			+ "<definitions xmlns=\"http://www.omg.org/spec/BPMN/20100524/MODEL\" targetNamespace=\"bboss\">"
+			+ "<process id=\"wait\">"
+			+ "<startEvent id=\"start\"/>"
+			+ "<sequenceFlow id=\"flow1\" sourceRef=\"start\" targetRef=\"receive\"/>"
+			+ "<receiveTask id=\"receive\"/>"
+			+ "<sequenceFlow id=\"flow2\" sourceRef=\"receive\" targetRef=\"end\"/>"
+			+ "<endEvent id=\"end\"/>"
+			+ "</process>"
+			+ "</definitions>";
+
+	private static final int VARIABLES = 5;
+
+	private ProcessEngineConfigurationImpl config;
+	private ProcessEngine processEngine;
+
+	@Before
+	public void buildProcessEngine()
+	{
+		config = new StandaloneInMemProcessEngineConfiguration();
+		config.setJdbcUrl("jdbc:h2:mem:dbbatchflush");
+		config.setDatabaseSchemaUpdate(ProcessEngineConfiguration.DB_SCHEMA_UPDATE_CREATE_DROP);
+		config.setHistory("none");
+		config.setDbBatchFlushEnabled(true);
+		processEngine = config.buildProcessEngine();
+		processEngine.getRepositoryService().createDeployment()
+			.addString("wait.bpmn20.xml", WAIT).deploy();
+	}
+
+	@After
+	public void closeProcessEngine()
+	{
+		if(processEngine != null)
+			processEngine.close();
+	}
+
+	@Test
+	public void testBatchInsertUpdateDelete()
+	{
+		RuntimeService runtimeService = processEngine.getRuntimeService();
+		ProcessInstance processInstance = runtimeService.startProcessInstanceByKey("wait", variables("value"));
+		Assert.assertEquals(variables("value"), runtimeService.getVariables(processInstance.getId()));
+
+		runtimeService.setVariables(processInstance.getId(), variables("updated"));
+		Assert.assertEquals(variables("updated"), runtimeService.getVariables(processInstance.getId()));
+
+		runtimeService.removeVariables(processInstance.getId(), variables("updated").keySet());
+		Assert.assertTrue(runtimeService.getVariables(processInstance.getId()).isEmpty());
+	}
+
+	@Test
+	public void testStaleUpdateInBatchIsDetected()
+	{
+		RuntimeService runtimeService = processEngine.getRuntimeService();
+		ProcessInstance processInstance = runtimeService.startProcessInstanceByKey("wait", variables("value"));
+		UpdateWithStaleLastVariable command = new UpdateWithStaleLastVariable(processInstance.getId());
+		try
+		{
+			config.getCommandExecutorTxRequired().execute(command);
+			Assert.fail("expected an ActivitiOptimisticLockingException");
+		}
+		catch(ActivitiOptimisticLockingException e)
+		{
+			Assert.assertTrue(e.getMessage(), e.getMessage().contains("[" + command.staleVariableId + "]"));
+		}
+		// the updates of the failed batch are rolled back
+		Assert.assertEquals(variables("value"), runtimeService.getVariables(processInstance.getId()));
+	}
+
+	private Map<String, Object> variables(String value)
+	{
+		Map<String, Object> variables = new HashMap<String, Object>();
+		for(int i = 0; i < VARIABLES; i ++)
+			variables.put("var" + i, value + i);
+		return variables;
+	}
+
+	/**
+	 * updates all variables of the process instance in one batch, the last one with a revision
+	 * that no longer matches the row
+	 */
+	private static class UpdateWithStaleLastVariable implements Command<Void>
+	{
+		private final String processInstanceId;
+		private String staleVariableId;
+
+		UpdateWithStaleLastVariable(String processInstanceId)
+		{
+			this.processInstanceId = processInstanceId;
+		}
+
+		public Void execute(CommandContext commandContext)
+		{
+			List<VariableInstanceEntity> variables = commandContext.getVariableInstanceEntityManager()
+				.findVariableInstancesByExecutionId(processInstanceId);
+			Assert.assertEquals(VARIABLES, variables.size());
+			Collections.sort(variables, new Comparator<VariableInstanceEntity>() {
+				public int compare(VariableInstanceEntity variable1, VariableInstanceEntity variable2)
+				{
+					return variable1.getName().compareTo(variable2.getName());
+				}
+			});
+			for(VariableInstanceEntity variable : variables)
+				variable.setTextValue("changed");
+			VariableInstanceEntity staleVariable = variables.get(VARIABLES - 1);
+			staleVariable.setRevision(staleVariable.getRevision() + 1);
+			staleVariableId = staleVariable.getId();
+			return null;
+		}
+	}
+
+}
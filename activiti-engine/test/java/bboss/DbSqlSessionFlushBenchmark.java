@@ -0,0 +1,182 @@
+/**
+ *  Copyright 2008 biaoping.yin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package bboss;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.activiti.engine.impl.db.DbSqlSession;
+import org.activiti.engine.impl.db.DbSqlSessionFactory;
+import org.activiti.engine.impl.db.PersistentObject;
+import org.activiti.engine.impl.persistence.entity.HistoricActivityInstanceEntity;
+import org.activiti.engine.impl.persistence.entity.HistoricVariableInstanceEntity;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * <p>Title: DbSqlSessionFlushBenchmark.java</p>
+ *
+ * <p>Description: 模拟删除一个带大量变量和历史记录的流程实例，检查DbSqlSession在flush时执行的
+ * insert和delete语句，以及查找已插入和已删除对象时使用索引而不是逐个扫描（实体getId()的调用次数
+ * 与实体数量成线性关系）。不需要数据库，SqlSession由代理模拟并记录执行的语句。</p>
+ *
+ * <p>Copyright: Copyright (c) 2007</p>
+ *
+ * <p>bboss workgroup</p>
+ * @Date 2026-10-17
+ * @author biaoping.yin
+ * @version 1.0
+ */
+public class DbSqlSessionFlushBenchmark {
+
+	private static final int ENTITIES = 2000;
+
+	/** statements executed by the SqlSession proxy, as "insert", "update" or "delete" followed by the id */
+	private final List<String> statements = new ArrayList<String>();
+
+	@Test
+	public void testFlushUsesIndexes()
+	{
+		DbSqlSession dbSqlSession = newDbSqlSession();
+		for(int i = 0; i < ENTITIES; i ++)
+		{
+			HistoricVariableInstanceEntity variable = dbSqlSession.selectById(HistoricVariableInstanceEntity.class, "var" + i);
+			dbSqlSession.delete(variable);
+			HistoricActivityInstanceEntity activity = dbSqlSession.selectById(CountingActivityInstance.class, "act" + i);
+			dbSqlSession.delete(activity);
+			CountingActivityInstance newActivity = new CountingActivityInstance();
+			newActivity.setId("newact" + i);
+			dbSqlSession.insert(newActivity);
+		}
+		dbSqlSession.flush();
+
+		Assert.assertEquals(ENTITIES, count("insert newact"));
+		Assert.assertEquals(ENTITIES, count("delete var"));
+		Assert.assertEquals(ENTITIES, count("delete act"));
+		Assert.assertEquals(3 * ENTITIES, statements.size());
+		// a constant number of lookups per entity, scanning the inserted and deleted objects
+		// called getId() of every other activity for each activity
+		Assert.assertTrue(CountingActivityInstance.getIdCalls + " getId() calls", CountingActivityInstance.getIdCalls < 50 * 2 * ENTITIES);
+	}
+
+	@Test
+	public void testInsertedAndDeletedObjectIsNotFlushed()
+	{
+		DbSqlSession dbSqlSession = newDbSqlSession();
+		CountingActivityInstance activity = new CountingActivityInstance();
+		activity.setId("newact");
+		dbSqlSession.insert(activity);
+		Assert.assertSame(activity, dbSqlSession.selectById(CountingActivityInstance.class, "newact"));
+		dbSqlSession.delete(activity);
+		dbSqlSession.flush();
+		Assert.assertEquals(0, statements.size());
+	}
+
+	@Test
+	public void testDuplicateDeleteIsFlushedOnce()
+	{
+		DbSqlSession dbSqlSession = newDbSqlSession();
+		HistoricActivityInstanceEntity activity = dbSqlSession.selectById(CountingActivityInstance.class, "act");
+		dbSqlSession.delete(activity);
+		dbSqlSession.delete(activity);
+		HistoricVariableInstanceEntity variable = dbSqlSession.selectById(HistoricVariableInstanceEntity.class, "var");
+		dbSqlSession.delete(variable);
+		dbSqlSession.flush();
+		Assert.assertEquals(1, count("delete act"));
+		Assert.assertEquals(1, count("delete var"));
+		Assert.assertEquals(2, statements.size());
+	}
+
+	private int count(String statementPrefix)
+	{
+		int count = 0;
+		for(String statement : statements)
+		{
+			if(statement.startsWith(statementPrefix))
+				count ++;
+		}
+		return count;
+	}
+
+	private DbSqlSession newDbSqlSession()
+	{
+		CountingActivityInstance.getIdCalls = 0;
+		statements.clear();
+		DbSqlSessionFactory dbSqlSessionFactory = new DbSqlSessionFactory();
+		dbSqlSessionFactory.setSqlSessionFactory(newSqlSessionFactory());
+		return new DbSqlSession(dbSqlSessionFactory);
+	}
+
+	/**
+	 * historic activity instance counting the calls of getId()
+	 */
+	public static class CountingActivityInstance extends HistoricActivityInstanceEntity
+	{
+		private static final long serialVersionUID = 1L;
+		static int getIdCalls;
+
+		public String getId()
+		{
+			getIdCalls ++;
+			return super.getId();
+		}
+	}
+
+	private SqlSessionFactory newSqlSessionFactory()
+	{
+		final SqlSession sqlSession = (SqlSession) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class[] { SqlSession.class }, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				String name = method.getName();
+				if(name.equals("selectOne"))
+				{
+					String id = (String) args[1];
+					if(args[0].toString().indexOf("Variable") > 0)
+					{
+						HistoricVariableInstanceEntity variable = new HistoricVariableInstanceEntity();
+						variable.setId(id);
+						return variable;
+					}
+					HistoricActivityInstanceEntity activity = new CountingActivityInstance();
+					activity.setId(id);
+					return activity;
+				}
+				if(name.equals("insert") || name.equals("update") || name.equals("delete"))
+				{
+					statements.add(name + " " + ((PersistentObject) args[1]).getId());
+					return 1;
+				}
+				return null;
+			}
+		});
+		return (SqlSessionFactory) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class[] { SqlSessionFactory.class }, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if(method.getName().equals("openSession"))
+				{
+					return sqlSession;
+				}
+				return null;
+			}
+		});
+	}
+
+}
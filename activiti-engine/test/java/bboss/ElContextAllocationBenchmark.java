@@ -0,0 +1,126 @@
+/**
+ *  Copyright 2008 biaoping.yin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package bboss;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.activiti.engine.delegate.VariableScope;
+import org.activiti.engine.impl.bpmn.data.ItemInstance;
+import org.activiti.engine.impl.el.ExpressionManager;
+import org.activiti.engine.impl.el.ReadOnlyMapELResolver;
+import org.activiti.engine.impl.el.StartProcessVariableScope;
+import org.activiti.engine.impl.el.VariableScopeElResolver;
+import org.activiti.engine.impl.javax.el.ArrayELResolver;
+import org.activiti.engine.impl.javax.el.BeanELResolver;
+import org.activiti.engine.impl.javax.el.CompositeELResolver;
+import org.activiti.engine.impl.javax.el.DynamicBeanPropertyELResolver;
+import org.activiti.engine.impl.javax.el.ELContext;
+import org.activiti.engine.impl.javax.el.ELResolver;
+import org.activiti.engine.impl.javax.el.ListELResolver;
+import org.activiti.engine.impl.javax.el.MapELResolver;
+import org.activiti.engine.impl.javax.el.ValueExpression;
+import org.activiti.engine.impl.juel.ExpressionFactoryImpl;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * <p>Title: ElContextAllocationBenchmark.java</p>
+ *
+ * <p>Description: 模拟网关条件表达式求值：每次求值使用新的变量作用域（新加载的执行实例），
+ * 比较每次构建完整解析器链与共享无状态解析器两种方式下每次求值的内存分配量。</p>
+ *
+ * <p>Copyright: Copyright (c) 2007</p>
+ *
+ * <p>bboss workgroup</p>
+ * @Date 2026-10-17
+ * @author biaoping.yin
+ * @version 1.0
+ */
+public class ElContextAllocationBenchmark {
+	
+	private static final int EVALUATIONS = 100000;
+
+	/**
+	 * the resolver chain as it was built before the stateless resolvers were shared
+	 */
+	static class PerScopeResolverExpressionManager extends ExpressionManager
+	{
+		PerScopeResolverExpressionManager(Map<Object, Object> beans)
+		{
+			super(beans);
+		}
+		
+		protected ELResolver createElResolver(VariableScope variableScope) {
+			CompositeELResolver elResolver = new CompositeELResolver();
+			elResolver.add(new VariableScopeElResolver(variableScope));
+			elResolver.add(new ReadOnlyMapELResolver(beans));
+			elResolver.add(new ArrayELResolver());
+			elResolver.add(new ListELResolver());
+			elResolver.add(new MapELResolver());
+			elResolver.add(new DynamicBeanPropertyELResolver(ItemInstance.class, "getFieldValue", "setFieldValue"));
+			elResolver.add(new BeanELResolver());
+			return elResolver;
+		}
+	}
+
+	@Test
+	public void testConditionEvaluationAllocation()
+	{
+		Map<Object, Object> beans = new HashMap<Object, Object>();
+		Map<String, Object> order = new HashMap<String, Object>();
+		order.put("amount", 150);
+		beans.put("order", order);
+		
+		long perScope = run(new PerScopeResolverExpressionManager(beans));
+		long shared = run(new ExpressionManager(beans));
+		System.out.println("per scope resolvers:" + perScope / EVALUATIONS + " bytes/evaluation");
+		System.out.println("shared resolvers:" + shared / EVALUATIONS + " bytes/evaluation");
+	}
+
+	/**
+	 * evaluates the condition EVALUATIONS times, each time with a fresh el context, 
+	 * and returns the bytes allocated by this thread (or the elapsed nanos if the jvm can't tell)
+	 */
+	private long run(ExpressionManager expressionManager)
+	{
+		ExpressionFactoryImpl expressionFactory = new ExpressionFactoryImpl();
+		VariableScope variableScope = StartProcessVariableScope.getSharedInstance();
+		ValueExpression condition = expressionFactory.createValueExpression(
+				expressionManager.getElContext(variableScope), "${order.amount > 100}", Object.class);
+		// warm up
+		for(int i = 0; i < EVALUATIONS; i ++)
+			Assert.assertEquals(Boolean.TRUE, condition.getValue(expressionManager.getElContext(variableScope)));
+		
+		long start = allocatedBytes();
+		for(int i = 0; i < EVALUATIONS; i ++)
+		{
+			ELContext elContext = expressionManager.getElContext(variableScope);
+			condition.getValue(elContext);
+		}
+		return allocatedBytes() - start;
+	}
+	
+	private long allocatedBytes()
+	{
+		java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+		if(threadMXBean instanceof com.sun.management.ThreadMXBean)
+			return ((com.sun.management.ThreadMXBean)threadMXBean).getThreadAllocatedBytes(Thread.currentThread().getId());
+		return System.nanoTime();
+	}
+
+}
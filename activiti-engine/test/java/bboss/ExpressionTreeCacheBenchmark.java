@@ -0,0 +1,122 @@
+/**
+ *  Copyright 2008 biaoping.yin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package bboss;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.activiti.engine.impl.juel.Builder;
+import org.activiti.engine.impl.juel.Cache;
+import org.activiti.engine.impl.juel.ConcurrentCache;
+import org.activiti.engine.impl.juel.TreeCache;
+import org.activiti.engine.impl.juel.TreeStore;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * <p>Title: ExpressionTreeCacheBenchmark.java</p>
+ *
+ * <p>Description: 多线程下分别对JUEL表达式解析树缓存Cache（同步LRU）与ConcurrentCache（并发近似LRU）
+ * 执行查找，表达式数量大于缓存容量以覆盖淘汰路径。工作线程只收集结果和异常，由测试线程检查：
+ * 所有查找都返回解析树，没有异常，ConcurrentCache的大小不超过容量。</p>
+ *
+ * <p>Copyright: Copyright (c) 2007</p>
+ *
+ * <p>bboss workgroup</p>
+ * @Date 2026-10-17
+ * @author biaoping.yin
+ * @version 1.0
+ */
+public class ExpressionTreeCacheBenchmark {
+	
+	private static final int THREADS = 8;
+	private static final int LOOKUPS = 50000;
+	private static final int CACHE_SIZE = 1000;
+	private static final int EXPRESSIONS = 1200;
+	
+	private static final String[] expressions = new String[EXPRESSIONS];
+	static
+	{
+		for(int i = 0; i < EXPRESSIONS; i ++)
+			expressions[i] = "${assignee" + i + " == 'user" + i + "' && count > " + i + "}";
+	}
+
+	@Test
+	public void testConcurrentLookups() throws Exception
+	{
+		run(new Cache(CACHE_SIZE));
+		ConcurrentCache concurrentCache = new ConcurrentCache(CACHE_SIZE);
+		run(concurrentCache);
+		Assert.assertTrue(concurrentCache.toString(), concurrentCache.size() <= CACHE_SIZE + THREADS);
+	}
+
+	/**
+	 * runs LOOKUPS tree lookups on each of THREADS threads and checks their results
+	 */
+	private void run(TreeCache cache) throws Exception
+	{
+		final TreeStore store = new TreeStore(new Builder(), cache);
+		// warm up
+		for(int i = 0; i < EXPRESSIONS * 10; i ++)
+			store.get(expressions[i % EXPRESSIONS]);
+		final CountDownLatch start = new CountDownLatch(1);
+		final CountDownLatch done = new CountDownLatch(THREADS);
+		final AtomicLong trees = new AtomicLong();
+		final Queue<Throwable> failures = new ConcurrentLinkedQueue<Throwable>();
+		for(int t = 0; t < THREADS; t ++)
+		{
+			final int seed = t;
+			new Thread()
+			{
+				public void run()
+				{
+					try
+					{
+						start.await();
+						// mostly hot expressions, some cold ones that miss and evict
+						for(int i = 0; i < LOOKUPS; i ++)
+						{
+							int index = (i % 10 == 0) ? (i * 31 + seed) % EXPRESSIONS : (i + seed) % 200;
+							if(store.get(expressions[index]) != null)
+								trees.incrementAndGet();
+						}
+					}
+					catch (Throwable e)
+					{
+						failures.add(e);
+					}
+					finally
+					{
+						done.countDown();
+					}
+				}
+			}.start();
+		}
+		start.countDown();
+		Assert.assertTrue("lookups didn't finish", done.await(5, TimeUnit.MINUTES));
+		if(!failures.isEmpty())
+		{
+			AssertionError error = new AssertionError(failures.size() + " lookup threads failed");
+			error.initCause(failures.peek());
+			throw error;
+		}
+		Assert.assertEquals(THREADS * (long) LOOKUPS, trees.get());
+	}
+
+}
@@ -0,0 +1,127 @@
+/**
+ *  Copyright 2008 biaoping.yin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package bboss;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import org.activiti.engine.ProcessEngine;
+import org.activiti.engine.ProcessEngineConfiguration;
+import org.activiti.engine.RuntimeService;
+import org.activiti.engine.impl.cfg.IdGenerator;
+import org.activiti.engine.impl.cfg.ProcessEngineConfigurationImpl;
+import org.activiti.engine.impl.cfg.StandaloneInMemProcessEngineConfiguration;
+import org.activiti.engine.impl.persistence.StrongUuidGenerator;
+import org.activiti.engine.impl.persistence.TimeOrderedIdGenerator;
+import org.activiti.engine.runtime.ProcessInstance;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * <p>Title: IdGeneratorBenchmark.java</p>
+ *
+ * <p>Description: 在H2内存数据库上分别使用DbIdGenerator、StrongUuidGenerator和TimeOrderedIdGenerator
+ * 启动流程实例（每个流程实例插入一个执行实例和历史记录），检查生成的id唯一，TimeOrderedIdGenerator生成的id
+ * 按插入顺序递增。</p>
+ *
+ * <p>Copyright: Copyright (c) 2007</p>
+ *
+ * <p>bboss workgroup</p>
+ * @Date 2026-10-17
+ * @author biaoping.yin
+ * @version 1.0
+ */
+public class IdGeneratorBenchmark {
+	
+	private static final String PROCESS = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+			+ "<definitions xmlns=\"http://www.omg.org/spec/BPMN/20100524/MODEL\" targetNamespace=\"bboss\">"
+			+ "<process id=\"idGeneratorBenchmark\">"
+			+ "<startEvent id=\"start\"/>"
+			+ "<sequenceFlow id=\"flow1\" sourceRef=\"start\" targetRef=\"task\"/>"
+			+ "<receiveTask id=\"task\"/>"
+			+ "<sequenceFlow id=\"flow2\" sourceRef=\"task\" targetRef=\"end\"/>"
+			+ "<endEvent id=\"end\"/>"
+			+ "</process>"
+			+ "</definitions>";
+	
+	private static final int INSTANCES = 200;
+
+	@Test
+	public void testInsertWithIdGenerators()
+	{
+		assertUnique(run("db", null));
+		assertUnique(run("uuid", new StrongUuidGenerator()));
+		List<String> timeOrdered = run("timeordered", new TimeOrderedIdGenerator());
+		assertUnique(timeOrdered);
+		for(int i = 1; i < timeOrdered.size(); i ++)
+			Assert.assertTrue(timeOrdered.get(i - 1) + " >= " + timeOrdered.get(i), timeOrdered.get(i - 1).compareTo(timeOrdered.get(i)) < 0);
+	}
+	
+	private void assertUnique(List<String> ids)
+	{
+		Assert.assertEquals(INSTANCES, ids.size());
+		Assert.assertEquals(INSTANCES, new HashSet<String>(ids).size());
+	}
+	
+	@Test
+	public void testIdsAreOrderedAndUnique()
+	{
+		TimeOrderedIdGenerator idGenerator = new TimeOrderedIdGenerator(1);
+		String previous = idGenerator.getNextId();
+		for(int i = 0; i < 100000; i ++)
+		{
+			String next = idGenerator.getNextId();
+			Assert.assertEquals(13, next.length());
+			Assert.assertTrue(previous + " >= " + next, previous.compareTo(next) < 0);
+			previous = next;
+		}
+	}
+
+	/**
+	 * starts INSTANCES process instances on a fresh H2 database and returns their ids in start order,
+	 * after checking that they were all persisted
+	 */
+	private List<String> run(String name, IdGenerator idGenerator)
+	{
+		ProcessEngineConfigurationImpl config = new StandaloneInMemProcessEngineConfiguration();
+		config.setJdbcUrl("jdbc:h2:mem:idgenerator-" + name);
+		config.setDatabaseSchemaUpdate(ProcessEngineConfiguration.DB_SCHEMA_UPDATE_CREATE_DROP);
+		config.setHistory("none");
+		if(idGenerator != null)
+			config.setIdGenerator(idGenerator);
+		ProcessEngine processEngine = config.buildProcessEngine();
+		try
+		{
+			processEngine.getRepositoryService().createDeployment()
+				.addString("idGeneratorBenchmark.bpmn20.xml", PROCESS).deploy();
+			RuntimeService runtimeService = processEngine.getRuntimeService();
+			List<String> ids = new ArrayList<String>(INSTANCES);
+			for(int i = 0; i < INSTANCES; i ++)
+			{
+				ProcessInstance processInstance = runtimeService.startProcessInstanceByKey("idGeneratorBenchmark");
+				ids.add(processInstance.getId());
+			}
+			Assert.assertEquals(INSTANCES, runtimeService.createProcessInstanceQuery().processDefinitionKey("idGeneratorBenchmark").count());
+			return ids;
+		}
+		finally
+		{
+			processEngine.close();
+		}
+	}
+
+}
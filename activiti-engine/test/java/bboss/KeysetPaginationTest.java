@@ -0,0 +1,146 @@
+/**
+ *  Copyright 2008 biaoping.yin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package bboss;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.activiti.engine.ActivitiException;
+import org.activiti.engine.ActivitiIllegalArgumentException;
+import org.activiti.engine.impl.HistoricTaskInstanceQueryImpl;
+import org.activiti.engine.impl.Page;
+import org.activiti.engine.impl.ProcessDefinitionQueryImpl;
+import org.activiti.engine.impl.TaskQueryImpl;
+import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.history.HistoricTaskInstance;
+import org.activiti.engine.task.Task;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * <p>Title: KeysetPaginationTest.java</p>
+ *
+ * <p>Description: 测试任务查询和历史任务查询的keyset分页参数：排序字段、比较运算符、上一页最后一条记录的排序值和id，
+ * 以及id作为第二排序字段。不需要数据库，查询参数在执行时截获。</p>
+ *
+ * <p>Copyright: Copyright (c) 2007</p>
+ *
+ * <p>bboss workgroup</p>
+ * @Date 2026-10-17
+ * @author biaoping.yin
+ * @version 1.0
+ */
+public class KeysetPaginationTest {
+
+	/**
+	 * captures the seek parameters the mapper would see
+	 */
+	static class CapturingTaskQuery extends TaskQueryImpl
+	{
+		private static final long serialVersionUID = 1L;
+		List<Object> captured = new ArrayList<Object>();
+
+		public List<Task> executeList(CommandContext commandContext, Page page) {
+			captured.add(getSeekColumn());
+			captured.add(getSeekOperator());
+			captured.add(getSeekValue());
+			captured.add(getSeekId());
+			captured.add(getOrderBy());
+			captured.add(getFirstResult());
+			captured.add(getMaxResults());
+			return new ArrayList<Task>();
+		}
+	}
+
+	static class CapturingHistoricTaskQuery extends HistoricTaskInstanceQueryImpl
+	{
+		private static final long serialVersionUID = 1L;
+		String orderBy;
+		String seekColumn;
+
+		public List<HistoricTaskInstance> executeList(CommandContext commandContext, Page page) {
+			orderBy = getOrderBy();
+			seekColumn = getSeekColumn();
+			return new ArrayList<HistoricTaskInstance>();
+		}
+	}
+
+	@Test
+	public void testTaskCreateTimeDesc()
+	{
+		CapturingTaskQuery query = new CapturingTaskQuery();
+		query.orderByTaskCreateTime().desc();
+		Date lastCreateTime = new Date();
+		query.listPageAfter(lastCreateTime, "1001", 20);
+		Assert.assertEquals("RES.CREATE_TIME_", query.captured.get(0));
+		Assert.assertEquals("<", query.captured.get(1));
+		Assert.assertEquals(new Timestamp(lastCreateTime.getTime()), query.captured.get(2));
+		Assert.assertEquals("1001", query.captured.get(3));
+		Assert.assertEquals("RES.CREATE_TIME_ desc, RES.ID_ desc", query.captured.get(4));
+		Assert.assertEquals(0, query.captured.get(5));
+		Assert.assertEquals(20, query.captured.get(6));
+
+		// offset paging of the same query is not affected by the previous seek
+		query.captured.clear();
+		query.listPage(40, 20);
+		Assert.assertNull(query.captured.get(0));
+		Assert.assertNull(query.captured.get(3));
+		Assert.assertEquals("RES.CREATE_TIME_ desc", query.captured.get(4));
+	}
+
+	@Test
+	public void testFirstPageAndIdOrder()
+	{
+		CapturingTaskQuery query = new CapturingTaskQuery();
+		query.listPageAfter(null, null, 10);
+		Assert.assertEquals("RES.ID_", query.captured.get(0));
+		Assert.assertEquals(">", query.captured.get(1));
+		Assert.assertNull(query.captured.get(3));
+		Assert.assertEquals("RES.ID_ asc", query.captured.get(4));
+
+		query.captured.clear();
+		query.listPageAfter("ignored", "2001", 10);
+		Assert.assertNull(query.captured.get(2));
+		Assert.assertEquals("2001", query.captured.get(3));
+	}
+
+	@Test
+	public void testHistoricTaskStartTime()
+	{
+		CapturingHistoricTaskQuery query = new CapturingHistoricTaskQuery();
+		query.orderByHistoricTaskInstanceStartTime().asc();
+		query.listPageAfter(new Date(), "3001", 50);
+		Assert.assertEquals("RES.START_TIME_", query.seekColumn);
+		Assert.assertEquals("RES.START_TIME_ asc, RES.ID_ asc", query.orderBy);
+	}
+
+	@Test(expected = ActivitiIllegalArgumentException.class)
+	public void testSeveralOrderProperties()
+	{
+		CapturingTaskQuery query = new CapturingTaskQuery();
+		query.orderByTaskPriority().desc().orderByTaskCreateTime().desc();
+		query.listPageAfter(50, "1001", 20);
+	}
+
+	@Test(expected = ActivitiException.class)
+	public void testUnsupportedQuery()
+	{
+		new ProcessDefinitionQueryImpl().listPageAfter(null, null, 20);
+	}
+
+}
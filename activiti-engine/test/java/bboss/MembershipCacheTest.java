@@ -0,0 +1,111 @@
+/**
+ *  Copyright 2008 biaoping.yin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package bboss;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.activiti.engine.impl.identity.DefaultMembershipCache;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * <p>Title: MembershipCacheTest.java</p>
+ *
+ * <p>Description: 测试用户所属组缓存的过期、失效和容量限制，以及重复解析同一候选人时的命中率。</p>
+ *
+ * <p>Copyright: Copyright (c) 2007</p>
+ *
+ * <p>bboss workgroup</p>
+ * @Date 2026-10-17
+ * @author biaoping.yin
+ * @version 1.0
+ */
+public class MembershipCacheTest {
+
+	@Test
+	public void testExpiration() throws InterruptedException
+	{
+		DefaultMembershipCache cache = new DefaultMembershipCache(50, 10);
+		List<String> groupIds = Arrays.asList("org1", "role1");
+		cache.putGroupIds("user1", groupIds);
+		Assert.assertEquals(groupIds, cache.getGroupIds("user1"));
+
+		Thread.sleep(100);
+		Assert.assertNull(cache.getGroupIds("user1"));
+		Assert.assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testInvalidation()
+	{
+		DefaultMembershipCache cache = new DefaultMembershipCache(60000, 10);
+		cache.putGroupIds("user1", Arrays.asList("org1"));
+		cache.putGroupIds("user2", Arrays.asList("org2"));
+		cache.invalidate("user1");
+		Assert.assertNull(cache.getGroupIds("user1"));
+		Assert.assertNotNull(cache.getGroupIds("user2"));
+		cache.clear();
+		Assert.assertNull(cache.getGroupIds("user2"));
+	}
+
+	@Test
+	public void testStaleResolutionIsNotCached()
+	{
+		DefaultMembershipCache cache = new DefaultMembershipCache(60000, 10);
+		// a query reads the memberships, then they change and the cache is invalidated
+		long version = cache.getVersion("user1");
+		cache.invalidate("user1");
+		cache.putGroupIds("user1", Arrays.asList("oldorg"), version);
+		Assert.assertNull(cache.getGroupIds("user1"));
+
+		version = cache.getVersion("user1");
+		cache.putGroupIds("user1", Arrays.asList("neworg"), version);
+		Assert.assertEquals(Arrays.asList("neworg"), cache.getGroupIds("user1"));
+
+		version = cache.getVersion("user1");
+		cache.clear();
+		cache.putGroupIds("user1", Arrays.asList("oldorg"), version);
+		Assert.assertNull(cache.getGroupIds("user1"));
+	}
+
+	@Test
+	public void testLimitAndHitRate()
+	{
+		DefaultMembershipCache cache = new DefaultMembershipCache(0, 100);
+		int resolutions = 0;
+		for(int request = 0; request < 10; request ++)
+		{
+			for(int i = 0; i < 100; i ++)
+			{
+				String userId = "user" + i;
+				if(cache.getGroupIds(userId) == null)
+				{
+					resolutions ++;
+					cache.putGroupIds(userId, Arrays.asList("org" + (i % 5)));
+				}
+			}
+		}
+		Assert.assertEquals(100, resolutions);
+		Assert.assertEquals(900, cache.getHitCount());
+		Assert.assertEquals(0.9, cache.getHitRate(), 0.0001);
+
+		cache.putGroupIds("user100", Arrays.asList("org0"));
+		Assert.assertEquals(100, cache.size());
+		Assert.assertNotNull(cache.getGroupIds("user100"));
+	}
+
+}
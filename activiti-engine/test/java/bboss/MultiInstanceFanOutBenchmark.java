@@ -0,0 +1,249 @@
+/**
+ *  Copyright 2008 biaoping.yin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package bboss;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.activiti.engine.delegate.Expression;
+import org.activiti.engine.delegate.VariableScope;
+import org.activiti.engine.impl.bpmn.behavior.AbstractBpmnActivityBehavior;
+import org.activiti.engine.impl.bpmn.behavior.ParallelMultiInstanceBehavior;
+import org.activiti.engine.impl.db.DbSqlSession;
+import org.activiti.engine.impl.db.DbSqlSessionFactory;
+import org.activiti.engine.impl.persistence.entity.ExecutionEntity;
+import org.activiti.engine.impl.persistence.entity.HistoricActivityInstanceEntity;
+import org.activiti.engine.impl.persistence.entity.HistoricTaskInstanceEntity;
+import org.activiti.engine.impl.persistence.entity.HistoricVariableInstanceEntity;
+import org.activiti.engine.impl.persistence.entity.TaskEntity;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * <p>Title: MultiInstanceFanOutBenchmark.java</p>
+ *
+ * <p>Description: 比较并行多实例（会签）分发10/100/1000个实例时，逐个实例处理与批量处理两种方式的开销：
+ * 1.会签人员集合的解析次数；2.flush实例数据（执行实例、任务、历史任务、历史活动、循环变量）时的数据库往返次数。
+ * 不需要数据库，SqlSession由代理模拟。</p>
+ *
+ * <p>Copyright: Copyright (c) 2007</p>
+ *
+ * <p>bboss workgroup</p>
+ * @Date 2026-10-17
+ * @author biaoping.yin
+ * @version 1.0
+ */
+public class MultiInstanceFanOutBenchmark {
+
+	private static final int[] FAN_OUTS = {10, 100, 1000};
+
+	/**
+	 * exposes the collection resolution of the parallel multi instance behavior, the inner
+	 * activity behavior is a stub as only the collection is resolved
+	 */
+	static class FanOutBehavior extends ParallelMultiInstanceBehavior
+	{
+		FanOutBehavior()
+		{
+			super(null, new AbstractBpmnActivityBehavior());
+		}
+
+		Object perInstance(int loopCounter)
+		{
+			return resolveCollectionElement(null, loopCounter);
+		}
+
+		List<Object> bulk()
+		{
+			return resolveCollectionElements(null);
+		}
+	}
+
+	/**
+	 * collection expression that counts its evaluations
+	 */
+	static class CountingExpression implements Expression
+	{
+		private static final long serialVersionUID = 1L;
+		final List<String> users;
+		int evaluations;
+
+		CountingExpression(List<String> users)
+		{
+			this.users = users;
+		}
+
+		public Object getValue(VariableScope variableScope) {
+			evaluations ++;
+			return users;
+		}
+
+		public void setValue(Object value, VariableScope variableScope) {
+		}
+
+		public String getExpressionText() {
+			return "${users}";
+		}
+	}
+
+	@Test
+	public void testCollectionResolution()
+	{
+		for(int n : FAN_OUTS)
+		{
+			List<String> users = new ArrayList<String>(n);
+			for(int i = 0; i < n; i ++)
+				users.add("user" + i);
+
+			CountingExpression perInstanceExpression = new CountingExpression(users);
+			FanOutBehavior perInstanceBehavior = newBehavior(perInstanceExpression);
+			for(int i = 0; i < n; i ++)
+				Assert.assertEquals(users.get(i), perInstanceBehavior.perInstance(i));
+
+			CountingExpression bulkExpression = new CountingExpression(users);
+			FanOutBehavior bulkBehavior = newBehavior(bulkExpression);
+			List<Object> elements = bulkBehavior.bulk();
+			Assert.assertEquals(n, elements.size());
+			for(int i = 0; i < n; i ++)
+				Assert.assertEquals(users.get(i), elements.get(i));
+
+			// per instance the collection is resolved for every instance, in bulk only once
+			Assert.assertEquals(n, perInstanceExpression.evaluations);
+			Assert.assertEquals(1, bulkExpression.evaluations);
+		}
+	}
+
+	@Test
+	public void testFlushRoundTrips()
+	{
+		for(int n : FAN_OUTS)
+		{
+			int[] perRow = flush(n, false);
+			int[] batched = flush(n, true);
+			Assert.assertEquals(perRow[0], batched[0]);
+			Assert.assertEquals(perRow[0], perRow[1]);
+			// one jdbc batch per insert statement, whatever the number of instances
+			Assert.assertEquals(5, batched[1]);
+		}
+	}
+
+	private FanOutBehavior newBehavior(Expression collectionExpression)
+	{
+		FanOutBehavior behavior = new FanOutBehavior();
+		behavior.setCollectionExpression(collectionExpression);
+		behavior.setCollectionElementVariable("user");
+		return behavior;
+	}
+
+	/**
+	 * inserts the rows of n multi instance instances and flushes them.
+	 * @return the number of rows written and the number of round trips to the database
+	 */
+	private int[] flush(int n, boolean batchFlush)
+	{
+		final int[] counts = new int[2];
+		DbSqlSessionFactory dbSqlSessionFactory = new DbSqlSessionFactory();
+		dbSqlSessionFactory.setSqlSessionFactory(newSqlSessionFactory(counts));
+		DbSqlSession dbSqlSession = new DbSqlSession(dbSqlSessionFactory);
+		dbSqlSession.setBatchFlush(batchFlush);
+		for(int i = 0; i < n; i ++)
+		{
+			ExecutionEntity execution = new ExecutionEntity();
+			execution.setId("exec" + i);
+			dbSqlSession.insert(execution);
+			TaskEntity task = new TaskEntity();
+			task.setId("task" + i);
+			dbSqlSession.insert(task);
+			HistoricTaskInstanceEntity historicTask = new HistoricTaskInstanceEntity();
+			historicTask.setId("task" + i);
+			dbSqlSession.insert(historicTask);
+			HistoricActivityInstanceEntity historicActivity = new HistoricActivityInstanceEntity();
+			historicActivity.setId("act" + i);
+			dbSqlSession.insert(historicActivity);
+			// loopCounter and the element variable
+			HistoricVariableInstanceEntity loopCounter = new HistoricVariableInstanceEntity();
+			loopCounter.setId("loopCounter" + i);
+			dbSqlSession.insert(loopCounter);
+			HistoricVariableInstanceEntity element = new HistoricVariableInstanceEntity();
+			element.setId("user" + i);
+			dbSqlSession.insert(element);
+		}
+		dbSqlSession.flush();
+		return counts;
+	}
+
+	/**
+	 * counts the rows written and the round trips: one per statement on the regular session,
+	 * one per statement change on the batch session, as the batch executor sends a batch each
+	 * time the statement changes.
+	 */
+	private SqlSessionFactory newSqlSessionFactory(final int[] counts)
+	{
+		final SqlSession sqlSession = (SqlSession) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class[] { SqlSession.class }, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if(method.getName().equals("insert"))
+				{
+					counts[0] ++;
+					counts[1] ++;
+					return 1;
+				}
+				return null;
+			}
+		});
+		final SqlSession batchSqlSession = (SqlSession) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class[] { SqlSession.class }, new InvocationHandler() {
+			String lastStatement;
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				String name = method.getName();
+				if(name.equals("insert"))
+				{
+					counts[0] ++;
+					if(!args[0].equals(lastStatement))
+					{
+						counts[1] ++;
+						lastStatement = (String) args[0];
+					}
+					return 1;
+				}
+				if(name.equals("flushStatements"))
+				{
+					lastStatement = null;
+					return new ArrayList<BatchResult>();
+				}
+				return null;
+			}
+		});
+		return (SqlSessionFactory) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class[] { SqlSessionFactory.class }, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if(method.getName().equals("openSession"))
+				{
+					return args != null && args.length > 0 && args[0] == ExecutorType.BATCH ? batchSqlSession : sqlSession;
+				}
+				return null;
+			}
+		});
+	}
+
+}
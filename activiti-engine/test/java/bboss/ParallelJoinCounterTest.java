@@ -0,0 +1,258 @@
+/**
+ *  Copyright 2008 biaoping.yin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package bboss;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.activiti.engine.ActivitiOptimisticLockingException;
+import org.activiti.engine.ProcessEngine;
+import org.activiti.engine.ProcessEngineConfiguration;
+import org.activiti.engine.RuntimeService;
+import org.activiti.engine.impl.cfg.ProcessEngineConfigurationImpl;
+import org.activiti.engine.impl.cfg.StandaloneInMemProcessEngineConfiguration;
+import org.activiti.engine.impl.interceptor.Command;
+import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.impl.persistence.entity.ExecutionEntity;
+import org.activiti.engine.impl.persistence.entity.JoinCounterEntity;
+import org.activiti.engine.runtime.Execution;
+import org.activiti.engine.runtime.ProcessInstance;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * <p>Title: ParallelJoinCounterTest.java</p>
+ *
+ * <p>Description: 在H2内存数据库上测试启用join计数器后的并行网关汇聚：分支逐个到达和同一事务中
+ * 同时到达两种情况，分别在关闭和开启执行树预取时验证只有最后一个分支到达后才会离开汇聚网关，
+ * 离开后计数器被删除；验证两个事务同时创建计数器时抛出乐观锁异常；关闭join计数器后删除流程实例时
+ * 仍然删除遗留的计数器。流程实例结束时需要bboss扩展数据源，这里在汇聚之后的节点停止。</p>
+ *
+ * <p>Copyright: Copyright (c) 2007</p>
+ *
+ * <p>bboss workgroup</p>
+ * @Date 2026-10-17
+ * @author biaoping.yin
+ * @version 1.0
+ */
+public class ParallelJoinCounterTest {
+
+	private static final String WAIT_BRANCHES = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+			+ "<definitions xmlns=\"http://www.omg.org/spec/BPMN/20100524/MODEL\" targetNamespace=\"bboss\">"
+			+ "<process id=\"waitBranches\">"
+			+ "<startEvent id=\"start\"/>"
+			+ "<sequenceFlow id=\"flow1\" sourceRef=\"start\" targetRef=\"fork\"/>"
+			+ "<parallelGateway id=\"fork\"/>"
+			+ "<sequenceFlow id=\"flow2\" sourceRef=\"fork\" targetRef=\"branch1\"/>"
+			+ "<sequenceFlow id=\"flow3\" sourceRef=\"fork\" targetRef=\"branch2\"/>"
+			+ "<sequenceFlow id=\"flow4\" sourceRef=\"fork\" targetRef=\"branch3\"/>"
+			+ "<receiveTask id=\"branch1\"/>"
+			+ "<receiveTask id=\"branch2\"/>"
+			+ "<receiveTask id=\"branch3\"/>"
+			+ "<sequenceFlow id=\"flow5\" sourceRef=\"branch1\" targetRef=\"join\"/>"
+			+ "<sequenceFlow id=\"flow6\" sourceRef=\"branch2\" targetRef=\"join\"/>"
+			+ "<sequenceFlow id=\"flow7\" sourceRef=\"branch3\" targetRef=\"join\"/>"
+			+ "<parallelGateway id=\"join\"/>"
+			+ "<sequenceFlow id=\"flow8\" sourceRef=\"join\" targetRef=\"afterJoin\"/>"
+			+ "<receiveTask id=\"afterJoin\"/>"
+			+ "<sequenceFlow id=\"flow9\" sourceRef=\"afterJoin\" targetRef=\"end\"/>"
+			+ "<endEvent id=\"end\"/>"
+			+ "</process>"
+			+ "</definitions>";
+
+	private static final String SYNCHRONOUS_BRANCHES = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+			+ "<definitions xmlns=\"http://www.omg.org/spec/BPMN/20100524/MODEL\" targetNamespace=\"bboss\">"
+			+ "<process id=\"synchronousBranches\">"
+			+ "<startEvent id=\"start\"/>"
+			+ "<sequenceFlow id=\"flow1\" sourceRef=\"start\" targetRef=\"fork\"/>"
+			+ "<parallelGateway id=\"fork\"/>"
+			+ "<sequenceFlow id=\"flow2\" sourceRef=\"fork\" targetRef=\"join\"/>"
+			+ "<sequenceFlow id=\"flow3\" sourceRef=\"fork\" targetRef=\"join\"/>"
+			+ "<sequenceFlow id=\"flow4\" sourceRef=\"fork\" targetRef=\"join\"/>"
+			+ "<parallelGateway id=\"join\"/>"
+			+ "<sequenceFlow id=\"flow5\" sourceRef=\"join\" targetRef=\"afterJoin\"/>"
+			+ "<receiveTask id=\"afterJoin\"/>"
+			+ "<sequenceFlow id=\"flow6\" sourceRef=\"afterJoin\" targetRef=\"end\"/>"
+			+ "<endEvent id=\"end\"/>"
+			+ "</process>"
+			+ "</definitions>";
+
+	private ProcessEngineConfigurationImpl config;
+	private ProcessEngine processEngine;
+
+	@After
+	public void closeProcessEngine()
+	{
+		if(processEngine != null)
+			processEngine.close();
+	}
+
+	@Test
+	public void testJoinWaitingBranches()
+	{
+		assertJoinWaitingBranches(false);
+	}
+
+	@Test
+	public void testJoinWaitingBranchesWithPrefetch()
+	{
+		assertJoinWaitingBranches(true);
+	}
+
+	@Test
+	public void testJoinSynchronousBranches()
+	{
+		assertJoinSynchronousBranches(false);
+	}
+
+	@Test
+	public void testJoinSynchronousBranchesWithPrefetch()
+	{
+		assertJoinSynchronousBranches(true);
+	}
+
+	@Test
+	public void testConcurrentCounterCreation()
+	{
+		buildProcessEngine("concurrentcounter", false);
+		config.getCommandExecutorTxRequired().execute(new InsertJoinCounter());
+		try
+		{
+			// the second first arrival of the join, in a transaction that didn't see the counter yet
+			config.getCommandExecutorTxRequired().execute(new InsertJoinCounter());
+			Assert.fail("expected an ActivitiOptimisticLockingException");
+		}
+		catch(ActivitiOptimisticLockingException e)
+		{
+		}
+	}
+
+	@Test
+	public void testCountersRemovedWhenSwitchedOff()
+	{
+		buildProcessEngine("switchedoff", false);
+		processEngine.getRepositoryService().createDeployment()
+			.addString("waitBranches.bpmn20.xml", WAIT_BRANCHES).deploy();
+		RuntimeService runtimeService = processEngine.getRuntimeService();
+		ProcessInstance processInstance = runtimeService.startProcessInstanceByKey("waitBranches");
+		runtimeService.signal(findExecution(processInstance.getId(), "branch1").getId());
+		Assert.assertNotNull(findJoinCounter(processInstance.getId()));
+
+		config.setParallelJoinCounterEnabled(false);
+		config.getCommandExecutorTxRequired().execute(new RemoveProcessInstance(processInstance.getId()));
+		Assert.assertEquals(0, runtimeService.createExecutionQuery().processInstanceId(processInstance.getId()).count());
+		Assert.assertNull(findJoinCounter(processInstance.getId()));
+	}
+
+	private void assertJoinWaitingBranches(boolean prefetch)
+	{
+		buildProcessEngine("waitbranches-" + prefetch, prefetch);
+		processEngine.getRepositoryService().createDeployment()
+			.addString("waitBranches.bpmn20.xml", WAIT_BRANCHES).deploy();
+		RuntimeService runtimeService = processEngine.getRuntimeService();
+		ProcessInstance processInstance = runtimeService.startProcessInstanceByKey("waitBranches");
+
+		String[] branches = new String[]{"branch1", "branch2", "branch3"};
+		for(int i = 0; i < branches.length; i ++)
+		{
+			Assert.assertNull(findExecution(processInstance.getId(), "afterJoin"));
+			Execution branch = findExecution(processInstance.getId(), branches[i]);
+			Assert.assertNotNull(branches[i], branch);
+			runtimeService.signal(branch.getId());
+		}
+
+		Assert.assertNotNull(findExecution(processInstance.getId(), "afterJoin"));
+		Assert.assertEquals(1, runtimeService.createExecutionQuery().processInstanceId(processInstance.getId()).count());
+		Assert.assertNull(findJoinCounter(processInstance.getId()));
+	}
+
+	private void assertJoinSynchronousBranches(boolean prefetch)
+	{
+		buildProcessEngine("synchronousbranches-" + prefetch, prefetch);
+		processEngine.getRepositoryService().createDeployment()
+			.addString("synchronousBranches.bpmn20.xml", SYNCHRONOUS_BRANCHES).deploy();
+		RuntimeService runtimeService = processEngine.getRuntimeService();
+		ProcessInstance processInstance = runtimeService.startProcessInstanceByKey("synchronousBranches");
+
+		Assert.assertNotNull(findExecution(processInstance.getId(), "afterJoin"));
+		Assert.assertEquals(1, runtimeService.createExecutionQuery().processInstanceId(processInstance.getId()).count());
+		Assert.assertNull(findJoinCounter(processInstance.getId()));
+	}
+
+	private Execution findExecution(String processInstanceId, String activityId)
+	{
+		List<Execution> executions = processEngine.getRuntimeService().createExecutionQuery()
+			.processInstanceId(processInstanceId).activityId(activityId).list();
+		Assert.assertTrue(executions.size() <= 1);
+		return executions.isEmpty() ? null : executions.get(0);
+	}
+
+	private JoinCounterEntity findJoinCounter(final String processInstanceId)
+	{
+		return config.getCommandExecutorTxRequired().execute(new Command<JoinCounterEntity>() {
+			public JoinCounterEntity execute(CommandContext commandContext)
+			{
+				return commandContext.getDbSqlSession().selectById(JoinCounterEntity.class,
+					JoinCounterEntity.createId(processInstanceId, "join"));
+			}
+		});
+	}
+
+	private void buildProcessEngine(String name, boolean prefetch)
+	{
+		config = new StandaloneInMemProcessEngineConfiguration();
+		config.setJdbcUrl("jdbc:h2:mem:paralleljoin-" + name);
+		config.setDatabaseSchemaUpdate(ProcessEngineConfiguration.DB_SCHEMA_UPDATE_CREATE_DROP);
+		config.setHistory("none");
+		config.setParallelJoinCounterEnabled(true);
+		config.setExecutionTreePrefetchEnabled(prefetch);
+		processEngine = config.buildProcessEngine();
+	}
+
+	private static class InsertJoinCounter implements Command<Void>
+	{
+		public Void execute(CommandContext commandContext)
+		{
+			commandContext.getDbSqlSession().insertImmediately(new JoinCounterEntity("concurrentRoot", "join", "processInstance"));
+			return null;
+		}
+	}
+
+	/**
+	 * removes the process instance and its concurrent executions the way the end of the process
+	 * instance does, without the end listeners
+	 */
+	private static class RemoveProcessInstance implements Command<Void>
+	{
+		private final String processInstanceId;
+
+		RemoveProcessInstance(String processInstanceId)
+		{
+			this.processInstanceId = processInstanceId;
+		}
+
+		public Void execute(CommandContext commandContext)
+		{
+			ExecutionEntity processInstance = commandContext.getExecutionEntityManager().findExecutionById(processInstanceId);
+			for(ExecutionEntity execution : new ArrayList<ExecutionEntity>(processInstance.getExecutions()))
+				execution.remove();
+			processInstance.remove();
+			return null;
+		}
+	}
+
+}
@@ -0,0 +1,135 @@
+/**
+ *  Copyright 2008 biaoping.yin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package bboss;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.activiti.engine.impl.db.IdBlock;
+import org.activiti.engine.impl.db.PrefetchingDbIdGenerator;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * <p>Title: PrefetchingDbIdGeneratorTest.java</p>
+ *
+ * <p>Description: 测试PrefetchingDbIdGenerator：剩余id低于低水位时在后台预取下一个id块，切换到预取的块后id连续且不重复；
+ * 下一个块的大小按上次计算块大小以来实际分配的id数计算，不是按整个当前块计算。不需要数据库，id块在内存中分配。</p>
+ *
+ * <p>Copyright: Copyright (c) 2007</p>
+ *
+ * <p>bboss workgroup</p>
+ * @Date 2026-10-17
+ * @author biaoping.yin
+ * @version 1.0
+ */
+public class PrefetchingDbIdGeneratorTest {
+
+	private TestIdGenerator idGenerator;
+
+	@After
+	public void shutdown()
+	{
+		if(idGenerator != null)
+			idGenerator.shutdown();
+	}
+
+	@Test
+	public void testPrefetchedBlockIsHandedOver()
+	{
+		idGenerator = new TestIdGenerator();
+		idGenerator.setIdBlockSize(100);
+		idGenerator.setTargetBlockMillis(1000);
+		for(long id = 1; id <= 1000; id ++)
+		{
+			idGenerator.now += 10;
+			Assert.assertEquals(Long.toString(id), idGenerator.getNextId());
+		}
+		// the first block is fetched inline, all others are prefetched at the low water mark
+		Assert.assertTrue(idGenerator.blockSizes.size() > 1);
+		Assert.assertEquals(1, idGenerator.inlineFetches);
+	}
+
+	@Test
+	public void testBlockSizeFollowsHandedOutIds()
+	{
+		idGenerator = new TestIdGenerator();
+		idGenerator.setIdBlockSize(100);
+		idGenerator.setTargetBlockMillis(60000);
+		idGenerator.now = 1000000;
+
+		// block 1-100, the next block is prefetched when id 75 is handed out, 1 second later
+		nextIds(74);
+		idGenerator.now += 1000;
+		nextIds(1);
+		// 75 ids per second for 60 seconds, not the 100 ids of the whole block
+		waitForBlocks(2);
+		Assert.assertEquals(4500, idGenerator.blockSizes.get(1).intValue());
+
+		// block 101-4600 is prefetched again at id 3475, 3400 ids after the previous sizing, a minute later
+		nextIds(3399);
+		idGenerator.now += 60000;
+		nextIds(1);
+		waitForBlocks(3);
+		Assert.assertEquals(Arrays.asList(100, 4500, 3400), idGenerator.blockSizes);
+		Assert.assertEquals("3476", idGenerator.getNextId());
+	}
+
+	private void nextIds(int count)
+	{
+		for(int i = 0; i < count; i ++)
+			idGenerator.getNextId();
+	}
+
+	private void waitForBlocks(int blocks)
+	{
+		long deadline = System.currentTimeMillis() + 10000;
+		while(idGenerator.blockSizes.size() < blocks && System.currentTimeMillis() < deadline)
+			Thread.yield();
+		Assert.assertEquals(blocks, idGenerator.blockSizes.size());
+	}
+
+	/**
+	 * reads the time from a field instead of the system clock and hands out consecutive id blocks
+	 * of the requested sizes, as the next.dbid property would
+	 */
+	private static class TestIdGenerator extends PrefetchingDbIdGenerator
+	{
+		private final List<Integer> blockSizes = Collections.synchronizedList(new ArrayList<Integer>());
+		private volatile long now = 1;
+		private long nextId = 1;
+		private int inlineFetches;
+
+		protected long currentTimeMillis()
+		{
+			return now;
+		}
+
+		protected synchronized IdBlock fetchBlock(int blockSize)
+		{
+			if(!Thread.currentThread().getName().equals("activiti-id-block-prefetch"))
+				inlineFetches ++;
+			IdBlock idBlock = new IdBlock(nextId, nextId + blockSize - 1);
+			nextId += blockSize;
+			blockSizes.add(blockSize);
+			return idBlock;
+		}
+	}
+
+}
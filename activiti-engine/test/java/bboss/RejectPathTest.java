@@ -0,0 +1,66 @@
+/**
+ *  Copyright 2008 biaoping.yin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package bboss;
+
+import org.activiti.engine.impl.persistence.entity.RejectPathEntity;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * <p>Title: RejectPathTest.java</p>
+ *
+ * <p>Description: 驳回路径按任务结束顺序推进，查找的驳回节点与rejecttoPretaskSQL（最后结束的任务）
+ * 和multirejecttoPretaskSQL（最后结束的其他节点任务）按结束时间排序查询的结果一致。</p>
+ *
+ * <p>Copyright: Copyright (c) 2007</p>
+ *
+ * <p>bboss workgroup</p>
+ * @Date 2026-10-17
+ * @author biaoping.yin
+ * @version 1.0
+ */
+public class RejectPathTest {
+
+	@Test
+	public void testNoEndedTask() {
+		RejectPathEntity path = new RejectPathEntity("pid");
+		Assert.assertNull(path.getRejectedTaskKey("usertask1", false));
+		Assert.assertNull(path.getRejectedTaskKey("usertask1", true));
+	}
+
+	@Test
+	public void testSequence() {
+		RejectPathEntity path = new RejectPathEntity("pid");
+		path.taskEnded("1", "usertask1");
+		path.taskEnded("2", "usertask2");
+		Assert.assertEquals("usertask2", path.getRejectedTaskKey("usertask3", false));
+		Assert.assertEquals("usertask2", path.getRejectedTaskKey("usertask3", true));
+	}
+
+	@Test
+	public void testMultiInstance() {
+		RejectPathEntity path = new RejectPathEntity("pid");
+		path.taskEnded("1", "usertask1");
+		path.taskEnded("2", "multitask");
+		path.taskEnded("3", "multitask");
+		// 多实例任务驳回到其他节点，普通任务驳回到最后结束的任务
+		Assert.assertEquals("usertask1", path.getRejectedTaskKey("multitask", true));
+		Assert.assertEquals("multitask", path.getRejectedTaskKey("multitask", false));
+		path.taskEnded("4", "usertask1");
+		Assert.assertEquals("multitask", path.getRejectedTaskKey("usertask1", true));
+		Assert.assertEquals("usertask1", path.getRejectedTaskKey("usertask1", false));
+	}
+}
@@ -0,0 +1,129 @@
+/**
+ *  Copyright 2008 biaoping.yin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package bboss;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.activiti.engine.ProcessEngine;
+import org.activiti.engine.ProcessEngineConfiguration;
+import org.activiti.engine.impl.cfg.ProcessEngineConfigurationImpl;
+import org.activiti.engine.impl.cfg.StandaloneInMemProcessEngineConfiguration;
+import org.activiti.engine.impl.cmd.AcquireJobsCmd;
+import org.activiti.engine.impl.interceptor.Command;
+import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.impl.jobexecutor.AcquiredJobs;
+import org.activiti.engine.impl.jobexecutor.JobExecutor;
+import org.activiti.engine.impl.jobexecutor.UnlockRejectedJobsHandler;
+import org.activiti.engine.impl.persistence.entity.MessageEntity;
+import org.activiti.engine.runtime.Job;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * <p>Title: UnlockRejectedJobsTest.java</p>
+ *
+ * <p>Description: 在H2内存数据库上测试UnlockRejectedJobsHandler：逐个获取和批量获取（锁定人为lockOwner:序号）的作业
+ * 被拒绝后立即释放锁，下一次获取作业时可以马上重新获取，不需要等锁过期。</p>
+ *
+ * <p>Copyright: Copyright (c) 2007</p>
+ *
+ * <p>bboss workgroup</p>
+ * @Date 2026-10-17
+ * @author biaoping.yin
+ * @version 1.0
+ */
+public class UnlockRejectedJobsTest {
+
+	private static final int JOBS = 3;
+
+	private ProcessEngineConfigurationImpl config;
+	private ProcessEngine processEngine;
+	private JobExecutor jobExecutor;
+
+	@Before
+	public void buildProcessEngine()
+	{
+		config = new StandaloneInMemProcessEngineConfiguration();
+		config.setJdbcUrl("jdbc:h2:mem:unlockrejectedjobs");
+		config.setDatabaseSchemaUpdate(ProcessEngineConfiguration.DB_SCHEMA_UPDATE_CREATE_DROP);
+		config.setHistory("none");
+		processEngine = config.buildProcessEngine();
+		jobExecutor = config.getJobExecutor();
+		config.getCommandExecutorTxRequired().execute(new Command<Void>() {
+			public Void execute(CommandContext commandContext)
+			{
+				for(int i = 0; i < JOBS; i ++)
+				{
+					MessageEntity message = new MessageEntity();
+					message.setJobHandlerType("rejected");
+					message.insert();
+				}
+				return null;
+			}
+		});
+	}
+
+	@After
+	public void closeProcessEngine()
+	{
+		if(processEngine != null)
+			processEngine.close();
+	}
+
+	@Test
+	public void testRejectedBatchCanBeAcquiredAgain()
+	{
+		jobExecutor.setBatchAcquisitionEnabled(true);
+		assertRejectedJobsCanBeAcquiredAgain();
+	}
+
+	@Test
+	public void testRejectedJobsCanBeAcquiredAgain()
+	{
+		jobExecutor.setBatchAcquisitionEnabled(false);
+		assertRejectedJobsCanBeAcquiredAgain();
+	}
+
+	private void assertRejectedJobsCanBeAcquiredAgain()
+	{
+		List<String> jobIds = acquire();
+		Assert.assertEquals(JOBS, jobIds.size());
+		Assert.assertTrue(acquire().isEmpty());
+
+		new UnlockRejectedJobsHandler().jobsRejected(jobExecutor, jobIds);
+		for(Job job : processEngine.getManagementService().createJobQuery().list())
+			Assert.assertNull(((MessageEntity) job).getLockOwner());
+
+		Assert.assertEquals(new HashSet<String>(jobIds), new HashSet<String>(acquire()));
+	}
+
+	private List<String> acquire()
+	{
+		AcquiredJobs acquiredJobs = config.getCommandExecutorTxRequired().execute(new AcquireJobsCmd(jobExecutor));
+		List<String> jobIds = new ArrayList<String>();
+		for(List<String> jobIdBatch : acquiredJobs.getJobIdBatches())
+			jobIds.addAll(jobIdBatch);
+		Set<String> distinctJobIds = new HashSet<String>(jobIds);
+		Assert.assertEquals(jobIds.size(), distinctJobIds.size());
+		return jobIds;
+	}
+
+}